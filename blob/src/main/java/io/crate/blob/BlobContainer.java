@@ -35,6 +35,7 @@ import java.nio.file.FileVisitor;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Semaphore;
 
 public class BlobContainer {
@@ -57,6 +58,7 @@ public class BlobContainer {
     private final Path tmpDirectory;
     private final Path varDirectory;
     private final BlobCoordinator blobCoordinator;
+    private final BlobDigestIndex digestIndex;
 
     public BlobContainer(Path baseDirectory) {
         this.baseDirectory = baseDirectory;
@@ -77,6 +79,14 @@ public class BlobContainer {
             logger.error("Could not create 'tmp' path {}", this.tmpDirectory);
             Throwables.propagate(e);
         }
+
+        Path indexDirectory = baseDirectory.resolve("index");
+        try {
+            this.digestIndex = new BlobDigestIndex(indexDirectory, subDirs);
+        } catch (IOException e) {
+            logger.error("Could not open blob digest index at {}", indexDirectory);
+            throw Throwables.propagate(e);
+        }
     }
 
     /**
@@ -144,6 +154,13 @@ public class BlobContainer {
         return newNames.toArray(new String[newNames.size()]);
     }
 
+    /**
+     * Index of all blobs in this container, see {@link BlobDigestIndex}
+     */
+    public BlobDigestIndex digestIndex() {
+        return digestIndex;
+    }
+
     /**
      * Walks the blobs data tree directory and visits all items using the provided {@link FileVisitor}
      *
@@ -178,6 +195,10 @@ public class BlobContainer {
         return new DigestBlob(this, digest, transferId);
     }
 
+    public DigestBlob createBlob(String digest, UUID transferId, Executor executor) {
+        return new DigestBlob(this, digest, transferId, executor);
+    }
+
     public RandomAccessFile getRandomAccessFile(String digest) {
         try {
             return new RandomAccessFile(getFile(digest), "r");
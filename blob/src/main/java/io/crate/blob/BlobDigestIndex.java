@@ -0,0 +1,753 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.blob;
+
+import com.google.common.collect.Lists;
+import io.crate.common.Hex;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.logging.Loggers;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent index of the blobs of a {@link BlobContainer} containing the digest, size and last modified
+ * timestamp of every blob.
+ *
+ * The index is split into one partition per digest prefix. Each partition consists of
+ * <ul>
+ *     <li>a data file containing the blobs sorted by digest, preceded by the number and total size of the blobs</li>
+ *     <li>a log file to which every change is appended (and synced) before it's applied in memory</li>
+ * </ul>
+ *
+ * Once a partition has accumulated {@link #MAX_PENDING_CHANGES} changes, they are merged into a new data file which
+ * atomically replaces the previous one before the log is removed. Replaying a log on top of a data file which already
+ * contains its changes is idempotent, so a crash at any point leaves a consistent partition behind.
+ * Incomplete or corrupted log records at the end of a log (e.g. due to a crash while writing) are discarded.
+ *
+ * Blob files are created and deleted between {@link #beforeChange(String)} and {@link #afterChange(String)}. The
+ * first one logs the intent to change the digest, the second one updates the entry from the blob file. Intents found
+ * in a log on load are reconciled with the blob files, so a crash between changing a file and updating the index
+ * doesn't leave a stale or missing entry behind.
+ *
+ * Partitions without a data file (e.g. of blob containers created by a previous version) ignore all changes until
+ * they're built from the blob files using {@link #build()}. A partition which can't be read or written is dropped and
+ * rebuilt from its blob files. Lookups and listings of a partition which isn't built read the blob files directly, so a
+ * partition which can't be read never appears to be empty.
+ */
+public class BlobDigestIndex {
+
+    private static final Logger LOGGER = Loggers.getLogger(BlobDigestIndex.class);
+
+    private static final int VERSION = 1;
+    private static final int DIGEST_LENGTH = 20;
+    private static final int HEADER_LENGTH = 4 + 8 + 8;
+    private static final int RECORD_LENGTH = DIGEST_LENGTH + 8 + 8;
+    private static final int LOG_RECORD_LENGTH = 1 + RECORD_LENGTH + 4;
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    private static final byte OP_INTENT = 3;
+
+    static final int MAX_PENDING_CHANGES = 1024;
+
+    private final Path indexDirectory;
+    private final Partition[] partitions = new Partition[BlobContainer.PREFIXES.length];
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalSize = new AtomicLong();
+
+    /**
+     * @param blobDirectories the directories containing the blobs of each prefix
+     */
+    BlobDigestIndex(Path indexDirectory, File[] blobDirectories) throws IOException {
+        assert blobDirectories.length == partitions.length : "there must be a blob directory for every prefix";
+        this.indexDirectory = indexDirectory;
+        Files.createDirectories(indexDirectory);
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = new Partition(i, blobDirectories[i]);
+            partitions[i].load();
+        }
+    }
+
+    /**
+     * Entry of the index. Entries of the same partition are ordered by digest.
+     */
+    public static class Entry {
+
+        private final String digest;
+        private final long size;
+        private final long lastModified;
+
+        Entry(String digest, long size, long lastModified) {
+            this.digest = digest;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        public String digest() {
+            return digest;
+        }
+
+        public long size() {
+            return size;
+        }
+
+        public long lastModified() {
+            return lastModified;
+        }
+
+        private boolean isDeleted() {
+            return size < 0;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{" + digest + ", size=" + size + ", lastModified=" + lastModified + '}';
+        }
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    public long totalSize() {
+        return totalSize.get();
+    }
+
+    public boolean isBuilt(int prefix) {
+        return partitions[prefix].isBuilt();
+    }
+
+    @Nullable
+    public Entry get(String digest) {
+        if (!isDigest(digest)) {
+            return null;
+        }
+        return partition(digest).get(digest);
+    }
+
+    public void put(String digest, long size, long lastModified) {
+        if (isDigest(digest)) {
+            partition(digest).write(OP_PUT, digest, size, lastModified);
+        }
+    }
+
+    public void remove(String digest) {
+        if (isDigest(digest)) {
+            partition(digest).write(OP_DELETE, digest, 0L, 0L);
+        }
+    }
+
+    /**
+     * Must be called before the blob file of the digest is created, replaced or deleted and must be followed by
+     * {@link #afterChange(String)} once the file operation is done, whether it succeeded or not.
+     */
+    public void beforeChange(String digest) {
+        if (isDigest(digest)) {
+            partition(digest).beforeChange(digest);
+        }
+    }
+
+    /**
+     * Updates the entry of the digest from its blob file after a change announced by {@link #beforeChange(String)}
+     */
+    public void afterChange(String digest) {
+        if (isDigest(digest)) {
+            partition(digest).afterChange(digest);
+        }
+    }
+
+    /**
+     * @return all entries of the partition of the given prefix, ordered by digest
+     * @throws UncheckedIOException if neither the index nor the blob directory of the partition can be read
+     */
+    public List<Entry> entries(int prefix) {
+        return partitions[prefix].entries();
+    }
+
+    /**
+     * @return all entries ordered by digest. The partitions are read lazily one after another, so an iteration which
+     * is stopped early only reads the partitions it has reached. The iteration fails with an {@link UncheckedIOException}
+     * if a partition can't be read.
+     */
+    public Iterable<Entry> entries(boolean descending) {
+        return () -> new Iterator<Entry>() {
+
+            int prefix = descending ? partitions.length : -1;
+            Iterator<Entry> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext()) {
+                    prefix += descending ? -1 : 1;
+                    if (prefix < 0 || prefix >= partitions.length) {
+                        return false;
+                    }
+                    List<Entry> entries = partitions[prefix].entries();
+                    current = descending ? Lists.reverse(entries).iterator() : entries.iterator();
+                }
+                return true;
+            }
+
+            @Override
+            public Entry next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("No more entries");
+                }
+                return current.next();
+            }
+        };
+    }
+
+    /**
+     * Builds all partitions which haven't been built yet from the blob files.
+     * Files which aren't named after a digest (e.g. incomplete transfers) are not indexed.
+     *
+     * NOTE: THIS IS AN EXPENSIVE OPERATION IF THE INDEX HASN'T BEEN BUILT BEFORE
+     */
+    public void build() throws IOException {
+        for (Partition partition : partitions) {
+            partition.build();
+        }
+    }
+
+    private Partition partition(String digest) {
+        return partitions[Character.digit(digest.charAt(0), 16) << 4 | Character.digit(digest.charAt(1), 16)];
+    }
+
+    private void adjustStats(long countDelta, long sizeDelta) {
+        count.addAndGet(countDelta);
+        totalSize.addAndGet(sizeDelta);
+    }
+
+    private class Partition {
+
+        private final Path dataFile;
+        private final Path logFile;
+        private final File blobDirectory;
+        private final TreeMap<String, Entry> changes = new TreeMap<>();
+        private final Map<String, Integer> ongoingChanges = new HashMap<>();
+
+        private boolean built = false;
+        private long baseCount = 0;
+        private long count = 0;
+        private long totalSize = 0;
+
+        Partition(int prefix, File blobDirectory) {
+            this.blobDirectory = blobDirectory;
+            String name = String.format(Locale.ENGLISH, "%02x", prefix);
+            this.dataFile = indexDirectory.resolve(name + ".dat");
+            this.logFile = indexDirectory.resolve(name + ".log");
+        }
+
+        synchronized boolean isBuilt() {
+            return built;
+        }
+
+        synchronized void load() throws IOException {
+            if (!Files.exists(dataFile)) {
+                // changes can't be applied without the data file, the partition needs to be built first
+                Files.deleteIfExists(logFile);
+                return;
+            }
+            try {
+                try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+                    ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+                    readFully(channel, 0L, header);
+                    int version = header.getInt();
+                    baseCount = header.getLong();
+                    long baseSize = header.getLong();
+                    if (version != VERSION || channel.size() != HEADER_LENGTH + baseCount * RECORD_LENGTH) {
+                        throw new IOException("Invalid blob digest index file " + dataFile);
+                    }
+                    updateStats(baseCount, baseSize);
+                }
+                built = true;
+                replayLog();
+            } catch (IOException e) {
+                LOGGER.warn("Discarding blob digest index partition {}, it will be rebuilt", dataFile, e);
+                rebuild();
+            }
+        }
+
+        private void replayLog() throws IOException {
+            if (!Files.exists(logFile)) {
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                ByteBuffer record = ByteBuffer.allocate(LOG_RECORD_LENGTH);
+                CRC32 crc = new CRC32();
+                byte[] digest = new byte[DIGEST_LENGTH];
+                Set<String> intents = new HashSet<>();
+                long position = 0;
+                long logSize = channel.size();
+                while (position + LOG_RECORD_LENGTH <= logSize) {
+                    record.clear();
+                    readFully(channel, position, record);
+                    crc.reset();
+                    crc.update(record.array(), 0, LOG_RECORD_LENGTH - 4);
+                    if ((int) crc.getValue() != record.getInt(LOG_RECORD_LENGTH - 4)) {
+                        break;
+                    }
+                    byte op = record.get();
+                    record.get(digest);
+                    if (op == OP_INTENT) {
+                        intents.add(Hex.encodeHexString(digest));
+                    } else {
+                        apply(op, Hex.encodeHexString(digest), record.getLong(), record.getLong());
+                    }
+                    position += LOG_RECORD_LENGTH;
+                }
+                if (position < logSize) {
+                    LOGGER.warn("Discarding {} bytes of incomplete changes at the end of {}", logSize - position, logFile);
+                    channel.truncate(position);
+                }
+            }
+            // the blob files of these digests may have changed without the index being updated
+            for (String intent : intents) {
+                reconcile(intent);
+            }
+        }
+
+        synchronized void build() throws IOException {
+            if (built) {
+                return;
+            }
+            List<Entry> entries = listBlobFiles();
+            long size = 0;
+            for (Entry entry : entries) {
+                size += entry.size;
+            }
+            writeDataFile(entries.iterator(), entries.size(), size);
+            Files.deleteIfExists(logFile);
+            baseCount = entries.size();
+            changes.clear();
+            built = true;
+            updateStats(entries.size(), size);
+            // files of ongoing changes may have been listed before they were changed
+            for (String digest : ongoingChanges.keySet()) {
+                appendLog(OP_INTENT, digest, 0L, 0L);
+            }
+        }
+
+        synchronized void write(byte op, String digest, long size, long lastModified) {
+            if (!built) {
+                return;
+            }
+            try {
+                if (op == OP_DELETE && lookup(digest) == null) {
+                    return;
+                }
+                record(op, digest, size, lastModified);
+            } catch (IOException e) {
+                LOGGER.error("Failed to update blob digest index {}, it will be rebuilt", dataFile, e);
+                rebuild();
+            }
+        }
+
+        synchronized void beforeChange(String digest) {
+            ongoingChanges.merge(digest, 1, Integer::sum);
+            if (!built) {
+                return;
+            }
+            try {
+                appendLog(OP_INTENT, digest, 0L, 0L);
+            } catch (IOException e) {
+                LOGGER.error("Failed to update blob digest index {}, it will be rebuilt", dataFile, e);
+                rebuild();
+            }
+        }
+
+        synchronized void afterChange(String digest) {
+            ongoingChanges.computeIfPresent(digest, (d, n) -> n == 1 ? null : n - 1);
+            if (!built) {
+                return;
+            }
+            try {
+                reconcile(digest);
+            } catch (IOException e) {
+                LOGGER.error("Failed to update blob digest index {}, it will be rebuilt", dataFile, e);
+                rebuild();
+            }
+        }
+
+        /**
+         * Updates the entry of the digest to match its blob file
+         */
+        private void reconcile(String digest) throws IOException {
+            File blobFile = new File(blobDirectory, digest);
+            if (blobFile.exists()) {
+                record(OP_PUT, digest, blobFile.length(), blobFile.lastModified());
+            } else if (lookup(digest) != null) {
+                record(OP_DELETE, digest, 0L, 0L);
+            }
+        }
+
+        private void record(byte op, String digest, long size, long lastModified) throws IOException {
+            appendLog(op, digest, size, lastModified);
+            apply(op, digest, size, lastModified);
+            if (changes.size() >= MAX_PENDING_CHANGES) {
+                compact();
+            }
+        }
+
+        @Nullable
+        synchronized Entry get(String digest) {
+            if (built) {
+                try {
+                    return lookup(digest);
+                } catch (IOException e) {
+                    LOGGER.error("Failed to read blob digest index {}, it will be rebuilt", dataFile, e);
+                    rebuild();
+                }
+            }
+            // the blob file is the source of the entry, whether the partition has been rebuilt or not
+            File blobFile = new File(blobDirectory, digest);
+            if (blobFile.exists()) {
+                return new Entry(digest, blobFile.length(), blobFile.lastModified());
+            }
+            return null;
+        }
+
+        synchronized List<Entry> entries() {
+            if (built) {
+                try {
+                    return readEntries();
+                } catch (IOException | UncheckedIOException e) {
+                    LOGGER.error("Failed to read blob digest index {}, it will be rebuilt", dataFile, e);
+                    rebuild();
+                }
+            }
+            if (built) {
+                try {
+                    return readEntries();
+                } catch (IOException | UncheckedIOException e) {
+                    LOGGER.error("Failed to read rebuilt blob digest index {}", dataFile, e);
+                }
+            }
+            try {
+                return listBlobFiles();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private List<Entry> readEntries() throws IOException {
+            List<Entry> entries = new ArrayList<>((int) count);
+            try (DataInputStream in = openDataFile()) {
+                Iterator<Entry> it = merged(in);
+                while (it.hasNext()) {
+                    entries.add(it.next());
+                }
+            }
+            return entries;
+        }
+
+        /**
+         * @return the entries of the blob files of the partition, ordered by digest.
+         * Files which aren't named after a digest (e.g. incomplete transfers) are skipped.
+         */
+        private List<Entry> listBlobFiles() throws IOException {
+            File[] files = blobDirectory.listFiles();
+            if (files == null) {
+                throw new IOException("Failed to list blob directory " + blobDirectory);
+            }
+            List<Entry> entries = new ArrayList<>(files.length);
+            for (File file : files) {
+                String name = file.getName();
+                if (isDigest(name)) {
+                    entries.add(new Entry(name, file.length(), file.lastModified()));
+                }
+            }
+            entries.sort(Comparator.comparing(Entry::digest));
+            return entries;
+        }
+
+        private void apply(byte op, String digest, long size, long lastModified) throws IOException {
+            Entry previous = lookup(digest);
+            if (previous != null) {
+                updateStats(-1, -previous.size);
+            }
+            if (op == OP_PUT) {
+                changes.put(digest, new Entry(digest, size, lastModified));
+                updateStats(1, size);
+            } else if (readBase(digest) == null) {
+                changes.remove(digest);
+            } else {
+                changes.put(digest, new Entry(digest, -1L, 0L));
+            }
+        }
+
+        @Nullable
+        private Entry lookup(String digest) throws IOException {
+            Entry entry = changes.get(digest);
+            if (entry != null) {
+                return entry.isDeleted() ? null : entry;
+            }
+            return readBase(digest);
+        }
+
+        /**
+         * binary search for the digest in the data file
+         */
+        @Nullable
+        private Entry readBase(String digest) throws IOException {
+            if (baseCount == 0) {
+                return null;
+            }
+            byte[] target = Hex.decodeHex(digest);
+            ByteBuffer record = ByteBuffer.allocate(RECORD_LENGTH);
+            try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+                long low = 0;
+                long high = baseCount - 1;
+                while (low <= high) {
+                    long mid = (low + high) >>> 1;
+                    record.clear();
+                    readFully(channel, HEADER_LENGTH + mid * RECORD_LENGTH, record);
+                    int cmp = compareDigest(record.array(), target);
+                    if (cmp < 0) {
+                        low = mid + 1;
+                    } else if (cmp > 0) {
+                        high = mid - 1;
+                    } else {
+                        record.position(DIGEST_LENGTH);
+                        return new Entry(digest, record.getLong(), record.getLong());
+                    }
+                }
+            }
+            return null;
+        }
+
+        private void appendLog(byte op, String digest, long size, long lastModified) throws IOException {
+            ByteBuffer record = ByteBuffer.allocate(LOG_RECORD_LENGTH);
+            record.put(op);
+            record.put(Hex.decodeHex(digest));
+            record.putLong(size);
+            record.putLong(lastModified);
+            CRC32 crc = new CRC32();
+            crc.update(record.array(), 0, LOG_RECORD_LENGTH - 4);
+            record.putInt((int) crc.getValue());
+            record.flip();
+            try (FileChannel channel = FileChannel.open(logFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+                channel.force(false);
+            }
+        }
+
+        /**
+         * Merges the pending changes into a new data file which replaces the current one and removes the log.
+         * The intents of ongoing changes are carried over into the new log.
+         */
+        private void compact() throws IOException {
+            try (DataInputStream in = openDataFile()) {
+                writeDataFile(merged(in), count, totalSize);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            Files.deleteIfExists(logFile);
+            baseCount = count;
+            changes.clear();
+            for (String digest : ongoingChanges.keySet()) {
+                appendLog(OP_INTENT, digest, 0L, 0L);
+            }
+        }
+
+        private void writeDataFile(Iterator<Entry> entries, long numEntries, long size) throws IOException {
+            Path tmpFile = dataFile.resolveSibling(dataFile.getFileName() + ".tmp");
+            try (FileOutputStream fileOut = new FileOutputStream(tmpFile.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+                out.writeInt(VERSION);
+                out.writeLong(numEntries);
+                out.writeLong(size);
+                long written = 0;
+                while (entries.hasNext()) {
+                    Entry entry = entries.next();
+                    out.write(Hex.decodeHex(entry.digest));
+                    out.writeLong(entry.size);
+                    out.writeLong(entry.lastModified);
+                    written++;
+                }
+                if (written != numEntries) {
+                    throw new IOException("Expected " + numEntries + " blob digest index entries but got " + written);
+                }
+                out.flush();
+                fileOut.getFD().sync();
+            }
+            Files.move(tmpFile, dataFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        private DataInputStream openDataFile() throws IOException {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(dataFile)));
+            try {
+                in.skipBytes(HEADER_LENGTH);
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+            return in;
+        }
+
+        /**
+         * Iterator over the entries of the data file merged with the pending changes, ordered by digest
+         */
+        private Iterator<Entry> merged(DataInputStream in) {
+            Iterator<Entry> changesIt = changes.values().iterator();
+            return new Iterator<Entry>() {
+
+                long remainingBase = baseCount;
+                Entry base = null;
+                Entry change = null;
+                Entry next = null;
+                byte[] digest = new byte[DIGEST_LENGTH];
+
+                @Override
+                public boolean hasNext() {
+                    while (next == null) {
+                        if (base == null && remainingBase > 0) {
+                            base = readNextBase();
+                        }
+                        if (change == null && changesIt.hasNext()) {
+                            change = changesIt.next();
+                        }
+                        if (base == null && change == null) {
+                            return false;
+                        }
+                        int cmp;
+                        if (base == null) {
+                            cmp = 1;
+                        } else if (change == null) {
+                            cmp = -1;
+                        } else {
+                            cmp = base.digest.compareTo(change.digest);
+                        }
+                        if (cmp < 0) {
+                            next = base;
+                            base = null;
+                        } else {
+                            // a change supersedes the entry of the data file
+                            if (cmp == 0) {
+                                base = null;
+                            }
+                            if (!change.isDeleted()) {
+                                next = change;
+                            }
+                            change = null;
+                        }
+                    }
+                    return true;
+                }
+
+                @Override
+                public Entry next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException("No more entries");
+                    }
+                    Entry entry = next;
+                    next = null;
+                    return entry;
+                }
+
+                private Entry readNextBase() {
+                    try {
+                        in.readFully(digest);
+                        remainingBase--;
+                        return new Entry(Hex.encodeHexString(digest), in.readLong(), in.readLong());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            };
+        }
+
+        /**
+         * Drops the partition and builds it from the blob files
+         */
+        private void rebuild() {
+            updateStats(-count, -totalSize);
+            built = false;
+            baseCount = 0;
+            changes.clear();
+            try {
+                Files.deleteIfExists(dataFile);
+                Files.deleteIfExists(logFile);
+            } catch (IOException e) {
+                LOGGER.error("Failed to delete blob digest index partition {}", dataFile, e);
+                return;
+            }
+            try {
+                build();
+            } catch (IOException e) {
+                LOGGER.error("Failed to build blob digest index partition {}", dataFile, e);
+            }
+        }
+
+        private void updateStats(long countDelta, long sizeDelta) {
+            count += countDelta;
+            totalSize += sizeDelta;
+            adjustStats(countDelta, sizeDelta);
+        }
+    }
+
+    private static boolean isDigest(String digest) {
+        if (digest.length() != DIGEST_LENGTH * 2) {
+            return false;
+        }
+        for (int i = 0; i < digest.length(); i++) {
+            char c = digest.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int compareDigest(byte[] record, byte[] digest) {
+        for (int i = 0; i < DIGEST_LENGTH; i++) {
+            int cmp = (record[i] & 0xFF) - (digest[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    private static void readFully(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Unexpected end of " + channel);
+            }
+        }
+        buffer.flip();
+    }
+}
@@ -103,14 +103,14 @@ public class BlobTransferTarget extends AbstractComponent {
             return;
         }
 
-        DigestBlob digestBlob = blobShard.blobContainer().createBlob(request.id(), request.transferId());
+        DigestBlob digestBlob = blobShard.blobContainer().createBlob(
+            request.id(), request.transferId(), threadPool.executor(ThreadPool.Names.GENERIC));
         digestBlob.addContent(request.content(), request.isLast());
 
         response.size(digestBlob.size());
         if (request.isLast()) {
             try {
                 digestBlob.commit();
-                blobShard.incrementStats(digestBlob.size());
                 response.status(RemoteDigestBlob.Status.FULL);
             } catch (DigestMismatchException e) {
                 response.status(RemoteDigestBlob.Status.MISMATCH);
@@ -175,7 +175,8 @@ public class BlobTransferTarget extends AbstractComponent {
         BlobShard blobShard = blobIndicesService.blobShardSafe(request.shardId());
 
         DigestBlob digestBlob = DigestBlob.resumeTransfer(
-            blobShard.blobContainer(), transferInfoResponse.digest, request.transferId, request.currentPos
+            blobShard.blobContainer(), transferInfoResponse.digest, request.transferId, request.currentPos,
+            threadPool.executor(ThreadPool.Names.GENERIC)
         );
 
         assert digestBlob != null : "DigestBlob couldn't be restored";
@@ -211,8 +212,6 @@ public class BlobTransferTarget extends AbstractComponent {
             digestBlob.waitForHead();
             try {
                 digestBlob.commit();
-                BlobShard blobShard = blobIndicesService.blobShardSafe(status.shardId());
-                blobShard.incrementStats(digestBlob.size());
                 response.status(RemoteDigestBlob.Status.FULL);
             } catch (DigestMismatchException e) {
                 response.status(RemoteDigestBlob.Status.MISMATCH);
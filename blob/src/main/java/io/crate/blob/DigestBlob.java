@@ -22,6 +22,7 @@
 package io.crate.blob;
 
 import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.MoreExecutors;
 import io.crate.blob.exceptions.BlobAlreadyExistsException;
 import io.crate.blob.exceptions.DigestMismatchException;
 import io.crate.common.Hex;
@@ -40,7 +41,10 @@ import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -60,11 +64,29 @@ public class DigestBlob implements Closeable {
     private CountDownLatch headCatchedUpLatch;
     private static final Logger logger = Loggers.getLogger(DigestBlob.class);
 
+    static final int MAX_PENDING_CHUNKS = 4;
+
+    private final Executor executor;
+    private final Semaphore pendingChunks = new Semaphore(MAX_PENDING_CHUNKS);
+    private CompletableFuture<Void> hashed = CompletableFuture.completedFuture(null);
+    private CompletableFuture<Void> written = CompletableFuture.completedFuture(null);
+
     public DigestBlob(BlobContainer container, String digest, UUID transferId) {
+        this(container, digest, transferId, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * @param executor used to hash and write the chunks added by {@link #addContent(BytesReference, boolean)} so
+     *                 that the caller can continue before a chunk is on disk.
+     *                 Hashing and writing of a chunk run concurrently and at most {@link #MAX_PENDING_CHUNKS} chunks
+     *                 are buffered; the last chunk waits until all chunks have been hashed and written.
+     */
+    public DigestBlob(BlobContainer container, String digest, UUID transferId, Executor executor) {
         this.digest = digest;
         this.container = container;
         this.size = 0;
         this.transferId = transferId;
+        this.executor = executor;
     }
 
     public String getDigest() {
@@ -89,48 +111,47 @@ public class DigestBlob implements Closeable {
         return tmpFile;
     }
 
-    private void updateDigest(ByteBuffer bbf) throws IOException {
+    private void updateDigest(ByteBuffer bbf) {
         if (md == null) {
             try {
                 md = MessageDigest.getInstance("SHA-1");
             } catch (NoSuchAlgorithmException e) {
-                throw new IOException(e);
+                throw new UncheckedIOException(new IOException(e));
             }
         }
         md.update(bbf.slice());
     }
 
     private void addContent(ChannelBuffer buffer, boolean last) throws IOException {
+        raisePendingFailure();
+        if (file == null) {
+            file = createTmpFile();
+        }
+        if (fileChannel == null) {
+            FileOutputStream outputStream = new FileOutputStream(file);
+            fileChannel = outputStream.getChannel();
+        }
         if (buffer != null) {
             int readableBytes = buffer.readableBytes();
+            // netty buffers aren't pooled, so the chunk can be referenced until it has been hashed and written
             ByteBuffer byteBuffer = buffer.toByteBuffer();
-            if (file == null) {
-                file = createTmpFile();
+            try {
+                pendingChunks.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for pending chunks of " + digest);
             }
-            if (fileChannel == null) {
-                FileOutputStream outputStream = new FileOutputStream(file);
-                fileChannel = outputStream.getChannel();
+            if (headLength == 0) {
+                hashed = hashed.thenRunAsync(() -> updateDigest(byteBuffer.duplicate()), executor);
             }
-
-            int written = 0;
-            do {
-                if (headLength == 0) {
-                    updateDigest(byteBuffer);
-                }
-                written += fileChannel.write(byteBuffer);
-            } while (written < readableBytes);
+            written = written.thenRunAsync(() -> write(byteBuffer.duplicate()), executor);
+            CompletableFuture.allOf(hashed, written).whenComplete((r, t) -> pendingChunks.release());
             size += readableBytes;
-            buffer.readerIndex(buffer.readerIndex() + written);
+            buffer.readerIndex(buffer.readerIndex() + readableBytes);
             chunks++;
         }
         if (last) {
-            if (file == null) {
-                file = createTmpFile();
-            }
-            if (fileChannel == null) {
-                FileOutputStream outputStream = new FileOutputStream(file);
-                fileChannel = outputStream.getChannel();
-            }
+            waitForPendingChunks();
             fileChannel.force(false);
             fileChannel.close();
             fileChannel = null;
@@ -141,6 +162,37 @@ public class DigestBlob implements Closeable {
         }
     }
 
+    private void write(ByteBuffer byteBuffer) {
+        try {
+            while (byteBuffer.hasRemaining()) {
+                fileChannel.write(byteBuffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void raisePendingFailure() throws IOException {
+        if (hashed.isCompletedExceptionally() || written.isCompletedExceptionally()) {
+            waitForPendingChunks();
+        }
+    }
+
+    private void waitForPendingChunks() throws IOException {
+        try {
+            CompletableFuture.allOf(hashed, written).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for pending chunks of " + digest);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw new IOException(cause);
+        }
+    }
+
     private void calculateDigest() {
         assert headSize.get() == headLength : "Head hasn't catched up, can't calculate digest";
         try (FileInputStream stream = new FileInputStream(file)) {
@@ -180,8 +232,14 @@ public class DigestBlob implements Closeable {
                 if (Files.exists(newFile.toPath())) {
                     throw new BlobAlreadyExistsException(digest);
                 }
-                file.renameTo(newFile);
-                file = null;
+                BlobDigestIndex digestIndex = container.digestIndex();
+                digestIndex.beforeChange(digest);
+                try {
+                    file.renameTo(newFile);
+                    file = null;
+                } finally {
+                    digestIndex.afterChange(digest);
+                }
             } finally {
                 // semaphore was acquired successfully, release it
                 semaphore.release();
@@ -233,7 +291,12 @@ public class DigestBlob implements Closeable {
 
     public static DigestBlob resumeTransfer(BlobContainer blobContainer, String digest,
                                             UUID transferId, long currentPos) {
-        DigestBlob digestBlob = new DigestBlob(blobContainer, digest, transferId);
+        return resumeTransfer(blobContainer, digest, transferId, currentPos, MoreExecutors.directExecutor());
+    }
+
+    public static DigestBlob resumeTransfer(BlobContainer blobContainer, String digest,
+                                            UUID transferId, long currentPos, Executor executor) {
+        DigestBlob digestBlob = new DigestBlob(blobContainer, digest, transferId, executor);
         digestBlob.file = getTmpFilePath(blobContainer, digest, transferId).toFile();
 
         try {
@@ -272,6 +335,13 @@ public class DigestBlob implements Closeable {
 
     @Override
     public void close() throws IOException {
+        try {
+            waitForPendingChunks();
+        } catch (IOException e) {
+            logger.trace("pending chunk of {} failed before close", digest, e);
+        }
+        IOUtils.closeWhileHandlingException(fileChannel);
+        fileChannel = null;
         if (file != null) {
             file.delete();
         }
@@ -23,6 +23,8 @@ package io.crate.blob.v2;
 
 import com.google.common.base.Throwables;
 import io.crate.blob.BlobContainer;
+import io.crate.blob.BlobDigestIndex;
+import io.crate.common.Hex;
 import org.apache.logging.log4j.Logger;
 import org.apache.lucene.util.IOUtils;
 import org.elasticsearch.cluster.routing.ShardRouting;
@@ -35,11 +37,10 @@ import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.ShardPath;
 
 import java.io.IOException;
-import java.nio.file.FileVisitResult;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
 
 public class BlobShard {
 
@@ -50,9 +51,6 @@ public class BlobShard {
     private final Logger logger;
     private final Path blobDir;
 
-    private long totalSize = 0;
-    private long blobsCount = 0;
-
     public BlobShard(IndexShard indexShard, @Nullable Path globalBlobPath) {
         this.indexShard = indexShard;
         logger = Loggers.getLogger(BlobShard.class, indexShard.indexSettings().getSettings(), indexShard.shardId());
@@ -63,17 +61,10 @@ public class BlobShard {
 
     void initialize() {
         try {
-            blobContainer.visitBlobs(new SimpleFileVisitor<Path>() {
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                    blobsCount += 1;
-                    long fileSize = attrs.size();
-                    totalSize += fileSize;
-                    return FileVisitResult.CONTINUE;
-                }
-            });
+            // only walks the blob files if the digest index hasn't been built yet
+            blobContainer.digestIndex().build();
         } catch (IOException e) {
-            logger.error("Unable to compute initial blob shard size and count", e);
+            logger.error("Unable to build the blob digest index", e);
             throw Throwables.propagate(e);
         }
     }
@@ -86,43 +77,46 @@ public class BlobShard {
         return indexShard;
     }
 
-    public byte[][] currentDigests(byte prefix) {
-        return blobContainer.cleanAndReturnDigests(prefix);
+    /**
+     * get all digests with the given prefix from the digest index
+     * the digests are returned as byte[][] instead as String[] to save overhead in the BlobRecovery
+     *
+     * @throws IOException if the digests can't be read. The recovery must fail in that case, as the digests
+     * which are missing on the source would be deleted on the target.
+     */
+    public byte[][] currentDigests(byte prefix) throws IOException {
+        List<BlobDigestIndex.Entry> entries;
+        try {
+            entries = blobContainer.digestIndex().entries(prefix & 0xFF);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        byte[][] digests = new byte[entries.size()][];
+        for (int i = 0; i < digests.length; i++) {
+            digests[i] = Hex.decodeHex(entries.get(i).digest());
+        }
+        return digests;
     }
 
     public boolean delete(String digest) {
+        BlobDigestIndex digestIndex = blobContainer.digestIndex();
+        digestIndex.beforeChange(digest);
         try {
             Path blobPath = blobContainer.getFile(digest).toPath();
-            long blobSize = 0;
-            if (Files.exists(blobPath)) {
-                blobSize = Files.size(blobPath);
-            }
-            boolean deleted = Files.deleteIfExists(blobPath);
-            if (deleted) {
-                decrementStats(blobSize);
-            }
-            return deleted;
+            return Files.deleteIfExists(blobPath);
         } catch (IOException e) {
             throw Throwables.propagate(e);
+        } finally {
+            digestIndex.afterChange(digest);
         }
     }
 
-    public void incrementStats(long size) {
-        totalSize += size;
-        blobsCount++;
-    }
-
-    private void decrementStats(long size) {
-        totalSize -= size;
-        blobsCount--;
-    }
-
     public long getTotalSize() {
-        return totalSize;
+        return blobContainer.digestIndex().totalSize();
     }
 
     public long getBlobsCount() {
-        return blobsCount;
+        return blobContainer.digestIndex().count();
     }
 
     public BlobContainer blobContainer() {
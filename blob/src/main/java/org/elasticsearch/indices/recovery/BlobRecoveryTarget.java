@@ -21,6 +21,7 @@
 
 package org.elasticsearch.indices.recovery;
 
+import io.crate.blob.BlobDigestIndex;
 import io.crate.blob.exceptions.IllegalBlobRecoveryStateException;
 import io.crate.blob.v2.BlobIndicesService;
 import io.crate.blob.v2.BlobShard;
@@ -39,6 +40,7 @@ import org.elasticsearch.transport.TransportResponse;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
@@ -155,7 +157,7 @@ public class BlobRecoveryTarget extends AbstractComponent {
                 Path source = baseDirectory.resolve(transferStatus.sourcePath());
                 Path target = baseDirectory.resolve(transferStatus.targetPath());
 
-                Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                moveBlob(shard, source, target);
                 onGoingRecovery.onGoingTransfers().remove(request.transferId());
             }
 
@@ -177,7 +179,8 @@ public class BlobRecoveryTarget extends AbstractComponent {
                 throw new IndexShardClosedException(status.shardId());
             }
             BlobStartPrefixResponse response = new BlobStartPrefixResponse();
-            response.existingDigests = status.blobShard.currentDigests(request.prefix());
+            // the files are listed because incomplete files of a previous recovery must be removed
+            response.existingDigests = status.blobShard.blobContainer().cleanAndReturnDigests(request.prefix());
             channel.sendResponse(response);
         }
     }
@@ -208,7 +211,7 @@ public class BlobRecoveryTarget extends AbstractComponent {
                 Path source = baseDirectory.resolve(tmpPath);
                 Path target = baseDirectory.resolve(request.path());
 
-                Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                moveBlob(shard, source, target);
             } else {
                 BlobRecoveryTransferStatus transferStatus = new BlobRecoveryTransferStatus(
                     request.transferId(), outputStream, tmpPath, request.path()
@@ -220,6 +223,17 @@ public class BlobRecoveryTarget extends AbstractComponent {
         }
     }
 
+    private static void moveBlob(BlobShard shard, Path source, Path target) throws IOException {
+        BlobDigestIndex digestIndex = shard.blobContainer().digestIndex();
+        String digest = target.getFileName().toString();
+        digestIndex.beforeChange(digest);
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            digestIndex.afterChange(digest);
+        }
+    }
+
     private class DeleteFileRequestHandler implements TransportRequestHandler<BlobRecoveryDeleteRequest> {
         @Override
         public void messageReceived(BlobRecoveryDeleteRequest request, TransportChannel channel) throws Exception {
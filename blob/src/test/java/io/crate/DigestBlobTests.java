@@ -35,6 +35,8 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
@@ -132,4 +134,30 @@ public class DigestBlobTests extends CrateUnitTest {
         // just in case any references to file left
         assertThat(file.delete(), is(true));
     }
+
+    @Test
+    public void testAddContentWithExecutorHashesAndWritesAllChunks() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            BlobContainer container = new BlobContainer(tmpFolder.newFolder().toPath());
+            DigestBlob digestBlob = container.createBlob(
+                "417de3231e23dcd6d224ff60918024bc6c59aa58", UUID.randomUUID(), executor);
+
+            String[] chunks = new String[] { "AB", "CDE", "FGH", "IJ", "KLM", "N", "O" };
+            for (int i = 0; i < chunks.length; i++) {
+                digestBlob.addContent(new BytesArray(chunks[i].getBytes(StandardCharsets.UTF_8)), i == chunks.length - 1);
+            }
+            assertThat(digestBlob.size(), is(15));
+            assertThat(digestBlob.chunks(), is(7L));
+
+            File file = digestBlob.commit();
+            byte[] buffer = new byte[15];
+            try (FileInputStream stream = new FileInputStream(file)) {
+                assertThat(stream.read(buffer, 0, 15), is(15));
+                assertThat(new BytesArray(buffer).utf8ToString(), is("ABCDEFGHIJKLMNO"));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
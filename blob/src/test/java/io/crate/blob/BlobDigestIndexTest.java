@@ -0,0 +1,229 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.blob;
+
+import io.crate.common.Hex;
+import io.crate.test.utils.Blobs;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class BlobDigestIndexTest {
+
+    @ClassRule
+    public static TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testBuildFromExistingBlobs() throws Exception {
+        Path blobsPath = temporaryFolder.newFolder().toPath();
+        BlobContainer blobContainer = new BlobContainer(blobsPath);
+        String digestA = createBlob(blobContainer, "Content A");
+        createBlob(blobContainer, "Content BB");
+        // incomplete transfers must be ignored
+        new File(blobContainer.getFile(digestA).getPath() + ".1").createNewFile();
+
+        // blob containers of previous versions have no index until it is built, the blob files are read instead
+        BlobDigestIndex digestIndex = new BlobContainer(blobsPath).digestIndex();
+        assertThat(digestIndex.count(), is(0L));
+        assertThat(digestIndex.get(digestA).size(), is(9L));
+        assertThat(digests(digestIndex.entries(prefix(digestA))), hasItem(digestA));
+
+        digestIndex.build();
+        assertThat(digestIndex.count(), is(2L));
+        assertThat(digestIndex.totalSize(), is(19L));
+        assertThat(digestIndex.get(digestA).size(), is(9L));
+        assertThat(digestIndex.get(digest("Content C")), nullValue());
+        assertThat(digestIndex.get("invalid"), nullValue());
+
+        digestIndex = new BlobContainer(blobsPath).digestIndex();
+        assertThat(digestIndex.count(), is(2L));
+        assertThat(digestIndex.get(digestA).lastModified(), is(blobContainer.getFile(digestA).lastModified()));
+    }
+
+    @Test
+    public void testChangesAreRecoveredFromLog() throws Exception {
+        Path blobsPath = temporaryFolder.newFolder().toPath();
+        BlobDigestIndex digestIndex = new BlobContainer(blobsPath).digestIndex();
+        digestIndex.build();
+
+        String digestA = digest("Content A");
+        String digestB = digest("Content B");
+        digestIndex.put(digestA, 10L, 1L);
+        digestIndex.put(digestB, 20L, 2L);
+        digestIndex.put(digestB, 30L, 3L);
+        digestIndex.remove(digestA);
+        digestIndex.remove(digest("Content C"));
+        assertThat(digestIndex.count(), is(1L));
+        assertThat(digestIndex.totalSize(), is(30L));
+
+        digestIndex = new BlobContainer(blobsPath).digestIndex();
+        assertThat(digestIndex.count(), is(1L));
+        assertThat(digestIndex.totalSize(), is(30L));
+        assertThat(digestIndex.get(digestA), nullValue());
+        assertThat(digestIndex.get(digestB).lastModified(), is(3L));
+    }
+
+    @Test
+    public void testUnfinishedChangesAreReconciledOnLoad() throws Exception {
+        Path blobsPath = temporaryFolder.newFolder().toPath();
+        BlobContainer blobContainer = new BlobContainer(blobsPath);
+        String digestA = createBlob(blobContainer, "Content A");
+        BlobDigestIndex digestIndex = blobContainer.digestIndex();
+        digestIndex.build();
+
+        // simulate a crash after the files were changed but before the index was updated
+        digestIndex.beforeChange(digestA);
+        assertThat(blobContainer.getFile(digestA).delete(), is(true));
+        String digestB = digest("Content BB");
+        digestIndex.beforeChange(digestB);
+        createBlob(blobContainer, "Content BB");
+
+        digestIndex = new BlobContainer(blobsPath).digestIndex();
+        assertThat(digestIndex.get(digestA), nullValue());
+        assertThat(digestIndex.get(digestB).size(), is(10L));
+        assertThat(digestIndex.count(), is(1L));
+        assertThat(digestIndex.totalSize(), is(10L));
+    }
+
+    @Test
+    public void testAfterChangeUpdatesEntryFromBlobFile() throws Exception {
+        Path blobsPath = temporaryFolder.newFolder().toPath();
+        BlobContainer blobContainer = new BlobContainer(blobsPath);
+        BlobDigestIndex digestIndex = blobContainer.digestIndex();
+        digestIndex.build();
+
+        String digest = digest("Content A");
+        digestIndex.beforeChange(digest);
+        createBlob(blobContainer, "Content A");
+        digestIndex.afterChange(digest);
+        assertThat(digestIndex.get(digest).size(), is(9L));
+
+        digestIndex.beforeChange(digest);
+        assertThat(blobContainer.getFile(digest).delete(), is(true));
+        digestIndex.afterChange(digest);
+        assertThat(digestIndex.get(digest), nullValue());
+        assertThat(digestIndex.count(), is(0L));
+    }
+
+    @Test
+    public void testIncompleteLogRecordIsDiscarded() throws Exception {
+        Path blobsPath = temporaryFolder.newFolder().toPath();
+        BlobDigestIndex digestIndex = new BlobContainer(blobsPath).digestIndex();
+        digestIndex.build();
+        String digest = digest("Content A");
+        digestIndex.put(digest, 10L, 1L);
+
+        Path logFile = blobsPath.resolve("index").resolve(digest.substring(0, 2) + ".log");
+        Files.write(logFile, new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+
+        digestIndex = new BlobContainer(blobsPath).digestIndex();
+        assertThat(digestIndex.count(), is(1L));
+        assertThat(digestIndex.get(digest).size(), is(10L));
+
+        digestIndex.put(digest("Content B"), 5L, 1L);
+        digestIndex = new BlobContainer(blobsPath).digestIndex();
+        assertThat(digestIndex.count(), is(2L));
+    }
+
+    @Test
+    public void testEntriesAreSortedAndSurviveCompaction() throws Exception {
+        Path blobsPath = temporaryFolder.newFolder().toPath();
+        BlobDigestIndex digestIndex = new BlobContainer(blobsPath).digestIndex();
+        digestIndex.build();
+
+        List<String> digests = new ArrayList<>();
+        int numBlobs = BlobDigestIndex.MAX_PENDING_CHANGES + 10;
+        for (int i = 0; i < numBlobs; i++) {
+            // all digests share the same prefix to trigger a compaction of the partition
+            String digest = "00" + digest("Content " + i).substring(2);
+            digests.add(digest);
+            digestIndex.put(digest, i, i);
+        }
+        digestIndex.remove(digests.get(0));
+        digests.remove(0);
+        digests.sort(String::compareTo);
+
+        for (BlobDigestIndex index : new BlobDigestIndex[] { digestIndex, new BlobContainer(blobsPath).digestIndex() }) {
+            assertThat(index.count(), is((long) numBlobs - 1));
+            List<String> entries = new ArrayList<>();
+            for (BlobDigestIndex.Entry entry : index.entries(0)) {
+                entries.add(entry.digest());
+            }
+            assertThat(entries, is(digests));
+            assertThat(index.get(digests.get(100)), notNullValue());
+            assertThat(index.entries(1), empty());
+        }
+    }
+
+    @Test
+    public void testUnreadablePartitionIsRebuiltAndReadAgain() throws Exception {
+        Path blobsPath = temporaryFolder.newFolder().toPath();
+        BlobContainer blobContainer = new BlobContainer(blobsPath);
+        String digest = createBlob(blobContainer, "Content A");
+        BlobDigestIndex digestIndex = blobContainer.digestIndex();
+        digestIndex.build();
+
+        Path dataFile = blobsPath.resolve("index").resolve(digest.substring(0, 2) + ".dat");
+        Files.delete(dataFile);
+        assertThat(digests(digestIndex.entries(prefix(digest))), contains(digest));
+        assertThat(digestIndex.isBuilt(prefix(digest)), is(true));
+
+        Files.delete(dataFile);
+        assertThat(digestIndex.get(digest).size(), is(9L));
+    }
+
+    private static String createBlob(BlobContainer blobContainer, String content) throws Exception {
+        String digest = digest(content);
+        try (FileOutputStream out = new FileOutputStream(blobContainer.getFile(digest))) {
+            out.write(content.getBytes("UTF-8"));
+        }
+        return digest;
+    }
+
+    private static int prefix(String digest) {
+        return Integer.parseInt(digest.substring(0, 2), 16);
+    }
+
+    private static List<String> digests(List<BlobDigestIndex.Entry> entries) {
+        List<String> digests = new ArrayList<>(entries.size());
+        for (BlobDigestIndex.Entry entry : entries) {
+            digests.add(entry.digest());
+        }
+        return digests;
+    }
+
+    private static String digest(String content) {
+        return Hex.encodeHexString(Blobs.digest(content));
+    }
+}
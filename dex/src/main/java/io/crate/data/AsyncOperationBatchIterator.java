@@ -27,7 +27,7 @@ import io.crate.concurrent.CompletableFutures;
 import io.crate.exceptions.Exceptions;
 
 import javax.annotation.Nonnull;
-import javax.annotation.Nullable;
+import java.util.ArrayDeque;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.concurrent.CompletableFuture;
@@ -55,6 +55,14 @@ import java.util.concurrent.CompletionStage;
  *                      onResult -> fill-up data of *this* BatchIterator
  *
  * </pre>
+ *
+ * If {@code maxPendingBatches} is greater than 1, up to that many batches are processed concurrently:
+ * Once the data of a batch is handed out, the next batches are started using the already loaded source data, so that
+ * their processing overlaps with the consumption of the current batch.
+ * This requires a {@link BatchAccumulator} which captures all state of a batch on
+ * {@link BatchAccumulator#processBatch(boolean)}.
+ * If the iterator is closed while batches are still pending, the {@link BatchAccumulator} is closed once they
+ * completed.
  */
 public class AsyncOperationBatchIterator implements BatchIterator {
 
@@ -63,6 +71,8 @@ public class AsyncOperationBatchIterator implements BatchIterator {
     private final BatchAccumulator<Row, Iterator<? extends Row>> batchAccumulator;
     private final RowColumns rowData;
     private final Row sourceRow;
+    private final int maxPendingBatches;
+    private final ArrayDeque<CompletableFuture<Iterator<? extends Row>>> pendingBatches = new ArrayDeque<>();
 
     private Iterator<? extends Row> it;
     private int idxWithinBatch = 0;
@@ -73,7 +83,16 @@ public class AsyncOperationBatchIterator implements BatchIterator {
     public AsyncOperationBatchIterator(BatchIterator source,
                                        int numColumns,
                                        BatchAccumulator<Row, Iterator<? extends Row>> batchAccumulator) {
+        this(source, numColumns, batchAccumulator, 1);
+    }
+
+    public AsyncOperationBatchIterator(BatchIterator source,
+                                       int numColumns,
+                                       BatchAccumulator<Row, Iterator<? extends Row>> batchAccumulator,
+                                       int maxPendingBatches) {
+        assert maxPendingBatches > 0 : "maxPendingBatches must be greater than 0";
         this.source = source;
+        this.maxPendingBatches = maxPendingBatches;
         this.batchSize = batchAccumulator.batchSize();
         this.batchAccumulator = batchAccumulator;
         this.it = Collections.emptyIterator();
@@ -93,6 +112,8 @@ public class AsyncOperationBatchIterator implements BatchIterator {
 
         source.moveToStart();
         batchAccumulator.reset();
+        pendingBatches.clear();
+        idxWithinBatch = 0;
         sourceExhausted = false;
         it = Collections.emptyIterator();
         rowData.updateRef(RowBridging.OFF_ROW);
@@ -113,12 +134,18 @@ public class AsyncOperationBatchIterator implements BatchIterator {
     @Override
     public void close() {
         source.close();
-        batchAccumulator.close();
         closed = true;
+        if (pendingBatches.isEmpty()) {
+            batchAccumulator.close();
+        } else {
+            // closing the accumulator may release resources which the pending batches still use
+            CompletableFuture<?>[] pending = pendingBatches.toArray(new CompletableFuture[0]);
+            pendingBatches.clear();
+            CompletableFuture.allOf(pending).whenComplete((r, f) -> batchAccumulator.close());
+        }
     }
 
     private void concatRows(Iterator<? extends Row> rows) {
-        idxWithinBatch = 0;
         it = Iterators.concat(it, rows);
     }
 
@@ -131,43 +158,55 @@ public class AsyncOperationBatchIterator implements BatchIterator {
     }
 
     private CompletionStage<?> uncheckedLoadNextBatch() {
-        CompletionStage<?> batchProcessResult = tryProcessBatchFromLoadedSource();
-        if (batchProcessResult == null) {
+        if (pendingBatches.isEmpty() && !tryProcessBatchFromLoadedSource()) {
             if (source.allLoaded()) {
                 return processRemaining();
             }
             return source.loadNextBatch().thenCompose(ignored -> this.uncheckedLoadNextBatch());
         }
-        return batchProcessResult;
+        // start the following batches before handing out the next one so that their processing overlaps with the
+        // consumption. Only already loaded source data is used to not delay the next batch.
+        while (pendingBatches.size() < maxPendingBatches && tryProcessBatchFromLoadedSource()) {
+        }
+        return concatNextPendingBatch();
     }
 
-
     private CompletionStage<?> processRemaining() {
         sourceExhausted = true;
         if (idxWithinBatch > 0) {
-            return processBatch(true);
+            processBatch(true);
+            return concatNextPendingBatch();
         }
         return CompletableFuture.completedFuture(null);
     }
 
-    @Nullable
-    private CompletionStage<?> tryProcessBatchFromLoadedSource() {
+    /**
+     * @return true if a batch has been started, false if the loaded source data isn't sufficient to fill a batch.
+     */
+    private boolean tryProcessBatchFromLoadedSource() {
         try {
             while (source.moveNext()) {
                 idxWithinBatch++;
                 batchAccumulator.onItem(sourceRow);
                 if (batchSize > 0 && idxWithinBatch == batchSize) {
-                    return processBatch(false);
+                    processBatch(false);
+                    return true;
                 }
             }
         } catch (Throwable t) {
-            return CompletableFutures.failedFuture(t);
+            pendingBatches.add(CompletableFutures.failedFuture(t));
+            return true;
         }
-        return null;
+        return false;
+    }
+
+    private void processBatch(boolean isLastBatch) {
+        idxWithinBatch = 0;
+        pendingBatches.add(batchAccumulator.processBatch(isLastBatch));
     }
 
-    private CompletionStage<?> processBatch(boolean isLastBatch) {
-        return batchAccumulator.processBatch(isLastBatch)
+    private CompletionStage<?> concatNextPendingBatch() {
+        return pendingBatches.poll()
             .exceptionally(this::maybeRaiseKilled)
             .thenAccept(this::concatRows);
     }
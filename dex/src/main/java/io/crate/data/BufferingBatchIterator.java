@@ -0,0 +1,139 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.data;
+
+import io.crate.concurrent.CompletableFutures;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * BatchIterator which consumes a fully loaded source BatchIterator in batches of up to {@code batchSize} rows.
+ * <p>
+ * The rows of the source are materialized within {@link #loadNextBatch()}, so any work the source does to produce
+ * a row (e.g. reading and parsing input) happens there.
+ * Used as sources of an {@link AsyncCompositeBatchIterator} this allows to produce the rows of multiple
+ * blocking sources concurrently.
+ * <p>
+ * The buffered rows are accounted using {@code rowAccounting} and released once the next batch is loaded.
+ */
+public class BufferingBatchIterator implements BatchIterator {
+
+    private final BatchIterator source;
+    private final int batchSize;
+    private final Columns sourceColumns;
+    private final RowColumns rowData;
+    private final List<Row> buffer;
+    private final RowAccounting rowAccounting;
+
+    private Iterator<Row> it = Collections.emptyIterator();
+    private boolean sourceExhausted = false;
+
+    public BufferingBatchIterator(BatchIterator source, int batchSize) {
+        this(source, batchSize, RowAccounting.NO_OP);
+    }
+
+    public BufferingBatchIterator(BatchIterator source, int batchSize, RowAccounting rowAccounting) {
+        assert source.allLoaded() : "source must be fully loaded";
+        assert batchSize > 0 : "batchSize must be greater than 0";
+        this.source = source;
+        this.batchSize = batchSize;
+        this.sourceColumns = source.rowData();
+        this.rowData = new RowColumns(sourceColumns.size());
+        this.buffer = new ArrayList<>(batchSize);
+        this.rowAccounting = rowAccounting;
+    }
+
+    @Override
+    public Columns rowData() {
+        return rowData;
+    }
+
+    @Override
+    public void moveToStart() {
+        source.moveToStart();
+        clearBuffer();
+        it = Collections.emptyIterator();
+        sourceExhausted = false;
+        rowData.updateRef(RowBridging.OFF_ROW);
+    }
+
+    @Override
+    public boolean moveNext() {
+        if (it.hasNext()) {
+            rowData.updateRef(it.next());
+            return true;
+        }
+        rowData.updateRef(RowBridging.OFF_ROW);
+        return false;
+    }
+
+    @Override
+    public void close() {
+        source.close();
+        clearBuffer();
+    }
+
+    private void clearBuffer() {
+        buffer.clear();
+        rowAccounting.release();
+    }
+
+    @Override
+    public CompletionStage<?> loadNextBatch() {
+        if (sourceExhausted) {
+            return CompletableFutures.failedFuture(new IllegalStateException("BatchIterator already fully loaded"));
+        }
+        clearBuffer();
+        try {
+            while (buffer.size() < batchSize) {
+                if (source.moveNext() == false) {
+                    sourceExhausted = true;
+                    break;
+                }
+                Object[] cells = RowBridging.materialize(sourceColumns);
+                rowAccounting.accountForAndMaybeBreak(cells);
+                buffer.add(new RowN(cells));
+            }
+        } catch (Throwable t) {
+            return CompletableFutures.failedFuture(t);
+        }
+        it = buffer.iterator();
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public boolean allLoaded() {
+        return sourceExhausted;
+    }
+
+    @Override
+    public void kill(@Nonnull Throwable throwable) {
+        source.kill(throwable);
+    }
+}
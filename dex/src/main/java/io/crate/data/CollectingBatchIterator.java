@@ -23,6 +23,7 @@
 package io.crate.data;
 
 import io.crate.concurrent.CompletableFutures;
+import io.crate.exceptions.Exceptions;
 
 import javax.annotation.Nonnull;
 import java.util.Collections;
@@ -37,6 +38,8 @@ import java.util.stream.Collectors;
  *
  * Result generation and row-processing is handled by a {@link Collector}
  *
+ * If the state of the collector is {@link AutoCloseable} it is closed once this BatchIterator is closed.
+ *
  * @param <A> the state type of the {@link Collector}
  */
 public class CollectingBatchIterator<A> implements BatchIterator {
@@ -47,6 +50,7 @@ public class CollectingBatchIterator<A> implements BatchIterator {
 
     private Iterator<Row> it = Collections.emptyIterator();
     private CompletableFuture<? extends Iterable<Row>> resultFuture;
+    private A state;
 
     /**
      * Create a BatchIterator which will consume the source, summing up the first column (must be of type long).
@@ -107,12 +111,20 @@ public class CollectingBatchIterator<A> implements BatchIterator {
     @Override
     public void close() {
         source.close();
+        if (state instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) state).close();
+            } catch (Exception e) {
+                Exceptions.rethrowUnchecked(e);
+            }
+        }
     }
 
     @Override
     public CompletionStage<?> loadNextBatch() {
         if (resultFuture == null) {
-            resultFuture = BatchRowVisitor.visitRows(source, collector)
+            state = collector.supplier().get();
+            resultFuture = BatchRowVisitor.visitRows(source, state, collector, new CompletableFuture<>())
                 .whenComplete((r, t) -> {
                     source.close();
                     if (t == null) {
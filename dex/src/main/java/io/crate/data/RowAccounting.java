@@ -0,0 +1,46 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.data;
+
+/**
+ * Accounts for the memory of rows which are materialized and retained by a component.
+ */
+@FunctionalInterface
+public interface RowAccounting {
+
+    RowAccounting NO_OP = row -> {};
+
+    /**
+     * Account for the memory used by {@code row}.
+     *
+     * @throws RuntimeException if the memory limit is exceeded
+     *                          (The concrete exception type depends on the implementation)
+     */
+    void accountForAndMaybeBreak(Object[] row);
+
+    /**
+     * Release the memory of all rows accounted for so far, once they are no longer retained.
+     */
+    default void release() {
+    }
+}
@@ -0,0 +1,394 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.data.join;
+
+import io.crate.data.ArrayRow;
+import io.crate.data.BatchIterator;
+import io.crate.data.CloseAssertingBatchIterator;
+import io.crate.data.Columns;
+import io.crate.data.Input;
+import io.crate.data.RowAccounting;
+import io.crate.data.RowBridging;
+import io.crate.data.RowColumns;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * HashJoin BatchIterator implementations for equi-joins
+ *
+ * - {@link #innerJoin(BatchIterator, BatchIterator, int[], int[], Function, RowAccounting)}
+ * - {@link #leftJoin(BatchIterator, BatchIterator, int[], int[], Function, RowAccounting)}
+ * - {@link #rightJoin(BatchIterator, BatchIterator, int[], int[], Function, RowAccounting)}
+ * - {@link #fullOuterJoin(BatchIterator, BatchIterator, int[], int[], Function, RowAccounting)}
+ *
+ * The {@code right} side is the build side: It is fully consumed and materialized into a hash table
+ * keyed by the values of the {@code rightKeys} columns before any row is emitted.
+ *
+ * The {@code left} side is the probe side: It is streamed and each row is looked up in the hash table
+ * using the values of the {@code leftKeys} columns.
+ *
+ * The {@code joinCondition} is evaluated for every candidate pair, so it may contain
+ * additional (non-equality) predicates besides the equality on the key columns.
+ * Keys containing null values never match.
+ *
+ * <pre>
+ *     left: [1, 2, 3]      right: [2, 3, 4]
+ *
+ *     innerJoin:  [2, 2], [3, 3]
+ *     leftJoin:   [1, null], [2, 2], [3, 3]
+ *     rightJoin:  [2, 2], [3, 3], [null, 4]
+ * </pre>
+ */
+public class HashJoinBatchIterator implements BatchIterator {
+
+    private static final int NO_MATCH = -1;
+
+    /**
+     * Create a BatchIterator that creates the inner-join result of {@code left} and {@code right}.
+     */
+    public static BatchIterator innerJoin(BatchIterator left,
+                                          BatchIterator right,
+                                          int[] leftKeys,
+                                          int[] rightKeys,
+                                          Function<Columns, BooleanSupplier> joinCondition,
+                                          RowAccounting buildSideRowAccounting) {
+        return new CloseAssertingBatchIterator(new HashJoinBatchIterator(
+            left, right, leftKeys, rightKeys, joinCondition, buildSideRowAccounting, false, false));
+    }
+
+    /**
+     * Create a BatchIterator that creates the left-outer-join result of {@code left} and {@code right}.
+     */
+    public static BatchIterator leftJoin(BatchIterator left,
+                                         BatchIterator right,
+                                         int[] leftKeys,
+                                         int[] rightKeys,
+                                         Function<Columns, BooleanSupplier> joinCondition,
+                                         RowAccounting buildSideRowAccounting) {
+        return new CloseAssertingBatchIterator(new HashJoinBatchIterator(
+            left, right, leftKeys, rightKeys, joinCondition, buildSideRowAccounting, true, false));
+    }
+
+    /**
+     * Create a BatchIterator that creates the right-outer-join result of {@code left} and {@code right}.
+     */
+    public static BatchIterator rightJoin(BatchIterator left,
+                                          BatchIterator right,
+                                          int[] leftKeys,
+                                          int[] rightKeys,
+                                          Function<Columns, BooleanSupplier> joinCondition,
+                                          RowAccounting buildSideRowAccounting) {
+        return new CloseAssertingBatchIterator(new HashJoinBatchIterator(
+            left, right, leftKeys, rightKeys, joinCondition, buildSideRowAccounting, false, true));
+    }
+
+    /**
+     * Create a BatchIterator that creates the full-outer-join result of {@code left} and {@code right}.
+     */
+    public static BatchIterator fullOuterJoin(BatchIterator left,
+                                              BatchIterator right,
+                                              int[] leftKeys,
+                                              int[] rightKeys,
+                                              Function<Columns, BooleanSupplier> joinCondition,
+                                              RowAccounting buildSideRowAccounting) {
+        return new CloseAssertingBatchIterator(new HashJoinBatchIterator(
+            left, right, leftKeys, rightKeys, joinCondition, buildSideRowAccounting, true, true));
+    }
+
+    private enum State {
+        BUILD,
+        PROBE,
+        EMIT_UNMATCHED_BUILD_ROWS
+    }
+
+    private final BatchIterator left;
+    private final BatchIterator right;
+    private final Input<?>[] leftKeyInputs;
+    private final Input<?>[] rightKeyInputs;
+    private final RowAccounting buildSideRowAccounting;
+    private final boolean emitUnmatchedLeft;
+    private final boolean emitUnmatchedRight;
+    private final Columns rightColumns;
+    private final ArrayRow buildRow = new ArrayRow();
+    private final CombinedColumn rowData;
+    private final BooleanSupplier joinCondition;
+
+    /**
+     * materialized rows of the build side; the position within this list is the row id
+     */
+    private List<Object[]> buildRows = new ArrayList<>();
+
+    /**
+     * key -> [firstRowId, lastRowId]; The rows with the same key are chained using {@link #nextRowIds}
+     */
+    private Map<Object, int[]> rowIdsByKey = new HashMap<>();
+    private int[] nextRowIds = new int[16];
+
+    private LuceneLongBitSetWrapper matchedBuildRows;
+
+    private State state = State.BUILD;
+    private int nextMatch = NO_MATCH;
+    private boolean onLeftRow = false;
+    private boolean leftHadMatch = false;
+    private int unmatchedPosition = -1;
+
+    private HashJoinBatchIterator(BatchIterator left,
+                                  BatchIterator right,
+                                  int[] leftKeys,
+                                  int[] rightKeys,
+                                  Function<Columns, BooleanSupplier> joinCondition,
+                                  RowAccounting buildSideRowAccounting,
+                                  boolean emitUnmatchedLeft,
+                                  boolean emitUnmatchedRight) {
+        assert leftKeys.length == rightKeys.length && leftKeys.length > 0
+            : "leftKeys and rightKeys must have the same number of keys and at least one key";
+        this.left = left;
+        this.right = right;
+        this.rightColumns = right.rowData();
+        this.leftKeyInputs = keyInputs(left.rowData(), leftKeys);
+        this.rightKeyInputs = keyInputs(rightColumns, rightKeys);
+        this.buildSideRowAccounting = buildSideRowAccounting;
+        this.emitUnmatchedLeft = emitUnmatchedLeft;
+        this.emitUnmatchedRight = emitUnmatchedRight;
+        this.matchedBuildRows = emitUnmatchedRight ? new LuceneLongBitSetWrapper() : null;
+
+        RowColumns buildColumns = new RowColumns(rightColumns.size());
+        buildColumns.updateRef(buildRow);
+        this.rowData = new CombinedColumn(left.rowData(), buildColumns);
+        this.joinCondition = joinCondition.apply(rowData);
+    }
+
+    private static Input<?>[] keyInputs(Columns columns, int[] keys) {
+        Input<?>[] inputs = new Input[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            inputs[i] = columns.get(keys[i]);
+        }
+        return inputs;
+    }
+
+    /**
+     * @return the key of the current row or null if any of the key values is null
+     */
+    private static Object currentKey(Input<?>[] keyInputs) {
+        if (keyInputs.length == 1) {
+            Object value = keyInputs[0].value();
+            if (value != null && value.getClass().isArray()) {
+                // arrays use identity for equals/hashCode
+                return new CompositeKey(new Object[]{value});
+            }
+            return value;
+        }
+        Object[] values = new Object[keyInputs.length];
+        for (int i = 0; i < keyInputs.length; i++) {
+            Object value = keyInputs[i].value();
+            if (value == null) {
+                return null;
+            }
+            values[i] = value;
+        }
+        return new CompositeKey(values);
+    }
+
+    /**
+     * Key of multiple values or of array values which compares the values structurally, including nested arrays.
+     */
+    private static final class CompositeKey {
+
+        private final Object[] values;
+        private final int hashCode;
+
+        private CompositeKey(Object[] values) {
+            this.values = values;
+            this.hashCode = Arrays.deepHashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || (o instanceof CompositeKey && Arrays.deepEquals(values, ((CompositeKey) o).values));
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    @Override
+    public Columns rowData() {
+        return rowData;
+    }
+
+    @Override
+    public void moveToStart() {
+        left.moveToStart();
+        if (state != State.BUILD) {
+            state = State.PROBE;
+        }
+        nextMatch = NO_MATCH;
+        onLeftRow = false;
+        unmatchedPosition = -1;
+        if (emitUnmatchedRight) {
+            matchedBuildRows = new LuceneLongBitSetWrapper();
+        }
+        rowData.resetLeft();
+        rowData.resetRight();
+    }
+
+    @Override
+    public boolean moveNext() {
+        if (state == State.BUILD) {
+            if (buildHashTable() == false) {
+                return false;
+            }
+            state = State.PROBE;
+        }
+        if (state == State.PROBE) {
+            if (probe()) {
+                return true;
+            }
+            if (emitUnmatchedRight == false || left.allLoaded() == false) {
+                return false;
+            }
+            state = State.EMIT_UNMATCHED_BUILD_ROWS;
+            rowData.nullLeft();
+        }
+        return moveToNextUnmatchedBuildRow();
+    }
+
+    /**
+     * @return true if the build side has been fully consumed, false if it needs to load more data
+     */
+    private boolean buildHashTable() {
+        while (right.moveNext()) {
+            Object key = currentKey(rightKeyInputs);
+            Object[] row = RowBridging.materialize(rightColumns);
+            buildSideRowAccounting.accountForAndMaybeBreak(row);
+            int rowId = buildRows.size();
+            buildRows.add(row);
+            if (rowId == nextRowIds.length) {
+                nextRowIds = Arrays.copyOf(nextRowIds, nextRowIds.length * 2);
+            }
+            nextRowIds[rowId] = NO_MATCH;
+            if (key == null) {
+                // can't match, but is still part of the result of right outer joins
+                continue;
+            }
+            int[] firstAndLast = rowIdsByKey.get(key);
+            if (firstAndLast == null) {
+                rowIdsByKey.put(key, new int[]{rowId, rowId});
+            } else {
+                nextRowIds[firstAndLast[1]] = rowId;
+                firstAndLast[1] = rowId;
+            }
+        }
+        return right.allLoaded();
+    }
+
+    /**
+     * @return true if positioned on a result row,
+     *         false if the probe side either needs to load more data or is exhausted
+     */
+    private boolean probe() {
+        while (true) {
+            while (nextMatch != NO_MATCH) {
+                int rowId = nextMatch;
+                nextMatch = nextRowIds[rowId];
+                buildRow.cells(buildRows.get(rowId));
+                if (joinCondition.getAsBoolean()) {
+                    leftHadMatch = true;
+                    if (emitUnmatchedRight) {
+                        matchedBuildRows.set(rowId);
+                    }
+                    return true;
+                }
+            }
+            if (onLeftRow && emitUnmatchedLeft && leftHadMatch == false) {
+                onLeftRow = false;
+                rowData.nullRight();
+                return true;
+            }
+            rowData.resetRight();
+            onLeftRow = false;
+            if (left.moveNext() == false) {
+                return false;
+            }
+            onLeftRow = true;
+            leftHadMatch = false;
+            Object key = currentKey(leftKeyInputs);
+            if (key != null) {
+                int[] firstAndLast = rowIdsByKey.get(key);
+                if (firstAndLast != null) {
+                    nextMatch = firstAndLast[0];
+                }
+            }
+        }
+    }
+
+    private boolean moveToNextUnmatchedBuildRow() {
+        while (++unmatchedPosition < buildRows.size()) {
+            if (matchedBuildRows.get(unmatchedPosition) == false) {
+                buildRow.cells(buildRows.get(unmatchedPosition));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        left.close();
+        right.close();
+        buildRows = null;
+        rowIdsByKey = null;
+    }
+
+    @Override
+    public CompletionStage<?> loadNextBatch() {
+        if (state == State.BUILD && right.allLoaded() == false) {
+            return right.loadNextBatch();
+        }
+        return left.loadNextBatch();
+    }
+
+    @Override
+    public boolean allLoaded() {
+        if (state == State.BUILD) {
+            return right.allLoaded() && left.allLoaded();
+        }
+        return left.allLoaded();
+    }
+
+    @Override
+    public void kill(@Nonnull Throwable throwable) {
+        left.kill(throwable);
+        right.kill(throwable);
+    }
+}
@@ -28,12 +28,17 @@ import io.crate.testing.TestingBatchIterators;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
 public class AsyncOperationBatchIteratorTest {
 
     @Test
@@ -46,12 +51,56 @@ public class AsyncOperationBatchIteratorTest {
         runTest(() -> new BatchSimulatingIterator(TestingBatchIterators.range(0, 10), 3, 4, null));
     }
 
+    @Test
+    public void testAsyncOperationBatchIteratorWithPendingBatches() throws Exception {
+        runTest(() -> TestingBatchIterators.range(0, 10), 2);
+    }
+
+    @Test
+    public void testAsyncOperationBatchIteratorWithPendingBatchesAndBatchedSource() throws Exception {
+        runTest(() -> new BatchSimulatingIterator(TestingBatchIterators.range(0, 10), 3, 4, null), 3);
+    }
+
+    @Test
+    public void testNextBatchIsProcessedWhileCurrentBatchIsConsumed() throws Exception {
+        BatchIterator source = TestingBatchIterators.range(0, 10);
+        DummyBatchAccumulator accumulator = new DummyBatchAccumulator(source.rowData().get(0));
+        BatchIterator it = new AsyncOperationBatchIterator(source, 1, accumulator, 2);
+
+        it.loadNextBatch().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        assertThat(accumulator.numBatches, is(2));
+        assertThat(it.moveNext(), is(true));
+        assertThat(it.rowData().get(0).value(), is(0));
+    }
+
+    @Test
+    public void testAccumulatorIsClosedAfterPendingBatchesCompleted() throws Exception {
+        BatchIterator source = TestingBatchIterators.range(0, 10);
+        PendingBatchAccumulator accumulator = new PendingBatchAccumulator();
+        BatchIterator it = new AsyncOperationBatchIterator(source, 1, accumulator, 2);
+
+        CompletableFuture<?> loaded = it.loadNextBatch().toCompletableFuture();
+        assertThat(accumulator.batches.size(), is(2));
+        accumulator.batches.get(0).complete(Collections.emptyIterator());
+        loaded.get(10, TimeUnit.SECONDS);
+
+        // the consumer stops early while the second batch is still being processed
+        it.close();
+        assertThat(accumulator.closed, is(false));
+        accumulator.batches.get(1).complete(Collections.emptyIterator());
+        assertThat(accumulator.closed, is(true));
+    }
+
     private void runTest(Supplier<BatchIterator> sourceSupplier) throws Exception {
+        runTest(sourceSupplier, 1);
+    }
+
+    private void runTest(Supplier<BatchIterator> sourceSupplier, int maxPendingBatches) throws Exception {
         Supplier<BatchIterator> biSupplier = () -> {
             BatchIterator source = sourceSupplier.get();
             Input<?> input = source.rowData().get(0);
             BatchAccumulator<Row, Iterator<? extends Row>> accumulator = new DummyBatchAccumulator(input);
-            return new AsyncOperationBatchIterator(source, 1, accumulator);
+            return new AsyncOperationBatchIterator(source, 1, accumulator, maxPendingBatches);
         };
 
         List<Object[]> expectedResult = new ArrayList<>();
@@ -62,10 +111,42 @@ public class AsyncOperationBatchIteratorTest {
         tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
     }
 
+    private static class PendingBatchAccumulator implements BatchAccumulator<Row, Iterator<? extends Row>> {
+
+        private final List<CompletableFuture<Iterator<? extends Row>>> batches = new ArrayList<>();
+        private boolean closed = false;
+
+        @Override
+        public void onItem(Row item) {
+        }
+
+        @Override
+        public int batchSize() {
+            return 3;
+        }
+
+        @Override
+        public CompletableFuture<Iterator<? extends Row>> processBatch(boolean isLastBatch) {
+            CompletableFuture<Iterator<? extends Row>> batch = new CompletableFuture<>();
+            batches.add(batch);
+            return batch;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        @Override
+        public void reset() {
+        }
+    }
+
     private static class DummyBatchAccumulator implements BatchAccumulator<Row, Iterator<? extends Row>> {
 
         private final Input<?> input;
         private final List<Integer> items = new ArrayList<>();
+        private int numBatches = 0;
 
         DummyBatchAccumulator(Input<?> input) {
             this.input = input;
@@ -83,11 +164,10 @@ public class AsyncOperationBatchIteratorTest {
 
         @Override
         public CompletableFuture<Iterator<? extends Row>> processBatch(boolean isLastBatch) {
-            return CompletableFuture.supplyAsync(() -> {
-                List<Row1> rows = items.stream().map(Row1::new).collect(Collectors.toList());
-                items.clear();
-                return rows.iterator();
-            });
+            numBatches++;
+            List<Row1> rows = items.stream().map(Row1::new).collect(Collectors.toList());
+            items.clear();
+            return CompletableFuture.supplyAsync(rows::iterator);
         }
 
         @Override
@@ -0,0 +1,108 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.data;
+
+import io.crate.testing.BatchIteratorTester;
+import io.crate.testing.TestingBatchIterators;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class BufferingBatchIteratorTest {
+
+    private List<Object[]> expectedResult = IntStream.range(0, 10)
+        .mapToObj(i -> new Object[]{i})
+        .collect(Collectors.toList());
+
+    @Test
+    public void testBufferingBatchIterator() throws Exception {
+        BatchIteratorTester tester = new BatchIteratorTester(
+            () -> new CloseAssertingBatchIterator(new BufferingBatchIterator(TestingBatchIterators.range(0, 10), 3))
+        );
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+
+    @Test
+    public void testBatchSizeIsMultipleOfRowCount() throws Exception {
+        BatchIteratorTester tester = new BatchIteratorTester(
+            () -> new CloseAssertingBatchIterator(new BufferingBatchIterator(TestingBatchIterators.range(0, 10), 5))
+        );
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+
+    @Test
+    public void testAsSourcesOfAsyncCompositeBatchIterator() throws Exception {
+        // the composite iterator consumes the batches of the sources alternately
+        List<Object[]> expectedResult = IntStream.of(0, 1, 5, 6, 2, 3, 7, 8, 4, 9)
+            .mapToObj(i -> new Object[]{i})
+            .collect(Collectors.toList());
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            BatchIteratorTester tester = new BatchIteratorTester(
+                () -> new CloseAssertingBatchIterator(new AsyncCompositeBatchIterator(
+                    executorService,
+                    new BufferingBatchIterator(TestingBatchIterators.range(0, 5), 2),
+                    new BufferingBatchIterator(TestingBatchIterators.range(5, 10), 2)
+                ))
+            );
+            tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+        } finally {
+            executorService.shutdown();
+            executorService.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testBufferedRowsAreAccountedUntilNextBatch() throws Exception {
+        AtomicLong accountedRows = new AtomicLong(0);
+        RowAccounting rowAccounting = new RowAccounting() {
+
+            @Override
+            public void accountForAndMaybeBreak(Object[] row) {
+                accountedRows.incrementAndGet();
+            }
+
+            @Override
+            public void release() {
+                accountedRows.set(0);
+            }
+        };
+        BatchIterator it = new BufferingBatchIterator(TestingBatchIterators.range(0, 5), 3, rowAccounting);
+
+        it.loadNextBatch().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        assertThat(accountedRows.get(), is(3L));
+        it.loadNextBatch().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        assertThat(accountedRows.get(), is(2L));
+        it.close();
+        assertThat(accountedRows.get(), is(0L));
+    }
+}
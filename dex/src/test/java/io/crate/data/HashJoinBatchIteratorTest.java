@@ -0,0 +1,256 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.data;
+
+import io.crate.data.join.HashJoinBatchIterator;
+import io.crate.testing.BatchIteratorTester;
+import io.crate.testing.BatchSimulatingIterator;
+import io.crate.testing.TestingBatchConsumer;
+import io.crate.testing.TestingBatchIterators;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class HashJoinBatchIteratorTest {
+
+    private static final int[] KEYS = new int[] { 0 };
+
+    private static Function<Columns, BooleanSupplier> alwaysTrue() {
+        return columns -> () -> true;
+    }
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return new ArrayList<>(Arrays.asList(rows));
+    }
+
+    @Test
+    public void testInnerJoin() throws Exception {
+        Supplier<BatchIterator> batchIteratorSupplier = () -> HashJoinBatchIterator.innerJoin(
+            TestingBatchIterators.range(0, 4),
+            TestingBatchIterators.range(2, 6),
+            KEYS,
+            KEYS,
+            alwaysTrue(),
+            RowAccounting.NO_OP
+        );
+        BatchIteratorTester tester = new BatchIteratorTester(batchIteratorSupplier);
+        tester.verifyResultAndEdgeCaseBehaviour(rows(new Object[] { 2, 2 }, new Object[] { 3, 3 }));
+    }
+
+    @Test
+    public void testInnerJoinBatchedSource() throws Exception {
+        Supplier<BatchIterator> batchIteratorSupplier = () -> HashJoinBatchIterator.innerJoin(
+            new BatchSimulatingIterator(TestingBatchIterators.range(0, 4), 2, 2, null),
+            new BatchSimulatingIterator(TestingBatchIterators.range(2, 6), 2, 2, null),
+            KEYS,
+            KEYS,
+            alwaysTrue(),
+            RowAccounting.NO_OP
+        );
+        BatchIteratorTester tester = new BatchIteratorTester(batchIteratorSupplier);
+        tester.verifyResultAndEdgeCaseBehaviour(rows(new Object[] { 2, 2 }, new Object[] { 3, 3 }));
+    }
+
+    @Test
+    public void testInnerJoinWithDuplicateKeysEmitsBuildRowsInOrder() throws Exception {
+        BatchIterator left = RowsBatchIterator.newInstance(
+            Arrays.asList(new Row1(1), new Row1(2)), 1);
+        BatchIterator right = RowsBatchIterator.newInstance(
+            Arrays.asList(new RowN(new Object[] { 1, "a" }), new RowN(new Object[] { 1, "b" })), 2);
+
+        TestingBatchConsumer consumer = new TestingBatchConsumer();
+        consumer.accept(HashJoinBatchIterator.innerJoin(left, right, KEYS, KEYS, alwaysTrue(), RowAccounting.NO_OP), null);
+        assertThat(consumer.getResult(), Matchers.contains(
+            new Object[] { 1, 1, "a" },
+            new Object[] { 1, 1, "b" }
+        ));
+    }
+
+    @Test
+    public void testJoinConditionIsAppliedOnMatchingKeys() throws Exception {
+        BatchIterator left = RowsBatchIterator.newInstance(
+            Arrays.asList(new RowN(new Object[] { 1, 10 }), new RowN(new Object[] { 2, 20 })), 2);
+        BatchIterator right = RowsBatchIterator.newInstance(
+            Arrays.asList(new RowN(new Object[] { 1, 10 }), new RowN(new Object[] { 2, 21 })), 2);
+
+        Function<Columns, BooleanSupplier> secondColumnsEq = columns ->
+            () -> columns.get(1).value().equals(columns.get(3).value());
+        TestingBatchConsumer consumer = new TestingBatchConsumer();
+        consumer.accept(HashJoinBatchIterator.leftJoin(
+            left, right, KEYS, KEYS, secondColumnsEq, RowAccounting.NO_OP), null);
+        assertThat(consumer.getResult(), Matchers.contains(
+            new Object[] { 1, 10, 1, 10 },
+            new Object[] { 2, 20, null, null }
+        ));
+    }
+
+    @Test
+    public void testNullKeysDoNotMatch() throws Exception {
+        BatchIterator left = RowsBatchIterator.newInstance(
+            Arrays.asList(new Row1(null), new Row1(1)), 1);
+        BatchIterator right = RowsBatchIterator.newInstance(
+            Arrays.asList(new Row1(null), new Row1(1)), 1);
+
+        TestingBatchConsumer consumer = new TestingBatchConsumer();
+        consumer.accept(HashJoinBatchIterator.fullOuterJoin(
+            left, right, KEYS, KEYS, alwaysTrue(), RowAccounting.NO_OP), null);
+        assertThat(consumer.getResult(), Matchers.contains(
+            new Object[] { null, null },
+            new Object[] { 1, 1 },
+            new Object[] { null, null }
+        ));
+    }
+
+    @Test
+    public void testMultipleKeys() throws Exception {
+        BatchIterator left = RowsBatchIterator.newInstance(
+            Arrays.asList(new RowN(new Object[] { 1, "a" }), new RowN(new Object[] { 1, "b" })), 2);
+        BatchIterator right = RowsBatchIterator.newInstance(
+            Arrays.asList(new RowN(new Object[] { "b", 1 }), new RowN(new Object[] { "c", 1 })), 2);
+
+        TestingBatchConsumer consumer = new TestingBatchConsumer();
+        consumer.accept(HashJoinBatchIterator.innerJoin(
+            left, right, new int[] { 0, 1 }, new int[] { 1, 0 }, alwaysTrue(), RowAccounting.NO_OP), null);
+        List<Object[]> result = consumer.getResult();
+        assertThat(result.size(), is(1));
+        assertThat(result.get(0), is(new Object[] { 1, "b", "b", 1 }));
+    }
+
+    @Test
+    public void testArrayKeysAreComparedByValue() throws Exception {
+        BatchIterator left = RowsBatchIterator.newInstance(
+            Arrays.asList(new Row1(new Object[] { 1, 2 }), new Row1(new Object[] { 3 })), 1);
+        BatchIterator right = RowsBatchIterator.newInstance(
+            Arrays.asList(new RowN(new Object[] { new Object[] { 1, 2 }, "a" }),
+                new RowN(new Object[] { new Object[] { 3 }, "b" })), 2);
+
+        TestingBatchConsumer consumer = new TestingBatchConsumer();
+        consumer.accept(HashJoinBatchIterator.innerJoin(left, right, KEYS, KEYS, alwaysTrue(), RowAccounting.NO_OP), null);
+        List<Object[]> result = consumer.getResult();
+        assertThat(result.size(), is(2));
+        assertThat(result.get(0)[2], is("a"));
+        assertThat(result.get(1)[2], is("b"));
+    }
+
+    @Test
+    public void testArrayKeysWithinMultipleKeys() throws Exception {
+        BatchIterator left = RowsBatchIterator.newInstance(
+            Arrays.asList(new RowN(new Object[] { 1, new Object[] { "x" } })), 2);
+        BatchIterator right = RowsBatchIterator.newInstance(
+            Arrays.asList(new RowN(new Object[] { 1, new Object[] { "x" } }),
+                new RowN(new Object[] { 1, new Object[] { "y" } })), 2);
+
+        TestingBatchConsumer consumer = new TestingBatchConsumer();
+        consumer.accept(HashJoinBatchIterator.innerJoin(
+            left, right, new int[] { 0, 1 }, new int[] { 0, 1 }, alwaysTrue(), RowAccounting.NO_OP), null);
+        List<Object[]> result = consumer.getResult();
+        assertThat(result.size(), is(1));
+        assertThat(result.get(0)[3], is(new Object[] { "x" }));
+    }
+
+    @Test
+    public void testLeftJoin() throws Exception {
+        Supplier<BatchIterator> batchIteratorSupplier = () -> HashJoinBatchIterator.leftJoin(
+            new BatchSimulatingIterator(TestingBatchIterators.range(0, 4), 2, 2, null),
+            new BatchSimulatingIterator(TestingBatchIterators.range(2, 6), 2, 2, null),
+            KEYS,
+            KEYS,
+            alwaysTrue(),
+            RowAccounting.NO_OP
+        );
+        BatchIteratorTester tester = new BatchIteratorTester(batchIteratorSupplier);
+        tester.verifyResultAndEdgeCaseBehaviour(rows(
+            new Object[] { 0, null },
+            new Object[] { 1, null },
+            new Object[] { 2, 2 },
+            new Object[] { 3, 3 }
+        ));
+    }
+
+    @Test
+    public void testRightJoin() throws Exception {
+        Supplier<BatchIterator> batchIteratorSupplier = () -> HashJoinBatchIterator.rightJoin(
+            new BatchSimulatingIterator(TestingBatchIterators.range(0, 4), 2, 2, null),
+            new BatchSimulatingIterator(TestingBatchIterators.range(2, 6), 2, 2, null),
+            KEYS,
+            KEYS,
+            alwaysTrue(),
+            RowAccounting.NO_OP
+        );
+        BatchIteratorTester tester = new BatchIteratorTester(batchIteratorSupplier);
+        tester.verifyResultAndEdgeCaseBehaviour(rows(
+            new Object[] { 2, 2 },
+            new Object[] { 3, 3 },
+            new Object[] { null, 4 },
+            new Object[] { null, 5 }
+        ));
+    }
+
+    @Test
+    public void testFullOuterJoin() throws Exception {
+        Supplier<BatchIterator> batchIteratorSupplier = () -> HashJoinBatchIterator.fullOuterJoin(
+            TestingBatchIterators.range(0, 4),
+            TestingBatchIterators.range(2, 6),
+            KEYS,
+            KEYS,
+            alwaysTrue(),
+            RowAccounting.NO_OP
+        );
+        BatchIteratorTester tester = new BatchIteratorTester(batchIteratorSupplier);
+        tester.verifyResultAndEdgeCaseBehaviour(rows(
+            new Object[] { 0, null },
+            new Object[] { 1, null },
+            new Object[] { 2, 2 },
+            new Object[] { 3, 3 },
+            new Object[] { null, 4 },
+            new Object[] { null, 5 }
+        ));
+    }
+
+    @Test
+    public void testBuildSideRowsAreAccounted() throws Exception {
+        AtomicInteger accountedRows = new AtomicInteger(0);
+        BatchIterator iterator = HashJoinBatchIterator.innerJoin(
+            TestingBatchIterators.range(0, 2),
+            TestingBatchIterators.range(0, 5),
+            KEYS,
+            KEYS,
+            alwaysTrue(),
+            row -> accountedRows.incrementAndGet()
+        );
+        TestingBatchConsumer consumer = new TestingBatchConsumer();
+        consumer.accept(iterator, null);
+        assertThat(consumer.getResult().size(), is(2));
+        assertThat(accountedRows.get(), is(5));
+    }
+}
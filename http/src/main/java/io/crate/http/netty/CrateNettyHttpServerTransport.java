@@ -159,6 +159,7 @@ public class CrateNettyHttpServerTransport extends Netty3HttpServerTransport {
         @Override
         public ChannelPipeline getPipeline() throws Exception {
             ChannelPipeline pipeline = super.getPipeline();
+            OrderedRequestsHandler.addTo(pipeline);
             synchronized (addBeforeList) {
                 for (ChannelPipelineItem item : addBeforeList) {
                     pipeline.addBefore(item.base, item.name, item.handlerFactory.get());
@@ -0,0 +1,92 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.http.netty;
+
+import org.elasticsearch.http.netty3.pipelining.OrderedDownstreamChannelEvent;
+import org.elasticsearch.http.netty3.pipelining.OrderedUpstreamMessageEvent;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelEvent;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelHandler;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the {@link OrderedUpstreamMessageEvent}s of the requests on a channel until their response is complete.
+ * <p>
+ * If HTTP pipelining is enabled, responses must be written as {@link OrderedDownstreamChannelEvent}s, otherwise
+ * the responses of subsequent requests on the same connection are held back. Handlers which write a response to
+ * the channel directly (e.g. a chunked response) use the event of their request to do so.
+ */
+public class OrderedRequestsHandler extends SimpleChannelHandler {
+
+    public static final String NAME = "ordered_requests";
+    static final String PIPELINING_HANDLER = "pipelining";
+    static final String REQUEST_HANDLER = "handler";
+
+    private final Map<HttpRequest, OrderedUpstreamMessageEvent> pendingRequests =
+        Collections.synchronizedMap(new IdentityHashMap<>());
+
+    /**
+     * @return the event the request has been received with or null if pipelining is disabled
+     */
+    @Nullable
+    public static OrderedUpstreamMessageEvent orderedEvent(Channel channel, HttpRequest request) {
+        OrderedRequestsHandler handler = channel.getPipeline().get(OrderedRequestsHandler.class);
+        if (handler == null) {
+            return null;
+        }
+        return handler.pendingRequests.get(request);
+    }
+
+    static void addTo(ChannelPipeline pipeline) {
+        if (pipeline.get(PIPELINING_HANDLER) != null) {
+            pipeline.addBefore(REQUEST_HANDLER, NAME, new OrderedRequestsHandler());
+        }
+    }
+
+    @Override
+    public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+        if (e instanceof OrderedUpstreamMessageEvent && e.getMessage() instanceof HttpRequest) {
+            pendingRequests.put((HttpRequest) e.getMessage(), (OrderedUpstreamMessageEvent) e);
+        }
+        super.messageReceived(ctx, e);
+    }
+
+    @Override
+    public void handleDownstream(ChannelHandlerContext ctx, ChannelEvent e) throws Exception {
+        if (e instanceof OrderedDownstreamChannelEvent) {
+            OrderedDownstreamChannelEvent event = (OrderedDownstreamChannelEvent) e;
+            if (event.isLast()) {
+                pendingRequests.remove(event.getOrderedUpstreamMessageEvent().getMessage());
+            }
+        }
+        super.handleDownstream(ctx, e);
+    }
+}
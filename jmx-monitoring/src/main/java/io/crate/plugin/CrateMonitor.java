@@ -20,6 +20,7 @@ package io.crate.plugin;
 
 import io.crate.action.sql.SQLOperations;
 import io.crate.beans.QueryStats;
+import io.crate.beans.StatementCacheStats;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.logging.Loggers;
@@ -37,6 +38,7 @@ public class CrateMonitor {
     public CrateMonitor(SQLOperations sqlOperations, Settings settings) {
         logger = Loggers.getLogger(CrateMonitor.class, settings);
         registerMBean(QueryStats.NAME, new QueryStats(sqlOperations, settings));
+        registerMBean(StatementCacheStats.NAME, new StatementCacheStats(sqlOperations.statementCache()));
     }
 
     private void registerMBean(String name, Object bean) {
@@ -23,6 +23,7 @@
 package io.crate.analyze;
 
 import io.crate.action.sql.SessionContext;
+import io.crate.action.sql.StatementCache;
 import io.crate.planner.Plan;
 import io.crate.sql.parser.SqlParser;
 import io.crate.sql.tree.Statement;
@@ -50,6 +51,7 @@ public class PreExecutionBenchmark {
     private Statement selectStatement;
     private Analysis selectAnalysis;
     private UUID jobId;
+    private StatementCache statementCache;
 
     @Setup
     public void setup() {
@@ -64,6 +66,7 @@ public class PreExecutionBenchmark {
         selectAnalysis =
             e.analyzer.boundAnalyze(selectStatement, SessionContext.SYSTEM_SESSION, ParameterContext.EMPTY);
         jobId = UUID.randomUUID();
+        statementCache = new StatementCache(100);
     }
 
     @TearDown
@@ -77,6 +80,11 @@ public class PreExecutionBenchmark {
         return SqlParser.createStatement("select name from users");
     }
 
+    @Benchmark
+    public Statement benchParseWithStatementCache() throws Exception {
+        return statementCache.getOrParse("select name from users");
+    }
+
     @Benchmark
     public AnalyzedStatement benchParseAndAnalyzeSelect() {
         return e.analyze("select name from users");
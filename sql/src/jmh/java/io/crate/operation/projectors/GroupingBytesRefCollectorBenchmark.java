@@ -36,6 +36,7 @@ import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.common.inject.ModulesBuilder;
+import org.elasticsearch.common.io.PathUtils;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
 
@@ -90,7 +91,9 @@ public class GroupingBytesRefCollectorBenchmark {
             new Input[][] { new Input[] { keyInput }},
             RAM_ACCOUNTING_CONTEXT,
             keyInputs.get(0),
-            DataTypes.STRING
+            DataTypes.STRING,
+            Long.MAX_VALUE,
+            PathUtils.get(System.getProperty("java.io.tmpdir"))
         );
     }
 
@@ -35,6 +35,7 @@ import io.crate.types.DataTypes;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.common.inject.ModulesBuilder;
+import org.elasticsearch.common.io.PathUtils;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
 
@@ -82,7 +83,9 @@ public class GroupingIntegerCollectorBenchmark {
             new Input[][] { new Input[] { keyInput }},
             RAM_ACCOUNTING_CONTEXT,
             keyInputs.get(0),
-            DataTypes.INTEGER
+            DataTypes.INTEGER,
+            Long.MAX_VALUE,
+            PathUtils.get(System.getProperty("java.io.tmpdir"))
         );
     }
 
@@ -30,6 +30,7 @@ import io.crate.Streamer;
 import io.crate.analyze.EvaluatingNormalizer;
 import io.crate.breaker.CrateCircuitBreakerService;
 import io.crate.breaker.RamAccountingContext;
+import io.crate.breaker.RowAccountingWithEstimators;
 import io.crate.data.BatchConsumer;
 import io.crate.data.Bucket;
 import io.crate.data.Row;
@@ -606,7 +607,10 @@ public class ContextPreparer extends AbstractComponent {
             NestedLoopOperation nestedLoopOperation = new NestedLoopOperation(
                 firstConsumer,
                 joinCondition,
-                phase.joinType()
+                phase.joinType(),
+                phase.leftJoinKeys(),
+                phase.rightJoinKeys(),
+                new RowAccountingWithEstimators(phase.rightOutputTypes(), ramAccountingContext)
             );
             PageDownstreamContext left = pageDownstreamContextForNestedLoop(
                 phase.phaseId(),
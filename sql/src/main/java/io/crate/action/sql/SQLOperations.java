@@ -58,6 +58,13 @@ public class SQLOperations {
         "node.sql.read_only",
         false,
         Setting.Property.NodeScope);
+
+    public final static Setting<Integer> STATEMENT_CACHE_SIZE_SETTING = Setting.intSetting(
+        "node.sql.statement_cache.size",
+        1000,
+        0,
+        Setting.Property.NodeScope);
+
     private final static Logger LOGGER = Loggers.getLogger(SQLOperations.class);
 
     // Parser can't handle empty statement but postgres requires support for it.
@@ -70,6 +77,7 @@ public class SQLOperations {
     private final JobsLogs jobsLogs;
     private final ClusterService clusterService;
     private final boolean isReadOnly;
+    private final StatementCache statementCache;
     private volatile boolean disabled;
 
     @Inject
@@ -85,6 +93,11 @@ public class SQLOperations {
         this.jobsLogs = jobsLogs;
         this.clusterService = clusterService;
         this.isReadOnly = NODE_READ_ONLY_SETTING.get(settings);
+        this.statementCache = new StatementCache(STATEMENT_CACHE_SIZE_SETTING.get(settings));
+    }
+
+    public StatementCache statementCache() {
+        return statementCache;
     }
 
     public Session createSession(SessionContext sessionContext) {
@@ -196,7 +209,7 @@ public class SQLOperations {
 
             Statement statement;
             try {
-                statement = SqlParser.createStatement(query);
+                statement = statementCache.getOrParse(query);
             } catch (Throwable t) {
                 if ("".equals(query)) {
                     statement = EMPTY_STMT;
@@ -0,0 +1,80 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.action.sql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.crate.sql.parser.SqlParser;
+import io.crate.sql.tree.Statement;
+
+/**
+ * Node level cache of parsed statements, keyed by the statement text.
+ *
+ * Parsing a statement doesn't depend on the schema or any other state, so entries never become stale
+ * and don't have to be invalidated; The cache is only bounded by {@code maxSize}.
+ * Statements longer than {@link #MAX_STATEMENT_LENGTH} (e.g. bulk inserts with many literals) aren't cached,
+ * so the memory used by the cache is bounded as well.
+ * Statements are immutable and can be shared between sessions.
+ */
+public class StatementCache {
+
+    static final int MAX_STATEMENT_LENGTH = 8 * 1024;
+
+    private final Cache<String, Statement> cache;
+    private final boolean enabled;
+
+    public StatementCache(int maxSize) {
+        this.enabled = maxSize > 0;
+        this.cache = CacheBuilder.newBuilder()
+            .maximumSize(Math.max(maxSize, 0))
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Returns the parsed statement for the given query, parsing it on a cache miss.
+     */
+    public Statement getOrParse(String query) {
+        if (!enabled || query.length() > MAX_STATEMENT_LENGTH) {
+            return SqlParser.createStatement(query);
+        }
+        Statement statement = cache.getIfPresent(query);
+        if (statement == null) {
+            statement = SqlParser.createStatement(query);
+            cache.put(query, statement);
+        }
+        return statement;
+    }
+
+    public long hitCount() {
+        return cache.stats().hitCount();
+    }
+
+    public long missCount() {
+        return cache.stats().missCount();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+}
@@ -41,12 +41,15 @@ import io.crate.exceptions.UnsupportedFeatureException;
 import io.crate.metadata.*;
 import io.crate.metadata.doc.DocSysColumns;
 import io.crate.metadata.doc.DocTableInfo;
+import io.crate.metadata.settings.ByteSizeSetting;
 import io.crate.metadata.settings.SettingsApplier;
 import io.crate.metadata.settings.SettingsAppliers;
 import io.crate.metadata.settings.StringSetting;
 import io.crate.metadata.table.Operation;
 import io.crate.metadata.table.TableInfo;
+import io.crate.planner.node.dql.FileUriCollectPhase;
 import io.crate.planner.projection.WriterProjection;
+import io.crate.sql.parser.SqlParser;
 import io.crate.sql.tree.*;
 import io.crate.types.CollectionType;
 import io.crate.types.DataTypes;
@@ -66,10 +69,22 @@ class CopyAnalyzer {
     private static final StringSetting OUTPUT_FORMAT_SETTINGS =
         new StringSetting("format", ImmutableSet.of("json_object", "json_array"));
 
+    private static final StringSetting PARTITION_BY_SETTINGS = new StringSetting("partition_by");
+
+    private static final ByteSizeSetting MAX_FILE_SIZE_SETTINGS = new ByteSizeSetting("max_file_size", null);
+
+    private static final StringSetting INPUT_FORMAT_SETTINGS =
+        new StringSetting("format", ImmutableSet.of("json", "csv"), "json");
+
+    private static final String CSV_DELIMITER = "delimiter";
+    private static final String CSV_QUOTE = "quote";
+
     private static final ImmutableMap<String, SettingsApplier> SETTINGS_APPLIERS =
         ImmutableMap.<String, SettingsApplier>builder()
             .put(COMPRESSION_SETTINGS.name(), new SettingsAppliers.StringSettingsApplier(COMPRESSION_SETTINGS))
             .put(OUTPUT_FORMAT_SETTINGS.name(), new SettingsAppliers.StringSettingsApplier(OUTPUT_FORMAT_SETTINGS))
+            .put(PARTITION_BY_SETTINGS.name(), new SettingsAppliers.StringSettingsApplier(PARTITION_BY_SETTINGS))
+            .put(MAX_FILE_SIZE_SETTINGS.name(), new SettingsAppliers.ByteSizeSettingsApplier(MAX_FILE_SIZE_SETTINGS))
             .build();
     private final Schemas schemas;
     private final Functions functions;
@@ -120,7 +135,35 @@ class CopyAnalyzer {
             throw CopyFromAnalyzedStatement.raiseInvalidType(uri.valueType());
         }
 
-        return new CopyFromAnalyzedStatement(tableInfo, settings, uri, partitionIdent, nodeFilters);
+        FileUriCollectPhase.InputFormat inputFormat = inputFormat(settings);
+        char csvDelimiter = singleCharSetting(settings, CSV_DELIMITER, ',');
+        char csvQuote = singleCharSetting(settings, CSV_QUOTE, '"');
+        if (csvDelimiter == csvQuote) {
+            throw new IllegalArgumentException("CSV delimiter and quote character must be different");
+        }
+        return new CopyFromAnalyzedStatement(
+            tableInfo, settings, uri, partitionIdent, nodeFilters, inputFormat, csvDelimiter, csvQuote);
+    }
+
+    private static FileUriCollectPhase.InputFormat inputFormat(Settings settings) {
+        String format = INPUT_FORMAT_SETTINGS.extract(settings).toLowerCase(Locale.ENGLISH);
+        String error = INPUT_FORMAT_SETTINGS.validate(format);
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+        return FileUriCollectPhase.InputFormat.valueOf(format.toUpperCase(Locale.ENGLISH));
+    }
+
+    private static char singleCharSetting(Settings settings, String name, char defaultValue) {
+        String value = settings.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value.length() != 1) {
+            throw new IllegalArgumentException(String.format(Locale.ENGLISH,
+                "Setting \"%s\" must be a single character. Got '%s'", name, value));
+        }
+        return value.charAt(0);
     }
 
 
@@ -220,7 +263,25 @@ class CopyAnalyzer {
             } else {
                 sourceRef = tableRelation.tableInfo().getReference(DocSysColumns.RAW);
             }
-            outputs = ImmutableList.of(sourceRef);
+            outputs = new ArrayList<>(1);
+            outputs.add(sourceRef);
+        }
+
+        Symbol partitionBy = null;
+        String partitionByExpression = PARTITION_BY_SETTINGS.extract(settings);
+        if (partitionByExpression != null) {
+            partitionBy = expressionAnalyzer.convert(
+                SqlParser.createExpression(partitionByExpression), expressionAnalysisContext);
+            partitionBy = DocReferences.toSourceLookup(normalizer.normalize(partitionBy, analysis.transactionContext()));
+            // the partition value is the last output, it is not written to the files
+            outputs.add(partitionBy);
+        }
+        long maxFileSize = WriterProjection.NO_MAX_FILE_SIZE;
+        if (settings.get(MAX_FILE_SIZE_SETTINGS.name()) != null) {
+            maxFileSize = MAX_FILE_SIZE_SETTINGS.extractBytes(settings);
+            if (maxFileSize <= 0) {
+                throw new IllegalArgumentException("max_file_size must be greater than 0");
+            }
         }
         querySpec.outputs(outputs);
 
@@ -229,7 +290,8 @@ class CopyAnalyzer {
         }
 
         QueriedDocTable subRelation = new QueriedDocTable(tableRelation, querySpec);
-        return new CopyToAnalyzedStatement(subRelation, settings, uri, compressionType, outputFormat, outputNames, columnsDefined, overwrites);
+        return new CopyToAnalyzedStatement(subRelation, settings, uri, compressionType, outputFormat, outputNames,
+            columnsDefined, overwrites, partitionBy, maxFileSize);
     }
 
     private static <E extends Enum<E>> E settingAsEnum(Class<E> settingsEnum, String settingValue) {
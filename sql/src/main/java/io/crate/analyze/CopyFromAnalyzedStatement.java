@@ -23,12 +23,19 @@
 package io.crate.analyze;
 
 import io.crate.analyze.symbol.Symbol;
+import io.crate.exceptions.UnsupportedFeatureException;
+import io.crate.metadata.GeneratedReference;
+import io.crate.metadata.Reference;
 import io.crate.metadata.doc.DocTableInfo;
+import io.crate.planner.node.dql.FileUriCollectPhase;
 import io.crate.types.DataType;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.settings.Settings;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.function.Predicate;
 
 public class CopyFromAnalyzedStatement extends AbstractCopyAnalyzedStatement {
@@ -37,16 +44,59 @@ public class CopyFromAnalyzedStatement extends AbstractCopyAnalyzedStatement {
     @Nullable
     private final String partitionIdent;
     private final Predicate<DiscoveryNode> nodePredicate;
+    private final FileUriCollectPhase.InputFormat inputFormat;
+    private final char csvDelimiter;
+    private final char csvQuote;
+
+    private final List<Reference> targetColumns;
+    private final List<Symbol> primaryKeySymbols;
+    private final List<Symbol> partitionedBySymbols;
+    @Nullable
+    private final Symbol clusteredBySymbol;
 
     public CopyFromAnalyzedStatement(DocTableInfo table,
                                      Settings settings,
                                      Symbol uri,
                                      @Nullable String partitionIdent,
                                      Predicate<DiscoveryNode> nodePredicate) {
+        this(table, settings, uri, partitionIdent, nodePredicate, FileUriCollectPhase.InputFormat.JSON, ',', '"');
+    }
+
+    public CopyFromAnalyzedStatement(DocTableInfo table,
+                                     Settings settings,
+                                     Symbol uri,
+                                     @Nullable String partitionIdent,
+                                     Predicate<DiscoveryNode> nodePredicate,
+                                     FileUriCollectPhase.InputFormat inputFormat,
+                                     char csvDelimiter,
+                                     char csvQuote) {
         super(settings, uri);
         this.table = table;
         this.partitionIdent = partitionIdent;
         this.nodePredicate = nodePredicate;
+        this.inputFormat = inputFormat;
+        this.csvDelimiter = csvDelimiter;
+        this.csvQuote = csvQuote;
+        if (inputFormat == FileUriCollectPhase.InputFormat.CSV) {
+            if (settings.getAsBoolean("overwrite_duplicates", false)) {
+                throw new UnsupportedFeatureException("\"overwrite_duplicates\" is not supported for the CSV format");
+            }
+            // the values of a CSV file are written into all columns that can be inserted, absent ones are null
+            targetColumns = new ArrayList<>(table.columns().size());
+            for (Reference reference : table.columns()) {
+                if (!(reference instanceof GeneratedReference)) {
+                    targetColumns.add(reference);
+                }
+            }
+            primaryKeySymbols = InsertFromSubQueryAnalyzedStatement.primaryKeySymbols(table, targetColumns);
+            partitionedBySymbols = InsertFromSubQueryAnalyzedStatement.partitionedBySymbols(table, targetColumns);
+            clusteredBySymbol = InsertFromSubQueryAnalyzedStatement.clusteredBySymbol(table, targetColumns);
+        } else {
+            targetColumns = Collections.emptyList();
+            primaryKeySymbols = Collections.emptyList();
+            partitionedBySymbols = Collections.emptyList();
+            clusteredBySymbol = null;
+        }
     }
 
     public DocTableInfo table() {
@@ -71,6 +121,44 @@ public class CopyFromAnalyzedStatement extends AbstractCopyAnalyzedStatement {
         return nodePredicate;
     }
 
+    public FileUriCollectPhase.InputFormat inputFormat() {
+        return inputFormat;
+    }
+
+    public char csvDelimiter() {
+        return csvDelimiter;
+    }
+
+    public char csvQuote() {
+        return csvQuote;
+    }
+
+    /**
+     * The columns the values of a CSV file are written into. Empty for other input formats.
+     */
+    public List<Reference> targetColumns() {
+        return targetColumns;
+    }
+
+    /**
+     * Symbols of the primary key, pointing into the {@link #targetColumns()}
+     */
+    public List<Symbol> primaryKeySymbols() {
+        return primaryKeySymbols;
+    }
+
+    /**
+     * Symbols of the partitioned by columns, pointing into the {@link #targetColumns()}
+     */
+    public List<Symbol> partitionedBySymbols() {
+        return partitionedBySymbols;
+    }
+
+    @Nullable
+    public Symbol clusteredBySymbol() {
+        return clusteredBySymbol;
+    }
+
     @Override
     public boolean isWriteOperation() {
         return true;
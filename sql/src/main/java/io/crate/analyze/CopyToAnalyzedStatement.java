@@ -51,6 +51,10 @@ public class CopyToAnalyzedStatement extends AbstractCopyAnalyzedStatement {
      */
     private final Map<ColumnIdent, Symbol> overwrites;
 
+    @Nullable
+    private final Symbol partitionBy;
+    private final long maxFileSize;
+
     public CopyToAnalyzedStatement(QueriedDocTable subQueryRelation,
                                    Settings settings,
                                    Symbol uri,
@@ -59,6 +63,24 @@ public class CopyToAnalyzedStatement extends AbstractCopyAnalyzedStatement {
                                    @Nullable List<String> outputNames,
                                    boolean columnsDefined,
                                    @Nullable Map<ColumnIdent, Symbol> overwrites) {
+        this(subQueryRelation, settings, uri, compressionType, outputFormat, outputNames, columnsDefined, overwrites,
+            null, WriterProjection.NO_MAX_FILE_SIZE);
+    }
+
+    /**
+     * @param partitionBy if not null, the rows are written into one file per value of this symbol.
+     *                    It must be the last output of the {@code subQueryRelation}.
+     */
+    public CopyToAnalyzedStatement(QueriedDocTable subQueryRelation,
+                                   Settings settings,
+                                   Symbol uri,
+                                   @Nullable WriterProjection.CompressionType compressionType,
+                                   @Nullable WriterProjection.OutputFormat outputFormat,
+                                   @Nullable List<String> outputNames,
+                                   boolean columnsDefined,
+                                   @Nullable Map<ColumnIdent, Symbol> overwrites,
+                                   @Nullable Symbol partitionBy,
+                                   long maxFileSize) {
         super(settings, uri);
         this.subQueryRelation = subQueryRelation;
         this.columnsDefined = columnsDefined;
@@ -66,6 +88,8 @@ public class CopyToAnalyzedStatement extends AbstractCopyAnalyzedStatement {
         this.outputNames = outputNames;
         this.outputFormat = outputFormat;
         this.overwrites = MoreObjects.firstNonNull(overwrites, ImmutableMap.<ColumnIdent, Symbol>of());
+        this.partitionBy = partitionBy;
+        this.maxFileSize = maxFileSize;
     }
 
     public QueriedDocTable subQueryRelation() {
@@ -95,6 +119,15 @@ public class CopyToAnalyzedStatement extends AbstractCopyAnalyzedStatement {
         return this.overwrites;
     }
 
+    @Nullable
+    public Symbol partitionBy() {
+        return partitionBy;
+    }
+
+    public long maxFileSize() {
+        return maxFileSize;
+    }
+
     @Override
     public <C, R> R accept(AnalyzedStatementVisitor<C, R> analyzedStatementVisitor, C context) {
         return analyzedStatementVisitor.visitCopyToStatement(this, context);
@@ -23,7 +23,6 @@ package io.crate.analyze;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import io.crate.analyze.relations.QueriedRelation;
 import io.crate.analyze.symbol.Function;
@@ -62,26 +61,47 @@ public class InsertFromSubQueryAnalyzedStatement implements AnalyzedStatement {
         this.subQueryRelation = subQueryRelation;
         this.onDuplicateKeyAssignments = onDuplicateKeyAssignments;
         this.targetColumns = targetColumns;
-        Map<ColumnIdent, Integer> columnPositions = toPositionMap(targetColumns);
-
+        this.clusteredBySymbol = clusteredBySymbol(tableInfo, targetColumns);
+        this.primaryKeySymbols = primaryKeySymbols(tableInfo, targetColumns);
+        this.partitionedBySymbols = partitionedBySymbols(tableInfo, targetColumns);
+    }
 
+    /**
+     * @return the symbol of the clustered by column, pointing to its position within {@code targetColumns},
+     *         or null if it isn't a target column.
+     */
+    @Nullable
+    static Symbol clusteredBySymbol(DocTableInfo tableInfo, List<Reference> targetColumns) {
+        Map<ColumnIdent, Integer> columnPositions = toPositionMap(targetColumns);
         int clusteredByIdx = MoreObjects.firstNonNull(columnPositions.get(tableInfo.clusteredBy()), -1);
         if (clusteredByIdx > -1) {
-            clusteredBySymbol = new InputColumn(clusteredByIdx,  targetColumns.get(clusteredByIdx).valueType());
-        } else {
-            clusteredBySymbol = null;
+            return new InputColumn(clusteredByIdx, targetColumns.get(clusteredByIdx).valueType());
         }
-        ImmutableMap<ColumnIdent, GeneratedReference> generatedColumns =
-            Maps.uniqueIndex(tableInfo.generatedColumns(), Reference.TO_COLUMN_IDENT);
+        return null;
+    }
 
+    /**
+     * @return the symbols of the primary key columns, pointing to their positions within {@code targetColumns}
+     *         or computing them from other target columns if they are generated.
+     */
+    static List<Symbol> primaryKeySymbols(DocTableInfo tableInfo, List<Reference> targetColumns) {
         if (tableInfo.hasAutoGeneratedPrimaryKey()) {
-            this.primaryKeySymbols = Collections.emptyList();
-        } else {
-            this.primaryKeySymbols = symbolsFromTargetColumnPositionOrGeneratedExpression(
-                columnPositions, targetColumns, tableInfo.primaryKey(), generatedColumns);
+            return Collections.emptyList();
         }
-        this.partitionedBySymbols = symbolsFromTargetColumnPositionOrGeneratedExpression(
-            columnPositions, targetColumns, tableInfo.partitionedBy(), generatedColumns);
+        return symbolsFromTargetColumnPositionOrGeneratedExpression(
+            tableInfo, toPositionMap(targetColumns), targetColumns, tableInfo.primaryKey(), generatedColumns(tableInfo));
+    }
+
+    /**
+     * @return the symbols of the partitioned by columns, see {@link #primaryKeySymbols(DocTableInfo, List)}
+     */
+    static List<Symbol> partitionedBySymbols(DocTableInfo tableInfo, List<Reference> targetColumns) {
+        return symbolsFromTargetColumnPositionOrGeneratedExpression(
+            tableInfo, toPositionMap(targetColumns), targetColumns, tableInfo.partitionedBy(), generatedColumns(tableInfo));
+    }
+
+    private static Map<ColumnIdent, GeneratedReference> generatedColumns(DocTableInfo tableInfo) {
+        return Maps.uniqueIndex(tableInfo.generatedColumns(), Reference.TO_COLUMN_IDENT);
     }
 
     private static Map<ColumnIdent, Integer> toPositionMap(List<Reference> targetColumns) {
@@ -96,10 +116,11 @@ public class InsertFromSubQueryAnalyzedStatement implements AnalyzedStatement {
         return columnPositions;
     }
 
-    private List<Symbol> symbolsFromTargetColumnPositionOrGeneratedExpression(Map<ColumnIdent, Integer> targetColumnMap,
-                                                                              List<Reference> targetColumns,
-                                                                              List<ColumnIdent> columns,
-                                                                              Map<ColumnIdent, GeneratedReference> generatedColumns) {
+    private static List<Symbol> symbolsFromTargetColumnPositionOrGeneratedExpression(DocTableInfo tableInfo,
+                                                                                     Map<ColumnIdent, Integer> targetColumnMap,
+                                                                                     List<Reference> targetColumns,
+                                                                                     List<ColumnIdent> columns,
+                                                                                     Map<ColumnIdent, GeneratedReference> generatedColumns) {
         if (columns.isEmpty()) {
             return Collections.emptyList();
         }
@@ -116,7 +137,7 @@ public class InsertFromSubQueryAnalyzedStatement implements AnalyzedStatement {
             if (colPosition != null) {
                 Symbol symbol = new InputColumn(colPosition, targetColumns.get(colPosition).valueType());
                 if (subscriptColumn != null) {
-                    symbol = rewriteNestedInputToSubscript(subscriptColumn, symbol);
+                    symbol = rewriteNestedInputToSubscript(tableInfo, subscriptColumn, symbol);
                 }
                 symbols.add(symbol);
             } else {
@@ -136,8 +157,8 @@ public class InsertFromSubQueryAnalyzedStatement implements AnalyzedStatement {
         return symbols;
     }
 
-    private Symbol rewriteNestedInputToSubscript(ColumnIdent columnIdent, Symbol inputSymbol) {
-        Reference reference = tableInfo().getReference(columnIdent);
+    private static Symbol rewriteNestedInputToSubscript(DocTableInfo tableInfo, ColumnIdent columnIdent, Symbol inputSymbol) {
+        Reference reference = tableInfo.getReference(columnIdent);
         Symbol symbol = inputSymbol;
         Iterator<String> pathIt = columnIdent.path().iterator();
         while (pathIt.hasNext()) {
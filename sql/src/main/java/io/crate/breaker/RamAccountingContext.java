@@ -175,6 +175,18 @@ public class RamAccountingContext {
         return breaker.getUsed() >= breaker.getLimit();
     }
 
+    /**
+     * Returns the number of bytes which can still be added before the breaker trips,
+     * or {@link Long#MAX_VALUE} if the breaker has no limit
+     */
+    public long remainingBytes() {
+        long limit = breaker.getLimit();
+        if (limit <= 0) {
+            return Long.MAX_VALUE;
+        }
+        return limit - breaker.getUsed() - flushBuffer.get();
+    }
+
     /**
      * Returns the configured bytes limit of the breaker
      */
@@ -0,0 +1,57 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.breaker;
+
+import io.crate.data.RowAccounting;
+import io.crate.types.DataType;
+
+import java.util.List;
+
+/**
+ * {@link RowAccounting} implementation which uses {@link SizeEstimator}s to estimate the size of the rows
+ * and adds it to the {@link RamAccountingContext}.
+ */
+public class RowAccountingWithEstimators implements RowAccounting {
+
+    private final RamAccountingContext ramAccountingContext;
+    private final RowSizeEstimator rowSizeEstimator;
+    private long accountedBytes = 0L;
+
+    public RowAccountingWithEstimators(List<? extends DataType> columnTypes, RamAccountingContext ramAccountingContext) {
+        this.ramAccountingContext = ramAccountingContext;
+        this.rowSizeEstimator = new RowSizeEstimator(columnTypes);
+    }
+
+    @Override
+    public void accountForAndMaybeBreak(Object[] row) {
+        long bytes = rowSizeEstimator.estimateSize(row);
+        accountedBytes += bytes;
+        ramAccountingContext.addBytes(bytes);
+    }
+
+    @Override
+    public void release() {
+        ramAccountingContext.addBytesWithoutBreaking(-accountedBytes);
+        accountedBytes = 0L;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.breaker;
+
+import io.crate.types.DataType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Estimates the size of rows using a {@link SizeEstimator} per column.
+ */
+public class RowSizeEstimator {
+
+    /**
+     * Estimate used for columns where no specific {@link SizeEstimator} exists (e.g. objects or arrays)
+     */
+    private static final long DEFAULT_COLUMN_SIZE = 64L;
+
+    /**
+     * Overhead of the Object[] + the reference to it
+     */
+    private static final long ROW_OVERHEAD = 32L;
+
+    private final List<SizeEstimator<Object>> estimators;
+
+    public RowSizeEstimator(List<? extends DataType> columnTypes) {
+        this.estimators = new ArrayList<>(columnTypes.size());
+        for (DataType columnType : columnTypes) {
+            estimators.add(estimatorFor(columnType));
+        }
+    }
+
+    private static SizeEstimator<Object> estimatorFor(DataType type) {
+        try {
+            return SizeEstimatorFactory.create(type);
+        } catch (UnsupportedOperationException e) {
+            return new ConstSizeEstimator(DEFAULT_COLUMN_SIZE);
+        }
+    }
+
+    public long estimateSize(Object[] row) {
+        assert row.length == estimators.size() : "row must have the same number of columns as there are estimators";
+        long size = ROW_OVERHEAD;
+        for (int i = 0; i < row.length; i++) {
+            size += estimators.get(i).estimateSize(row[i]);
+        }
+        return size;
+    }
+}
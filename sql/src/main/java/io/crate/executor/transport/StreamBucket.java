@@ -21,6 +21,7 @@
 
 package io.crate.executor.transport;
 
+import com.carrotsearch.hppc.ObjectIntHashMap;
 import com.google.common.base.Predicates;
 import com.google.common.base.Throwables;
 import com.google.common.collect.FluentIterable;
@@ -29,7 +30,10 @@ import io.crate.Streamer;
 import io.crate.data.Bucket;
 import io.crate.data.Row;
 import io.crate.data.RowN;
+import io.crate.types.StringType;
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -37,27 +41,66 @@ import org.elasticsearch.common.io.stream.Streamable;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 
 public class StreamBucket implements Bucket, Streamable {
 
     private Streamer<?>[] streamers;
+    private final boolean encoded;
     private int size = -1;
     private BytesReference bytes;
 
+    /**
+     * rows and dictionaries of an encoded bucket, decompressed once on the first iteration
+     */
+    @Nullable
+    private BytesReference decodedRows;
+    @Nullable
+    private BytesRef[][] dictionaries;
+
     public static class Builder {
 
 
         private static final int INITIAL_PAGE_SIZE = 1024;
         private int size = 0;
         private final Streamer<?>[] streamers;
+        private final boolean encoded;
         private BytesStreamOutput out;
 
+        @Nullable
+        private final ObjectIntHashMap<BytesRef>[] dictionaries;
+        @Nullable
+        private final List<BytesRef>[] dictionaryValues;
+
         public Builder(Streamer<?>[] streamers) {
+            this(streamers, false);
+        }
+
+        /**
+         * @param encoded if true string values are dictionary encoded and the whole bucket is compressed
+         */
+        @SuppressWarnings("unchecked")
+        public Builder(Streamer<?>[] streamers, boolean encoded) {
             assert validStreamers(streamers) : "streamers must not be null and they shouldn't be of undefinedType";
             this.streamers = streamers;
+            this.encoded = encoded;
             out = new BytesStreamOutput(INITIAL_PAGE_SIZE);
+            if (encoded) {
+                dictionaries = new ObjectIntHashMap[streamers.length];
+                dictionaryValues = new List[streamers.length];
+                for (int i = 0; i < streamers.length; i++) {
+                    if (isDictionaryEncoded(streamers[i])) {
+                        dictionaries[i] = new ObjectIntHashMap<>();
+                        dictionaryValues[i] = new ArrayList<>();
+                    }
+                }
+            } else {
+                dictionaries = null;
+                dictionaryValues = null;
+            }
         }
 
         public void add(Row row) throws IOException {
@@ -65,11 +108,36 @@ public class StreamBucket implements Bucket, Streamable {
 
             size++;
             for (int i = 0; i < row.numColumns(); i++) {
-                streamers[i].writeValueTo(out, row.get(i));
+                if (dictionaries != null && dictionaries[i] != null) {
+                    out.writeVInt(dictionaryId(i, (BytesRef) row.get(i)));
+                } else {
+                    streamers[i].writeValueTo(out, row.get(i));
+                }
             }
         }
 
+        /**
+         * @return the id of the value in the dictionary of the column; 0 is null, ids of values start at 1
+         */
+        private int dictionaryId(int column, @Nullable BytesRef value) {
+            if (value == null) {
+                return 0;
+            }
+            ObjectIntHashMap<BytesRef> dictionary = dictionaries[column];
+            int id = dictionary.getOrDefault(value, 0);
+            if (id == 0) {
+                List<BytesRef> values = dictionaryValues[column];
+                // rows may re-use their BytesRef instances
+                BytesRef copy = BytesRef.deepCopyOf(value);
+                values.add(copy);
+                id = values.size();
+                dictionary.put(copy, id);
+            }
+            return id;
+        }
+
         public void writeToStream(StreamOutput output) throws IOException {
+            assert !encoded : "encoded buckets must be built and written as StreamBucket";
             output.writeVInt(size);
             if (size > 0) {
                 output.writeBytesReference(out.bytes());
@@ -77,21 +145,66 @@ public class StreamBucket implements Bucket, Streamable {
         }
 
         public StreamBucket build() throws IOException {
-            StreamBucket sb = new StreamBucket(streamers);
+            StreamBucket sb = new StreamBucket(streamers, encoded);
             sb.size = size;
-            sb.bytes = out.bytes();
+            sb.bytes = encoded ? encodedBytes() : out.bytes();
             return sb;
         }
 
+        /**
+         * Compressed bytes containing the dictionaries of all dictionary encoded columns followed by the rows
+         */
+        private BytesReference encodedBytes() throws IOException {
+            assert dictionaries != null && dictionaryValues != null : "builder must be encoded";
+            BytesStreamOutput encodedOut = new BytesStreamOutput(out.size() / 2);
+            try (StreamOutput compressedOut = CompressorFactory.COMPRESSOR.streamOutput(encodedOut)) {
+                for (int i = 0; i < streamers.length; i++) {
+                    if (dictionaries[i] != null) {
+                        List<BytesRef> values = dictionaryValues[i];
+                        compressedOut.writeVInt(values.size());
+                        for (BytesRef value : values) {
+                            streamers[i].writeValueTo(compressedOut, value);
+                        }
+                    }
+                }
+                out.bytes().writeTo(compressedOut);
+            }
+            return encodedOut.bytes();
+        }
+
         public void reset() {
             out = new BytesStreamOutput(size); // next bucket is probably going to have the same size
             size = 0;
+            if (dictionaries != null) {
+                for (int i = 0; i < dictionaries.length; i++) {
+                    if (dictionaries[i] != null) {
+                        dictionaries[i] = new ObjectIntHashMap<>();
+                        dictionaryValues[i] = new ArrayList<>();
+                    }
+                }
+            }
         }
     }
 
+    private static boolean isDictionaryEncoded(Streamer<?> streamer) {
+        return streamer instanceof StringType;
+    }
+
     public StreamBucket(@Nullable Streamer<?>[] streamers) {
+        this(streamers, false);
+    }
+
+    /**
+     * @param encoded if the bytes of the bucket are dictionary encoded and compressed, see {@link Builder#Builder(Streamer[], boolean)}
+     */
+    public StreamBucket(@Nullable Streamer<?>[] streamers, boolean encoded) {
         assert validStreamers(streamers) : "streamers must not be null and they shouldn't be of undefinedType";
         this.streamers = streamers;
+        this.encoded = encoded;
+    }
+
+    public boolean isEncoded() {
+        return encoded;
     }
 
     @Override
@@ -133,11 +246,17 @@ public class StreamBucket implements Bucket, Streamable {
         private final StreamInput input;
         private final Object[] current;
         private final RowN row;
+        @Nullable
+        private final BytesRef[][] dictionaries;
         private int pos = 0;
 
-        private RowIterator(StreamInput streamInput, Streamer<?>[] streamers, int size) {
+        private RowIterator(StreamInput streamInput,
+                            Streamer<?>[] streamers,
+                            int size,
+                            @Nullable BytesRef[][] dictionaries) {
             this.streamers = streamers;
             this.size = size;
+            this.dictionaries = dictionaries;
             input = streamInput;
             current = new Object[streamers.length];
             row = new RowN(current);
@@ -152,7 +271,12 @@ public class StreamBucket implements Bucket, Streamable {
         public Row next() {
             for (int c = 0; c < streamers.length; c++) {
                 try {
-                    current[c] = streamers[c].readValueFrom(input);
+                    if (dictionaries != null && dictionaries[c] != null) {
+                        int id = input.readVInt();
+                        current[c] = id == 0 ? null : dictionaries[c][id - 1];
+                    } else {
+                        current[c] = streamers[c].readValueFrom(input);
+                    }
                 } catch (IOException e) {
                     Throwables.propagate(e);
                 }
@@ -173,12 +297,45 @@ public class StreamBucket implements Bucket, Streamable {
         }
         assert streamers != null : "streamers must not be null";
         try {
-            return new RowIterator(bytes.streamInput(), streamers, size);
+            if (encoded) {
+                if (decodedRows == null) {
+                    decode();
+                }
+                return new RowIterator(decodedRows.streamInput(), streamers, size, dictionaries);
+            }
+            return new RowIterator(bytes.streamInput(), streamers, size, null);
         } catch (IOException e) {
             throw Throwables.propagate(e);
         }
     }
 
+    private void decode() throws IOException {
+        BytesStreamOutput rowsOut = new BytesStreamOutput(bytes.length() * 2);
+        try (StreamInput in = CompressorFactory.COMPRESSOR.streamInput(bytes.streamInput())) {
+            dictionaries = readDictionaries(in, streamers);
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                rowsOut.writeBytes(buffer, 0, read);
+            }
+        }
+        decodedRows = rowsOut.bytes();
+    }
+
+    private static BytesRef[][] readDictionaries(StreamInput in, Streamer<?>[] streamers) throws IOException {
+        BytesRef[][] dictionaries = new BytesRef[streamers.length][];
+        for (int i = 0; i < streamers.length; i++) {
+            if (isDictionaryEncoded(streamers[i])) {
+                BytesRef[] values = new BytesRef[in.readVInt()];
+                for (int j = 0; j < values.length; j++) {
+                    values[j] = (BytesRef) streamers[i].readValueFrom(in);
+                }
+                dictionaries[i] = values;
+            }
+        }
+        return dictionaries;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         size = in.readVInt();
@@ -39,6 +39,7 @@ import io.crate.metadata.table.Operation;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ElasticsearchGenerationException;
+import org.elasticsearch.ElasticsearchParseException;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.support.ActionFilters;
@@ -49,15 +50,15 @@ import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
-import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.inject.Singleton;
 import org.elasticsearch.common.lucene.uid.Versions;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentHelper;
-import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.support.XContentMapValues;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.VersionType;
@@ -285,12 +286,6 @@ public class TransportShardUpsertAction extends TransportShardAction<ShardUpsert
                 indexShard.shardId(), Constants.DEFAULT_MAPPING_TYPE, item.id(), "TODO: add explanation");
         }
 
-        Tuple<XContentType, Map<String, Object>> sourceAndContent = XContentHelper.convertToMap(getResult.internalSourceRef(), true);
-        final Map<String, Object> updatedSourceAsMap;
-        final XContentType updateSourceContentType = sourceAndContent.v1();
-
-        updatedSourceAsMap = sourceAndContent.v2();
-
         SymbolToFieldExtractorContext ctx = new SymbolToFieldExtractorContext(functions, item.insertValues());
 
         Map<String, Object> pathsToUpdate = new LinkedHashMap<>();
@@ -323,14 +318,11 @@ public class TransportShardUpsertAction extends TransportShardAction<ShardUpsert
         // Currently the validation is done only for generated columns.
         processGeneratedColumns(tableInfo, pathsToUpdate, updatedGeneratedColumns, true, getResult);
 
-        updateSourceByPaths(updatedSourceAsMap, pathsToUpdate);
-
         try {
-            XContentBuilder builder = XContentFactory.contentBuilder(updateSourceContentType);
-            builder.map(updatedSourceAsMap);
-            return new SourceAndVersion(builder.bytes(), getResult.getVersion());
+            BytesReference updatedSource = updateSourceByPaths(getResult.internalSourceRef(), pathsToUpdate);
+            return new SourceAndVersion(updatedSource, getResult.getVersion());
         } catch (IOException e) {
-            throw new ElasticsearchGenerationException("Failed to generate [" + updatedSourceAsMap + "]", e);
+            throw new ElasticsearchGenerationException("Failed to generate updated source of [" + item.id() + "]", e);
         }
     }
 
@@ -338,56 +330,61 @@ public class TransportShardUpsertAction extends TransportShardAction<ShardUpsert
                                          Collection<ColumnIdent> notUsedNonGeneratedColumns,
                                          ShardUpsertRequest request,
                                          ShardUpsertRequest.Item item) throws IOException {
-        List<GeneratedReference> generatedReferencesWithValue = new ArrayList<>();
-        BytesReference source;
+        boolean generatedColumnsEvaluationNeeded = generatedColumnsEvaluationNeeded(tableInfo, request);
         if (request.isRawSourceInsert()) {
             assert item.insertValues().length > 0 : "empty insert values array";
-            source = new BytesArray((BytesRef) item.insertValues()[0]);
+            if (!generatedColumnsEvaluationNeeded) {
+                return new BytesArray((BytesRef) item.insertValues()[0]);
+            }
         } else {
-            XContentBuilder builder = XContentFactory.jsonBuilder().startObject();
-
             // For direct inserts it is enough to have constraints validation on a handler.
             // validateConstraints() of ShardUpsertRequest should result in false in this case.
             if (request.validateConstraints()) {
                 ConstraintsValidator.validateConstraintsForNotUsedColumns(notUsedNonGeneratedColumns, tableInfo);
             }
-
             for (int i = 0; i < item.insertValues().length; i++) {
-                Object value = item.insertValues()[i];
-                Reference ref = request.insertColumns()[i];
-
-                ConstraintsValidator.validate(value, ref);
-
-                if (ref.granularity() == RowGranularity.DOC) {
-                    // don't include values for partitions in the _source
-                    // ideally columns with partition granularity shouldn't be part of the request
-                    builder.field(ref.ident().columnIdent().fqn(), value);
-                    if (ref instanceof GeneratedReference) {
-                        generatedReferencesWithValue.add((GeneratedReference) ref);
+                ConstraintsValidator.validate(item.insertValues()[i], request.insertColumns()[i]);
+            }
+            if (!generatedColumnsEvaluationNeeded) {
+                XContentBuilder builder = XContentFactory.jsonBuilder().startObject();
+                for (int i = 0; i < item.insertValues().length; i++) {
+                    Reference ref = request.insertColumns()[i];
+                    if (ref.granularity() == RowGranularity.DOC) {
+                        // don't include values for partitions in the _source
+                        // ideally columns with partition granularity shouldn't be part of the request
+                        builder.field(ref.ident().columnIdent().fqn(), item.insertValues()[i]);
                     }
                 }
+                return builder.endObject().bytes();
             }
-            builder.endObject();
-            source = builder.bytes();
         }
+        // the generated column expressions are evaluated on the insert values, so the source is only
+        // serialized once all values are known
+        Map<String, Object> sourceMap = processGeneratedColumnsOnInsert(tableInfo, request.insertColumns(), item.insertValues(),
+            request.isRawSourceInsert(), request.validateConstraints());
+        return XContentFactory.jsonBuilder().map(sourceMap).bytes();
+    }
 
+    /**
+     * Evaluation is needed if a generated column has no value or if given values must be validated
+     */
+    private static boolean generatedColumnsEvaluationNeeded(DocTableInfo tableInfo, ShardUpsertRequest request) {
         int generatedColumnSize = 0;
         for (GeneratedReference reference : tableInfo.generatedColumns()) {
             if (!tableInfo.partitionedByColumns().contains(reference)) {
                 generatedColumnSize++;
             }
         }
-
-        int numMissingGeneratedColumns = generatedColumnSize - generatedReferencesWithValue.size();
-        if (numMissingGeneratedColumns > 0 ||
-            (generatedReferencesWithValue.size() > 0 && request.validateConstraints())) {
-            // we need to evaluate some generated column expressions
-            Map<String, Object> sourceMap = processGeneratedColumnsOnInsert(tableInfo, request.insertColumns(), item.insertValues(),
-                request.isRawSourceInsert(), request.validateConstraints());
-            source = XContentFactory.jsonBuilder().map(sourceMap).bytes();
+        int numGeneratedColumnsWithValue = 0;
+        if (!request.isRawSourceInsert()) {
+            for (Reference ref : request.insertColumns()) {
+                if (ref.granularity() == RowGranularity.DOC && ref instanceof GeneratedReference) {
+                    numGeneratedColumnsWithValue++;
+                }
+            }
         }
-
-        return source;
+        return generatedColumnSize > numGeneratedColumnsWithValue
+               || (numGeneratedColumnsWithValue > 0 && request.validateConstraints());
     }
 
     private Engine.Index prepareIndexOnPrimary(IndexShard indexShard,
@@ -576,6 +573,98 @@ public class TransportShardUpsertAction extends TransportShardAction<ShardUpsert
         return evalNeeded;
     }
 
+    /**
+     * Streaming variant of {@link #updateSourceByPaths(Map, Map)} which copies the source to a new source of the
+     * same content type without building a map of it. Only objects containing changed paths are descended into,
+     * all other values are copied as they are.
+     */
+    static BytesReference updateSourceByPaths(@Nonnull BytesReference source,
+                                              @Nonnull Map<String, Object> changes) throws IOException {
+        XContent xContent = XContentFactory.xContent(source);
+        XContentBuilder builder = XContentFactory.contentBuilder(xContent.type());
+        try (XContentParser parser = xContent.createParser(source)) {
+            if (parser.nextToken() != XContentParser.Token.START_OBJECT) {
+                throw new ElasticsearchParseException("Source must be an object");
+            }
+            builder.startObject();
+            updateObjectByPaths(parser, builder, changes);
+            builder.endObject();
+        }
+        return builder.bytes();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void updateObjectByPaths(XContentParser parser,
+                                            XContentBuilder builder,
+                                            Map<String, Object> changes) throws IOException {
+        Map<String, Object> valueChanges = new LinkedHashMap<>();
+        Map<String, Map<String, Object>> subChanges = new LinkedHashMap<>();
+        Set<String> changedKeys = new LinkedHashSet<>();
+        for (Map.Entry<String, Object> changesEntry : changes.entrySet()) {
+            String key = changesEntry.getKey();
+            int dotIndex = key.indexOf(".");
+            if (dotIndex > -1) {
+                String currentKey = key.substring(0, dotIndex);
+                changedKeys.add(currentKey);
+                String subKey = key.substring(dotIndex + 1, key.length());
+                if (valueChanges.containsKey(currentKey)) {
+                    // the parent has been overwritten by a previous change, so the change is applied on the new value
+                    Map<String, Object> innerChanges = new HashMap<>();
+                    innerChanges.put(subKey, changesEntry.getValue());
+                    Map<String, Object> innerValue = (Map<String, Object>) valueChanges.get(currentKey);
+                    if (innerValue == null) {
+                        throw new NullPointerException(String.format(Locale.ENGLISH,
+                            "Object %s is null, cannot write %s onto it", currentKey, innerChanges));
+                    }
+                    updateSourceByPaths(innerValue, innerChanges);
+                } else {
+                    subChanges.computeIfAbsent(currentKey, k -> new LinkedHashMap<>()).put(subKey, changesEntry.getValue());
+                }
+            } else {
+                changedKeys.add(key);
+                subChanges.remove(key);
+                valueChanges.put(key, changesEntry.getValue());
+            }
+        }
+
+        XContentParser.Token token;
+        while ((token = parser.nextToken()) == XContentParser.Token.FIELD_NAME) {
+            String key = parser.currentName();
+            token = parser.nextToken();
+            if (valueChanges.containsKey(key)) {
+                builder.field(key, valueChanges.remove(key));
+                parser.skipChildren();
+            } else if (subChanges.containsKey(key)) {
+                Map<String, Object> innerChanges = subChanges.remove(key);
+                if (token == XContentParser.Token.VALUE_NULL) {
+                    throw new NullPointerException(String.format(Locale.ENGLISH,
+                        "Object %s is null, cannot write %s onto it", key, innerChanges));
+                }
+                if (token != XContentParser.Token.START_OBJECT) {
+                    throw new IllegalArgumentException(String.format(Locale.ENGLISH,
+                        "Value of %s is not an object, cannot write %s onto it", key, innerChanges));
+                }
+                builder.startObject(key);
+                updateObjectByPaths(parser, builder, innerChanges);
+                builder.endObject();
+            } else {
+                builder.field(key);
+                builder.copyCurrentStructure(parser);
+            }
+        }
+
+        // insert the fields which don't exist yet
+        for (String key : changedKeys) {
+            if (valueChanges.containsKey(key)) {
+                builder.field(key, valueChanges.get(key));
+            } else if (subChanges.containsKey(key)) {
+                Map<String, Object> innerSource = new HashMap<>();
+                updateSourceByPaths(innerSource, subChanges.get(key));
+                builder.field(key, innerSource);
+            }
+        }
+    }
+
     /**
      * Overwrite given values on the source. If the value is a map,
      * it will not be merged but overwritten. The keys of the changes map representing a path of
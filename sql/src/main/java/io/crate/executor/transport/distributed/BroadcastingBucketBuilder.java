@@ -32,28 +32,35 @@ import java.io.IOException;
 /**
  * MultiBucketBuilder that returns N buckets where N is the number of buckets specified in the constructor.
  * Internally only one bucket is built - the same instance is returned N number of times.
+ * <p>
+ * Not thread-safe, see {@link MultiBucketBuilder}.
  */
 public class BroadcastingBucketBuilder implements MultiBucketBuilder {
 
     private final int numBuckets;
     private final StreamBucket.Builder bucketBuilder;
-    private volatile int size = 0;
+    private int size = 0;
 
     public BroadcastingBucketBuilder(Streamer<?>[] streamers, int numBuckets) {
+        this(streamers, numBuckets, false);
+    }
+
+    /**
+     * @param encoded see {@link StreamBucket.Builder#Builder(Streamer[], boolean)}
+     */
+    public BroadcastingBucketBuilder(Streamer<?>[] streamers, int numBuckets, boolean encoded) {
         this.numBuckets = numBuckets;
-        this.bucketBuilder = new StreamBucket.Builder(streamers);
+        this.bucketBuilder = new StreamBucket.Builder(streamers, encoded);
     }
 
     @Override
     public void add(Row row) {
         try {
-            synchronized (this) {
-                bucketBuilder.add(row);
-                size++;
-            }
+            bucketBuilder.add(row);
         } catch (IOException e) {
             throw Throwables.propagate(e);
         }
+        size++;
     }
 
     @Override
@@ -62,7 +69,7 @@ public class BroadcastingBucketBuilder implements MultiBucketBuilder {
     }
 
     @Override
-    public synchronized void build(Bucket[] buckets) {
+    public void build(Bucket[] buckets) {
         assert buckets.length == numBuckets : "length of the provided array must match numBuckets";
         final Bucket bucket;
         try {
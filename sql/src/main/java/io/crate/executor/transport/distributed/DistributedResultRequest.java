@@ -34,6 +34,14 @@ import java.util.UUID;
 
 public class DistributedResultRequest extends TransportRequest {
 
+    /*
+     * The content types are written where previous versions wrote a boolean failure flag, so requests without
+     * encoded rows remain readable by nodes which don't support encoded rows.
+     */
+    private static final byte ROWS = 0;
+    private static final byte FAILURE = 1;
+    private static final byte ENCODED_ROWS = 2;
+
     private byte inputId;
     private int executionPhaseId;
     private int bucketIdx;
@@ -137,12 +145,12 @@ public class DistributedResultRequest extends TransportRequest {
         isLast = in.readBoolean();
         inputId = in.readByte();
 
-        boolean failure = in.readBoolean();
-        if (failure) {
+        byte contentType = in.readByte();
+        if (contentType == FAILURE) {
             throwable = in.readException();
             isKilled = in.readBoolean();
         } else {
-            StreamBucket bucket = new StreamBucket(streamers);
+            StreamBucket bucket = new StreamBucket(streamers, contentType == ENCODED_ROWS);
             bucket.readFrom(in);
             rows = bucket;
         }
@@ -158,12 +166,13 @@ public class DistributedResultRequest extends TransportRequest {
         out.writeBoolean(isLast);
         out.writeByte(inputId);
 
-        boolean failure = throwable != null;
-        out.writeBoolean(failure);
-        if (failure) {
+        if (throwable != null) {
+            out.writeByte(FAILURE);
             out.writeException(throwable);
             out.writeBoolean(isKilled);
         } else {
+            boolean encoded = rows instanceof StreamBucket && ((StreamBucket) rows).isEncoded();
+            out.writeByte(encoded ? ENCODED_ROWS : ROWS);
             // TODO: we should not rely on another bucket in this class and instead write to the stream directly
             StreamBucket.writeBucket(out, streamers, rows);
         }
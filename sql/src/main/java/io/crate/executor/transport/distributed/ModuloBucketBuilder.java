@@ -31,40 +31,44 @@ import org.apache.lucene.util.StringHelper;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * builds N buckets where N is passed in the CTOR.
  * The rows that are added via {@link #add(Row)} are assigned to the buckets by modulo calculation.
+ * <p>
+ * Not thread-safe, see {@link MultiBucketBuilder}.
  */
 public class ModuloBucketBuilder implements MultiBucketBuilder {
 
     private final int numBuckets;
-    private final List<StreamBucket.Builder> bucketBuilders;
+    private final StreamBucket.Builder[] bucketBuilders;
     private final int distributedByColumnIdx;
-    private volatile int size = 0;
+    private int size = 0;
 
     public ModuloBucketBuilder(Streamer<?>[] streamers, int numBuckets, int distributedByColumnIdx) {
+        this(streamers, numBuckets, distributedByColumnIdx, false);
+    }
+
+    /**
+     * @param encoded see {@link StreamBucket.Builder#Builder(Streamer[], boolean)}
+     */
+    public ModuloBucketBuilder(Streamer<?>[] streamers, int numBuckets, int distributedByColumnIdx, boolean encoded) {
         this.numBuckets = numBuckets;
         this.distributedByColumnIdx = distributedByColumnIdx;
-        this.bucketBuilders = new ArrayList<>(numBuckets);
+        this.bucketBuilders = new StreamBucket.Builder[numBuckets];
         for (int i = 0; i < numBuckets; i++) {
-            bucketBuilders.add(new StreamBucket.Builder(streamers));
+            bucketBuilders[i] = new StreamBucket.Builder(streamers, encoded);
         }
     }
 
     @Override
     public void add(Row row) {
-        final StreamBucket.Builder builder = bucketBuilders.get(getBucket(row));
         try {
-            synchronized (this) {
-                builder.add(row);
-                size++;
-            }
+            bucketBuilders[getBucket(row)].add(row);
         } catch (IOException e) {
             throw Throwables.propagate(e);
         }
+        size++;
     }
 
     @Override
@@ -73,11 +77,11 @@ public class ModuloBucketBuilder implements MultiBucketBuilder {
     }
 
     @Override
-    public synchronized void build(Bucket[] buckets) {
+    public void build(Bucket[] buckets) {
         assert buckets.length == numBuckets : "length of the provided array must match numBuckets";
         for (int i = 0; i < numBuckets; i++) {
             try {
-                final StreamBucket.Builder builder = bucketBuilders.get(i);
+                final StreamBucket.Builder builder = bucketBuilders[i];
                 buckets[i] = builder.build();
                 builder.reset();
             } catch (IOException e) {
@@ -26,6 +26,10 @@ import io.crate.data.Row;
 
 /**
  * Builder used to build one or more buckets
+ * <p>
+ * Implementations are not thread-safe. Rows are added by the single consumer of a BatchIterator which
+ * may move between threads, but never adds rows concurrently. The hand-over between threads happens via
+ * futures or atomic counters (see {@link DistributingConsumer}), which makes the state visible to the next thread.
  */
 public interface MultiBucketBuilder {
 
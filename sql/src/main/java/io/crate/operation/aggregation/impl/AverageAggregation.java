@@ -68,6 +68,14 @@ public class AverageAggregation extends AggregationFunction<AverageAggregation.A
         private double sum = 0;
         private long count = 0;
 
+        public AverageState() {
+        }
+
+        public AverageState(double sum, long count) {
+            this.sum = sum;
+            this.count = count;
+        }
+
         public Double value() {
             if (count > 0) {
                 return sum / count;
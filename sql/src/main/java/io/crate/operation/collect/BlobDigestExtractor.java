@@ -0,0 +1,134 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.operation.collect;
+
+import io.crate.analyze.symbol.Function;
+import io.crate.analyze.symbol.Literal;
+import io.crate.analyze.symbol.Symbol;
+import io.crate.analyze.symbol.SymbolVisitor;
+import io.crate.metadata.Reference;
+import io.crate.operation.operator.AndOperator;
+import io.crate.operation.operator.EqOperator;
+import io.crate.operation.operator.OrOperator;
+import io.crate.operation.operator.any.AnyEqOperator;
+import io.crate.operation.reference.doc.blob.BlobDigestExpression;
+import org.elasticsearch.common.lucene.BytesRefs;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Extracts the digests a blob table query is restricted to,
+ * e.g. <pre>digest = 'x' or digest in ('y', 'z')</pre> results in [x, y, z].
+ *
+ * The query must still be applied to the blobs of the extracted digests, but all other blobs can be skipped.
+ */
+final class BlobDigestExtractor extends SymbolVisitor<Void, NavigableSet<String>> {
+
+    private static final BlobDigestExtractor INSTANCE = new BlobDigestExtractor();
+
+    private BlobDigestExtractor() {
+    }
+
+    /**
+     * @return the digests ordered ascending or null if the query isn't restricted to a set of digests
+     */
+    @Nullable
+    static NavigableSet<String> extract(Symbol query) {
+        return INSTANCE.process(query, null);
+    }
+
+    @Override
+    public NavigableSet<String> visitFunction(Function function, Void context) {
+        String name = function.info().ident().name();
+        List<Symbol> arguments = function.arguments();
+        if (name.equals(EqOperator.NAME) || name.equals(AnyEqOperator.NAME)) {
+            if (isDigest(arguments.get(0)) && arguments.get(1) instanceof Literal) {
+                return literalDigests((Literal) arguments.get(1));
+            }
+            if (name.equals(EqOperator.NAME) && isDigest(arguments.get(1)) && arguments.get(0) instanceof Literal) {
+                return literalDigests((Literal) arguments.get(0));
+            }
+            return null;
+        }
+        if (name.equals(OrOperator.NAME)) {
+            NavigableSet<String> digests = new TreeSet<>();
+            for (Symbol argument : arguments) {
+                NavigableSet<String> argumentDigests = process(argument, context);
+                if (argumentDigests == null) {
+                    return null;
+                }
+                digests.addAll(argumentDigests);
+            }
+            return digests;
+        }
+        if (name.equals(AndOperator.NAME)) {
+            NavigableSet<String> digests = null;
+            for (Symbol argument : arguments) {
+                NavigableSet<String> argumentDigests = process(argument, context);
+                if (argumentDigests == null) {
+                    continue;
+                }
+                if (digests == null) {
+                    digests = argumentDigests;
+                } else {
+                    digests.retainAll(argumentDigests);
+                }
+            }
+            return digests;
+        }
+        return null;
+    }
+
+    @Override
+    protected NavigableSet<String> visitSymbol(Symbol symbol, Void context) {
+        return null;
+    }
+
+    private static boolean isDigest(Symbol symbol) {
+        return symbol instanceof Reference
+               && ((Reference) symbol).ident().columnIdent().name().equals(BlobDigestExpression.COLUMN_NAME);
+    }
+
+    private static NavigableSet<String> literalDigests(Literal literal) {
+        NavigableSet<String> digests = new TreeSet<>();
+        Object value = literal.value();
+        if (value instanceof Object[]) {
+            value = Arrays.asList((Object[]) value);
+        }
+        if (value instanceof Collection) {
+            for (Object element : (Collection<?>) value) {
+                if (element != null) {
+                    digests.add(BytesRefs.toString(element));
+                }
+            }
+        } else if (value != null) {
+            digests.add(BytesRefs.toString(value));
+        }
+        return digests;
+    }
+}
@@ -23,15 +23,23 @@
 package io.crate.operation.collect;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 import io.crate.action.job.SharedShardContext;
+import io.crate.analyze.OrderBy;
+import io.crate.analyze.WhereClause;
+import io.crate.analyze.symbol.Symbol;
+import io.crate.blob.BlobDigestIndex;
 import io.crate.blob.v2.BlobShard;
 import io.crate.data.Row;
+import io.crate.exceptions.UnhandledServerException;
 import io.crate.executor.transport.TransportActionProvider;
 import io.crate.metadata.Functions;
+import io.crate.metadata.Reference;
 import io.crate.metadata.shard.blob.BlobShardReferenceResolver;
 import io.crate.operation.InputFactory;
 import io.crate.operation.collect.collectors.BlobOrderedDocCollector;
 import io.crate.operation.collect.collectors.OrderedDocCollector;
+import io.crate.operation.reference.doc.blob.BlobDigestExpression;
 import io.crate.operation.reference.doc.blob.BlobReferenceResolver;
 import io.crate.planner.node.dql.RoutedCollectPhase;
 import org.elasticsearch.action.bulk.BulkRetryCoordinatorPool;
@@ -40,7 +48,12 @@ import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.threadpool.ThreadPool;
 
-import java.io.File;
+import javax.annotation.Nullable;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 
 public class BlobShardCollectorProvider extends ShardCollectorProvider {
 
@@ -69,14 +82,71 @@ public class BlobShardCollectorProvider extends ShardCollectorProvider {
     }
 
     private Iterable<Row> getBlobRows(RoutedCollectPhase collectPhase, boolean requiresRepeat) {
-        Iterable<File> files = blobShard.blobContainer().getFiles();
-        Iterable<Row> rows = RowsTransformer.toRowsIterable(inputFactory, BlobReferenceResolver.INSTANCE, collectPhase, files);
+        BlobDigestIndex digestIndex = blobShard.blobContainer().digestIndex();
+        boolean orderedByDigest = isOrderedByDigest(collectPhase.orderBy());
+        boolean descending = orderedByDigest && collectPhase.orderBy().reverseFlags()[0];
+        WhereClause whereClause = collectPhase.whereClause();
+        NavigableSet<String> digests = whereClause.hasQuery() ? BlobDigestExtractor.extract(whereClause.query()) : null;
+        Iterable<BlobDigestIndex.Entry> entries;
+        if (digests == null) {
+            // the index is read lazily in digest order, so a LIMIT or an ORDER BY digest stops reading early
+            entries = failOnUnreadablePartition(digestIndex.entries(descending));
+        } else {
+            // lookups which can't be answered by the index read the blob file, so a miss is never caused by a failure
+            entries = Iterables.filter(
+                Iterables.transform(descending ? digests.descendingSet() : digests, digestIndex::get),
+                Objects::nonNull);
+        }
+        Iterable<Row> rows = RowsTransformer.toRowsIterable(
+            inputFactory, BlobReferenceResolver.INSTANCE, collectPhase, entries, !orderedByDigest);
         if (requiresRepeat) {
             return ImmutableList.copyOf(rows);
         }
         return rows;
     }
 
+    /**
+     * Raises the failure of a partition which can neither be read from the index nor from its blob directory,
+     * instead of returning the rows of the other partitions only.
+     */
+    private Iterable<BlobDigestIndex.Entry> failOnUnreadablePartition(Iterable<BlobDigestIndex.Entry> entries) {
+        return () -> {
+            Iterator<BlobDigestIndex.Entry> it = entries.iterator();
+            return new Iterator<BlobDigestIndex.Entry>() {
+
+                @Override
+                public boolean hasNext() {
+                    try {
+                        return it.hasNext();
+                    } catch (UncheckedIOException e) {
+                        throw new UnhandledServerException(
+                            "Failed to read the blobs of shard " + blobShard.indexShard().shardId(), e.getCause());
+                    }
+                }
+
+                @Override
+                public BlobDigestIndex.Entry next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException("No more entries");
+                    }
+                    return it.next();
+                }
+            };
+        };
+    }
+
+    /**
+     * @return true if the rows are only ordered by digest, which is the order of the {@link BlobDigestIndex}
+     */
+    private static boolean isOrderedByDigest(@Nullable OrderBy orderBy) {
+        if (orderBy == null || orderBy.orderBySymbols().size() != 1) {
+            return false;
+        }
+        Symbol symbol = orderBy.orderBySymbols().get(0);
+        return symbol instanceof Reference
+               && ((Reference) symbol).ident().columnIdent().name().equals(BlobDigestExpression.COLUMN_NAME);
+    }
+
     public OrderedDocCollector getOrderedCollector(RoutedCollectPhase collectPhase,
                                                    SharedShardContext sharedShardContext,
                                                    JobCollectContext jobCollectContext,
@@ -34,32 +34,48 @@ import io.crate.metadata.shard.ShardReferenceResolver;
 import io.crate.operation.InputFactory;
 import io.crate.operation.collect.collectors.CollectorFieldsVisitor;
 import io.crate.operation.collect.collectors.CrateDocCollectorBuilder;
+import io.crate.operation.collect.collectors.DocValuesAggregates;
 import io.crate.operation.collect.collectors.LuceneOrderedDocCollector;
 import io.crate.operation.collect.collectors.OrderedDocCollector;
 import io.crate.operation.reference.doc.lucene.CollectorContext;
 import io.crate.operation.reference.doc.lucene.LuceneCollectorExpression;
 import io.crate.operation.reference.doc.lucene.LuceneReferenceResolver;
 import io.crate.planner.node.dql.RoutedCollectPhase;
+import io.crate.planner.projection.AggregationProjection;
 import org.apache.logging.log4j.Logger;
+import org.apache.lucene.index.LeafReaderContext;
 import org.elasticsearch.action.bulk.BulkRetryCoordinatorPool;
 import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class LuceneShardCollectorProvider extends ShardCollectorProvider {
 
     private static final Logger LOGGER = Loggers.getLogger(LuceneShardCollectorProvider.class);
 
+    /**
+     * Max number of slices the segments of a shard are split into to collect them concurrently.
+     * Only used if the rows are aggregated on shard level.
+     */
+    public static final Setting<Integer> SEGMENT_SLICES_SETTING = Setting.intSetting(
+        "node.sql.collect.segment_slices", 1, 1, Setting.Property.NodeScope);
+
     private final String localNodeId;
     private final LuceneQueryBuilder luceneQueryBuilder;
     private final IndexShard indexShard;
     private final DocInputFactory docInputFactory;
     private final FieldTypeLookup fieldTypeLookup;
+    private final Functions functions;
+    private final int maxSlices;
 
     public LuceneShardCollectorProvider(Schemas schemas,
                                         LuceneQueryBuilder luceneQueryBuilder,
@@ -77,6 +93,8 @@ public class LuceneShardCollectorProvider extends ShardCollectorProvider {
         this.luceneQueryBuilder = luceneQueryBuilder;
         this.indexShard = indexShard;
         this.localNodeId = clusterService.localNode().getId();
+        this.maxSlices = SEGMENT_SLICES_SETTING.get(settings);
+        this.functions = functions;
         fieldTypeLookup = indexShard.mapperService()::fullName;
         this.docInputFactory = new DocInputFactory(functions,
             fieldTypeLookup,
@@ -89,8 +107,54 @@ public class LuceneShardCollectorProvider extends ShardCollectorProvider {
                                                 JobCollectContext jobCollectContext) {
         SharedShardContext sharedShardContext = jobCollectContext.sharedShardContexts().getOrCreateContext(indexShard.shardId());
         Engine.Searcher searcher = sharedShardContext.acquireSearcher();
-        IndexShard indexShard = sharedShardContext.indexShard();
         try {
+            CrateCollector.Builder builder = newDocCollectorBuilder(
+                collectPhase, jobCollectContext, sharedShardContext, searcher, searcher.searcher().getTopReaderContext().leaves());
+            jobCollectContext.addSearcher(sharedShardContext.readerId(), searcher);
+            return builder;
+        } catch (Throwable t) {
+            searcher.close();
+            throw t;
+        }
+    }
+
+    @Override
+    protected List<CrateCollector.Builder> getSliceBuilders(RoutedCollectPhase collectPhase,
+                                                            JobCollectContext jobCollectContext) {
+        if (maxSlices <= 1) {
+            return super.getSliceBuilders(collectPhase, jobCollectContext);
+        }
+        SharedShardContext sharedShardContext = jobCollectContext.sharedShardContexts().getOrCreateContext(indexShard.shardId());
+        Engine.Searcher searcher = sharedShardContext.acquireSearcher();
+        try {
+            List<List<LeafReaderContext>> slices = CrateDocCollectorBuilder.sliceLeaves(
+                searcher.searcher().getTopReaderContext().leaves(), maxSlices);
+            List<CrateCollector.Builder> builders = new ArrayList<>(slices.size());
+            for (List<LeafReaderContext> slice : slices) {
+                // query and expressions are stateful, so every slice needs its own instances
+                builders.add(newDocCollectorBuilder(collectPhase, jobCollectContext, sharedShardContext, searcher, slice));
+            }
+            jobCollectContext.addSearcher(sharedShardContext.readerId(), searcher);
+            return builders;
+        } catch (Throwable t) {
+            searcher.close();
+            throw t;
+        }
+    }
+
+    @Override
+    protected CrateCollector.Builder getAggregationBuilder(RoutedCollectPhase collectPhase,
+                                                           AggregationProjection projection,
+                                                           JobCollectContext jobCollectContext) {
+        DocValuesAggregates aggregates = DocValuesAggregates.forProjection(
+            functions, projection, collectPhase.toCollect(), fieldTypeLookup);
+        if (aggregates == null) {
+            return null;
+        }
+        SharedShardContext sharedShardContext = jobCollectContext.sharedShardContexts().getOrCreateContext(indexShard.shardId());
+        Engine.Searcher searcher = sharedShardContext.acquireSearcher();
+        try {
+            IndexShard indexShard = sharedShardContext.indexShard();
             LuceneQueryBuilder.Context queryContext = luceneQueryBuilder.convert(
                 collectPhase.whereClause(),
                 indexShard.mapperService(),
@@ -98,19 +162,16 @@ public class LuceneShardCollectorProvider extends ShardCollectorProvider {
                 indexShard.indexFieldDataService(),
                 sharedShardContext.indexService().cache()
             );
+            if (queryContext.minScore() != null) {
+                searcher.close();
+                return null;
+            }
             jobCollectContext.addSearcher(sharedShardContext.readerId(), searcher);
-            InputFactory.Context<? extends LuceneCollectorExpression<?>> docCtx =
-                docInputFactory.extractImplementations(collectPhase);
-
-            return new CrateDocCollectorBuilder(
+            return aggregates.builder(
                 searcher.searcher(),
                 queryContext.query(),
-                queryContext.minScore(),
-                Symbols.containsColumn(collectPhase.toCollect(), DocSysColumns.SCORE),
-                getCollectorContext(sharedShardContext.readerId(), docCtx),
-                jobCollectContext.queryPhaseRamAccountingContext(),
-                docCtx.topLevelInputs(),
-                docCtx.expressions()
+                indexShard.indexFieldDataService(),
+                jobCollectContext.queryPhaseRamAccountingContext()
             );
         } catch (Throwable t) {
             searcher.close();
@@ -118,6 +179,35 @@ public class LuceneShardCollectorProvider extends ShardCollectorProvider {
         }
     }
 
+    private CrateCollector.Builder newDocCollectorBuilder(RoutedCollectPhase collectPhase,
+                                                          JobCollectContext jobCollectContext,
+                                                          SharedShardContext sharedShardContext,
+                                                          Engine.Searcher searcher,
+                                                          List<LeafReaderContext> leaves) {
+        IndexShard indexShard = sharedShardContext.indexShard();
+        LuceneQueryBuilder.Context queryContext = luceneQueryBuilder.convert(
+            collectPhase.whereClause(),
+            indexShard.mapperService(),
+            sharedShardContext.indexService().newQueryShardContext(searcher.reader(), System::currentTimeMillis),
+            indexShard.indexFieldDataService(),
+            sharedShardContext.indexService().cache()
+        );
+        InputFactory.Context<? extends LuceneCollectorExpression<?>> docCtx =
+            docInputFactory.extractImplementations(collectPhase);
+
+        return new CrateDocCollectorBuilder(
+            searcher.searcher(),
+            leaves,
+            queryContext.query(),
+            queryContext.minScore(),
+            Symbols.containsColumn(collectPhase.toCollect(), DocSysColumns.SCORE),
+            getCollectorContext(sharedShardContext.readerId(), docCtx),
+            jobCollectContext.queryPhaseRamAccountingContext(),
+            docCtx.topLevelInputs(),
+            docCtx.expressions()
+        );
+    }
+
     @Override
     public OrderedDocCollector getOrderedCollector(RoutedCollectPhase phase,
                                                    SharedShardContext sharedShardContext,
@@ -48,6 +48,17 @@ public final class RowsTransformer {
                                                ReferenceResolver<?> referenceResolver,
                                                RoutedCollectPhase collectPhase,
                                                Iterable<?> iterable) {
+        return toRowsIterable(inputFactory, referenceResolver, collectPhase, iterable, true);
+    }
+
+    /**
+     * @param sort if false the iterable must already be in the order of the orderBy of the collectPhase (if any)
+     */
+    public static Iterable<Row> toRowsIterable(InputFactory inputFactory,
+                                               ReferenceResolver<?> referenceResolver,
+                                               RoutedCollectPhase collectPhase,
+                                               Iterable<?> iterable,
+                                               boolean sort) {
         WhereClause whereClause = collectPhase.whereClause();
         if (whereClause.noMatch()) {
             return Collections.emptyList();
@@ -80,6 +91,9 @@ public final class RowsTransformer {
         if (orderBy == null) {
             return rows;
         }
+        if (!sort) {
+            return Iterables.transform(Iterables.transform(rows, Row::materialize), Buckets.arrayToRowFunction());
+        }
         return sortRows(Iterables.transform(rows, Row::materialize), collectPhase);
     }
 
@@ -38,7 +38,10 @@ import io.crate.operation.projectors.ProjectingBatchConsumer;
 import io.crate.operation.projectors.ProjectionToProjectorVisitor;
 import io.crate.operation.projectors.ProjectorFactory;
 import io.crate.operation.reference.ReferenceResolver;
+import io.crate.analyze.symbol.AggregateMode;
 import io.crate.planner.node.dql.RoutedCollectPhase;
+import io.crate.planner.projection.AggregationProjection;
+import io.crate.planner.projection.GroupProjection;
 import io.crate.planner.projection.Projection;
 import io.crate.planner.projection.Projections;
 import org.elasticsearch.action.bulk.BulkRetryCoordinatorPool;
@@ -49,7 +52,9 @@ import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 public abstract class ShardCollectorProvider {
@@ -138,30 +143,114 @@ public abstract class ShardCollectorProvider {
         if (shardProjections.isEmpty()) {
             return builder;
         } else {
-            return new CrateCollector.Builder() {
-                @Override
-                public CrateCollector build(BatchConsumer batchConsumer) {
-                    return builder.build(batchConsumer);
-                }
-
-                @Override
-                public BatchConsumer applyProjections(BatchConsumer consumer) {
-                    return ProjectingBatchConsumer.create(
-                        consumer,
-                        shardProjections,
-                        normalizedCollectNode.jobId(),
-                        jobCollectContext.queryPhaseRamAccountingContext(),
-                        projectorFactory
-                    );
-                }
-            };
+            return withShardProjections(builder, shardProjections, normalizedCollectNode, jobCollectContext);
         }
     }
 
+    /**
+     * Create one or more CrateCollector.Builder to collect rows from a shard.
+     * <p>
+     * If the shard-level projections produce partial aggregation results the shard may be split into slices.
+     * Each slice gets its own shard-level projectors so that the slices can be consumed concurrently;
+     * their partial results are merged the same way the results of different shards are merged.
+     */
+    public List<CrateCollector.Builder> getCollectorBuilders(RoutedCollectPhase collectPhase,
+                                                             boolean requiresScroll,
+                                                             JobCollectContext jobCollectContext) throws Exception {
+        Collection<? extends Projection> shardProjections = Projections.shardProjections(collectPhase.projections());
+        if (requiresScroll || !producesPartialResults(shardProjections)) {
+            return Collections.singletonList(getCollectorBuilder(collectPhase, requiresScroll, jobCollectContext));
+        }
+        RoutedCollectPhase normalizedCollectNode = collectPhase.normalize(shardNormalizer, null);
+        if (normalizedCollectNode.whereClause().noMatch()) {
+            return Collections.singletonList(withShardProjections(
+                RowsCollector.emptyBuilder(collectPhase.toCollect().size()),
+                shardProjections,
+                normalizedCollectNode,
+                jobCollectContext));
+        }
+        assert normalizedCollectNode.maxRowGranularity() == RowGranularity.DOC : "granularity must be DOC";
+        Projection projection = shardProjections.iterator().next();
+        if (projection instanceof AggregationProjection) {
+            CrateCollector.Builder aggregationBuilder =
+                getAggregationBuilder(normalizedCollectNode, (AggregationProjection) projection, jobCollectContext);
+            if (aggregationBuilder != null) {
+                return Collections.singletonList(aggregationBuilder);
+            }
+        }
+        List<CrateCollector.Builder> sliceBuilders = getSliceBuilders(normalizedCollectNode, jobCollectContext);
+        List<CrateCollector.Builder> builders = new ArrayList<>(sliceBuilders.size());
+        for (CrateCollector.Builder sliceBuilder : sliceBuilders) {
+            builders.add(withShardProjections(sliceBuilder, shardProjections, normalizedCollectNode, jobCollectContext));
+        }
+        return builders;
+    }
+
+    /**
+     * Partial results can be merged, independent of how the rows have been distributed
+     */
+    private static boolean producesPartialResults(Collection<? extends Projection> shardProjections) {
+        if (shardProjections.size() != 1) {
+            return false;
+        }
+        Projection projection = shardProjections.iterator().next();
+        if (projection instanceof GroupProjection) {
+            return ((GroupProjection) projection).mode() == AggregateMode.ITER_PARTIAL;
+        }
+        if (projection instanceof AggregationProjection) {
+            return ((AggregationProjection) projection).mode() == AggregateMode.ITER_PARTIAL;
+        }
+        return false;
+    }
+
+    private CrateCollector.Builder withShardProjections(CrateCollector.Builder builder,
+                                                        Collection<? extends Projection> shardProjections,
+                                                        RoutedCollectPhase normalizedCollectNode,
+                                                        JobCollectContext jobCollectContext) {
+        return new CrateCollector.Builder() {
+            @Override
+            public CrateCollector build(BatchConsumer batchConsumer) {
+                return builder.build(batchConsumer);
+            }
+
+            @Override
+            public BatchConsumer applyProjections(BatchConsumer consumer) {
+                return ProjectingBatchConsumer.create(
+                    consumer,
+                    shardProjections,
+                    normalizedCollectNode.jobId(),
+                    jobCollectContext.queryPhaseRamAccountingContext(),
+                    projectorFactory
+                );
+            }
+        };
+    }
+
     protected abstract CrateCollector.Builder getBuilder(RoutedCollectPhase collectPhase,
                                                          boolean requiresScroll,
                                                          JobCollectContext jobCollectContext);
 
+    /**
+     * Create builders which each collect a part of the shard and which can be consumed concurrently.
+     */
+    protected List<CrateCollector.Builder> getSliceBuilders(RoutedCollectPhase collectPhase,
+                                                            JobCollectContext jobCollectContext) {
+        return Collections.singletonList(getBuilder(collectPhase, false, jobCollectContext));
+    }
+
+    /**
+     * Create a builder which computes the partial states of the aggregation projection itself.
+     * The collector emits a single row containing the states, so the projection must not be applied anymore.
+     *
+     * @return the builder or null if the aggregations can't be computed without collecting rows
+     */
+    @Nullable
+    protected CrateCollector.Builder getAggregationBuilder(RoutedCollectPhase collectPhase,
+                                                           AggregationProjection projection,
+                                                           JobCollectContext jobCollectContext) {
+        return null;
+    }
+
 
     public abstract OrderedDocCollector getOrderedCollector(RoutedCollectPhase collectPhase,
                                                             SharedShardContext sharedShardContext,
@@ -29,15 +29,20 @@ import io.crate.operation.collect.BatchIteratorCollectorBridge;
 import io.crate.operation.collect.CrateCollector;
 import io.crate.operation.reference.doc.lucene.CollectorContext;
 import io.crate.operation.reference.doc.lucene.LuceneCollectorExpression;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 public class CrateDocCollectorBuilder implements CrateCollector.Builder {
 
     private final IndexSearcher indexSearcher;
+    private final List<LeafReaderContext> leaves;
     private final Query query;
     private final Float minScore;
     private final boolean doScores;
@@ -54,7 +59,21 @@ public class CrateDocCollectorBuilder implements CrateCollector.Builder {
                                     RamAccountingContext ramAccountingContext,
                                     List<Input<?>> inputs,
                                     Collection<? extends LuceneCollectorExpression<?>> expressions) {
+        this(indexSearcher, indexSearcher.getTopReaderContext().leaves(), query, minScore, doScores,
+            collectorContext, ramAccountingContext, inputs, expressions);
+    }
+
+    public CrateDocCollectorBuilder(IndexSearcher indexSearcher,
+                                    List<LeafReaderContext> leaves,
+                                    Query query,
+                                    Float minScore,
+                                    boolean doScores,
+                                    CollectorContext collectorContext,
+                                    RamAccountingContext ramAccountingContext,
+                                    List<Input<?>> inputs,
+                                    Collection<? extends LuceneCollectorExpression<?>> expressions) {
         this.indexSearcher = indexSearcher;
+        this.leaves = leaves;
         this.query = query;
         this.minScore = minScore;
         this.doScores = doScores;
@@ -68,6 +87,7 @@ public class CrateDocCollectorBuilder implements CrateCollector.Builder {
     public CrateCollector build(BatchConsumer consumer) {
         LuceneBatchIterator batchIterator = new LuceneBatchIterator(
             indexSearcher,
+            leaves,
             query,
             minScore,
             doScores,
@@ -78,4 +98,37 @@ public class CrateDocCollectorBuilder implements CrateCollector.Builder {
         );
         return BatchIteratorCollectorBridge.newInstance(batchIterator, consumer);
     }
+
+    /**
+     * Distribute the leaves into at most {@code maxSlices} slices with a similar number of documents.
+     * The leaves within a slice keep their original order.
+     */
+    public static List<List<LeafReaderContext>> sliceLeaves(List<LeafReaderContext> leaves, int maxSlices) {
+        int numSlices = Math.min(maxSlices, leaves.size());
+        if (numSlices <= 1) {
+            return Collections.singletonList(leaves);
+        }
+        List<LeafReaderContext> bySizeDesc = new ArrayList<>(leaves);
+        bySizeDesc.sort(Comparator.comparingInt((LeafReaderContext leaf) -> leaf.reader().maxDoc()).reversed());
+
+        List<List<LeafReaderContext>> slices = new ArrayList<>(numSlices);
+        long[] numDocs = new long[numSlices];
+        for (int i = 0; i < numSlices; i++) {
+            slices.add(new ArrayList<>());
+        }
+        for (LeafReaderContext leaf : bySizeDesc) {
+            int smallest = 0;
+            for (int i = 1; i < numSlices; i++) {
+                if (numDocs[i] < numDocs[smallest]) {
+                    smallest = i;
+                }
+            }
+            slices.get(smallest).add(leaf);
+            numDocs[smallest] += leaf.reader().maxDoc();
+        }
+        for (List<LeafReaderContext> slice : slices) {
+            slice.sort(Comparator.comparingInt(leaf -> leaf.ord));
+        }
+        return slices;
+    }
 }
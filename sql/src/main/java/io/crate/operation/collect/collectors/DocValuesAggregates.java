@@ -0,0 +1,675 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.operation.collect.collectors;
+
+import io.crate.analyze.symbol.Aggregation;
+import io.crate.analyze.symbol.InputColumn;
+import io.crate.analyze.symbol.Symbol;
+import io.crate.breaker.RamAccountingContext;
+import io.crate.data.BatchConsumer;
+import io.crate.data.RowN;
+import io.crate.data.RowsBatchIterator;
+import io.crate.exceptions.JobKilledException;
+import io.crate.lucene.FieldTypeLookup;
+import io.crate.metadata.Functions;
+import io.crate.metadata.Reference;
+import io.crate.metadata.RowGranularity;
+import io.crate.operation.aggregation.AggregationFunction;
+import io.crate.operation.aggregation.impl.AverageAggregation;
+import io.crate.operation.aggregation.impl.CountAggregation;
+import io.crate.operation.aggregation.impl.MaximumAggregation;
+import io.crate.operation.aggregation.impl.MinimumAggregation;
+import io.crate.operation.aggregation.impl.SumAggregation;
+import io.crate.operation.collect.CrateCollector;
+import io.crate.planner.projection.AggregationProjection;
+import io.crate.types.ByteType;
+import io.crate.types.DataType;
+import io.crate.types.DoubleType;
+import io.crate.types.FloatType;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.TimestampType;
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.FloatPoint;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Bits;
+import org.elasticsearch.index.fielddata.IndexFieldDataService;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
+import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+import org.elasticsearch.index.mapper.MappedFieldType;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Computes the partial states of an {@link AggregationProjection} directly from the doc values of a shard.
+ * <p>
+ * The matching documents of a segment are buffered and each aggregation reads the values of its column
+ * for the whole buffer in a primitive loop. This avoids materializing rows and boxing every value,
+ * which the regular path of {@link LuceneBatchIterator} and {@link io.crate.operation.projectors.AggregationPipe} does.
+ * <p>
+ * If all documents of a segment without deletions match, count, min and max are taken from the statistics
+ * of the point values without reading any document.
+ * <p>
+ * Only count, sum, avg, min and max on numeric or timestamp columns are supported.
+ */
+public final class DocValuesAggregates {
+
+    private static final int DOC_BUFFER_SIZE = 1024;
+
+    private enum Kind {
+        COUNT,
+        SUM,
+        AVG,
+        MIN,
+        MAX
+    }
+
+    private final List<AggregationSpec> specs;
+
+    private DocValuesAggregates(List<AggregationSpec> specs) {
+        this.specs = specs;
+    }
+
+    /**
+     * @param toCollect the symbols the aggregation inputs refer to
+     * @return the aggregates or null if any of the aggregations or its input isn't supported
+     */
+    @Nullable
+    public static DocValuesAggregates forProjection(Functions functions,
+                                                    AggregationProjection projection,
+                                                    List<? extends Symbol> toCollect,
+                                                    FieldTypeLookup fieldTypeLookup) {
+        List<AggregationSpec> specs = new ArrayList<>(projection.aggregations().size());
+        for (Aggregation aggregation : projection.aggregations()) {
+            AggregationFunction function = (AggregationFunction) functions.getQualified(aggregation.functionIdent());
+            Kind kind = kindOf(function);
+            if (kind == null) {
+                return null;
+            }
+            List<Symbol> inputs = aggregation.inputs();
+            if (inputs.isEmpty()) {
+                if (kind != Kind.COUNT) {
+                    return null;
+                }
+                specs.add(new AggregationSpec(function, kind, null, null));
+                continue;
+            }
+            if (inputs.size() != 1 || !(inputs.get(0) instanceof InputColumn)) {
+                return null;
+            }
+            Symbol input = toCollect.get(((InputColumn) inputs.get(0)).index());
+            if (!(input instanceof Reference)) {
+                return null;
+            }
+            Reference ref = (Reference) input;
+            if (ref.granularity() != RowGranularity.DOC || ref.ident().columnIdent().isSystemColumn()) {
+                return null;
+            }
+            if (!isNumeric(ref.valueType())) {
+                return null;
+            }
+            String columnName = ref.ident().columnIdent().fqn();
+            MappedFieldType fieldType = fieldTypeLookup.get(columnName);
+            if (fieldType == null) {
+                return null;
+            }
+            specs.add(new AggregationSpec(function, kind, ref, fieldType));
+        }
+        return new DocValuesAggregates(specs);
+    }
+
+    @Nullable
+    private static Kind kindOf(AggregationFunction function) {
+        if (function instanceof CountAggregation) {
+            return Kind.COUNT;
+        }
+        if (function instanceof SumAggregation) {
+            return Kind.SUM;
+        }
+        if (function instanceof AverageAggregation) {
+            return Kind.AVG;
+        }
+        if (function instanceof MinimumAggregation) {
+            return Kind.MIN;
+        }
+        if (function instanceof MaximumAggregation) {
+            return Kind.MAX;
+        }
+        return null;
+    }
+
+    private static boolean isNumeric(DataType dataType) {
+        switch (dataType.id()) {
+            case ByteType.ID:
+            case ShortType.ID:
+            case IntegerType.ID:
+            case LongType.ID:
+            case TimestampType.ID:
+            case FloatType.ID:
+            case DoubleType.ID:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isFloatingPoint(DataType dataType) {
+        return dataType.id() == FloatType.ID || dataType.id() == DoubleType.ID;
+    }
+
+    /**
+     * Create a builder for a collector which emits a single row containing the partial aggregation states
+     */
+    public CrateCollector.Builder builder(IndexSearcher searcher,
+                                         Query query,
+                                         IndexFieldDataService fieldDataService,
+                                         RamAccountingContext ramAccountingContext) {
+        return consumer -> new DocValuesAggregatesCollector(
+            searcher, query, fieldDataService, ramAccountingContext, specs, consumer);
+    }
+
+    private static class AggregationSpec {
+
+        private final AggregationFunction function;
+        private final Kind kind;
+        @Nullable
+        private final Reference column;
+        @Nullable
+        private final MappedFieldType fieldType;
+
+        AggregationSpec(AggregationFunction function,
+                        Kind kind,
+                        @Nullable Reference column,
+                        @Nullable MappedFieldType fieldType) {
+            this.function = function;
+            this.kind = kind;
+            this.column = column;
+            this.fieldType = fieldType;
+        }
+
+        Aggregator newAggregator(IndexFieldDataService fieldDataService) {
+            if (column == null) {
+                return new CountAllAggregator(this);
+            }
+            if (isFloatingPoint(column.valueType())) {
+                return new DoubleAggregator(this, (IndexNumericFieldData) fieldDataService.getForField(fieldType));
+            }
+            return new LongAggregator(this, column.ident().columnIdent().fqn());
+        }
+    }
+
+    private static class DocValuesAggregatesCollector implements CrateCollector {
+
+        private final IndexSearcher searcher;
+        private final Query query;
+        private final IndexFieldDataService fieldDataService;
+        private final RamAccountingContext ramAccountingContext;
+        private final List<AggregationSpec> specs;
+        private final BatchConsumer consumer;
+        private volatile Throwable killed;
+
+        DocValuesAggregatesCollector(IndexSearcher searcher,
+                                     Query query,
+                                     IndexFieldDataService fieldDataService,
+                                     RamAccountingContext ramAccountingContext,
+                                     List<AggregationSpec> specs,
+                                     BatchConsumer consumer) {
+            this.searcher = searcher;
+            this.query = query;
+            this.fieldDataService = fieldDataService;
+            this.ramAccountingContext = ramAccountingContext;
+            this.specs = specs;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void doCollect() {
+            Object[] states;
+            try {
+                states = aggregate();
+            } catch (Throwable t) {
+                consumer.accept(null, t);
+                return;
+            }
+            consumer.accept(RowsBatchIterator.newInstance(Collections.singletonList(new RowN(states)), states.length), null);
+        }
+
+        @Override
+        public void kill(@Nullable Throwable throwable) {
+            killed = throwable == null ? new InterruptedException(JobKilledException.MESSAGE) : throwable;
+        }
+
+        private Object[] aggregate() throws Throwable {
+            Aggregator[] aggregators = new Aggregator[specs.size()];
+            for (int i = 0; i < aggregators.length; i++) {
+                aggregators[i] = specs.get(i).newAggregator(fieldDataService);
+            }
+            boolean matchAll = query instanceof MatchAllDocsQuery;
+            Weight weight = null;
+            int[] docs = new int[DOC_BUFFER_SIZE];
+            for (LeafReaderContext leaf : searcher.getTopReaderContext().leaves()) {
+                raiseIfKilled();
+                Aggregator[] leafAggregators = aggregators;
+                if (matchAll && leaf.reader().numDeletedDocs() == 0) {
+                    leafAggregators = aggregateFromPoints(aggregators, leaf.reader());
+                    if (leafAggregators.length == 0) {
+                        continue;
+                    }
+                }
+                if (weight == null) {
+                    weight = searcher.createNormalizedWeight(query, false);
+                }
+                Scorer scorer = weight.scorer(leaf);
+                if (scorer == null) {
+                    continue;
+                }
+                for (Aggregator aggregator : leafAggregators) {
+                    aggregator.loadDocValues(leaf);
+                }
+                Bits liveDocs = leaf.reader().getLiveDocs();
+                DocIdSetIterator docIt = scorer.iterator();
+                int numDocs = 0;
+                int doc;
+                while ((doc = docIt.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+                    if (liveDocs != null && !liveDocs.get(doc)) {
+                        continue;
+                    }
+                    docs[numDocs++] = doc;
+                    if (numDocs == docs.length) {
+                        raiseIfKilled();
+                        aggregate(leafAggregators, docs, numDocs);
+                        numDocs = 0;
+                    }
+                }
+                aggregate(leafAggregators, docs, numDocs);
+            }
+            Object[] states = new Object[aggregators.length];
+            for (int i = 0; i < aggregators.length; i++) {
+                states[i] = aggregators[i].partialState(ramAccountingContext);
+            }
+            return states;
+        }
+
+        /**
+         * @return the aggregators which couldn't be computed from the metadata of the segment
+         */
+        private static Aggregator[] aggregateFromPoints(Aggregator[] aggregators, LeafReader reader) throws IOException {
+            List<Aggregator> remaining = new ArrayList<>(aggregators.length);
+            for (Aggregator aggregator : aggregators) {
+                if (!aggregator.aggregateFromPoints(reader)) {
+                    remaining.add(aggregator);
+                }
+            }
+            return remaining.toArray(new Aggregator[0]);
+        }
+
+        private static void aggregate(Aggregator[] aggregators, int[] docs, int numDocs) {
+            for (Aggregator aggregator : aggregators) {
+                aggregator.aggregate(docs, numDocs);
+            }
+        }
+
+        private void raiseIfKilled() throws Throwable {
+            Throwable killed = this.killed;
+            if (killed != null) {
+                throw killed;
+            }
+        }
+    }
+
+    private abstract static class Aggregator {
+
+        private final AggregationSpec spec;
+        long count = 0;
+        double sum = 0;
+
+        Aggregator(AggregationSpec spec) {
+            this.spec = spec;
+        }
+
+        Kind kind() {
+            return spec.kind;
+        }
+
+        abstract void loadDocValues(LeafReaderContext leaf) throws IOException;
+
+        abstract void aggregate(int[] docs, int numDocs);
+
+        /**
+         * the min or max value, only called if count > 0
+         */
+        abstract Object minOrMax();
+
+        /**
+         * Aggregate all documents of a segment without deletions using the statistics of the point values,
+         * which contain the number of documents having a value and the min and max value of a column.
+         *
+         * @return false if the values of the segment have to be read from the doc values
+         */
+        boolean aggregateFromPoints(LeafReader reader) throws IOException {
+            if (spec.column == null) {
+                count += reader.maxDoc();
+                return true;
+            }
+            if (spec.kind == Kind.SUM || spec.kind == Kind.AVG) {
+                return false;
+            }
+            String columnName = spec.column.ident().columnIdent().fqn();
+            FieldInfo fieldInfo = reader.getFieldInfos().fieldInfo(columnName);
+            if (fieldInfo == null) {
+                // no document of the segment contains a value
+                return true;
+            }
+            if (fieldInfo.getPointDimensionCount() != 1) {
+                return false;
+            }
+            PointValues pointValues = reader.getPointValues();
+            int docCount = pointValues.getDocCount(columnName);
+            if (docCount == 0) {
+                return true;
+            }
+            if (spec.kind == Kind.COUNT) {
+                count += docCount;
+                return true;
+            }
+            byte[] packedValue = spec.kind == Kind.MIN
+                ? pointValues.getMinPackedValue(columnName)
+                : pointValues.getMaxPackedValue(columnName);
+            return collectMinOrMax(packedValue, fieldInfo.getPointNumBytes(), docCount);
+        }
+
+        /**
+         * @return false if the encoding of the point isn't supported
+         */
+        abstract boolean collectMinOrMax(byte[] packedValue, int numBytes, int numValues);
+
+        /**
+         * Create the same state as {@link AggregationFunction#iterate} would for the aggregated values
+         */
+        @SuppressWarnings("unchecked")
+        Object partialState(RamAccountingContext ramAccountingContext) {
+            AggregationFunction function = spec.function;
+            Object state = function.newState(ramAccountingContext);
+            switch (spec.kind) {
+                case COUNT:
+                    return ((CountAggregation.LongState) state).add(count);
+
+                case AVG:
+                    return function.reduce(ramAccountingContext, state, new AverageAggregation.AverageState(sum, count));
+
+                case SUM:
+                    if (count == 0) {
+                        return state;
+                    }
+                    return function.reduce(ramAccountingContext, state, sum);
+
+                case MIN:
+                case MAX:
+                    if (count == 0) {
+                        return state;
+                    }
+                    return function.reduce(ramAccountingContext, state, function.info().returnType().value(minOrMax()));
+
+                default:
+                    throw new AssertionError("Unsupported aggregation: " + spec.kind);
+            }
+        }
+    }
+
+    private static class CountAllAggregator extends Aggregator {
+
+        CountAllAggregator(AggregationSpec spec) {
+            super(spec);
+        }
+
+        @Override
+        void loadDocValues(LeafReaderContext leaf) {
+        }
+
+        @Override
+        void aggregate(int[] docs, int numDocs) {
+            count += numDocs;
+        }
+
+        @Override
+        Object minOrMax() {
+            throw new UnsupportedOperationException("count(*) has no min or max");
+        }
+
+        @Override
+        boolean collectMinOrMax(byte[] packedValue, int numBytes, int numValues) {
+            throw new UnsupportedOperationException("count(*) has no min or max");
+        }
+    }
+
+    private static class LongAggregator extends Aggregator {
+
+        private final String columnName;
+        private SortedNumericDocValues values;
+        private long minOrMax;
+
+        LongAggregator(AggregationSpec spec, String columnName) {
+            super(spec);
+            this.columnName = columnName;
+        }
+
+        @Override
+        void loadDocValues(LeafReaderContext leaf) throws IOException {
+            values = DocValues.getSortedNumeric(leaf.reader(), columnName);
+        }
+
+        @Override
+        void aggregate(int[] docs, int numDocs) {
+            switch (kind()) {
+                case COUNT:
+                    for (int i = 0; i < numDocs; i++) {
+                        values.setDocument(docs[i]);
+                        if (values.count() > 0) {
+                            count++;
+                        }
+                    }
+                    break;
+
+                case SUM:
+                case AVG:
+                    for (int i = 0; i < numDocs; i++) {
+                        values.setDocument(docs[i]);
+                        if (values.count() > 0) {
+                            sum += values.valueAt(0);
+                            count++;
+                        }
+                    }
+                    break;
+
+                case MIN:
+                    for (int i = 0; i < numDocs; i++) {
+                        values.setDocument(docs[i]);
+                        if (values.count() > 0) {
+                            long value = values.valueAt(0);
+                            if (count == 0 || value < minOrMax) {
+                                minOrMax = value;
+                            }
+                            count++;
+                        }
+                    }
+                    break;
+
+                case MAX:
+                    for (int i = 0; i < numDocs; i++) {
+                        values.setDocument(docs[i]);
+                        if (values.count() > 0) {
+                            long value = values.valueAt(0);
+                            if (count == 0 || value > minOrMax) {
+                                minOrMax = value;
+                            }
+                            count++;
+                        }
+                    }
+                    break;
+
+                default:
+                    throw new AssertionError("Unsupported aggregation: " + kind());
+            }
+        }
+
+        @Override
+        Object minOrMax() {
+            return minOrMax;
+        }
+
+        @Override
+        boolean collectMinOrMax(byte[] packedValue, int numBytes, int numValues) {
+            long value;
+            switch (numBytes) {
+                case Integer.BYTES:
+                    value = IntPoint.decodeDimension(packedValue, 0);
+                    break;
+                case Long.BYTES:
+                    value = LongPoint.decodeDimension(packedValue, 0);
+                    break;
+                default:
+                    return false;
+            }
+            if (count == 0 || (kind() == Kind.MIN ? value < minOrMax : value > minOrMax)) {
+                minOrMax = value;
+            }
+            count += numValues;
+            return true;
+        }
+    }
+
+    private static class DoubleAggregator extends Aggregator {
+
+        private final IndexNumericFieldData fieldData;
+        private SortedNumericDoubleValues values;
+        private double minOrMax;
+
+        DoubleAggregator(AggregationSpec spec, IndexNumericFieldData fieldData) {
+            super(spec);
+            this.fieldData = fieldData;
+        }
+
+        @Override
+        void loadDocValues(LeafReaderContext leaf) {
+            values = fieldData.load(leaf).getDoubleValues();
+        }
+
+        @Override
+        void aggregate(int[] docs, int numDocs) {
+            switch (kind()) {
+                case COUNT:
+                    for (int i = 0; i < numDocs; i++) {
+                        values.setDocument(docs[i]);
+                        if (values.count() > 0) {
+                            count++;
+                        }
+                    }
+                    break;
+
+                case SUM:
+                case AVG:
+                    for (int i = 0; i < numDocs; i++) {
+                        values.setDocument(docs[i]);
+                        if (values.count() > 0) {
+                            sum += values.valueAt(0);
+                            count++;
+                        }
+                    }
+                    break;
+
+                case MIN:
+                    for (int i = 0; i < numDocs; i++) {
+                        values.setDocument(docs[i]);
+                        if (values.count() > 0) {
+                            double value = values.valueAt(0);
+                            if (count == 0 || Double.compare(value, minOrMax) < 0) {
+                                minOrMax = value;
+                            }
+                            count++;
+                        }
+                    }
+                    break;
+
+                case MAX:
+                    for (int i = 0; i < numDocs; i++) {
+                        values.setDocument(docs[i]);
+                        if (values.count() > 0) {
+                            double value = values.valueAt(0);
+                            if (count == 0 || Double.compare(value, minOrMax) > 0) {
+                                minOrMax = value;
+                            }
+                            count++;
+                        }
+                    }
+                    break;
+
+                default:
+                    throw new AssertionError("Unsupported aggregation: " + kind());
+            }
+        }
+
+        @Override
+        Object minOrMax() {
+            return minOrMax;
+        }
+
+        @Override
+        boolean collectMinOrMax(byte[] packedValue, int numBytes, int numValues) {
+            double value;
+            switch (numBytes) {
+                case Float.BYTES:
+                    value = FloatPoint.decodeDimension(packedValue, 0);
+                    break;
+                case Double.BYTES:
+                    value = DoublePoint.decodeDimension(packedValue, 0);
+                    break;
+                default:
+                    return false;
+            }
+            int compare = count == 0 ? 0 : Double.compare(value, minOrMax);
+            if (count == 0 || (kind() == Kind.MIN ? compare < 0 : compare > 0)) {
+                minOrMax = value;
+            }
+            count += numValues;
+            return true;
+        }
+    }
+}
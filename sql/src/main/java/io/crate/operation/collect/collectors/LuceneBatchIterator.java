@@ -80,6 +80,22 @@ public class LuceneBatchIterator implements BatchIterator {
                         RamAccountingContext ramAccountingContext,
                         List<? extends Input<?>> inputs,
                         Collection<? extends LuceneCollectorExpression<?>> expressions) {
+        this(indexSearcher, indexSearcher.getTopReaderContext().leaves(), query, minScore, doScores,
+            collectorContext, ramAccountingContext, inputs, expressions);
+    }
+
+    /**
+     * @param leaves the leaves of the indexSearcher to collect from, used to collect a slice of the segments.
+     */
+    LuceneBatchIterator(IndexSearcher indexSearcher,
+                        List<LeafReaderContext> leaves,
+                        Query query,
+                        @Nullable Float minScore,
+                        boolean doScores,
+                        CollectorContext collectorContext,
+                        RamAccountingContext ramAccountingContext,
+                        List<? extends Input<?>> inputs,
+                        Collection<? extends LuceneCollectorExpression<?>> expressions) {
         this.indexSearcher = indexSearcher;
         this.query = query;
         this.doScores = doScores || minScore != null;
@@ -89,7 +105,7 @@ public class LuceneBatchIterator implements BatchIterator {
         this.ramAccountingContext = ramAccountingContext;
         this.inputs = Columns.wrap(inputs);
         this.expressions = expressions.toArray(new LuceneCollectorExpression[0]);
-        leaves = indexSearcher.getTopReaderContext().leaves();
+        this.leaves = leaves;
         leavesIt = leaves.iterator();
     }
 
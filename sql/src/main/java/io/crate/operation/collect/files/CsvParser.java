@@ -0,0 +1,104 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.operation.collect.files;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits CSV records into their fields as described in RFC 4180, with a configurable delimiter and quote character.
+ *
+ * <ul>
+ * <li>A quote character only starts a quoted field at the beginning of a field</li>
+ * <li>Within a quoted field the delimiter and line breaks are part of the value,
+ * two consecutive quote characters represent a single one</li>
+ * <li>Unquoted empty fields are null, quoted empty fields are empty strings</li>
+ * </ul>
+ */
+public class CsvParser {
+
+    private final char delimiter;
+    private final char quote;
+
+    public CsvParser(char delimiter, char quote) {
+        if (delimiter == quote) {
+            throw new IllegalArgumentException("CSV delimiter and quote character must be different");
+        }
+        this.delimiter = delimiter;
+        this.quote = quote;
+    }
+
+    /**
+     * @return the fields of the record or null if the record ends within a quoted field,
+     *         in which case the caller has to append the next line and retry.
+     */
+    @Nullable
+    public List<String> parse(String record) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean inQuotes = false;
+        int length = record.length();
+        if (length > 0 && record.charAt(length - 1) == '\r') {
+            length--;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = record.charAt(i);
+            if (inQuotes) {
+                if (c == quote) {
+                    if (i + 1 < length && record.charAt(i + 1) == quote) {
+                        field.append(quote);
+                        i++;
+                    } else {
+                        inQuotes = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == delimiter) {
+                fields.add(toField(field, quoted));
+                field.setLength(0);
+                quoted = false;
+            } else if (c == quote && field.length() == 0 && !quoted) {
+                quoted = true;
+                inQuotes = true;
+            } else {
+                field.append(c);
+            }
+        }
+        if (inQuotes) {
+            return null;
+        }
+        fields.add(toField(field, quoted));
+        return fields;
+    }
+
+    @Nullable
+    private static String toField(StringBuilder field, boolean quoted) {
+        if (field.length() == 0 && !quoted) {
+            return null;
+        }
+        return field.toString();
+    }
+}
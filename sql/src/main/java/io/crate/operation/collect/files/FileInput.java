@@ -43,5 +43,21 @@ public interface FileInput {
 
     InputStream getStream(URI uri) throws IOException;
 
+    /**
+     * @return the size of the file in bytes or -1 if it is unknown.
+     *         Only files with a known size can be split into ranges which are read concurrently.
+     */
+    default long getSize(URI uri) throws IOException {
+        return -1L;
+    }
+
+    /**
+     * Returns a stream of the file which starts at the byte {@code offset}.
+     * This is only used for files with a known size, see {@link #getSize(URI)}.
+     */
+    default InputStream getStream(URI uri, long offset) throws IOException {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " doesn't support reading from an offset");
+    }
+
     boolean sharedStorageDefault();
 }
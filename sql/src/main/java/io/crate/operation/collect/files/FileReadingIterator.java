@@ -24,10 +24,13 @@ package io.crate.operation.collect.files;
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableList;
 import io.crate.concurrent.CompletableFutures;
+import io.crate.data.AsyncCompositeBatchIterator;
 import io.crate.data.BatchIterator;
+import io.crate.data.BufferingBatchIterator;
 import io.crate.data.CloseAssertingBatchIterator;
 import io.crate.data.Columns;
 import io.crate.data.Input;
+import io.crate.data.RowAccounting;
 import io.crate.operation.reference.file.LineContext;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.ElasticsearchParseException;
@@ -48,7 +51,9 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -60,43 +65,48 @@ public class FileReadingIterator implements BatchIterator {
 
     private static final Logger LOGGER = Loggers.getLogger(FileReadingIterator.class);
     public static final int MAX_SOCKET_TIMEOUT_RETRIES = 5;
-    private final Map<String, FileInputFactory> fileInputFactories;
-    private final Boolean shared;
-    private final int numReaders;
-    private final int readerNumber;
-    private final boolean compressed;
+
+    /**
+     * Uncompressed JSON files are split into ranges of at least this size if there are fewer files than
+     * concurrent readers.
+     */
+    static final long MIN_RANGE_SIZE = 32 * 1024 * 1024;
 
     private static final Pattern HAS_GLOBS_PATTERN = Pattern.compile("(.*)[^\\\\]\\*.*");
     private static final Predicate<URI> MATCH_ALL_PREDICATE = (URI input) -> true;
 
-    private final List<UriWithGlob> urisWithGlob;
-    private final Iterable<LineCollectorExpression<?>> collectorExpressions;
-    private Iterator<Tuple<FileInput, UriWithGlob>> fileInputsIterator = null;
-    private Tuple<FileInput, UriWithGlob> currentInput = null;
-    private Iterator<URI> currentInputIterator = null;
-    private URI currentUri;
+    private final FileRanges fileRanges;
+    private final int numIterators;
+    private final int iteratorNumber;
+    private final boolean compressed;
+    @Nullable
+    private final CsvParser csvParser;
+    private final LineContext lineContext;
+    private final Columns inputs;
+    private int nextRangeIdx;
+    private FileRange currentRange = null;
     private BufferedReader currentReader = null;
     private long currentLineNumber;
-    private LineContext lineContext;
-    private final Columns inputs;
+    private boolean csvHeaderPending;
 
-    private FileReadingIterator(Collection<String> fileUris,
+    private FileReadingIterator(FileRanges fileRanges,
                                 List<? extends Input<?>> inputs,
                                 Iterable<LineCollectorExpression<?>> collectorExpressions,
-                                String compression,
-                                Map<String, FileInputFactory> fileInputFactories,
-                                Boolean shared,
-                                int numReaders,
-                                int readerNumber) {
-        this.compressed = compression != null && compression.equalsIgnoreCase("gzip");
+                                boolean compressed,
+                                @Nullable CsvParser csvParser,
+                                int numIterators,
+                                int iteratorNumber) {
+        this.fileRanges = fileRanges;
+        this.compressed = compressed;
+        this.csvParser = csvParser;
+        this.numIterators = numIterators;
+        this.iteratorNumber = iteratorNumber;
+        this.nextRangeIdx = iteratorNumber;
         this.inputs = Columns.wrap(inputs.stream().map(ExceptionHandlingInputProxy::new).collect(Collectors.toList()));
-        this.fileInputFactories = fileInputFactories;
-        this.shared = shared;
-        this.numReaders = numReaders;
-        this.readerNumber = readerNumber;
-        this.urisWithGlob = getUrisWithGlob(fileUris);
-        this.collectorExpressions = collectorExpressions;
-        initCollectorState();
+        lineContext = new LineContext();
+        for (LineCollectorExpression<?> collectorExpression : collectorExpressions) {
+            collectorExpression.startCollect(lineContext);
+        }
     }
 
     @Override
@@ -122,9 +132,11 @@ public class FileReadingIterator implements BatchIterator {
             try {
                 return this.input.value();
             } catch (ElasticsearchParseException e) {
+                String rangeStart = currentRange.start > 0 ? " (counted from byte " + currentRange.start + ")" : "";
                 throw new ElasticsearchParseException(String.format(Locale.ENGLISH,
-                    "Failed to parse JSON in line: %d in file: \"%s\"%n" +
-                    "Original error message: %s", currentLineNumber, currentUri, e.getMessage()), e);
+                    "Failed to parse %s in line: %d%s in file: \"%s\"%n" +
+                    "Original error message: %s",
+                    csvParser == null ? "JSON" : "CSV", currentLineNumber, rangeStart, currentRange.uri, e.getMessage()), e);
             }
         }
     }
@@ -137,53 +149,113 @@ public class FileReadingIterator implements BatchIterator {
                                             Boolean shared,
                                             int numReaders,
                                             int readerNumber) {
-        return new CloseAssertingBatchIterator(new FileReadingIterator(fileUris, inputs, collectorExpressions,
-            compression, fileInputFactories, shared, numReaders, readerNumber));
+        return newInstance(fileUris, inputs, collectorExpressions, compression, fileInputFactories, shared,
+            numReaders, readerNumber, null);
     }
 
-    private void initCollectorState() {
-        lineContext = new LineContext();
-        for (LineCollectorExpression<?> collectorExpression : collectorExpressions) {
-            collectorExpression.startCollect(lineContext);
-        }
-        List<Tuple<FileInput, UriWithGlob>> fileInputs = new ArrayList<>(urisWithGlob.size());
-        for (UriWithGlob fileUri : urisWithGlob) {
-            try {
-                FileInput fileInput = getFileInput(fileUri.uri);
-                fileInputs.add(new Tuple<>(fileInput, fileUri));
-            } catch (IOException e) {
-                rethrowUnchecked(e);
-            }
+    /**
+     * @param csvParser used to parse the lines as CSV records if not null. The first record of each file is
+     *                  the header which defines the column names of the following records.
+     */
+    public static BatchIterator newInstance(Collection<String> fileUris,
+                                            List<Input<?>> inputs,
+                                            Iterable<LineCollectorExpression<?>> collectorExpressions,
+                                            String compression,
+                                            Map<String, FileInputFactory> fileInputFactories,
+                                            Boolean shared,
+                                            int numReaders,
+                                            int readerNumber,
+                                            @Nullable CsvParser csvParser) {
+        boolean compressed = isCompressed(compression);
+        FileRanges fileRanges = new FileRanges(
+            fileUris, fileInputFactories, shared, numReaders, readerNumber, 1, isSplittable(compressed, csvParser));
+        return new CloseAssertingBatchIterator(new FileReadingIterator(
+            fileRanges, inputs, collectorExpressions, compressed, csvParser, 1, 0));
+    }
+
+    /**
+     * Creates a BatchIterator which reads the files using one FileReadingIterator per entry in {@code inputs}.
+     * <p>
+     * The files are distributed among these iterators. If there are fewer files than iterators, large
+     * uncompressed JSON files are split into ranges aligned on newlines which are distributed instead.
+     * The iterators read and evaluate their rows in batches of up to {@code batchSize} rows.
+     * These batches are loaded concurrently using {@code executor}.
+     *
+     * @param inputs               the inputs of each iterator
+     * @param collectorExpressions the expressions of each iterator, in the same order as {@code inputs}
+     * @param rowAccounting        creates the accounting of the rows buffered by each iterator
+     */
+    public static BatchIterator newConcurrentInstance(Collection<String> fileUris,
+                                                      List<List<Input<?>>> inputs,
+                                                      List<Iterable<LineCollectorExpression<?>>> collectorExpressions,
+                                                      String compression,
+                                                      Map<String, FileInputFactory> fileInputFactories,
+                                                      Boolean shared,
+                                                      int numReaders,
+                                                      int readerNumber,
+                                                      @Nullable CsvParser csvParser,
+                                                      Executor executor,
+                                                      int batchSize,
+                                                      Supplier<RowAccounting> rowAccounting) {
+        assert inputs.size() == collectorExpressions.size() : "there must be expressions for each set of inputs";
+        int numIterators = inputs.size();
+        boolean compressed = isCompressed(compression);
+        FileRanges fileRanges = new FileRanges(
+            fileUris, fileInputFactories, shared, numReaders, readerNumber, numIterators,
+            isSplittable(compressed, csvParser));
+        BatchIterator[] iterators = new BatchIterator[numIterators];
+        for (int i = 0; i < numIterators; i++) {
+            iterators[i] = new BufferingBatchIterator(new FileReadingIterator(
+                fileRanges, inputs.get(i), collectorExpressions.get(i), compressed, csvParser, numIterators, i),
+                batchSize,
+                rowAccounting.get());
         }
-        fileInputsIterator = fileInputs.iterator();
+        return new CloseAssertingBatchIterator(new AsyncCompositeBatchIterator(executor, iterators));
+    }
+
+    private static boolean isCompressed(@Nullable String compression) {
+        return compression != null && compression.equalsIgnoreCase("gzip");
+    }
+
+    /**
+     * CSV files can't be split as every range would need the header and a newline might be part of a quoted field
+     */
+    private static boolean isSplittable(boolean compressed, @Nullable CsvParser csvParser) {
+        return !compressed && csvParser == null;
     }
 
     @Override
     public void moveToStart() {
-        initCollectorState();
+        closeCurrentReader();
+        currentRange = null;
+        nextRangeIdx = iteratorNumber;
     }
 
     @Override
     public boolean moveNext() {
         try {
-            if (currentReader != null) {
-                String line = getLine(currentReader, currentLineNumber, 0);
-                if (line == null) {
+            while (true) {
+                if (currentReader != null) {
+                    String line = getLine(currentReader, currentLineNumber, 0);
+                    if (line != null) {
+                        if (csvParser == null) {
+                            lineContext.rawSource(line.getBytes(StandardCharsets.UTF_8));
+                            return true;
+                        }
+                        List<String> fields = parseCsvRecord(line);
+                        if (csvHeaderPending) {
+                            lineContext.csvHeader(fields);
+                            csvHeaderPending = false;
+                            continue;
+                        }
+                        lineContext.csvRecord(fields);
+                        return true;
+                    }
                     closeCurrentReader();
-                    return moveNext();
-                } else {
-                    lineContext.rawSource(line.getBytes(StandardCharsets.UTF_8));
-                    return true;
                 }
-            } else if (currentInputIterator != null && currentInputIterator.hasNext()) {
-                advanceToNextUri(currentInput.v1());
-                return moveNext();
-            } else if (fileInputsIterator != null && fileInputsIterator.hasNext()) {
-                advanceToNextFileInput();
-                return moveNext();
-            } else {
-                releaseBatchIteratorState();
-                return false;
+                if (advanceToNextRange() == false) {
+                    return false;
+                }
             }
         } catch (IOException e) {
             rethrowUnchecked(e);
@@ -191,25 +263,45 @@ public class FileReadingIterator implements BatchIterator {
         return false;
     }
 
-    private void advanceToNextUri(FileInput fileInput) throws IOException {
-        currentUri = currentInputIterator.next();
-        initCurrentReader(fileInput, currentUri);
+    /**
+     * Advances to the next range assigned to this iterator.
+     * Iterator {@code n} reads the ranges {@code n, n + numIterators, n + 2 * numIterators, ...}
+     */
+    private boolean advanceToNextRange() throws IOException {
+        List<FileRange> ranges = fileRanges.get();
+        if (nextRangeIdx >= ranges.size()) {
+            return false;
+        }
+        currentRange = ranges.get(nextRangeIdx);
+        nextRangeIdx += numIterators;
+        csvHeaderPending = csvParser != null;
+        initCurrentReader(currentRange);
+        return true;
     }
 
-    private void advanceToNextFileInput() throws IOException {
-        currentInput = fileInputsIterator.next();
-        FileInput fileInput = currentInput.v1();
-        UriWithGlob fileUri = currentInput.v2();
-        Predicate<URI> uriPredicate = generateUriPredicate(fileInput, fileUri.globPredicate);
-        List<URI> uris = getUris(fileInput, fileUri.uri, fileUri.preGlobUri, uriPredicate);
-        if (uris.size() > 0) {
-            currentInputIterator = uris.iterator();
-            advanceToNextUri(fileInput);
+    /**
+     * Parses the line as CSV record. Quoted fields may contain newlines, in which case the following lines
+     * are part of the record.
+     */
+    private List<String> parseCsvRecord(String line) throws IOException {
+        assert csvParser != null : "csvParser must not be null to parse CSV records";
+        String record = line;
+        List<String> fields = csvParser.parse(record);
+        while (fields == null) {
+            String nextLine = currentReader.readLine();
+            if (nextLine == null) {
+                throw new ElasticsearchParseException(String.format(Locale.ENGLISH,
+                    "Unterminated quoted field in line: %d in file: \"%s\"", currentLineNumber, currentRange.uri));
+            }
+            currentLineNumber++;
+            record = record + '\n' + nextLine;
+            fields = csvParser.parse(record);
         }
+        return fields;
     }
 
-    private void initCurrentReader(FileInput fileInput, URI uri) throws IOException {
-        InputStream stream = fileInput.getStream(uri);
+    private void initCurrentReader(FileRange range) throws IOException {
+        InputStream stream = range.openStream();
         if (stream != null) {
             currentReader = createBufferedReader(stream);
             currentLineNumber = 0;
@@ -221,7 +313,7 @@ public class FileReadingIterator implements BatchIterator {
             try {
                 currentReader.close();
             } catch (IOException e) {
-                LOGGER.error("Unable to close reader for {}", e, currentUri);
+                LOGGER.error("Unable to close reader for {}", e, currentRange.uri);
             }
             currentReader = null;
         }
@@ -242,20 +334,18 @@ public class FileReadingIterator implements BatchIterator {
             }
         } catch (SocketTimeoutException e) {
             if (retry > MAX_SOCKET_TIMEOUT_RETRIES) {
-                URI uri = currentInput.v2().uri;
-                LOGGER.info("Timeout during COPY FROM '{}' after {} retries", e, uri.toString(), retry);
+                LOGGER.info("Timeout during COPY FROM '{}' after {} retries", e, currentRange.uri.toString(), retry);
                 throw e;
             } else {
                 long startLine = currentLineNumber + 1;
                 closeCurrentReader();
-                initCurrentReader(currentInput.v1(), currentUri);
+                initCurrentReader(currentRange);
                 return getLine(currentReader, startLine, retry + 1);
             }
         } catch (Exception e) {
-            URI uri = currentInput.v2().uri;
             // it's nice to know which exact file/uri threw an error
             // when COPY FROM returns less rows than expected
-            LOGGER.info("Error during COPY FROM '{}'", e, uri.toString());
+            LOGGER.info("Error during COPY FROM '{}'", e, currentRange.uri.toString());
             rethrowUnchecked(e);
         }
         return line;
@@ -264,14 +354,7 @@ public class FileReadingIterator implements BatchIterator {
     @Override
     public void close() {
         closeCurrentReader();
-        releaseBatchIteratorState();
-    }
-
-    private void releaseBatchIteratorState() {
-        fileInputsIterator = null;
-        currentInputIterator = null;
-        currentInput = null;
-        currentUri = null;
+        currentRange = null;
     }
 
     @Override
@@ -284,6 +367,144 @@ public class FileReadingIterator implements BatchIterator {
         return true;
     }
 
+    private BufferedReader createBufferedReader(InputStream inputStream) throws IOException {
+        BufferedReader reader;
+        if (compressed) {
+            reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(inputStream),
+                StandardCharsets.UTF_8));
+        } else {
+            reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        }
+        return reader;
+    }
+
+    /**
+     * A file or a range of a file which is read by a single iterator.
+     */
+    private static class FileRange {
+        final FileInput fileInput;
+        final URI uri;
+        final long start;
+        /**
+         * first byte after the range or -1 if the whole file is read
+         */
+        final long end;
+
+        FileRange(FileInput fileInput, URI uri, long start, long end) {
+            this.fileInput = fileInput;
+            this.uri = uri;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Nullable
+        InputStream openStream() throws IOException {
+            if (end == -1) {
+                return fileInput.getStream(uri);
+            }
+            InputStream stream = start == 0 ? fileInput.getStream(uri) : fileInput.getStream(uri, start - 1);
+            if (stream == null) {
+                return null;
+            }
+            return new LineRangeInputStream(stream, start, end);
+        }
+    }
+
+    /**
+     * The ranges to read, shared by all iterators which read the same uris.
+     * They are resolved once by the first iterator that needs them.
+     */
+    private static class FileRanges {
+
+        private final List<Tuple<FileInput, UriWithGlob>> fileInputs;
+        private final Boolean shared;
+        private final int numReaders;
+        private final int readerNumber;
+        private final int numIterators;
+        private final boolean splittable;
+        private List<FileRange> ranges = null;
+
+        FileRanges(Collection<String> fileUris,
+                   Map<String, FileInputFactory> fileInputFactories,
+                   Boolean shared,
+                   int numReaders,
+                   int readerNumber,
+                   int numIterators,
+                   boolean splittable) {
+            this.shared = shared;
+            this.numReaders = numReaders;
+            this.readerNumber = readerNumber;
+            this.numIterators = numIterators;
+            this.splittable = splittable;
+            List<UriWithGlob> urisWithGlob = getUrisWithGlob(fileUris);
+            fileInputs = new ArrayList<>(urisWithGlob.size());
+            for (UriWithGlob fileUri : urisWithGlob) {
+                try {
+                    FileInput fileInput = getFileInput(fileInputFactories, fileUri.uri);
+                    fileInputs.add(new Tuple<>(fileInput, fileUri));
+                } catch (IOException e) {
+                    rethrowUnchecked(e);
+                }
+            }
+        }
+
+        synchronized List<FileRange> get() throws IOException {
+            if (ranges == null) {
+                ranges = resolve();
+            }
+            return ranges;
+        }
+
+        private List<FileRange> resolve() throws IOException {
+            List<FileRange> files = new ArrayList<>();
+            for (Tuple<FileInput, UriWithGlob> fileInput : fileInputs) {
+                UriWithGlob fileUri = fileInput.v2();
+                Predicate<URI> uriPredicate = generateUriPredicate(fileInput.v1(), fileUri.globPredicate);
+                for (URI uri : getUris(fileInput.v1(), fileUri.uri, fileUri.preGlobUri, uriPredicate)) {
+                    files.add(new FileRange(fileInput.v1(), uri, 0, -1));
+                }
+            }
+            if (!splittable || files.size() >= numIterators) {
+                return files;
+            }
+            List<FileRange> ranges = new ArrayList<>(numIterators);
+            for (FileRange file : files) {
+                long size = file.fileInput.getSize(file.uri);
+                long numRanges = Math.min(numIterators, size / MIN_RANGE_SIZE);
+                if (numRanges < 2) {
+                    ranges.add(file);
+                    continue;
+                }
+                long rangeSize = (size + numRanges - 1) / numRanges;
+                for (long start = 0; start < size; start += rangeSize) {
+                    ranges.add(new FileRange(file.fileInput, file.uri, start, Math.min(start + rangeSize, size)));
+                }
+            }
+            return ranges;
+        }
+
+        private Predicate<URI> generateUriPredicate(FileInput fileInput, @Nullable Predicate<URI> globPredicate) {
+            Predicate<URI> moduloPredicate;
+            boolean sharedStorage = MoreObjects.firstNonNull(shared, fileInput.sharedStorageDefault());
+            if (sharedStorage) {
+                moduloPredicate = input -> {
+                    int hash = input.hashCode();
+                    if (hash == Integer.MIN_VALUE) {
+                        hash = 0; // Math.abs(Integer.MIN_VALUE) == Integer.MIN_VALUE
+                    }
+                    return Math.abs(hash) % numReaders == readerNumber;
+                };
+            } else {
+                moduloPredicate = MATCH_ALL_PREDICATE;
+            }
+
+            if (globPredicate != null) {
+                return moduloPredicate.and(globPredicate);
+            }
+            return moduloPredicate;
+        }
+    }
+
     private static class UriWithGlob {
         final URI uri;
         final URI preGlobUri;
@@ -297,7 +518,7 @@ public class FileReadingIterator implements BatchIterator {
         }
     }
 
-    private List<UriWithGlob> getUrisWithGlob(Collection<String> fileUris) {
+    private static List<UriWithGlob> getUrisWithGlob(Collection<String> fileUris) {
         List<UriWithGlob> uris = new ArrayList<>(fileUris.size());
         for (String fileUri : fileUris) {
             URI uri = toURI(fileUri);
@@ -341,7 +562,7 @@ public class FileReadingIterator implements BatchIterator {
         return uris;
     }
 
-    private URI toURI(String fileUri) {
+    private static URI toURI(String fileUri) {
         if (fileUri.startsWith("/")) {
             // using Paths.get().toUri instead of new URI(...) as it also encodes umlauts and other special characters
             return Paths.get(fileUri).toUri();
@@ -358,7 +579,7 @@ public class FileReadingIterator implements BatchIterator {
     }
 
     @Nullable
-    private FileInput getFileInput(URI fileUri) throws IOException {
+    private static FileInput getFileInput(Map<String, FileInputFactory> fileInputFactories, URI fileUri) throws IOException {
         FileInputFactory fileInputFactory = fileInputFactories.get(fileUri.getScheme());
         if (fileInputFactory != null) {
             return fileInputFactory.create();
@@ -366,17 +587,6 @@ public class FileReadingIterator implements BatchIterator {
         return new URLFileInput(fileUri);
     }
 
-    private BufferedReader createBufferedReader(InputStream inputStream) throws IOException {
-        BufferedReader reader;
-        if (compressed) {
-            reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(inputStream),
-                StandardCharsets.UTF_8));
-        } else {
-            reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
-        }
-        return reader;
-    }
-
     private static List<URI> getUris(FileInput fileInput, URI fileUri, URI preGlobUri, Predicate<URI> uriPredicate) throws IOException {
         List<URI> uris;
         if (preGlobUri != null) {
@@ -389,27 +599,6 @@ public class FileReadingIterator implements BatchIterator {
         return uris;
     }
 
-    private Predicate<URI> generateUriPredicate(FileInput fileInput, @Nullable Predicate<URI> globPredicate) {
-        Predicate<URI> moduloPredicate;
-        boolean sharedStorage = MoreObjects.firstNonNull(shared, fileInput.sharedStorageDefault());
-        if (sharedStorage) {
-            moduloPredicate = input -> {
-                int hash = input.hashCode();
-                if (hash == Integer.MIN_VALUE) {
-                    hash = 0; // Math.abs(Integer.MIN_VALUE) == Integer.MIN_VALUE
-                }
-                return Math.abs(hash) % numReaders == readerNumber;
-            };
-        } else {
-            moduloPredicate = MATCH_ALL_PREDICATE;
-        }
-
-        if (globPredicate != null) {
-            return moduloPredicate.and(globPredicate);
-        }
-        return moduloPredicate;
-    }
-
     private static class GlobPredicate implements Predicate<URI> {
         private final Pattern globPattern;
 
@@ -0,0 +1,125 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.operation.collect.files;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * InputStream which returns the lines of a newline delimited file that belong to a byte range of that file.
+ * <p>
+ * A line belongs to the range which contains its first byte. So a range skips the partial line it starts in
+ * and reads past its end until the line which crosses the end is complete.
+ * This way the ranges of a file can be read independently and every line is read exactly once.
+ */
+class LineRangeInputStream extends InputStream {
+
+    private final InputStream in;
+    private final long end;
+    private final byte[] single = new byte[1];
+
+    private long pos;
+    private boolean afterNewline;
+    private boolean started = false;
+    private boolean done = false;
+
+    /**
+     * @param in    stream of the file positioned at {@code max(start - 1, 0)}
+     * @param start the first byte of the range
+     * @param end   the first byte after the range
+     */
+    LineRangeInputStream(InputStream in, long start, long end) {
+        assert start >= 0 && start <= end : "range must not be negative";
+        this.in = new BufferedInputStream(in);
+        this.end = end;
+        if (start == 0) {
+            pos = 0;
+            afterNewline = true;
+        } else {
+            // the previous byte tells if a line starts at `start`
+            pos = start - 1;
+            afterNewline = false;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        int n = read(single, 0, 1);
+        return n == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (started == false) {
+            started = true;
+            skipPartialLine();
+        }
+        if (done || (pos >= end && afterNewline)) {
+            done = true;
+            return -1;
+        }
+        int n = in.read(b, off, len);
+        if (n == -1) {
+            done = true;
+            return -1;
+        }
+        // the line crossing the end of the range is the last one; stop after its newline
+        long endOffset = Math.max(end - 1 - pos, 0L);
+        for (long i = endOffset; i < n; i++) {
+            if (b[off + (int) i] == '\n') {
+                int numBytes = (int) i + 1;
+                pos += numBytes;
+                afterNewline = true;
+                done = true;
+                return numBytes;
+            }
+        }
+        pos += n;
+        afterNewline = b[off + n - 1] == '\n';
+        return n;
+    }
+
+    private void skipPartialLine() throws IOException {
+        if (afterNewline) {
+            return;
+        }
+        int b;
+        while ((b = in.read()) != -1) {
+            pos++;
+            if (b == '\n') {
+                afterNewline = true;
+                return;
+            }
+        }
+        done = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -81,6 +81,28 @@ public class LocalFsFileInput implements FileInput {
         }
     }
 
+    @Override
+    public long getSize(URI uri) throws IOException {
+        try {
+            return Files.size(Paths.get(uri));
+        } catch (NoSuchFileException e) {
+            return -1L;
+        }
+    }
+
+    @Override
+    public InputStream getStream(URI uri, long offset) throws IOException {
+        File file = new File(uri);
+        FileInputStream stream;
+        try {
+            stream = new FileInputStream(file);
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+        stream.getChannel().position(offset);
+        return stream;
+    }
+
     @Override
     public boolean sharedStorageDefault() {
         return false;
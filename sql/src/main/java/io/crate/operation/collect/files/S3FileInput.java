@@ -22,7 +22,9 @@
 package io.crate.operation.collect.files;
 
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
 import io.crate.external.S3ClientHelper;
@@ -38,7 +40,8 @@ import java.util.function.Predicate;
 
 public class S3FileInput implements FileInput {
 
-    private AmazonS3 client; // to prevent early GC during getObjectContent() in getStream()
+    // to prevent early GC during getObjectContent() in getStream()
+    private AmazonS3 client;
     private static final Logger logger = Loggers.getLogger(S3FileInput.class);
 
     final S3ClientHelper clientBuilder;
@@ -51,12 +54,21 @@ public class S3FileInput implements FileInput {
         this.clientBuilder = clientBuilder;
     }
 
-    @Override
-    public List<URI> listUris(URI uri, Predicate<URI> uriPredicate) throws IOException {
-        String bucketName = uri.getHost();
+    /**
+     * The client is created on first use, as it depends on the credentials within the uri.
+     * It's synchronized because the files are read by multiple concurrent iterators.
+     */
+    private synchronized AmazonS3 client(URI uri) throws IOException {
         if (client == null) {
             client = clientBuilder.client(uri);
         }
+        return client;
+    }
+
+    @Override
+    public List<URI> listUris(URI uri, Predicate<URI> uriPredicate) throws IOException {
+        String bucketName = uri.getHost();
+        AmazonS3 client = client(uri);
         String prefix = uri.getPath().length() > 1 ? uri.getPath().substring(1) : "";
         List<URI> uris = new ArrayList<>();
         ObjectListing list = client.listObjects(bucketName, prefix);
@@ -87,9 +99,7 @@ public class S3FileInput implements FileInput {
 
     @Override
     public InputStream getStream(URI uri) throws IOException {
-        if (client == null) {
-            client = clientBuilder.client(uri);
-        }
+        AmazonS3 client = client(uri);
         S3Object object = client.getObject(uri.getHost(), uri.getPath().substring(1));
 
         if (object != null) {
@@ -98,6 +108,27 @@ public class S3FileInput implements FileInput {
         return null;
     }
 
+    @Override
+    public long getSize(URI uri) throws IOException {
+        AmazonS3 client = client(uri);
+        ObjectMetadata metadata = client.getObjectMetadata(uri.getHost(), uri.getPath().substring(1));
+        if (metadata == null) {
+            return -1L;
+        }
+        return metadata.getContentLength();
+    }
+
+    @Override
+    public InputStream getStream(URI uri, long offset) throws IOException {
+        AmazonS3 client = client(uri);
+        GetObjectRequest request = new GetObjectRequest(uri.getHost(), uri.getPath().substring(1)).withRange(offset);
+        S3Object object = client.getObject(request);
+        if (object != null) {
+            return object.getObjectContent();
+        }
+        return null;
+    }
+
     @Override
     public boolean sharedStorageDefault() {
         return true;
@@ -23,14 +23,18 @@ package io.crate.operation.collect.sources;
 
 import io.crate.analyze.CopyFromAnalyzedStatement;
 import io.crate.analyze.symbol.Symbol;
+import io.crate.analyze.symbol.Symbols;
 import io.crate.analyze.symbol.ValueSymbolVisitor;
+import io.crate.breaker.RowAccountingWithEstimators;
 import io.crate.data.BatchConsumer;
 import io.crate.data.BatchIterator;
+import io.crate.data.Input;
 import io.crate.metadata.Functions;
 import io.crate.operation.InputFactory;
 import io.crate.operation.collect.BatchIteratorCollectorBridge;
 import io.crate.operation.collect.CrateCollector;
 import io.crate.operation.collect.JobCollectContext;
+import io.crate.operation.collect.files.CsvParser;
 import io.crate.operation.collect.files.FileInputFactory;
 import io.crate.operation.collect.files.FileReadingIterator;
 import io.crate.operation.collect.files.LineCollectorExpression;
@@ -42,32 +46,48 @@ import io.crate.types.DataTypes;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.threadpool.ThreadPool;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 @Singleton
 public class FileCollectSource implements CollectSource {
 
+    /**
+     * Number of rows each concurrent reader reads and evaluates per batch.
+     * The buffered rows are accounted against the query circuit breaker.
+     */
+    private static final int BATCH_SIZE = 1000;
+
     private final ClusterService clusterService;
     private final Map<String, FileInputFactory> fileInputFactoryMap;
     private final InputFactory inputFactory;
+    private final Executor executor;
+    private final int numConcurrentReaders;
 
     @Inject
-    public FileCollectSource(Functions functions, ClusterService clusterService, Map<String, FileInputFactory> fileInputFactoryMap) {
+    public FileCollectSource(Settings settings,
+                             Functions functions,
+                             ClusterService clusterService,
+                             Map<String, FileInputFactory> fileInputFactoryMap,
+                             ThreadPool threadPool) {
         this.fileInputFactoryMap = fileInputFactoryMap;
         inputFactory = new InputFactory(functions);
         this.clusterService = clusterService;
+        this.executor = new ShardCollectSource.DirectFallbackExecutor(threadPool.executor(ThreadPool.Names.SEARCH));
+        this.numConcurrentReaders = EsExecutors.boundedNumberOfProcessors(settings);
     }
 
     @Override
     public CrateCollector getCollector(CollectPhase collectPhase, BatchConsumer consumer, JobCollectContext jobCollectContext) {
         FileUriCollectPhase fileUriCollectPhase = (FileUriCollectPhase) collectPhase;
-        InputFactory.Context<LineCollectorExpression<?>> ctx =
-            inputFactory.ctxForRefs(FileLineReferenceResolver::getImplementation);
-        ctx.add(collectPhase.toCollect());
 
         String[] readers = fileUriCollectPhase.nodeIds().toArray(
             new String[fileUriCollectPhase.nodeIds().size()]);
@@ -75,20 +95,66 @@ public class FileCollectSource implements CollectSource {
 
         List<String> fileUris;
         fileUris = targetUriToStringList(fileUriCollectPhase.targetUri());
-        BatchIterator fileReadingIterator = FileReadingIterator.newInstance(
-            fileUris,
-            ctx.topLevelInputs(),
-            ctx.expressions(),
-            fileUriCollectPhase.compression(),
-            fileInputFactoryMap,
-            fileUriCollectPhase.sharedStorage(),
-            readers.length,
-            Arrays.binarySearch(readers, clusterService.state().nodes().getLocalNodeId())
-        );
+        int readerNumber = Arrays.binarySearch(readers, clusterService.state().nodes().getLocalNodeId());
+        CsvParser csvParser = null;
+        if (fileUriCollectPhase.inputFormat() == FileUriCollectPhase.InputFormat.CSV) {
+            csvParser = new CsvParser(fileUriCollectPhase.csvDelimiter(), fileUriCollectPhase.csvQuote());
+        }
+        BatchIterator fileReadingIterator;
+        if (numConcurrentReaders > 1) {
+            // each concurrent reader needs its own inputs because the rows are evaluated concurrently
+            List<List<Input<?>>> inputs = new ArrayList<>(numConcurrentReaders);
+            List<Iterable<LineCollectorExpression<?>>> expressions = new ArrayList<>(numConcurrentReaders);
+            for (int i = 0; i < numConcurrentReaders; i++) {
+                InputFactory.Context<LineCollectorExpression<?>> ctx = createInputContext(fileUriCollectPhase);
+                inputs.add(ctx.topLevelInputs());
+                expressions.add(ctx.expressions());
+            }
+            fileReadingIterator = FileReadingIterator.newConcurrentInstance(
+                fileUris,
+                inputs,
+                expressions,
+                fileUriCollectPhase.compression(),
+                fileInputFactoryMap,
+                fileUriCollectPhase.sharedStorage(),
+                readers.length,
+                readerNumber,
+                csvParser,
+                executor,
+                BATCH_SIZE,
+                () -> new RowAccountingWithEstimators(
+                    Symbols.extractTypes(fileUriCollectPhase.toCollect()),
+                    jobCollectContext.queryPhaseRamAccountingContext())
+            );
+        } else {
+            InputFactory.Context<LineCollectorExpression<?>> ctx = createInputContext(fileUriCollectPhase);
+            fileReadingIterator = FileReadingIterator.newInstance(
+                fileUris,
+                ctx.topLevelInputs(),
+                ctx.expressions(),
+                fileUriCollectPhase.compression(),
+                fileInputFactoryMap,
+                fileUriCollectPhase.sharedStorage(),
+                readers.length,
+                readerNumber,
+                csvParser
+            );
+        }
 
         return BatchIteratorCollectorBridge.newInstance(fileReadingIterator, consumer);
     }
 
+    private InputFactory.Context<LineCollectorExpression<?>> createInputContext(FileUriCollectPhase collectPhase) {
+        InputFactory.Context<LineCollectorExpression<?>> ctx;
+        if (collectPhase.inputFormat() == FileUriCollectPhase.InputFormat.CSV) {
+            ctx = inputFactory.ctxForRefs(FileLineReferenceResolver::getCsvImplementation);
+        } else {
+            ctx = inputFactory.ctxForRefs(FileLineReferenceResolver::getImplementation);
+        }
+        ctx.add(collectPhase.toCollect());
+        return ctx;
+    }
+
     private static List<String> targetUriToStringList(Symbol targetUri) {
         if (targetUri.valueType() == DataTypes.STRING) {
             return Collections.singletonList(ValueSymbolVisitor.STRING.process(targetUri));
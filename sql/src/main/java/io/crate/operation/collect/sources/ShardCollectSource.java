@@ -128,6 +128,10 @@ import static io.crate.blob.v2.BlobIndex.isBlobIndex;
  *                       nodeConsumer // consumes the compositeBatchIterator
  *
  * </pre>
+ * <p>
+ * If the shard projections produce partial aggregations a shard can also be split into multiple collectors
+ * that each collect a slice of the segments, see {@link ShardCollectorProvider#getCollectorBuilders}.
+ * This way the consumption is concurrent even if there is only one shard.
  */
 @Singleton
 public class ShardCollectSource extends AbstractComponent implements CollectSource {
@@ -424,12 +428,11 @@ public class ShardCollectSource extends AbstractComponent implements CollectSour
                 ShardId shardId = new ShardId(index, shardNum);
                 try {
                     ShardCollectorProvider shardCollectorProvider = getCollectorProviderSafe(shardId);
-                    CrateCollector.Builder collector = shardCollectorProvider.getCollectorBuilder(
+                    crateCollectors.addAll(shardCollectorProvider.getCollectorBuilders(
                         collectPhase,
                         requiresScroll,
                         jobCollectContext
-                    );
-                    crateCollectors.add(collector);
+                    ));
                 } catch (ShardNotFoundException | IllegalIndexShardStateException e) {
                     // If toCollect contains a docId it means that this is a QueryThenFetch operation.
                     // In such a case RemoteCollect cannot be used because on that node the FetchContext is missing
@@ -22,10 +22,12 @@
 
 package io.crate.operation.fetch;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntContainer;
 import com.carrotsearch.hppc.cursors.IntCursor;
 import io.crate.Streamer;
 import io.crate.executor.transport.StreamBucket;
+import io.crate.data.RowN;
 import io.crate.operation.InputRow;
 import io.crate.operation.collect.collectors.CollectorFieldsVisitor;
 import io.crate.operation.reference.doc.lucene.CollectorContext;
@@ -36,6 +38,7 @@ import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.fielddata.IndexFieldDataService;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 
 class FetchCollector {
@@ -66,26 +69,106 @@ class FetchCollector {
 
     }
 
+    /**
+     * Packs the requested doc ids together with their position into longs and sorts them, so that
+     * iterating the result visits the documents in docid (and therefore segment) order.
+     * The position can be retrieved using {@link #position(long)}.
+     */
+    static long[] sortedDocs(IntContainer docIds) {
+        long[] sortedDocs = new long[docIds.size()];
+        int position = 0;
+        for (IntCursor cursor : docIds) {
+            sortedDocs[position] = ((long) cursor.value << 32) | position;
+            position++;
+        }
+        Arrays.sort(sortedDocs);
+        return sortedDocs;
+    }
+
+    static int docId(long sortedDoc) {
+        return (int) (sortedDoc >>> 32);
+    }
+
+    static int position(long sortedDoc) {
+        return (int) sortedDoc;
+    }
+
+    /**
+     * Reads the documents in {@code sortedDocs[from, to)}, which must be sorted using {@link #sortedDocs(IntContainer)},
+     * and stores the resulting rows in {@code rows} at the position the documents were requested in.
+     *
+     * Documents are visited in docid order, so the expressions only need to switch to the next segment once and
+     * stored fields are read sequentially.
+     */
+    void collect(long[] sortedDocs, int from, int to, Object[][] rows) throws IOException {
+        LeafReaderContext readerContext = null;
+        int readerEnd = 0;
+        for (int i = from; i < to; i++) {
+            long sortedDoc = sortedDocs[i];
+            int docId = docId(sortedDoc);
+            if (readerContext == null || docId >= readerEnd) {
+                readerContext = readerContexts.get(ReaderUtil.subIndex(docId, readerContexts));
+                readerEnd = readerContext.docBase + readerContext.reader().maxDoc();
+                for (LuceneCollectorExpression<?> expression : collectorExpressions) {
+                    expression.setNextReader(readerContext);
+                }
+            }
+            setNextDocId(readerContext, docId - readerContext.docBase);
+            rows[position(sortedDoc)] = row.materialize();
+        }
+    }
+
     private void setNextDocId(LeafReaderContext readerContext, int doc) throws IOException {
         if (visitorEnabled) {
             fieldsVisitor.reset();
             readerContext.reader().document(doc, fieldsVisitor);
         }
         for (LuceneCollectorExpression e : collectorExpressions) {
-            e.setNextReader(readerContext);
             e.setNextDocId(doc);
         }
     }
 
-    public StreamBucket collect(IntContainer docIds) throws IOException {
+    /**
+     * Splits {@code sortedDocs} into at most {@code maxParts} ranges of similar size which can be collected
+     * independently. Ranges are only cut at segment boundaries so that every segment is read by a single collector.
+     *
+     * @return the range boundaries; range {@code i} is {@code [bounds[i], bounds[i + 1])}
+     */
+    int[] split(long[] sortedDocs, int maxParts) {
+        IntArrayList bounds = new IntArrayList(maxParts + 1);
+        bounds.add(0);
+        int targetSize = (sortedDocs.length + maxParts - 1) / maxParts;
+        int partStart = 0;
+        int segmentEnd = -1;
+        for (int i = 0; i < sortedDocs.length; i++) {
+            int docId = docId(sortedDocs[i]);
+            if (docId >= segmentEnd) {
+                if (i - partStart >= targetSize && bounds.size() < maxParts) {
+                    bounds.add(i);
+                    partStart = i;
+                }
+                LeafReaderContext readerContext = readerContexts.get(ReaderUtil.subIndex(docId, readerContexts));
+                segmentEnd = readerContext.docBase + readerContext.reader().maxDoc();
+            }
+        }
+        bounds.add(sortedDocs.length);
+        return bounds.toArray();
+    }
+
+    static StreamBucket toBucket(Streamer<?>[] streamers, Object[][] rows) throws IOException {
         StreamBucket.Builder builder = new StreamBucket.Builder(streamers);
-        for (IntCursor cursor : docIds) {
-            int docId = cursor.value;
-            int readerIndex = ReaderUtil.subIndex(docId, readerContexts);
-            LeafReaderContext subReaderContext = readerContexts.get(readerIndex);
-            setNextDocId(subReaderContext, docId - subReaderContext.docBase);
+        RowN row = new RowN(streamers.length);
+        for (Object[] cells : rows) {
+            row.cells(cells);
             builder.add(row);
         }
         return builder.build();
     }
+
+    public StreamBucket collect(IntContainer docIds) throws IOException {
+        long[] sortedDocs = sortedDocs(docIds);
+        Object[][] rows = new Object[sortedDocs.length][];
+        collect(sortedDocs, 0, sortedDocs.length, rows);
+        return toBucket(streamers, rows);
+    }
 }
@@ -41,6 +41,7 @@ import org.elasticsearch.index.IndexService;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
@@ -51,6 +52,12 @@ import java.util.concurrent.atomic.AtomicReference;
 
 public class NodeFetchOperation {
 
+    /**
+     * Readers with at least this many docs to fetch are split at segment boundaries and fetched in parallel
+     */
+    private static final int PARALLEL_FETCH_THRESHOLD = 1000;
+    private static final int MAX_PARTS_PER_READER = Math.max(1, Runtime.getRuntime().availableProcessors());
+
     private final Executor executor;
     private final JobsLogs jobsLogs;
     private final JobContextService jobContextService;
@@ -155,8 +162,8 @@ public class NodeFetchOperation {
         final IntObjectHashMap<StreamBucket> fetched = new IntObjectHashMap<>(toFetch.size());
         HashMap<TableIdent, TableFetchInfo> tableFetchInfos = getTableFetchInfos(fetchContext);
         final AtomicReference<Throwable> lastThrowable = new AtomicReference<>(null);
-        final AtomicInteger threadLatch = new AtomicInteger(toFetch.size());
 
+        List<CollectRunnable> runnables = new ArrayList<>(toFetch.size());
         for (IntObjectCursor<? extends IntContainer> toFetchCursor : toFetch) {
             final int readerId = toFetchCursor.key;
             final IntContainer docIds = toFetchCursor.value;
@@ -165,16 +172,33 @@ public class NodeFetchOperation {
             final TableFetchInfo tfi = tableFetchInfos.get(ident);
             assert tfi != null : "tfi must not be null";
 
-            CollectRunnable runnable = new CollectRunnable(
-                tfi.createCollector(readerId),
-                docIds,
-                fetched,
-                readerId,
-                lastThrowable,
-                threadLatch,
-                resultFuture,
-                fetchContext.isKilled()
-            );
+            FetchCollector collector = tfi.createCollector(readerId);
+            long[] sortedDocs = FetchCollector.sortedDocs(docIds);
+            int[] bounds;
+            if (sortedDocs.length >= PARALLEL_FETCH_THRESHOLD) {
+                bounds = collector.split(sortedDocs, MAX_PARTS_PER_READER);
+            } else {
+                bounds = new int[]{0, sortedDocs.length};
+            }
+            ReaderResult readerResult = new ReaderResult(
+                readerId, tfi.streamers, sortedDocs.length, bounds.length - 1, fetched);
+            for (int i = 0; i < bounds.length - 1; i++) {
+                runnables.add(new CollectRunnable(
+                    i == 0 ? collector : tfi.createCollector(readerId),
+                    sortedDocs,
+                    bounds[i],
+                    bounds[i + 1],
+                    readerResult
+                ));
+            }
+        }
+        if (runnables.isEmpty()) {
+            resultFuture.complete(fetched);
+            return;
+        }
+        final AtomicInteger threadLatch = new AtomicInteger(runnables.size());
+        for (CollectRunnable runnable : runnables) {
+            runnable.setCompletion(lastThrowable, threadLatch, resultFuture, fetchContext.isKilled());
             try {
                 executor.execute(runnable);
             } catch (EsRejectedExecutionException | RejectedExecutionException e) {
@@ -183,28 +207,66 @@ public class NodeFetchOperation {
         }
     }
 
+    /**
+     * Rows of a single reader. The parts of a reader are collected concurrently into disjoint positions of
+     * {@link #rows}, the part which finishes last builds the bucket in the order the docs were requested in.
+     */
+    private static class ReaderResult {
+        private final int readerId;
+        private final Streamer<?>[] streamers;
+        private final Object[][] rows;
+        private final AtomicInteger pendingParts;
+        private final IntObjectHashMap<StreamBucket> fetched;
+
+        ReaderResult(int readerId,
+                     Streamer<?>[] streamers,
+                     int numDocs,
+                     int numParts,
+                     IntObjectHashMap<StreamBucket> fetched) {
+            this.readerId = readerId;
+            this.streamers = streamers;
+            this.rows = new Object[numDocs][];
+            this.pendingParts = new AtomicInteger(numParts);
+            this.fetched = fetched;
+        }
+
+        void partDone() throws IOException {
+            if (pendingParts.decrementAndGet() == 0) {
+                StreamBucket bucket = FetchCollector.toBucket(streamers, rows);
+                synchronized (fetched) {
+                    fetched.put(readerId, bucket);
+                }
+            }
+        }
+    }
+
     private static class CollectRunnable implements Runnable {
         private final FetchCollector collector;
-        private final IntContainer docIds;
-        private final IntObjectHashMap<StreamBucket> fetched;
-        private final int readerId;
-        private final AtomicReference<Throwable> lastThrowable;
-        private final AtomicInteger threadLatch;
-        private final CompletableFuture<IntObjectMap<StreamBucket>> resultFuture;
-        private final AtomicBoolean contextKilledRef;
+        private final long[] sortedDocs;
+        private final int from;
+        private final int to;
+        private final ReaderResult readerResult;
+        private AtomicReference<Throwable> lastThrowable;
+        private AtomicInteger threadLatch;
+        private CompletableFuture<IntObjectMap<StreamBucket>> resultFuture;
+        private AtomicBoolean contextKilledRef;
 
         CollectRunnable(FetchCollector collector,
-                        IntContainer docIds,
-                        IntObjectHashMap<StreamBucket> fetched,
-                        int readerId,
-                        AtomicReference<Throwable> lastThrowable,
-                        AtomicInteger threadLatch,
-                        CompletableFuture<IntObjectMap<StreamBucket>> resultFuture,
-                        AtomicBoolean contextKilledRef) {
+                        long[] sortedDocs,
+                        int from,
+                        int to,
+                        ReaderResult readerResult) {
             this.collector = collector;
-            this.docIds = docIds;
-            this.fetched = fetched;
-            this.readerId = readerId;
+            this.sortedDocs = sortedDocs;
+            this.from = from;
+            this.to = to;
+            this.readerResult = readerResult;
+        }
+
+        void setCompletion(AtomicReference<Throwable> lastThrowable,
+                           AtomicInteger threadLatch,
+                           CompletableFuture<IntObjectMap<StreamBucket>> resultFuture,
+                           AtomicBoolean contextKilledRef) {
             this.lastThrowable = lastThrowable;
             this.threadLatch = threadLatch;
             this.resultFuture = resultFuture;
@@ -214,17 +276,15 @@ public class NodeFetchOperation {
         @Override
         public void run() {
             try {
-                StreamBucket bucket = collector.collect(docIds);
-                synchronized (fetched) {
-                    fetched.put(readerId, bucket);
-                }
+                collector.collect(sortedDocs, from, to, readerResult.rows);
+                readerResult.partDone();
             } catch (Exception e) {
                 lastThrowable.set(e);
             } finally {
                 if (threadLatch.decrementAndGet() == 0) {
                     Throwable throwable = lastThrowable.get();
                     if (throwable == null) {
-                        resultFuture.complete(fetched);
+                        resultFuture.complete(readerResult.fetched);
                     } else {
                         /* If the context gets killed the operation might fail due to the release of the underlying searchers.
                          * Only a InterruptedException is sent to the fetch-client.
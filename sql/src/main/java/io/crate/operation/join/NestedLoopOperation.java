@@ -23,6 +23,7 @@ package io.crate.operation.join;
 
 import io.crate.concurrent.CompletionListenable;
 import io.crate.data.*;
+import io.crate.data.join.HashJoinBatchIterator;
 import io.crate.data.join.NestedLoopBatchIterator;
 import io.crate.planner.node.dql.join.JoinType;
 
@@ -39,19 +40,50 @@ public class NestedLoopOperation implements CompletionListenable {
     private final CompletableFuture<BatchIterator> rightBatchIterator = new CompletableFuture<>();
     private final CompletableFuture<Void> completionFuture = new CompletableFuture<>();
 
+    private final boolean isHashJoin;
+
     public NestedLoopOperation(BatchConsumer nlResultConsumer,
                                Predicate<Row> joinPredicate,
                                JoinType joinType) {
+        this(nlResultConsumer, joinPredicate, joinType, new int[0], new int[0], RowAccounting.NO_OP);
+    }
 
+    /**
+     * @param leftJoinKeys positions of the equi-join keys in the left rows. If not empty a hash join is used
+     *                     instead of a nested loop.
+     * @param rightJoinKeys positions of the equi-join keys in the right rows
+     * @param buildSideRowAccounting used to account for the rows of the right side which are kept in the hash table
+     */
+    public NestedLoopOperation(BatchConsumer nlResultConsumer,
+                               Predicate<Row> joinPredicate,
+                               JoinType joinType,
+                               int[] leftJoinKeys,
+                               int[] rightJoinKeys,
+                               RowAccounting buildSideRowAccounting) {
+        this.isHashJoin = leftJoinKeys.length > 0;
         CompletableFuture.allOf(leftBatchIterator, rightBatchIterator)
             .whenComplete((result, failure) -> {
                 if (failure == null) {
-                    BatchIterator nlIterator = new ListenableBatchIterator(createNestedLoopIterator(
-                        leftBatchIterator.join(),
-                        rightBatchIterator.join(),
-                        joinType,
-                        joinPredicate
-                    ), completionFuture);
+                    BatchIterator joinIterator;
+                    if (isHashJoin) {
+                        joinIterator = createHashJoinIterator(
+                            leftBatchIterator.join(),
+                            rightBatchIterator.join(),
+                            joinType,
+                            joinPredicate,
+                            leftJoinKeys,
+                            rightJoinKeys,
+                            buildSideRowAccounting
+                        );
+                    } else {
+                        joinIterator = createNestedLoopIterator(
+                            leftBatchIterator.join(),
+                            rightBatchIterator.join(),
+                            joinType,
+                            joinPredicate
+                        );
+                    }
+                    BatchIterator nlIterator = new ListenableBatchIterator(joinIterator, completionFuture);
                     nlResultConsumer.accept(nlIterator, null);
                 } else {
                     nlResultConsumer.accept(null, failure);
@@ -83,6 +115,33 @@ public class NestedLoopOperation implements CompletionListenable {
         throw new AssertionError("Invalid joinType: " + joinType);
     }
 
+    private static BatchIterator createHashJoinIterator(BatchIterator left,
+                                                        BatchIterator right,
+                                                        JoinType joinType,
+                                                        Predicate<Row> joinCondition,
+                                                        int[] leftJoinKeys,
+                                                        int[] rightJoinKeys,
+                                                        RowAccounting buildSideRowAccounting) {
+        switch (joinType) {
+            case INNER:
+                return HashJoinBatchIterator.innerJoin(
+                    left, right, leftJoinKeys, rightJoinKeys, getJoinCondition(joinCondition), buildSideRowAccounting);
+
+            case LEFT:
+                return HashJoinBatchIterator.leftJoin(
+                    left, right, leftJoinKeys, rightJoinKeys, getJoinCondition(joinCondition), buildSideRowAccounting);
+
+            case RIGHT:
+                return HashJoinBatchIterator.rightJoin(
+                    left, right, leftJoinKeys, rightJoinKeys, getJoinCondition(joinCondition), buildSideRowAccounting);
+
+            case FULL:
+                return HashJoinBatchIterator.fullOuterJoin(
+                    left, right, leftJoinKeys, rightJoinKeys, getJoinCondition(joinCondition), buildSideRowAccounting);
+        }
+        throw new AssertionError("Invalid joinType for hash join: " + joinType);
+    }
+
     private static Function<Columns, BooleanSupplier> getJoinCondition(Predicate<Row> joinCondition) {
         return columns -> {
             final Row row = RowBridging.toRow(columns);
@@ -95,7 +154,8 @@ public class NestedLoopOperation implements CompletionListenable {
     }
 
     public BatchConsumer rightConsumer() {
-        return getBatchConsumer(rightBatchIterator, true);
+        // the hash join consumes the right side only once to build the hash table
+        return getBatchConsumer(rightBatchIterator, !isHashJoin);
     }
 
     private BatchConsumer getBatchConsumer(CompletableFuture<BatchIterator> future, boolean requiresRepeat) {
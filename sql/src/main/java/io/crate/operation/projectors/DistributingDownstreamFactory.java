@@ -35,18 +35,24 @@ import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.inject.Singleton;
 import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.UUID;
 
 @Singleton
 public class DistributingDownstreamFactory extends AbstractComponent {
 
+    public static final Setting<Boolean> ENCODE_PAGES_SETTING = Setting.boolSetting(
+        "node.sql.distribution.encode_pages", false, Setting.Property.NodeScope);
+
     private final ClusterService clusterService;
     private final TransportDistributedResultAction transportDistributedResultAction;
     private final Logger distributingDownstreamLogger;
+    private final boolean encodePages;
 
     @Inject
     public DistributingDownstreamFactory(Settings settings,
@@ -56,6 +62,7 @@ public class DistributingDownstreamFactory extends AbstractComponent {
         this.clusterService = clusterService;
         this.transportDistributedResultAction = transportDistributedResultAction;
         distributingDownstreamLogger = Loggers.getLogger(DistributingConsumer.class, settings);
+        encodePages = ENCODE_PAGES_SETTING.get(settings);
     }
 
     public BatchConsumer create(NodeOperation nodeOperation,
@@ -72,18 +79,23 @@ public class DistributingDownstreamFactory extends AbstractComponent {
         Collections.sort(server);
         int bucketIdx = Math.max(server.indexOf(clusterService.localNode().getId()), 0);
 
+        // pages sent to the local node aren't serialized, so encoding them would be wasted effort
+        boolean encoded = encodePages && hasRemoteDownstream(nodeOperation.downstreamNodes());
+
         MultiBucketBuilder multiBucketBuilder;
         switch (distributionInfo.distributionType()) {
             case MODULO:
                 if (nodeOperation.downstreamNodes().size() == 1) {
-                    multiBucketBuilder = new BroadcastingBucketBuilder(streamers, nodeOperation.downstreamNodes().size());
+                    multiBucketBuilder = new BroadcastingBucketBuilder(
+                        streamers, nodeOperation.downstreamNodes().size(), encoded);
                 } else {
                     multiBucketBuilder = new ModuloBucketBuilder(streamers,
-                        nodeOperation.downstreamNodes().size(), distributionInfo.distributeByColumn());
+                        nodeOperation.downstreamNodes().size(), distributionInfo.distributeByColumn(), encoded);
                 }
                 break;
             case BROADCAST:
-                multiBucketBuilder = new BroadcastingBucketBuilder(streamers, nodeOperation.downstreamNodes().size());
+                multiBucketBuilder = new BroadcastingBucketBuilder(
+                    streamers, nodeOperation.downstreamNodes().size(), encoded);
                 break;
             default:
                 throw new UnsupportedOperationException("Can't handle distributionInfo: " + distributionInfo);
@@ -102,4 +114,14 @@ public class DistributingDownstreamFactory extends AbstractComponent {
             pageSize
         );
     }
+
+    private boolean hasRemoteDownstream(Collection<String> downstreamNodeIds) {
+        String localNodeId = clusterService.localNode().getId();
+        for (String nodeId : downstreamNodeIds) {
+            if (!nodeId.equals(localNodeId)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -23,6 +23,7 @@
 package io.crate.operation.projectors;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.io.CountingOutputStream;
 import io.crate.data.Input;
 import io.crate.data.Row;
 import io.crate.data.Row1;
@@ -36,6 +37,7 @@ import io.crate.operation.projectors.writer.OutputFile;
 import io.crate.operation.projectors.writer.OutputS3;
 import io.crate.planner.projection.WriterProjection;
 import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lucene.BytesRefs;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentHelper;
@@ -51,16 +53,33 @@ import java.util.function.BiConsumer;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.regex.Pattern;
 import java.util.stream.Collector;
 
 /**
  * Collector implementation which writes the rows to the configured {@link Output}
  * and returns a count representing the number of written rows
+ * <p>
+ * If a partition input is given, the rows are written into one file per partition value.
+ * If a max file size is given, a new file is started once a file exceeds that many (uncompressed) bytes.
+ * The names of these files are derived from the uri by inserting the partition value and/or the file number
+ * in front of the file extension.
+ * <p>
+ * At most {@link #MAX_OPEN_OUTPUTS} files are open at the same time. If a row belongs to another partition,
+ * the least recently used file is closed. Further rows of that partition are written into its next file.
  */
 public class FileWriterCountCollector implements Collector<Row, long[], Iterable<Row>> {
 
     private static final byte NEW_LINE = (byte) '\n';
+    private static final Pattern UNSAFE_FILE_NAME_CHARS = Pattern.compile("[^a-zA-Z0-9_.-]");
 
+    /**
+     * Name of the partition of null values. '~' is replaced within the names of values, so they can't collide.
+     */
+    static final String NULL_PARTITION_NAME = "~null";
+    static final int MAX_OPEN_OUTPUTS = 64;
+
+    private final ExecutorService executorService;
     private final URI uri;
     private final Iterable<CollectExpression<Row, ?>> collectExpressions;
     private final List<Input<?>> inputs;
@@ -69,9 +88,13 @@ public class FileWriterCountCollector implements Collector<Row, long[], Iterable
     private final List<String> outputNames;
     private final WriterProjection.OutputFormat outputFormat;
     private final WriterProjection.CompressionType compressionType;
-    private Output output;
+    @Nullable
+    private final Input<?> partitionByInput;
+    private final long maxFileSize;
 
-    private final RowWriter rowWriter;
+    private final Map<String, FileOutput> fileOutputs = new HashMap<>();
+    // in access order, so the least recently used output comes first
+    private final LinkedHashMap<String, FileOutput> openOutputs = new LinkedHashMap<>(16, 0.75f, true);
 
     public FileWriterCountCollector(ExecutorService executorService,
                                     String uri,
@@ -81,25 +104,91 @@ public class FileWriterCountCollector implements Collector<Row, long[], Iterable
                                     Map<ColumnIdent, Object> overwrites,
                                     @Nullable List<String> outputNames,
                                     WriterProjection.OutputFormat outputFormat) {
+        this(executorService, uri, compressionType, inputs, collectExpressions, overwrites, outputNames,
+            outputFormat, null, WriterProjection.NO_MAX_FILE_SIZE);
+    }
+
+    /**
+     * @param partitionByInput input which evaluates to the partition value of a row, null to write a single file
+     * @param maxFileSize      max number of uncompressed bytes per file or {@link WriterProjection#NO_MAX_FILE_SIZE}
+     */
+    public FileWriterCountCollector(ExecutorService executorService,
+                                    String uri,
+                                    @Nullable WriterProjection.CompressionType compressionType,
+                                    @Nullable List<Input<?>> inputs,
+                                    Iterable<CollectExpression<Row, ?>> collectExpressions,
+                                    Map<ColumnIdent, Object> overwrites,
+                                    @Nullable List<String> outputNames,
+                                    WriterProjection.OutputFormat outputFormat,
+                                    @Nullable Input<?> partitionByInput,
+                                    long maxFileSize) {
+        this.executorService = executorService;
         this.collectExpressions = collectExpressions;
         this.inputs = inputs;
         this.overwrites = toNestedStringObjectMap(overwrites);
         this.outputNames = outputNames;
         this.outputFormat = outputFormat;
         this.compressionType = compressionType;
+        this.partitionByInput = partitionByInput;
+        this.maxFileSize = maxFileSize;
         try {
             this.uri = new URI(uri);
         } catch (URISyntaxException e) {
             throw new ValidationException(String.format(Locale.ENGLISH, "Invalid uri '%s'", uri), e);
         }
-        if (this.uri.getScheme() == null || this.uri.getScheme().equals("file")) {
-            this.output = new OutputFile(this.uri, this.compressionType);
-        } else if (this.uri.getScheme().equalsIgnoreCase("s3")) {
-            this.output = new OutputS3(executorService, this.uri, this.compressionType);
+        if (partitionByInput == null) {
+            // open the output right away to fail early if it can't be written
+            FileOutput fileOutput = new FileOutput(null);
+            fileOutput.open();
+            fileOutputs.put(null, fileOutput);
+            openOutputs.put(null, fileOutput);
+        }
+    }
+
+    private Output createOutput(URI uri) {
+        if (uri.getScheme() == null || uri.getScheme().equals("file")) {
+            return new OutputFile(executorService, uri, compressionType);
+        } else if (uri.getScheme().equalsIgnoreCase("s3")) {
+            return new OutputS3(executorService, uri, compressionType);
         } else {
-            throw new UnsupportedFeatureException(String.format(Locale.ENGLISH, "Unknown scheme '%s'", this.uri.getScheme()));
+            throw new UnsupportedFeatureException(String.format(Locale.ENGLISH, "Unknown scheme '%s'", uri.getScheme()));
+        }
+    }
+
+    /**
+     * Inserts the partition name and the file number (if > 0) in front of the extension of the file name.
+     * The extension starts at the first dot of the last path segment.
+     */
+    @VisibleForTesting
+    static URI fileUri(URI uri, @Nullable String partitionName, int fileNumber) {
+        if (partitionName == null && fileNumber == 0) {
+            return uri;
+        }
+        String uriString = uri.toString();
+        int extensionIdx = uriString.indexOf('.', uriString.lastIndexOf('/') + 1);
+        if (extensionIdx == -1) {
+            extensionIdx = uriString.length();
+        }
+        StringBuilder sb = new StringBuilder(uriString.substring(0, extensionIdx));
+        if (partitionName != null) {
+            sb.append('_').append(partitionName);
+        }
+        if (fileNumber > 0) {
+            sb.append('_').append(fileNumber);
+        }
+        sb.append(uriString.substring(extensionIdx));
+        return URI.create(sb.toString());
+    }
+
+    /**
+     * @return the value as it can be used within a file name. Characters which aren't safe are replaced by '_'
+     */
+    @VisibleForTesting
+    static String partitionName(@Nullable Object value) {
+        if (value == null) {
+            return NULL_PARTITION_NAME;
         }
-        this.rowWriter = initWriter();
+        return UNSAFE_FILE_NAME_CHARS.matcher(BytesRefs.toString(value)).replaceAll("_");
     }
 
     @VisibleForTesting
@@ -140,31 +229,53 @@ public class FileWriterCountCollector implements Collector<Row, long[], Iterable
         return nestedMap;
     }
 
-    private RowWriter initWriter() {
-        try {
-            if (!overwrites.isEmpty()) {
-                return new DocWriter(
-                    output.acquireOutputStream(), collectExpressions, overwrites);
-            } else if (outputFormat.equals(WriterProjection.OutputFormat.JSON_ARRAY)) {
-                return new ColumnRowWriter(output.acquireOutputStream(), collectExpressions, inputs);
-            } else if (outputNames != null && outputFormat.equals(WriterProjection.OutputFormat.JSON_OBJECT)) {
-                return new ColumnRowObjectWriter(output.acquireOutputStream(), collectExpressions, inputs, outputNames);
-            } else {
-                return new RawRowWriter(output.acquireOutputStream());
-            }
-        } catch (IOException e) {
-            throw new UnhandledServerException(String.format(Locale.ENGLISH, "Failed to open output: '%s'", e.getMessage()), e);
+    private RowWriter initWriter(OutputStream outputStream) throws IOException {
+        if (!overwrites.isEmpty()) {
+            return new DocWriter(outputStream, overwrites);
+        } else if (outputFormat.equals(WriterProjection.OutputFormat.JSON_ARRAY)) {
+            return new ColumnRowWriter(outputStream, inputs);
+        } else if (outputNames != null && outputFormat.equals(WriterProjection.OutputFormat.JSON_OBJECT)) {
+            return new ColumnRowObjectWriter(outputStream, inputs, outputNames);
+        } else {
+            return new RawRowWriter(outputStream);
         }
     }
 
+    /**
+     * Closes all open outputs, even if closing one of them fails. The first failure is thrown, with the
+     * others added as suppressed exceptions.
+     */
     private void closeWriterAndOutput() {
-        try {
-            if (rowWriter != null) {
-                rowWriter.close();
+        RuntimeException failure = null;
+        for (FileOutput fileOutput : openOutputs.values()) {
+            try {
+                fileOutput.close();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
             }
-        } catch (IOException e) {
+        }
+        openOutputs.clear();
+        fileOutputs.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
 
+    private FileOutput openOutput(@Nullable String partitionName) {
+        if (openOutputs.size() >= MAX_OPEN_OUTPUTS) {
+            Iterator<FileOutput> it = openOutputs.values().iterator();
+            FileOutput leastRecentlyUsed = it.next();
+            it.remove();
+            leastRecentlyUsed.close();
         }
+        FileOutput fileOutput = fileOutputs.computeIfAbsent(partitionName, FileOutput::new);
+        fileOutput.open();
+        openOutputs.put(partitionName, fileOutput);
+        return fileOutput;
     }
 
     @Override
@@ -178,7 +289,21 @@ public class FileWriterCountCollector implements Collector<Row, long[], Iterable
     }
 
     private void onNextRow(long[] container, Row row) {
-        rowWriter.write(row);
+        for (CollectExpression<Row, ?> collectExpression : collectExpressions) {
+            collectExpression.setNextRow(row);
+        }
+        String partitionName = null;
+        if (partitionByInput != null) {
+            partitionName = partitionName(partitionByInput.value());
+        }
+        FileOutput fileOutput = openOutputs.get(partitionName);
+        if (fileOutput == null) {
+            fileOutput = openOutput(partitionName);
+        }
+        fileOutput.write(row);
+        if (!fileOutput.isOpen()) {
+            openOutputs.remove(partitionName);
+        }
         container[0] += 1;
     }
 
@@ -202,6 +327,61 @@ public class FileWriterCountCollector implements Collector<Row, long[], Iterable
         return Collections.emptySet();
     }
 
+    /**
+     * The files of one partition, of which at most the last one is open
+     */
+    private class FileOutput {
+
+        @Nullable
+        private final String partitionName;
+        private int fileNumber = -1;
+        private CountingOutputStream countingStream;
+        private RowWriter rowWriter;
+
+        FileOutput(@Nullable String partitionName) {
+            this.partitionName = partitionName;
+        }
+
+        void open() {
+            fileNumber++;
+            URI fileUri = fileUri(uri, partitionName, fileNumber);
+            try {
+                countingStream = new CountingOutputStream(createOutput(fileUri).acquireOutputStream());
+                rowWriter = initWriter(countingStream);
+            } catch (IOException e) {
+                throw new UnhandledServerException(
+                    String.format(Locale.ENGLISH, "Failed to open output: '%s'", e.getMessage()), e);
+            }
+        }
+
+        boolean isOpen() {
+            return rowWriter != null;
+        }
+
+        void write(Row row) {
+            rowWriter.write(row);
+            if (maxFileSize != WriterProjection.NO_MAX_FILE_SIZE && countingStream.getCount() >= maxFileSize) {
+                // the next row starts a new file
+                close();
+            }
+        }
+
+        void close() {
+            if (rowWriter == null) {
+                return;
+            }
+            try {
+                rowWriter.close();
+            } catch (IOException e) {
+                throw new UnhandledServerException(
+                    String.format(Locale.ENGLISH, "Failed to close output: '%s'", e.getMessage()), e);
+            } finally {
+                rowWriter = null;
+                countingStream = null;
+            }
+        }
+    }
+
     interface RowWriter {
 
         void write(Row row);
@@ -212,15 +392,11 @@ public class FileWriterCountCollector implements Collector<Row, long[], Iterable
     static class DocWriter implements RowWriter {
 
         private final OutputStream outputStream;
-        private final Iterable<CollectExpression<Row, ?>> collectExpressions;
         private final Map<String, Object> overwrites;
         private final XContentBuilder builder;
 
-        public DocWriter(OutputStream outputStream,
-                         Iterable<CollectExpression<Row, ?>> collectExpressions,
-                         Map<String, Object> overwrites) throws IOException {
+        public DocWriter(OutputStream outputStream, Map<String, Object> overwrites) throws IOException {
             this.outputStream = outputStream;
-            this.collectExpressions = collectExpressions;
             this.overwrites = overwrites;
             builder = XContentFactory.jsonBuilder(outputStream);
         }
@@ -228,9 +404,6 @@ public class FileWriterCountCollector implements Collector<Row, long[], Iterable
         @Override
         @SuppressWarnings("unchecked")
         public void write(Row row) {
-            for (CollectExpression<Row, ?> collectExpression : collectExpressions) {
-                collectExpression.setNextRow(row);
-            }
             Map doc = (Map) row.get(0);
             XContentHelper.update(doc, overwrites, false);
             try {
@@ -275,24 +448,17 @@ public class FileWriterCountCollector implements Collector<Row, long[], Iterable
 
     static class ColumnRowWriter implements RowWriter {
 
-        private final Iterable<CollectExpression<Row, ?>> collectExpressions;
         private final OutputStream outputStream;
         protected final List<Input<?>> inputs;
         protected final XContentBuilder builder;
 
-        ColumnRowWriter(OutputStream outputStream,
-                        Iterable<CollectExpression<Row, ?>> collectExpressions,
-                        List<Input<?>> inputs) throws IOException {
+        ColumnRowWriter(OutputStream outputStream, List<Input<?>> inputs) throws IOException {
             this.outputStream = outputStream;
-            this.collectExpressions = collectExpressions;
             this.inputs = inputs;
             builder = XContentFactory.jsonBuilder(outputStream);
         }
 
         public void write(Row row) {
-            for (CollectExpression<Row, ?> collectExpression : collectExpressions) {
-                collectExpression.setNextRow(row);
-            }
             try {
                 processInputs();
                 builder.flush();
@@ -322,10 +488,9 @@ public class FileWriterCountCollector implements Collector<Row, long[], Iterable
         private final List<String> outputNames;
 
         public ColumnRowObjectWriter(OutputStream outputStream,
-                                     Iterable<CollectExpression<Row, ?>> collectExpressions,
                                      List<Input<?>> inputs,
                                      List<String> outputNames) throws IOException {
-            super(outputStream, collectExpressions, inputs);
+            super(outputStream, inputs);
             this.outputNames = outputNames;
         }
 
@@ -42,6 +42,9 @@ public class FileWriterProjector implements Projector {
     private final WriterProjection.OutputFormat outputFormat;
     private final WriterProjection.CompressionType compressionType;
     private final ExecutorService executorService;
+    @Nullable
+    private final Input<?> partitionByInput;
+    private final long maxFileSize;
 
     /**
      * @param inputs a list of {@link Input}.
@@ -59,6 +62,25 @@ public class FileWriterProjector implements Projector {
                                Map<ColumnIdent, Object> overwrites,
                                @Nullable List<String> outputNames,
                                WriterProjection.OutputFormat outputFormat) {
+        this(executorService, uri, compressionType, inputs, collectExpressions, overwrites, outputNames, outputFormat,
+            null, WriterProjection.NO_MAX_FILE_SIZE);
+    }
+
+    /**
+     * @param partitionByInput if not null the rows are written into one file per value of this input
+     * @param maxFileSize      the number of uncompressed bytes after which a new file is started
+     *                         or {@link WriterProjection#NO_MAX_FILE_SIZE}
+     */
+    public FileWriterProjector(ExecutorService executorService,
+                               String uri,
+                               @Nullable WriterProjection.CompressionType compressionType,
+                               @Nullable List<Input<?>> inputs,
+                               Iterable<CollectExpression<Row, ?>> collectExpressions,
+                               Map<ColumnIdent, Object> overwrites,
+                               @Nullable List<String> outputNames,
+                               WriterProjection.OutputFormat outputFormat,
+                               @Nullable Input<?> partitionByInput,
+                               long maxFileSize) {
         this.collectExpressions = collectExpressions;
         this.executorService = executorService;
         this.inputs = inputs;
@@ -67,6 +89,8 @@ public class FileWriterProjector implements Projector {
         this.outputFormat = outputFormat;
         this.compressionType = compressionType;
         this.uri = uri;
+        this.partitionByInput = partitionByInput;
+        this.maxFileSize = maxFileSize;
     }
 
     @Override
@@ -81,7 +105,9 @@ public class FileWriterProjector implements Projector {
                 collectExpressions,
                 overwrites,
                 outputNames,
-                outputFormat
+                outputFormat,
+                partitionByInput,
+                maxFileSize
             ),
             1
         );
@@ -0,0 +1,291 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.operation.projectors;
+
+import io.crate.Streamer;
+import org.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.elasticsearch.common.io.stream.OutputStreamStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Temporary files to which the groups of a {@link GroupingCollector} are written once they don't fit into memory anymore.
+ *
+ * Groups are hash-partitioned by their key, so all entries of a key end up in the same partition,
+ * and each partition can later be merged on its own.
+ *
+ * Each entry is written as key values followed by the partial aggregation states.
+ *
+ * If a partition doesn't fit into memory while it is merged, it can be split further using
+ * {@link #repartition()}, which hashes the keys with a different seed.
+ */
+class GroupSpill implements AutoCloseable {
+
+    static final int NUM_PARTITIONS = 16;
+
+    /**
+     * Number of times a partition can be split further. Beyond that the partitions are merged in memory regardless
+     * of their size, which is only the case if the hash values of the keys are hardly distinct.
+     */
+    static final int MAX_LEVEL = 4;
+
+    private final Streamer[] keyStreamers;
+    private final Streamer[] stateStreamers;
+    private final Path directory;
+    private final int level;
+    private final List<GroupSpill> children = new ArrayList<>();
+    private final Path[] files = new Path[NUM_PARTITIONS];
+    private final StreamOutput[] outputs = new StreamOutput[NUM_PARTITIONS];
+    private final int[] numEntries = new int[NUM_PARTITIONS];
+    private boolean writable = true;
+    private StreamInput currentInput;
+
+    /**
+     * @param directory the directory in which the files are created
+     */
+    GroupSpill(Streamer[] keyStreamers, Streamer[] stateStreamers, Path directory) {
+        this(keyStreamers, stateStreamers, directory, 0);
+    }
+
+    private GroupSpill(Streamer[] keyStreamers, Streamer[] stateStreamers, Path directory, int level) {
+        this.keyStreamers = keyStreamers;
+        this.stateStreamers = stateStreamers;
+        this.directory = directory;
+        this.level = level;
+    }
+
+    /**
+     * @param cells the key values in {@code cells[0..numKeys)}
+     */
+    void write(Object[] cells, Object[] states) throws IOException {
+        StreamOutput out = outputFor(cells);
+        for (int i = 0; i < keyStreamers.length; i++) {
+            keyStreamers[i].writeValueTo(out, cells[i]);
+        }
+        for (int i = 0; i < stateStreamers.length; i++) {
+            stateStreamers[i].writeValueTo(out, states[i]);
+        }
+    }
+
+    /**
+     * @param entry an entry as it is returned by {@link #readPartition(int)}
+     */
+    void writeEntry(Object[] entry) throws IOException {
+        StreamOutput out = outputFor(entry);
+        int c = 0;
+        for (Streamer keyStreamer : keyStreamers) {
+            keyStreamer.writeValueTo(out, entry[c++]);
+        }
+        for (Streamer stateStreamer : stateStreamers) {
+            stateStreamer.writeValueTo(out, entry[c++]);
+        }
+    }
+
+    private StreamOutput outputFor(Object[] keys) throws IOException {
+        assert writable : "spill must be writable";
+        int partition = partition(keys);
+        StreamOutput out = outputs[partition];
+        if (out == null) {
+            Files.createDirectories(directory);
+            Path file = Files.createTempFile(directory, "crate-group-spill-", ".bin");
+            files[partition] = file;
+            out = new OutputStreamStreamOutput(new BufferedOutputStream(Files.newOutputStream(file)));
+            outputs[partition] = out;
+        }
+        numEntries[partition]++;
+        return out;
+    }
+
+    private int partition(Object[] keys) {
+        int hash = 1;
+        for (int i = 0; i < keyStreamers.length; i++) {
+            Object key = keys[i];
+            hash = 31 * hash + (key == null ? 0 : key.hashCode());
+        }
+        // the level is used as seed, so the entries of one partition are distributed among the partitions of a child
+        hash ^= level * 0x9E3779B9;
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return (hash & 0x7fffffff) % NUM_PARTITIONS;
+    }
+
+    /**
+     * @return whether a partition of this spill can still be split using {@link #repartition()}
+     */
+    boolean canRepartition() {
+        return level < MAX_LEVEL;
+    }
+
+    /**
+     * Create a spill into which the entries of a partition of this spill can be written to split them into
+     * smaller partitions. The returned spill is closed together with this spill.
+     */
+    GroupSpill repartition() {
+        assert canRepartition() : "max level must not be exceeded";
+        GroupSpill child = new GroupSpill(keyStreamers, stateStreamers, directory, level + 1);
+        children.add(child);
+        return child;
+    }
+
+    /**
+     * Flush and close all outputs. No more entries can be written afterwards.
+     */
+    void finishWriting() throws IOException {
+        writable = false;
+        closeOutputs();
+    }
+
+    private void closeOutputs() throws IOException {
+        for (int i = 0; i < outputs.length; i++) {
+            StreamOutput out = outputs[i];
+            if (out != null) {
+                outputs[i] = null;
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Returns an iterator over the entries of a partition.
+     * Each entry is an array containing the keys followed by the states.
+     */
+    Iterator<Object[]> readPartition(int partition) {
+        assert !writable : "finishWriting must be called before reading";
+        Path file = files[partition];
+        if (file == null) {
+            return Collections.emptyIterator();
+        }
+        StreamInput in;
+        try {
+            closeCurrentInput();
+            in = new InputStreamStreamInput(new BufferedInputStream(Files.newInputStream(file)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        currentInput = in;
+        return new Iterator<Object[]>() {
+
+            int remaining = numEntries[partition];
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            @Override
+            public Object[] next() {
+                if (remaining <= 0) {
+                    throw new NoSuchElementException("partition has no more entries");
+                }
+                Object[] entry = new Object[keyStreamers.length + stateStreamers.length];
+                try {
+                    int c = 0;
+                    for (Streamer keyStreamer : keyStreamers) {
+                        entry[c++] = keyStreamer.readValueFrom(in);
+                    }
+                    for (Streamer stateStreamer : stateStreamers) {
+                        entry[c++] = stateStreamer.readValueFrom(in);
+                    }
+                    remaining--;
+                    if (remaining == 0) {
+                        closeCurrentInput();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return entry;
+            }
+        };
+    }
+
+    private void closeCurrentInput() throws IOException {
+        if (currentInput != null) {
+            StreamInput in = currentInput;
+            currentInput = null;
+            in.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writable = false;
+        IOException failure = null;
+        try {
+            closeOutputs();
+            closeCurrentInput();
+        } catch (IOException e) {
+            failure = e;
+        }
+        for (GroupSpill child : children) {
+            try {
+                child.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        children.clear();
+        for (int i = 0; i < files.length; i++) {
+            Path file = files[i];
+            if (file != null) {
+                files[i] = null;
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "GroupSpill{level=" + level + ", numEntries=" + Arrays.toString(numEntries) + '}';
+    }
+}
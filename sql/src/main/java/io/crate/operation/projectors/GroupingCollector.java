@@ -22,7 +22,14 @@
 
 package io.crate.operation.projectors;
 
-import com.google.common.collect.Iterables;
+import com.carrotsearch.hppc.DoubleObjectHashMap;
+import com.carrotsearch.hppc.IntObjectHashMap;
+import com.carrotsearch.hppc.LongObjectHashMap;
+import com.carrotsearch.hppc.cursors.DoubleObjectCursor;
+import com.carrotsearch.hppc.cursors.IntObjectCursor;
+import com.carrotsearch.hppc.cursors.LongObjectCursor;
+import com.google.common.collect.Iterators;
+import io.crate.Streamer;
 import io.crate.analyze.symbol.AggregateMode;
 import io.crate.breaker.RamAccountingContext;
 import io.crate.breaker.SizeEstimator;
@@ -33,8 +40,15 @@ import io.crate.data.RowN;
 import io.crate.operation.aggregation.AggregationFunction;
 import io.crate.operation.collect.CollectExpression;
 import io.crate.types.DataType;
+import io.crate.types.DoubleType;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.TimestampType;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.function.BiConsumer;
 import java.util.function.BinaryOperator;
@@ -46,112 +60,153 @@ import java.util.stream.Collector;
  * Collector implementation which uses {@link Aggregator}s and {@code keyInputs}
  * to group rows by key and aggregate the grouped values.
  *
- * @param <K> type of the key
+ * The aggregation states are kept in {@link Groups}; There are specialized implementations for single
+ * long, integer and double keys which use primitive hash maps in order to avoid boxing the keys.
+ *
+ * If the memory used by the groups exceeds {@code spillThresholdBytes}, or if the circuit breaker of the
+ * {@link RamAccountingContext} is about to trip, the groups are written to a {@link GroupSpill}
+ * and the memory is released. Once all rows are consumed, the spilled partitions are merged one by one, so only one
+ * partition of the groups has to fit into memory at a time. If a partition exceeds the threshold as well, it is
+ * split into smaller partitions, see {@link GroupSpill#repartition()}.
  */
-public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, Iterable<Row>> {
+public class GroupingCollector implements Collector<Row, GroupingCollector.Groups, Iterable<Row>> {
+
+    /**
+     * 32 bytes for entry + 4 bytes for increased capacity
+     */
+    private static final long ENTRY_OVERHEAD = 36L;
+
+    /**
+     * Minimum memory the groups must use to be spilled because the circuit breaker is about to trip.
+     * Spilling fewer groups wouldn't free enough memory to be worth a spill file.
+     */
+    static final long MIN_BREAKER_SPILL_BYTES = 256 * 1024L;
 
     private final CollectExpression<Row, ?>[] expressions;
     private final AggregationFunction[] aggregations;
     private final AggregateMode mode;
     private final Input[][] inputs;
     private final RamAccountingContext ramAccountingContext;
-    private final BiConsumer<K, Object[]> applyKeyToCells;
     private final int numKeyColumns;
-    private final SizeEstimator<K> keySizeEstimator;
-    private final Function<Row, K> keyExtractor;
-
-    static GroupingCollector<Object> singleKey(CollectExpression<Row, ?>[] expressions,
-                                               AggregateMode mode,
-                                               AggregationFunction[] aggregations,
-                                               Input[][] inputs,
-                                               RamAccountingContext ramAccountingContext,
-                                               Input<?> keyInput,
-                                               DataType keyType) {
-        return new GroupingCollector<>(
+    private final Supplier<Groups> groupsSupplier;
+    private final List<SizeEstimator<Object>> keySizeEstimators;
+    private final Streamer[] keyStreamers;
+    private final long spillThresholdBytes;
+    private final Path spillDirectory;
+
+    static GroupingCollector singleKey(CollectExpression<Row, ?>[] expressions,
+                                       AggregateMode mode,
+                                       AggregationFunction[] aggregations,
+                                       Input[][] inputs,
+                                       RamAccountingContext ramAccountingContext,
+                                       Input<?> keyInput,
+                                       DataType keyType,
+                                       long spillThresholdBytes,
+                                       Path spillDirectory) {
+        SizeEstimator<Object> keySizeEstimator = SizeEstimatorFactory.create(keyType);
+        Supplier<Groups> groupsSupplier;
+        switch (keyType.id()) {
+            case LongType.ID:
+            case TimestampType.ID:
+                groupsSupplier = () -> new LongGroups(keyInput);
+                break;
+
+            case IntegerType.ID:
+                groupsSupplier = () -> new IntGroups(keyInput);
+                break;
+
+            case DoubleType.ID:
+                groupsSupplier = () -> new DoubleGroups(keyInput);
+                break;
+
+            default:
+                groupsSupplier = () -> new ObjectGroups(keyInput, keySizeEstimator);
+        }
+        return new GroupingCollector(
             expressions,
             aggregations,
             mode,
             inputs,
             ramAccountingContext,
-            (key, cells) -> cells[0] = key,
-            1,
-            SizeEstimatorFactory.create(keyType),
-            row -> keyInput.value()
+            Collections.singletonList(keyType),
+            Collections.singletonList(keySizeEstimator),
+            spillThresholdBytes,
+            spillDirectory,
+            groupsSupplier
         );
     }
 
-    static GroupingCollector<List<Object>> manyKeys(CollectExpression<Row, ?>[] expressions,
-                                                    AggregateMode mode,
-                                                    AggregationFunction[] aggregations,
-                                                    Input[][] inputs,
-                                                    RamAccountingContext ramAccountingContext,
-                                                    List<Input<?>> keyInputs,
-                                                    List<? extends DataType> keyTypes) {
-        return new GroupingCollector<>(
+    static GroupingCollector manyKeys(CollectExpression<Row, ?>[] expressions,
+                                      AggregateMode mode,
+                                      AggregationFunction[] aggregations,
+                                      Input[][] inputs,
+                                      RamAccountingContext ramAccountingContext,
+                                      List<Input<?>> keyInputs,
+                                      List<? extends DataType> keyTypes,
+                                      long spillThresholdBytes,
+                                      Path spillDirectory) {
+        List<SizeEstimator<Object>> keySizeEstimators = new ArrayList<>(keyTypes.size());
+        for (DataType keyType : keyTypes) {
+            keySizeEstimators.add(SizeEstimatorFactory.create(keyType));
+        }
+        return new GroupingCollector(
             expressions,
             aggregations,
             mode,
             inputs,
             ramAccountingContext,
-            GroupingCollector::applyKeysToCells,
-            keyInputs.size(),
-            new MultiSizeEstimator(keyTypes),
-            row -> evalKeyInputs(keyInputs)
+            keyTypes,
+            keySizeEstimators,
+            spillThresholdBytes,
+            spillDirectory,
+            () -> new ManyKeysGroups(keyInputs, keySizeEstimators)
         );
     }
 
-    private static List<Object> evalKeyInputs(List<Input<?>> keyInputs) {
-        List<Object> key = new ArrayList<>(keyInputs.size());
-        for (Input<?> keyInput : keyInputs) {
-            key.add(keyInput.value());
-        }
-        return key;
-    }
-
-    private static void applyKeysToCells(List<Object> keys, Object[] cells) {
-        for (int i = 0; i < keys.size(); i++) {
-            cells[i] = keys.get(i);
-        }
-    }
-
     private GroupingCollector(CollectExpression<Row, ?>[] expressions,
                               AggregationFunction[] aggregations,
                               AggregateMode mode,
                               Input[][] inputs,
                               RamAccountingContext ramAccountingContext,
-                              BiConsumer<K, Object[]> applyKeyToCells,
-                              int numKeyColumns,
-                              SizeEstimator<K> keySizeEstimator,
-                              Function<Row, K> keyExtractor) {
+                              List<? extends DataType> keyTypes,
+                              List<SizeEstimator<Object>> keySizeEstimators,
+                              long spillThresholdBytes,
+                              Path spillDirectory,
+                              Supplier<Groups> groupsSupplier) {
         this.expressions = expressions;
         this.aggregations = aggregations;
         this.mode = mode;
         this.inputs = inputs;
         this.ramAccountingContext = ramAccountingContext;
-        this.applyKeyToCells = applyKeyToCells;
-        this.numKeyColumns = numKeyColumns;
-        this.keySizeEstimator = keySizeEstimator;
-        this.keyExtractor = keyExtractor;
+        this.numKeyColumns = keyTypes.size();
+        this.keySizeEstimators = keySizeEstimators;
+        this.spillThresholdBytes = spillThresholdBytes;
+        this.spillDirectory = spillDirectory;
+        this.groupsSupplier = groupsSupplier;
+        this.keyStreamers = new Streamer[numKeyColumns];
+        for (int i = 0; i < numKeyColumns; i++) {
+            keyStreamers[i] = keyTypes.get(i).streamer();
+        }
     }
 
     @Override
-    public Supplier<Map<K, Object[]>> supplier() {
-        return HashMap::new;
+    public Supplier<Groups> supplier() {
+        return groupsSupplier;
     }
 
     @Override
-    public BiConsumer<Map<K, Object[]>, Row> accumulator() {
+    public BiConsumer<Groups, Row> accumulator() {
         return this::onNextRow;
     }
 
     @Override
-    public BinaryOperator<Map<K, Object[]>> combiner() {
+    public BinaryOperator<Groups> combiner() {
         return (state1, state2) -> { throw new UnsupportedOperationException("combine not supported"); };
     }
 
     @Override
-    public Function<Map<K, Object[]>, Iterable<Row>> finisher() {
-        return this::mapToRows;
+    public Function<Groups, Iterable<Row>> finisher() {
+        return this::groupsToRows;
     }
 
     @Override
@@ -159,22 +214,61 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
         return Collections.emptySet();
     }
 
-    private void onNextRow(Map<K, Object[]> statesByKey, Row row) {
+    private void onNextRow(Groups groups, Row row) {
         for (CollectExpression<Row, ?> expression : expressions) {
             expression.setNextRow(row);
         }
-        K key = keyExtractor.apply(row);
-        Object[] states = statesByKey.get(key);
+        long bytesBefore = ramAccountingContext.totalBytes();
+        Object[] states = groups.statesOfCurrentKey();
         if (states == null) {
-            addNewEntry(statesByKey, key);
+            addNewEntry(groups);
         } else {
             for (int i = 0; i < aggregations.length; i++) {
                 states[i] = mode.onRow(ramAccountingContext, aggregations[i], states[i], inputs[i]);
             }
         }
+        groups.usedBytes += ramAccountingContext.totalBytes() - bytesBefore;
+        if (exceedsMemory(groups.usedBytes)) {
+            spill(groups);
+        }
+    }
+
+    private boolean exceedsMemory(long usedBytes) {
+        if (usedBytes >= spillThresholdBytes) {
+            return true;
+        }
+        // the accounting context adds up to FLUSH_BUFFER_SIZE bytes to the breaker at once
+        return usedBytes >= MIN_BREAKER_SPILL_BYTES
+               && ramAccountingContext.remainingBytes() < RamAccountingContext.FLUSH_BUFFER_SIZE;
     }
 
-    private void addNewEntry(Map<K, Object[]> statesByKey, K key) {
+    /**
+     * Write all groups to disk, clear them and release the memory they've used.
+     */
+    private void spill(Groups groups) {
+        if (groups.spill == null) {
+            Streamer[] stateStreamers = new Streamer[aggregations.length];
+            for (int i = 0; i < aggregations.length; i++) {
+                stateStreamers[i] = aggregations[i].partialType().streamer();
+            }
+            groups.spill = new GroupSpill(keyStreamers, stateStreamers, spillDirectory);
+        }
+        Object[] keyCells = new Object[numKeyColumns];
+        Iterator<Object[]> statesIt = groups.statesIterator(keyCells);
+        try {
+            while (statesIt.hasNext()) {
+                Object[] states = statesIt.next();
+                groups.spill.write(keyCells, states);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        groups.clear();
+        ramAccountingContext.addBytesWithoutBreaking(-groups.usedBytes);
+        groups.usedBytes = 0L;
+    }
+
+    private void addNewEntry(Groups groups) {
         Object[] states;
         states = new Object[aggregations.length];
         for (int i = 0; i < aggregations.length; i++) {
@@ -182,60 +276,512 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
             states[i] = mode.onRow(
                 ramAccountingContext, aggregation, aggregation.newState(ramAccountingContext), inputs[i]);
         }
-        ramAccountingContext.addBytes( // key size + 32 bytes for entry + 4 bytes for increased capacity
-            RamAccountingContext.roundUp(keySizeEstimator.estimateSize(key) + 36L));
-        statesByKey.put(key, states);
+        long keySize = groups.putStatesOfCurrentKey(states);
+        ramAccountingContext.addBytes(RamAccountingContext.roundUp(keySize + ENTRY_OVERHEAD));
     }
 
-    private Iterable<Row> mapToRows(Map<K, Object[]> statesByKey) {
-        return Iterables.transform(statesByKey.entrySet(), new com.google.common.base.Function<Map.Entry<K, Object[]>, Row>() {
+    private Iterable<Row> groupsToRows(Groups groups) {
+        if (groups.spill != null) {
+            spill(groups);
+            try {
+                groups.spill.finishWriting();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return () -> new SpilledGroupsIterator(groups.spill);
+        }
+        return () -> new Iterator<Row>() {
 
-            RowN row = new RowN(numKeyColumns + aggregations.length);
-            Object[] cells = new Object[row.numColumns()];
+            final Object[] cells = new Object[numKeyColumns + aggregations.length];
+            final RowN row = new RowN(cells);
+            final Iterator<Object[]> statesIt = groups.statesIterator(cells);
 
-            {
-                row.cells(cells);
+            @Override
+            public boolean hasNext() {
+                return statesIt.hasNext();
             }
 
-            @Nullable
             @Override
-            public Row apply(@Nullable Map.Entry<K, Object[]> input) {
-                assert input != null : "input must not be null";
-
-                applyKeyToCells.accept(input.getKey(), cells);
+            public Row next() {
+                Object[] states = statesIt.next();
                 int c = numKeyColumns;
-                Object[] states = input.getValue();
                 for (int i = 0; i < states.length; i++) {
                     cells[c] = mode.finishCollect(ramAccountingContext, aggregations[i], states[i]);
                     c++;
                 }
                 return row;
             }
-        });
+        };
+    }
+
+    /**
+     * Merges the spilled partitions one after another and emits the rows of the merged groups.
+     * A partition which doesn't fit into memory is written into a child spill and its partitions are merged instead.
+     */
+    private class SpilledGroupsIterator implements Iterator<Row> {
+
+        private final Object[] cells = new Object[numKeyColumns + aggregations.length];
+        private final RowN row = new RowN(cells);
+        private final Map<Object, Object[]> mergedGroups = new HashMap<>();
+        private final Deque<SpilledPartition> pendingPartitions = new ArrayDeque<>();
+
+        private Iterator<Object[]> entries = Collections.emptyIterator();
+        private long usedBytes = 0L;
+
+        SpilledGroupsIterator(GroupSpill spill) {
+            addPartitions(spill);
+        }
+
+        private void addPartitions(GroupSpill spill) {
+            for (int partition = GroupSpill.NUM_PARTITIONS - 1; partition >= 0; partition--) {
+                pendingPartitions.push(new SpilledPartition(spill, partition));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!entries.hasNext()) {
+                releaseMergedGroups();
+                SpilledPartition next = pendingPartitions.poll();
+                if (next == null) {
+                    return false;
+                }
+                mergePartition(next);
+                entries = mergedGroups.values().iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("no more rows");
+            }
+            Object[] entry = entries.next();
+            System.arraycopy(entry, 0, cells, 0, numKeyColumns);
+            int c = numKeyColumns;
+            for (int i = 0; i < aggregations.length; i++) {
+                cells[c] = mode.finishCollect(ramAccountingContext, aggregations[i], entry[c]);
+                c++;
+            }
+            return row;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void mergePartition(SpilledPartition partition) {
+            long bytesBefore = ramAccountingContext.totalBytes();
+            Iterator<Object[]> it = partition.spill.readPartition(partition.partition);
+            while (it.hasNext()) {
+                if (exceedsMemory(usedBytes) && partition.spill.canRepartition()) {
+                    repartition(partition.spill, it);
+                    return;
+                }
+                Object[] entry = it.next();
+                Object key = numKeyColumns == 1 ? entry[0] : Arrays.asList(entry).subList(0, numKeyColumns);
+                Object[] existing = mergedGroups.get(key);
+                if (existing == null) {
+                    mergedGroups.put(key, entry);
+                    long keySize = 0L;
+                    for (int i = 0; i < numKeyColumns; i++) {
+                        keySize += keySizeEstimators.get(i).estimateSize(entry[i]);
+                    }
+                    ramAccountingContext.addBytes(RamAccountingContext.roundUp(keySize + ENTRY_OVERHEAD));
+                } else {
+                    int c = numKeyColumns;
+                    for (int i = 0; i < aggregations.length; i++) {
+                        existing[c] = aggregations[i].reduce(ramAccountingContext, existing[c], entry[c]);
+                        c++;
+                    }
+                }
+                usedBytes = ramAccountingContext.totalBytes() - bytesBefore;
+            }
+        }
+
+        /**
+         * Write the groups merged so far and the remaining entries of the partition into a child spill
+         * and continue with its partitions.
+         */
+        private void repartition(GroupSpill spill, Iterator<Object[]> remainingEntries) {
+            GroupSpill child = spill.repartition();
+            try {
+                for (Object[] entry : mergedGroups.values()) {
+                    child.writeEntry(entry);
+                }
+                releaseMergedGroups();
+                while (remainingEntries.hasNext()) {
+                    child.writeEntry(remainingEntries.next());
+                }
+                child.finishWriting();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            addPartitions(child);
+        }
+
+        private void releaseMergedGroups() {
+            mergedGroups.clear();
+            ramAccountingContext.addBytesWithoutBreaking(-usedBytes);
+            usedBytes = 0L;
+        }
+    }
+
+    private static class SpilledPartition {
+
+        private final GroupSpill spill;
+        private final int partition;
+
+        SpilledPartition(GroupSpill spill, int partition) {
+            this.spill = spill;
+            this.partition = partition;
+        }
     }
 
+    /**
+     * Holds the aggregation states per key.
+     *
+     * The key is always read from the key inputs, which point to the row that is currently processed.
+     */
+    abstract static class Groups implements AutoCloseable {
 
-    private static class MultiSizeEstimator extends SizeEstimator<List<Object>> {
+        /**
+         * bytes accounted for the groups (including the aggregation states) since they've been created or cleared.
+         */
+        long usedBytes = 0L;
 
-        private final List<SizeEstimator<Object>> subEstimators;
+        @Nullable
+        GroupSpill spill = null;
 
-        MultiSizeEstimator(List<? extends DataType> keyTypes) {
-            subEstimators = new ArrayList<>(keyTypes.size());
-            for (DataType keyType : keyTypes) {
-                subEstimators.add(SizeEstimatorFactory.create(keyType));
+        /**
+         * @return the states of the key of the current row or null if there is no entry for it yet.
+         */
+        @Nullable
+        abstract Object[] statesOfCurrentKey();
+
+        /**
+         * Add an entry for the key of the current row.
+         * This must only be called after {@link #statesOfCurrentKey()} returned null for the same row.
+         *
+         * @return the estimated size of the key in bytes
+         */
+        abstract long putStatesOfCurrentKey(Object[] states);
+
+        /**
+         * Returns an iterator over the states of all keys.
+         * On each call to {@link Iterator#next()} the key of the entry is written into the first cell(s) of
+         * {@code keyCells}.
+         */
+        abstract Iterator<Object[]> statesIterator(Object[] keyCells);
+
+        /**
+         * Remove all entries
+         */
+        abstract void clear();
+
+        @Override
+        public void close() throws IOException {
+            if (spill != null) {
+                spill.close();
             }
         }
+    }
+
+    private static class ObjectGroups extends Groups {
+
+        private Map<Object, Object[]> statesByKey = new HashMap<>();
+        private final Input<?> keyInput;
+        private final SizeEstimator<Object> keySizeEstimator;
+        private Object currentKey;
+
+        ObjectGroups(Input<?> keyInput, SizeEstimator<Object> keySizeEstimator) {
+            this.keyInput = keyInput;
+            this.keySizeEstimator = keySizeEstimator;
+        }
+
+        @Override
+        Object[] statesOfCurrentKey() {
+            currentKey = keyInput.value();
+            return statesByKey.get(currentKey);
+        }
+
+        @Override
+        long putStatesOfCurrentKey(Object[] states) {
+            statesByKey.put(currentKey, states);
+            return keySizeEstimator.estimateSize(currentKey);
+        }
+
+        @Override
+        Iterator<Object[]> statesIterator(Object[] keyCells) {
+            return Iterators.transform(statesByKey.entrySet().iterator(), entry -> {
+                keyCells[0] = entry.getKey();
+                return entry.getValue();
+            });
+        }
+
+        @Override
+        void clear() {
+            statesByKey = new HashMap<>();
+        }
+    }
+
+    /**
+     * Base class for groups using primitive maps; null keys are kept separately.
+     */
+    private abstract static class PrimitiveGroups extends Groups {
+
+        final Input<?> keyInput;
+
+        @Nullable
+        Object[] nullKeyStates = null;
+        boolean currentKeyIsNull;
+
+        PrimitiveGroups(Input<?> keyInput) {
+            this.keyInput = keyInput;
+        }
 
         @Override
-        public long estimateSize(@Nullable List<Object> value) {
-            assert value != null && value.size() == subEstimators.size()
-                : "value must have the same number of items as there are keyTypes/sizeEstimators";
+        Object[] statesOfCurrentKey() {
+            Object value = keyInput.value();
+            currentKeyIsNull = value == null;
+            if (currentKeyIsNull) {
+                return nullKeyStates;
+            }
+            return statesOfCurrentKey((Number) value);
+        }
 
+        @Override
+        long putStatesOfCurrentKey(Object[] states) {
+            if (currentKeyIsNull) {
+                nullKeyStates = states;
+            } else {
+                putStatesOfCurrentKey0(states);
+            }
+            return 8L;
+        }
+
+        @Override
+        Iterator<Object[]> statesIterator(Object[] keyCells) {
+            Iterator<Object[]> it = primitiveStatesIterator(keyCells);
+            if (nullKeyStates == null) {
+                return it;
+            }
+            Object[] states = nullKeyStates;
+            Iterator<Object[]> nullKeyIt = Iterators.transform(Iterators.singletonIterator(states), s -> {
+                keyCells[0] = null;
+                return s;
+            });
+            return Iterators.concat(it, nullKeyIt);
+        }
+
+        @Override
+        void clear() {
+            nullKeyStates = null;
+            clearPrimitive();
+        }
+
+        abstract void clearPrimitive();
+
+        abstract Object[] statesOfCurrentKey(Number key);
+
+        abstract void putStatesOfCurrentKey0(Object[] states);
+
+        abstract Iterator<Object[]> primitiveStatesIterator(Object[] keyCells);
+    }
+
+    private static class LongGroups extends PrimitiveGroups {
+
+        private LongObjectHashMap<Object[]> statesByKey = new LongObjectHashMap<>();
+        private long currentKey;
+        private int currentIdx;
+
+        LongGroups(Input<?> keyInput) {
+            super(keyInput);
+        }
+
+        @Override
+        Object[] statesOfCurrentKey(Number key) {
+            currentKey = key.longValue();
+            currentIdx = statesByKey.indexOf(currentKey);
+            return statesByKey.indexExists(currentIdx) ? statesByKey.indexGet(currentIdx) : null;
+        }
+
+        @Override
+        void putStatesOfCurrentKey0(Object[] states) {
+            statesByKey.indexInsert(currentIdx, currentKey, states);
+        }
+
+        @Override
+        Iterator<Object[]> primitiveStatesIterator(Object[] keyCells) {
+            return Iterators.transform(statesByKey.iterator(), (LongObjectCursor<Object[]> cursor) -> {
+                keyCells[0] = cursor.key;
+                return cursor.value;
+            });
+        }
+
+        @Override
+        void clearPrimitive() {
+            statesByKey = new LongObjectHashMap<>();
+        }
+    }
+
+    private static class IntGroups extends PrimitiveGroups {
+
+        private IntObjectHashMap<Object[]> statesByKey = new IntObjectHashMap<>();
+        private int currentKey;
+        private int currentIdx;
+
+        IntGroups(Input<?> keyInput) {
+            super(keyInput);
+        }
+
+        @Override
+        Object[] statesOfCurrentKey(Number key) {
+            currentKey = key.intValue();
+            currentIdx = statesByKey.indexOf(currentKey);
+            return statesByKey.indexExists(currentIdx) ? statesByKey.indexGet(currentIdx) : null;
+        }
+
+        @Override
+        void putStatesOfCurrentKey0(Object[] states) {
+            statesByKey.indexInsert(currentIdx, currentKey, states);
+        }
+
+        @Override
+        Iterator<Object[]> primitiveStatesIterator(Object[] keyCells) {
+            return Iterators.transform(statesByKey.iterator(), (IntObjectCursor<Object[]> cursor) -> {
+                keyCells[0] = cursor.key;
+                return cursor.value;
+            });
+        }
+
+        @Override
+        void clearPrimitive() {
+            statesByKey = new IntObjectHashMap<>();
+        }
+    }
+
+    private static class DoubleGroups extends PrimitiveGroups {
+
+        private DoubleObjectHashMap<Object[]> statesByKey = new DoubleObjectHashMap<>();
+        private double currentKey;
+        private int currentIdx;
+
+        DoubleGroups(Input<?> keyInput) {
+            super(keyInput);
+        }
+
+        @Override
+        Object[] statesOfCurrentKey(Number key) {
+            currentKey = key.doubleValue();
+            currentIdx = statesByKey.indexOf(currentKey);
+            return statesByKey.indexExists(currentIdx) ? statesByKey.indexGet(currentIdx) : null;
+        }
+
+        @Override
+        void putStatesOfCurrentKey0(Object[] states) {
+            statesByKey.indexInsert(currentIdx, currentKey, states);
+        }
+
+        @Override
+        Iterator<Object[]> primitiveStatesIterator(Object[] keyCells) {
+            return Iterators.transform(statesByKey.iterator(), (DoubleObjectCursor<Object[]> cursor) -> {
+                keyCells[0] = cursor.key;
+                return cursor.value;
+            });
+        }
+
+        @Override
+        void clearPrimitive() {
+            statesByKey = new DoubleObjectHashMap<>();
+        }
+    }
+
+    /**
+     * Groups by multiple keys.
+     *
+     * The key values of the current row are written into a re-used {@link CompositeKey} to do the lookup;
+     * Only if a new entry is added a copy of the key is created.
+     */
+    private static class ManyKeysGroups extends Groups {
+
+        private Map<CompositeKey, Object[]> statesByKey = new HashMap<>();
+        private final List<Input<?>> keyInputs;
+        private final List<SizeEstimator<Object>> keySizeEstimators;
+        private final CompositeKey currentKey;
+
+        ManyKeysGroups(List<Input<?>> keyInputs, List<SizeEstimator<Object>> keySizeEstimators) {
+            this.keyInputs = keyInputs;
+            this.keySizeEstimators = keySizeEstimators;
+            this.currentKey = new CompositeKey(new Object[keyInputs.size()]);
+        }
+
+        @Override
+        Object[] statesOfCurrentKey() {
+            Object[] values = currentKey.values;
+            for (int i = 0; i < values.length; i++) {
+                values[i] = keyInputs.get(i).value();
+            }
+            currentKey.updateHash();
+            return statesByKey.get(currentKey);
+        }
+
+        @Override
+        long putStatesOfCurrentKey(Object[] states) {
+            Object[] values = currentKey.values;
+            statesByKey.put(new CompositeKey(values.clone(), currentKey.hash), states);
             long size = 0;
-            for (int i = 0; i < value.size(); i++) {
-                size += subEstimators.get(i).estimateSize(value.get(i));
+            for (int i = 0; i < values.length; i++) {
+                size += keySizeEstimators.get(i).estimateSize(values[i]);
             }
             return size;
         }
+
+        @Override
+        Iterator<Object[]> statesIterator(Object[] keyCells) {
+            return Iterators.transform(statesByKey.entrySet().iterator(), entry -> {
+                Object[] values = entry.getKey().values;
+                System.arraycopy(values, 0, keyCells, 0, values.length);
+                return entry.getValue();
+            });
+        }
+
+        @Override
+        void clear() {
+            statesByKey = new HashMap<>();
+        }
+    }
+
+    /**
+     * Flat key consisting of multiple values.
+     */
+    private static final class CompositeKey {
+
+        private final Object[] values;
+        private int hash;
+
+        CompositeKey(Object[] values) {
+            this.values = values;
+        }
+
+        CompositeKey(Object[] values, int hash) {
+            this.values = values;
+            this.hash = hash;
+        }
+
+        void updateHash() {
+            hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            CompositeKey that = (CompositeKey) o;
+            return hash == that.hash && Arrays.equals(values, that.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
     }
 }
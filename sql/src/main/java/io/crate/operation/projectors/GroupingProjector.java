@@ -29,12 +29,23 @@ import io.crate.operation.aggregation.AggregationFunction;
 import io.crate.operation.collect.CollectExpression;
 import io.crate.types.DataType;
 import io.crate.types.DataTypes;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.unit.ByteSizeValue;
 
+import java.nio.file.Path;
 import java.util.List;
 
 public class GroupingProjector implements Projector {
 
-    private final GroupingCollector<Object> collector;
+    /**
+     * Memory the groups of a single grouping operation may use before they are spilled to disk.
+     */
+    public static final Setting<ByteSizeValue> SPILL_THRESHOLD_SETTING = Setting.memorySizeSetting(
+        "node.sql.group_by.spill_threshold",
+        "10%",
+        Setting.Property.NodeScope);
+
+    private final GroupingCollector collector;
     private final int numCols;
 
 
@@ -43,7 +54,9 @@ public class GroupingProjector implements Projector {
                              CollectExpression<Row, ?>[] collectExpressions,
                              AggregateMode mode,
                              AggregationContext[] aggregations,
-                             RamAccountingContext ramAccountingContext) {
+                             RamAccountingContext ramAccountingContext,
+                             long spillThresholdBytes,
+                             Path spillDirectory) {
         assert keyTypes.size() == keyInputs.size() : "number of key types must match with number of key inputs";
         assert allTypesKnown(keyTypes) : "must have a known type for each key input";
 
@@ -63,18 +76,21 @@ public class GroupingProjector implements Projector {
                 inputs,
                 ramAccountingContext,
                 keyInputs.get(0),
-                keyTypes.get(0)
+                keyTypes.get(0),
+                spillThresholdBytes,
+                spillDirectory
             );
         } else {
-            //noinspection unchecked
-            collector = (GroupingCollector<Object>) (GroupingCollector) GroupingCollector.manyKeys(
+            collector = GroupingCollector.manyKeys(
                 collectExpressions,
                 mode,
                 functions,
                 inputs,
                 ramAccountingContext,
                 keyInputs,
-                keyTypes
+                keyTypes,
+                spillThresholdBytes,
+                spillDirectory
             );
         }
         numCols = keyInputs.size() + functions.length;
@@ -29,6 +29,7 @@ import io.crate.analyze.symbol.Symbol;
 import io.crate.analyze.symbol.Symbols;
 import io.crate.analyze.symbol.ValueSymbolVisitor;
 import io.crate.breaker.RamAccountingContext;
+import io.crate.breaker.RowSizeEstimator;
 import io.crate.data.Input;
 import io.crate.data.Projector;
 import io.crate.data.Row;
@@ -47,16 +48,23 @@ import io.crate.operation.projectors.sorting.OrderingByPosition;
 import io.crate.operation.reference.sys.RowContextReferenceResolver;
 import io.crate.operation.reference.sys.SysRowUpdater;
 import io.crate.planner.projection.*;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
 import io.crate.types.StringType;
 import org.elasticsearch.action.bulk.BulkRetryCoordinatorPool;
 import org.elasticsearch.action.bulk.BulkShardProcessor;
 import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
 import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.io.PathUtils;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.env.Environment;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import javax.annotation.Nullable;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.function.Consumer;
@@ -67,6 +75,23 @@ import java.util.function.Supplier;
 public class ProjectionToProjectorVisitor
     extends ProjectionVisitor<ProjectionToProjectorVisitor.Context, Projector> implements ProjectorFactory {
 
+    /**
+     * Memory the rows of a single sort operation without limit may use before they are written to disk in sorted runs.
+     */
+    public static final Setting<ByteSizeValue> SORT_SPILL_THRESHOLD_SETTING = Setting.memorySizeSetting(
+        "node.sql.order_by.spill_threshold",
+        "10%",
+        Setting.Property.NodeScope);
+
+    /**
+     * Directory in which operations create the files for data that doesn't fit into memory.
+     * Defaults to the {@code spill} directory within the first data path of the node, see
+     * {@link #defaultSpillDirectory(Environment)}.
+     */
+    public static final Setting<String> SPILL_PATH_SETTING = Setting.simpleString(
+        "node.sql.spill_path",
+        Setting.Property.NodeScope);
+
     private final ClusterService clusterService;
     private final Functions functions;
     private final IndexNameExpressionResolver indexNameExpressionResolver;
@@ -79,6 +104,7 @@ public class ProjectionToProjectorVisitor
     private final Function<TableIdent, SysRowUpdater<?>> sysUpdaterGetter;
     @Nullable
     private final ShardId shardId;
+    private final Path spillDirectory;
 
     public ProjectionToProjectorVisitor(ClusterService clusterService,
                                         Functions functions,
@@ -102,6 +128,24 @@ public class ProjectionToProjectorVisitor
         this.normalizer = normalizer;
         this.sysUpdaterGetter = sysUpdaterGetter;
         this.shardId = shardId;
+        this.spillDirectory = spillDirectory(settings);
+    }
+
+    /**
+     * The default of {@link #SPILL_PATH_SETTING}. It is resolved once when the node starts and added to its settings,
+     * as the visitor is created for every shard and job.
+     */
+    public static Path defaultSpillDirectory(Environment environment) {
+        return environment.dataFiles()[0].resolve("spill");
+    }
+
+    private static Path spillDirectory(Settings settings) {
+        String spillPath = SPILL_PATH_SETTING.get(settings);
+        if (spillPath.isEmpty()) {
+            // not running as a node, e.g. within unit tests
+            return PathUtils.get(System.getProperty("java.io.tmpdir"));
+        }
+        return PathUtils.get(spillPath);
     }
 
     public ProjectionToProjectorVisitor(ClusterService clusterService,
@@ -160,12 +204,19 @@ public class ProjectionToProjectorVisitor
                 projection.offset()
             );
         }
+        List<DataType> columnTypes = new ArrayList<>(inputs.size());
+        columnTypes.addAll(Symbols.extractTypes(projection.outputs()));
+        columnTypes.addAll(Symbols.extractTypes(projection.orderBy()));
         return new SortingProjector(
             inputs,
             ctx.expressions(),
             numOutputs,
             OrderingByPosition.arrayOrdering(orderByIndices, projection.reverseFlags(), projection.nullsFirst()),
-            projection.offset()
+            projection.offset(),
+            DataTypes.getStreamers(columnTypes),
+            new RowSizeEstimator(columnTypes),
+            SORT_SPILL_THRESHOLD_SETTING.get(settings).getBytes(),
+            spillDirectory
         );
     }
 
@@ -200,7 +251,9 @@ public class ProjectionToProjectorVisitor
             Iterables.toArray(ctx.expressions(), CollectExpression.class),
             projection.mode(),
             ctx.aggregations().toArray(new AggregationContext[0]),
-            context.ramAccountingContext
+            context.ramAccountingContext,
+            GroupingProjector.SPILL_THRESHOLD_SETTING.get(settings).getBytes(),
+            spillDirectory
         );
     }
 
@@ -230,6 +283,10 @@ public class ProjectionToProjectorVisitor
             inputs = ctx.topLevelInputs();
         }
         Map<ColumnIdent, Object> overwrites = symbolMapToObject(projection.overwrites(), ctx, context.transactionContext);
+        Input<?> partitionByInput = null;
+        if (projection.partitionBy() != null) {
+            partitionByInput = ctx.add(projection.partitionBy());
+        }
 
         projection = projection.normalize(normalizer, context.transactionContext);
         String uri = ValueSymbolVisitor.STRING.process(projection.uri());
@@ -258,7 +315,9 @@ public class ProjectionToProjectorVisitor
             ctx.expressions(),
             overwrites,
             projection.outputNames(),
-            projection.outputFormat()
+            projection.outputFormat(),
+            partitionByInput,
+            projection.maxFileSize()
         );
     }
 
@@ -0,0 +1,221 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.operation.projectors;
+
+import io.crate.Streamer;
+import io.crate.breaker.RowSizeEstimator;
+import io.crate.operation.merge.KeyIterable;
+import io.crate.operation.merge.SortedPagingIterator;
+import org.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.elasticsearch.common.io.stream.OutputStreamStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Buffers rows which should be sorted.
+ *
+ * Once the estimated size of the buffered rows exceeds {@code spillThresholdBytes} the rows are sorted and written
+ * to a temporary file as a sorted run, using the same per-row encoding as {@link io.crate.executor.transport.StreamBucket}.
+ * The runs and the remaining in-memory rows are then merged using a {@link SortedPagingIterator}, which only needs
+ * to keep the current row of each run in memory.
+ */
+class SortedRuns implements AutoCloseable {
+
+    private final Streamer<?>[] streamers;
+    private final Comparator<Object[]> comparator;
+    private final RowSizeEstimator rowSizeEstimator;
+    private final long spillThresholdBytes;
+    private final Path spillDirectory;
+    private final List<Path> runFiles = new ArrayList<>();
+    private final List<Integer> runSizes = new ArrayList<>();
+    private final List<StreamInput> openInputs = new ArrayList<>();
+
+    private List<Object[]> rows = new ArrayList<>();
+    private long usedBytes = 0L;
+    private boolean sorted = false;
+
+    /**
+     * @param comparator the comparator defining the sort order of the rows
+     * @param spillDirectory the directory in which the run files are created
+     */
+    SortedRuns(Streamer<?>[] streamers,
+               Comparator<Object[]> comparator,
+               RowSizeEstimator rowSizeEstimator,
+               long spillThresholdBytes,
+               Path spillDirectory) {
+        this.streamers = streamers;
+        this.comparator = comparator;
+        this.rowSizeEstimator = rowSizeEstimator;
+        this.spillThresholdBytes = spillThresholdBytes;
+        this.spillDirectory = spillDirectory;
+    }
+
+    void add(Object[] row) {
+        rows.add(row);
+        usedBytes += rowSizeEstimator.estimateSize(row);
+        if (usedBytes >= spillThresholdBytes) {
+            try {
+                writeRun();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void writeRun() throws IOException {
+        rows.sort(comparator);
+        Files.createDirectories(spillDirectory);
+        Path file = Files.createTempFile(spillDirectory, "crate-sort-run-", ".bin");
+        runFiles.add(file);
+        try (StreamOutput out = new OutputStreamStreamOutput(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            for (Object[] row : rows) {
+                for (int i = 0; i < streamers.length; i++) {
+                    streamers[i].writeValueTo(out, row[i]);
+                }
+            }
+        }
+        runSizes.add(rows.size());
+        rows = new ArrayList<>();
+        usedBytes = 0L;
+    }
+
+    boolean hasSpilled() {
+        return !runFiles.isEmpty();
+    }
+
+    /**
+     * @return the in-memory rows, sorted.
+     */
+    List<Object[]> sortedRows() {
+        if (!sorted) {
+            rows.sort(comparator);
+            sorted = true;
+        }
+        return rows;
+    }
+
+    /**
+     * Returns an iterator which merges all runs, including the rows which are still in memory.
+     */
+    Iterator<Object[]> merged() {
+        List<KeyIterable<Integer, Object[]>> runs = new ArrayList<>(runFiles.size() + 1);
+        for (int i = 0; i < runFiles.size(); i++) {
+            StreamInput in;
+            try {
+                in = new InputStreamStreamInput(new BufferedInputStream(Files.newInputStream(runFiles.get(i))));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            openInputs.add(in);
+            Iterator<Object[]> runIt = new RunIterator(in, runSizes.get(i));
+            runs.add(new KeyIterable<>(i, () -> runIt));
+        }
+        runs.add(new KeyIterable<>(runFiles.size(), sortedRows()));
+
+        SortedPagingIterator<Integer, Object[]> pagingIterator = new SortedPagingIterator<>(comparator, false);
+        pagingIterator.merge(runs);
+        pagingIterator.finish();
+        return pagingIterator;
+    }
+
+    private class RunIterator implements Iterator<Object[]> {
+
+        private final StreamInput in;
+        private int remaining;
+
+        RunIterator(StreamInput in, int size) {
+            this.in = in;
+            this.remaining = size;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public Object[] next() {
+            if (remaining <= 0) {
+                throw new NoSuchElementException("run has no more rows");
+            }
+            Object[] row = new Object[streamers.length];
+            try {
+                for (int i = 0; i < streamers.length; i++) {
+                    row[i] = streamers[i].readValueFrom(in);
+                }
+                remaining--;
+                if (remaining == 0) {
+                    in.close();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return row;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (StreamInput in : openInputs) {
+            try {
+                in.close();
+            } catch (IOException e) {
+                failure = addFailure(failure, e);
+            }
+        }
+        openInputs.clear();
+        for (Path runFile : runFiles) {
+            try {
+                Files.deleteIfExists(runFile);
+            } catch (IOException e) {
+                failure = addFailure(failure, e);
+            }
+        }
+        runFiles.clear();
+        runSizes.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static IOException addFailure(IOException failure, IOException e) {
+        if (failure == null) {
+            return e;
+        }
+        failure.addSuppressed(e);
+        return failure;
+    }
+}
@@ -22,20 +22,26 @@
 package io.crate.operation.projectors;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
+import io.crate.Streamer;
+import io.crate.breaker.RowSizeEstimator;
 import io.crate.data.*;
 import io.crate.operation.collect.CollectExpression;
 
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collector;
-import java.util.stream.Collectors;
 
 /**
  * Sort rows by ordering criteria and process given offset before emitting.
  * <p>
  * Compared to {@link SortingTopNProjector} this projector does not support limiting,
  * while the {@link SortingTopNProjector} does not work WITHOUT a limit.
+ * <p>
+ * If the rows don't fit into {@code spillThresholdBytes} they're sorted externally, see {@link SortedRuns}.
  */
 class SortingProjector implements Projector {
 
@@ -45,6 +51,10 @@ class SortingProjector implements Projector {
     private final Comparator<Object[]> comparator;
     private final int offset;
     private final int numOutputs;
+    private final Streamer<?>[] streamers;
+    private final RowSizeEstimator rowSizeEstimator;
+    private final long spillThresholdBytes;
+    private final Path spillDirectory;
 
     /**
      * @param inputs             contains output {@link Input}s and orderBy {@link Input}s
@@ -52,26 +62,41 @@ class SortingProjector implements Projector {
      * @param numOutputs         <code>inputs</code> contains this much output {@link Input}s starting form index 0
      * @param comparator         ordering that is used to compare the rows
      * @param offset             the initial offset, this number of rows are skipped
+     * @param streamers          streamers for all <code>inputs</code>, used to write sorted runs to disk
+     * @param rowSizeEstimator   used to estimate the memory used by the rows
+     * @param spillThresholdBytes if the rows use more memory they are written to disk
+     * @param spillDirectory     the directory in which the sorted runs are written
      */
     SortingProjector(Collection<? extends Input<?>> inputs,
                      Iterable<? extends CollectExpression<Row, ?>> collectExpressions,
                      int numOutputs,
                      Comparator<Object[]> comparator,
-                     int offset) {
+                     int offset,
+                     Streamer<?>[] streamers,
+                     RowSizeEstimator rowSizeEstimator,
+                     long spillThresholdBytes,
+                     Path spillDirectory) {
         Preconditions.checkArgument(offset >= 0, "invalid offset %s", offset);
         this.numOutputs = numOutputs;
         this.inputs = inputs;
         this.collectExpressions = collectExpressions;
         this.comparator = comparator;
         this.offset = offset;
+        this.streamers = streamers;
+        this.rowSizeEstimator = rowSizeEstimator;
+        this.spillThresholdBytes = spillThresholdBytes;
+        this.spillDirectory = spillDirectory;
     }
 
 
     @Override
     public BatchIterator apply(BatchIterator batchIterator) {
-        Collector<Row, ?, Bucket> collector = Collectors.mapping(
-            this::getCells,
-            Collectors.collectingAndThen(Collectors.toList(), this::sortAndCreateBucket));
+        Collector<Row, SortedRuns, Iterable<Row>> collector = Collector.of(
+            () -> new SortedRuns(streamers, comparator.reversed(), rowSizeEstimator, spillThresholdBytes, spillDirectory),
+            (runs, row) -> runs.add(getCells(row)),
+            (runs1, runs2) -> { throw new UnsupportedOperationException("combine not supported"); },
+            this::createResult
+        );
         return CollectingBatchIterator.newInstance(batchIterator, collector, numOutputs);
     }
 
@@ -92,8 +117,15 @@ class SortingProjector implements Projector {
         return newRow;
     }
 
-    private Bucket sortAndCreateBucket(List<Object[]> rows) {
-        rows.sort(comparator.reversed());
+    private Iterable<Row> createResult(SortedRuns runs) {
+        if (runs.hasSpilled()) {
+            return () -> {
+                Iterator<Object[]> it = runs.merged();
+                Iterators.advance(it, offset);
+                return Iterators.transform(it, Buckets.arrayToRowFunction(numOutputs));
+            };
+        }
+        List<Object[]> rows = runs.sortedRows();
         if (offset == 0) {
             return new CollectionBucket(rows, numOutputs);
         }
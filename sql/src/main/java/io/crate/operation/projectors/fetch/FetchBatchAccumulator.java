@@ -52,7 +52,7 @@ public class FetchBatchAccumulator implements BatchAccumulator<Row, Iterator<? e
     private final int fetchSize;
     private final FetchRowInputSymbolVisitor.Context collectRowContext;
     private final InputRow outputRow;
-    private final ArrayList<Object[]> inputValues = new ArrayList<>();
+    private ArrayList<Object[]> inputValues = new ArrayList<>();
 
     public FetchBatchAccumulator(FetchOperation fetchOperation,
                                  Functions functions,
@@ -88,11 +88,16 @@ public class FetchBatchAccumulator implements BatchAccumulator<Row, Iterator<? e
 
     @Override
     public CompletableFuture<Iterator<? extends Row>> processBatch(boolean isLastBatch) {
+        // the state of this batch is detached so that the next batch can be accumulated while this one is fetched
+        final List<Object[]> batchInputValues = inputValues;
+        final IntObjectHashMap<ReaderBucket> readerBuckets = context.takeReaderBuckets();
+        inputValues = new ArrayList<>();
+
         List<CompletableFuture<IntObjectMap<? extends Bucket>>> futures = new ArrayList<>();
         Iterator<Map.Entry<String, IntSet>> it = context.nodeToReaderIds.entrySet().iterator();
         while (it.hasNext()) {
             Map.Entry<String, IntSet> entry = it.next();
-            IntObjectHashMap<IntContainer> toFetch = generateToFetch(entry.getValue());
+            IntObjectHashMap<IntContainer> toFetch = generateToFetch(readerBuckets, entry.getValue());
             if (toFetch.isEmpty() && !isLastBatch) {
                 continue;
             }
@@ -106,7 +111,8 @@ public class FetchBatchAccumulator implements BatchAccumulator<Row, Iterator<? e
                 it.remove();
             }
         }
-        return CompletableFutures.allAsList(futures).thenApply(this::getRows);
+        return CompletableFutures.allAsList(futures)
+            .thenApply(results -> getRows(batchInputValues, readerBuckets, results));
     }
 
     @Override
@@ -126,8 +132,10 @@ public class FetchBatchAccumulator implements BatchAccumulator<Row, Iterator<? e
         inputValues.clear();
     }
 
-    private Iterator<? extends Row> getRows(List<IntObjectMap<? extends Bucket>> results) {
-        applyResultToReaderBuckets(results);
+    private Iterator<? extends Row> getRows(List<Object[]> batchInputValues,
+                                            IntObjectHashMap<ReaderBucket> readerBuckets,
+                                            List<IntObjectMap<? extends Bucket>> results) {
+        applyResultToReaderBuckets(readerBuckets, results);
         return new Iterator<Row>() {
 
             final int[] fetchIdPositions = collectRowContext.fetchIdPositions();
@@ -140,7 +148,7 @@ public class FetchBatchAccumulator implements BatchAccumulator<Row, Iterator<? e
 
             @Override
             public boolean hasNext() {
-                return idx < inputValues.size();
+                return idx < batchInputValues.size();
             }
 
             @Override
@@ -148,7 +156,7 @@ public class FetchBatchAccumulator implements BatchAccumulator<Row, Iterator<? e
                 if (!hasNext()) {
                     throw new NoSuchElementException("Iterator is exhausted");
                 }
-                Object[] cells = inputValues.get(idx);
+                Object[] cells = batchInputValues.get(idx);
                 inputRow.cells = cells;
                 for (int i = 0; i < fetchIdPositions.length; i++) {
                     Object fetchIdObj = cells[fetchIdPositions[i]];
@@ -159,7 +167,7 @@ public class FetchBatchAccumulator implements BatchAccumulator<Row, Iterator<? e
                     long fetchId = (long) fetchIdObj;
                     int readerId = FetchId.decodeReaderId(fetchId);
                     int docId = FetchId.decodeDocId(fetchId);
-                    ReaderBucket readerBucket = context.getReaderBucket(readerId);
+                    ReaderBucket readerBucket = readerBuckets.get(readerId);
                     assert readerBucket != null : "readerBucket must not be null";
                     setPartitionRow(partitionRows, i, readerBucket);
                     fetchRows[i].cells = readerBucket.get(docId);
@@ -170,7 +178,8 @@ public class FetchBatchAccumulator implements BatchAccumulator<Row, Iterator<? e
                 if (!hasNext()) {
                     // free up memory - in case we're streaming data to the client
                     // this would otherwise grow to hold the whole result in-memory
-                    reset();
+                    batchInputValues.clear();
+                    readerBuckets.clear();
                 }
                 return outputRow;
             }
@@ -182,22 +191,24 @@ public class FetchBatchAccumulator implements BatchAccumulator<Row, Iterator<? e
         return fetchSize;
     }
 
-    private void applyResultToReaderBuckets(List<IntObjectMap<? extends Bucket>> results) {
+    private static void applyResultToReaderBuckets(IntObjectHashMap<ReaderBucket> readerBuckets,
+                                                   List<IntObjectMap<? extends Bucket>> results) {
         for (IntObjectMap<? extends Bucket> result : results) {
             if (result == null) {
                 continue;
             }
             for (IntObjectCursor<? extends Bucket> cursor : result) {
-                ReaderBucket readerBucket = context.getReaderBucket(cursor.key);
+                ReaderBucket readerBucket = readerBuckets.get(cursor.key);
                 readerBucket.fetched(cursor.value);
             }
         }
     }
 
-    private IntObjectHashMap<IntContainer> generateToFetch(IntSet readerIds) {
+    private static IntObjectHashMap<IntContainer> generateToFetch(IntObjectHashMap<ReaderBucket> readerBuckets,
+                                                                  IntSet readerIds) {
         IntObjectHashMap<IntContainer> toFetch = new IntObjectHashMap<>(readerIds.size());
         for (IntCursor readerIdCursor : readerIds) {
-            ReaderBucket readerBucket = context.readerBucket(readerIdCursor.value);
+            ReaderBucket readerBucket = readerBuckets.get(readerIdCursor.value);
             if (readerBucket != null && readerBucket.fetchRequired() && readerBucket.docs.size() > 0) {
                 toFetch.put(readerIdCursor.value, readerBucket.docs.keys());
             }
@@ -32,6 +32,12 @@ import java.util.List;
 
 public class FetchProjector implements Projector {
 
+    /**
+     * Number of batches which are fetched concurrently. While the rows of a batch are consumed the next batch is
+     * already fetched, which also limits the number of in-flight fetch requests per node.
+     */
+    private static final int MAX_PENDING_FETCHES = 2;
+
     private final FetchOperation fetchOperation;
     private final Functions functions;
     private final List<Symbol> outputSymbols;
@@ -61,7 +67,8 @@ public class FetchProjector implements Projector {
                 outputSymbols,
                 fetchProjectorContext,
                 fetchSize
-            )
+            ),
+            MAX_PENDING_FETCHES
         );
     }
 
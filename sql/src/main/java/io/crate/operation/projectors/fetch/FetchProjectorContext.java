@@ -26,7 +26,6 @@ import com.carrotsearch.hppc.IntObjectHashMap;
 import com.carrotsearch.hppc.IntObjectMap;
 import com.carrotsearch.hppc.IntSet;
 import com.carrotsearch.hppc.cursors.IntCursor;
-import com.carrotsearch.hppc.cursors.ObjectCursor;
 import io.crate.Streamer;
 import io.crate.analyze.symbol.Symbols;
 import io.crate.metadata.PartitionName;
@@ -48,7 +47,7 @@ public class FetchProjectorContext {
 
     private final TreeMap<Integer, String> readerIdToIndex;
     private final Map<String, TableIdent> indexToTable;
-    private final IntObjectHashMap<ReaderBucket> readerBuckets = new IntObjectHashMap<>();
+    private IntObjectHashMap<ReaderBucket> readerBuckets = new IntObjectHashMap<>();
     private Map<String, IntObjectHashMap<Streamer[]>> nodeIdToReaderIdToStreamers;
 
     public FetchProjectorContext(Map<TableIdent, FetchSource> tableToFetchSource,
@@ -61,9 +60,14 @@ public class FetchProjectorContext {
         this.indexToTable = indexToTable;
     }
 
-
-    ReaderBucket readerBucket(int readerId) {
-        return readerBuckets.get(readerId);
+    /**
+     * Returns the buckets containing the docs required since the last call and starts collecting into new buckets,
+     * so that the returned buckets can be fetched while the docs of the next batch are being required.
+     */
+    IntObjectHashMap<ReaderBucket> takeReaderBuckets() {
+        IntObjectHashMap<ReaderBucket> result = readerBuckets;
+        readerBuckets = new IntObjectHashMap<>();
+        return result;
     }
 
     ReaderBucket require(long fetchId) {
@@ -100,10 +104,6 @@ public class FetchProjectorContext {
         return partitionValues;
     }
 
-    ReaderBucket getReaderBucket(int readerId) {
-        return readerBuckets.get(readerId);
-    }
-
     @Nullable
     private FetchSource getFetchSource(int readerId) {
         String index = readerIdToIndex.floorEntry(readerId).getValue();
@@ -131,8 +131,6 @@ public class FetchProjectorContext {
     }
 
     void clearBuckets() {
-        for (ObjectCursor<ReaderBucket> bucketCursor : readerBuckets.values()) {
-            bucketCursor.value.docs.clear();
-        }
+        readerBuckets.clear();
     }
 }
@@ -29,16 +29,18 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URI;
-import java.util.zip.GZIPOutputStream;
+import java.util.concurrent.Executor;
 
 public class OutputFile extends Output {
 
+    private final Executor executor;
     private final String path;
     private final boolean overwrite;
     private final boolean compression;
 
-    public OutputFile(URI uri, WriterProjection.CompressionType compressionType) {
+    public OutputFile(Executor executor, URI uri, WriterProjection.CompressionType compressionType) {
         Preconditions.checkArgument(uri.getHost() == null);
+        this.executor = executor;
         this.path = uri.getPath();
         compression = compressionType != null;
         this.overwrite = true;
@@ -57,7 +59,7 @@ public class OutputFile extends Output {
         }
         OutputStream os = new FileOutputStream(outFile);
         if (compression) {
-            os = new GZIPOutputStream(os);
+            os = new PipelinedGzipOutputStream(os, executor);
         }
         return os;
     }
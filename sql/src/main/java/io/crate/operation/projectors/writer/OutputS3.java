@@ -41,7 +41,6 @@ import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.zip.GZIPOutputStream;
 
 @NotThreadSafe
 public class OutputS3 extends Output {
@@ -60,7 +59,7 @@ public class OutputS3 extends Output {
     public OutputStream acquireOutputStream() throws IOException {
         OutputStream outputStream = new S3OutputStream(executorService, uri, new S3ClientHelper());
         if (compression) {
-            outputStream = new GZIPOutputStream(outputStream);
+            outputStream = new PipelinedGzipOutputStream(outputStream, executorService);
         }
         return outputStream;
     }
@@ -0,0 +1,156 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.operation.projectors.writer;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A gzip compressing OutputStream which compresses on another thread.
+ * <p>
+ * The written bytes are collected in chunks which are compressed and written to the target stream one after
+ * another using the given executor, so that the caller can serialize the next rows while the previous ones are
+ * compressed. At most {@link #MAX_PENDING_CHUNKS} chunks are buffered, writing blocks if the compression
+ * falls behind.
+ */
+@NotThreadSafe
+public class PipelinedGzipOutputStream extends OutputStream {
+
+    static final int CHUNK_SIZE = 64 * 1024;
+    static final int MAX_PENDING_CHUNKS = 4;
+
+    private final GZIPOutputStream target;
+    private final Executor executor;
+    private final Semaphore pendingChunks = new Semaphore(MAX_PENDING_CHUNKS);
+    private CompletableFuture<Void> lastChunk = CompletableFuture.completedFuture(null);
+    private byte[] chunk = new byte[CHUNK_SIZE];
+    private int chunkSize = 0;
+    private boolean closed = false;
+
+    public PipelinedGzipOutputStream(OutputStream out, Executor executor) throws IOException {
+        this.target = new GZIPOutputStream(out, CHUNK_SIZE);
+        this.executor = executor;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (chunkSize == chunk.length) {
+            flushChunk();
+        }
+        chunk[chunkSize++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (chunkSize == chunk.length) {
+                flushChunk();
+            }
+            int toCopy = Math.min(len, chunk.length - chunkSize);
+            System.arraycopy(b, off, chunk, chunkSize, toCopy);
+            chunkSize += toCopy;
+            off += toCopy;
+            len -= toCopy;
+        }
+    }
+
+    private void flushChunk() throws IOException {
+        if (lastChunk.isCompletedExceptionally()) {
+            waitForPendingChunks();
+        }
+        try {
+            pendingChunks.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the compression of previous chunks");
+        }
+        final byte[] bytes = chunk;
+        final int length = chunkSize;
+        // stages run one after another, a failed stage skips all following ones
+        lastChunk = lastChunk
+            .thenRunAsync(() -> compress(bytes, length), executor)
+            .whenComplete((r, t) -> pendingChunks.release());
+        chunk = new byte[CHUNK_SIZE];
+        chunkSize = 0;
+    }
+
+    private void compress(byte[] bytes, int length) {
+        try {
+            target.write(bytes, 0, length);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private void waitForPendingChunks() throws IOException {
+        try {
+            lastChunk.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Waits until all written bytes are compressed, finishes the compression and closes the target stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        IOException failure = null;
+        try {
+            if (chunkSize > 0) {
+                flushChunk();
+            }
+            waitForPendingChunks();
+        } catch (IOException e) {
+            failure = e;
+        }
+        chunk = null;
+        try {
+            target.close();
+        } catch (IOException e) {
+            if (failure == null) {
+                failure = e;
+            } else {
+                failure.addSuppressed(e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
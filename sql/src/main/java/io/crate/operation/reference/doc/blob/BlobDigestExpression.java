@@ -21,18 +21,17 @@
 
 package io.crate.operation.reference.doc.blob;
 
+import io.crate.blob.BlobDigestIndex;
 import io.crate.metadata.RowContextCollectorExpression;
 import org.apache.lucene.util.BytesRef;
 
-import java.io.File;
-
-public class BlobDigestExpression extends RowContextCollectorExpression<File, BytesRef> {
+public class BlobDigestExpression extends RowContextCollectorExpression<BlobDigestIndex.Entry, BytesRef> {
 
     public static final String COLUMN_NAME = "digest";
 
     @Override
     public BytesRef value() {
-        return new BytesRef(row.getName());
+        return new BytesRef(row.digest());
     }
 
 }
@@ -21,11 +21,10 @@
 
 package io.crate.operation.reference.doc.blob;
 
+import io.crate.blob.BlobDigestIndex;
 import io.crate.metadata.RowContextCollectorExpression;
 
-import java.io.File;
-
-public class BlobLastModifiedExpression extends RowContextCollectorExpression<File, Long> {
+public class BlobLastModifiedExpression extends RowContextCollectorExpression<BlobDigestIndex.Entry, Long> {
 
     public static final String COLUMN_NAME = "last_modified";
 
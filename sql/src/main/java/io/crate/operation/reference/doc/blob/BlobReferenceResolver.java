@@ -22,15 +22,15 @@
 package io.crate.operation.reference.doc.blob;
 
 import com.google.common.collect.ImmutableMap;
+import io.crate.blob.BlobDigestIndex;
 import io.crate.metadata.Reference;
 import io.crate.metadata.blob.BlobSchemaInfo;
 import io.crate.operation.collect.CollectExpression;
 import io.crate.operation.reference.ReferenceResolver;
 
-import java.io.File;
 import java.util.Map;
 
-public class BlobReferenceResolver implements ReferenceResolver<CollectExpression<File, ?>> {
+public class BlobReferenceResolver implements ReferenceResolver<CollectExpression<BlobDigestIndex.Entry, ?>> {
 
     public static final BlobReferenceResolver INSTANCE = new BlobReferenceResolver();
 
@@ -44,7 +44,7 @@ public class BlobReferenceResolver implements ReferenceResolver<CollectExpressio
     }
 
     @Override
-    public CollectExpression<File, ?> getImplementation(Reference refInfo) {
+    public CollectExpression<BlobDigestIndex.Entry, ?> getImplementation(Reference refInfo) {
         assert BlobSchemaInfo.NAME.equals(refInfo.ident().tableIdent().schema()) :
             "schema name must be 'blob";
         ExpressionBuilder builder = EXPRESSION_BUILDER.get(refInfo.ident().columnIdent().name());
@@ -55,6 +55,6 @@ public class BlobReferenceResolver implements ReferenceResolver<CollectExpressio
     }
 
     interface ExpressionBuilder {
-        CollectExpression<File, ?> create();
+        CollectExpression<BlobDigestIndex.Entry, ?> create();
     }
 }
@@ -23,7 +23,6 @@ package io.crate.operation.reference.doc.lucene;
 
 import io.crate.operation.collect.collectors.CollectorFieldsVisitor;
 import org.elasticsearch.index.fielddata.IndexFieldDataService;
-import org.elasticsearch.search.lookup.SourceLookup;
 
 public class CollectorContext {
 
@@ -24,10 +24,7 @@ package io.crate.operation.reference.doc.lucene;
 import com.google.common.base.Joiner;
 import io.crate.metadata.Reference;
 import io.crate.metadata.doc.DocSysColumns;
-import io.crate.operation.collect.collectors.CollectorFieldsVisitor;
 import org.apache.lucene.index.LeafReaderContext;
-import org.elasticsearch.common.xcontent.XContentHelper;
-import org.elasticsearch.search.lookup.SourceLookup;
 
 import java.util.Map;
 
@@ -35,7 +32,8 @@ public class DocCollectorExpression extends LuceneCollectorExpression<Map<String
 
     public static final String COLUMN_NAME = DocSysColumns.DOC.name();
 
-    private CollectorFieldsVisitor visitor;
+    private SourceLookup sourceLookup;
+    private LeafReaderContext context;
 
     public DocCollectorExpression() {
         super(COLUMN_NAME);
@@ -43,13 +41,23 @@ public class DocCollectorExpression extends LuceneCollectorExpression<Map<String
 
     @Override
     public void startCollect(CollectorContext context) {
-        context.visitor().required(true);
-        this.visitor = context.visitor();
+        sourceLookup = context.sourceLookup();
+        sourceLookup.requireFullSource();
+    }
+
+    @Override
+    public void setNextReader(LeafReaderContext context) {
+        this.context = context;
+    }
+
+    @Override
+    public void setNextDocId(int doc) {
+        sourceLookup.setSegmentAndDocument(context, doc);
     }
 
     @Override
     public Map<String, Object> value() {
-        return XContentHelper.convertToMap(visitor.source(), false).v2();
+        return sourceLookup.sourceAsMap();
     }
 
     public static LuceneCollectorExpression<?> create(final Reference reference) {
@@ -63,11 +71,6 @@ public class DocCollectorExpression extends LuceneCollectorExpression<Map<String
         final String fqn = Joiner.on(".").join(reference.ident().columnIdent().path());
         return new ChildDocCollectorExpression(fqn) {
 
-            @Override
-            public void startCollect(CollectorContext context) {
-                super.startCollect(context);
-            }
-
             @Override
             public Object value() {
                 // need to make sure it has the correct type;
@@ -102,6 +105,7 @@ public class DocCollectorExpression extends LuceneCollectorExpression<Map<String
         @Override
         public void startCollect(CollectorContext context) {
             sourceLookup = context.sourceLookup();
+            sourceLookup.register(columnName);
         }
     }
 }
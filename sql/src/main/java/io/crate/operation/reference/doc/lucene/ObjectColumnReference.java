@@ -23,7 +23,6 @@ package io.crate.operation.reference.doc.lucene;
 
 
 import org.apache.lucene.index.LeafReaderContext;
-import org.elasticsearch.search.lookup.SourceLookup;
 
 import java.util.Map;
 
@@ -56,5 +55,6 @@ public class ObjectColumnReference extends LuceneCollectorExpression<Map<String,
     @Override
     public void startCollect(CollectorContext context) {
         sourceLookup = context.sourceLookup();
+        sourceLookup.register(columnName);
     }
 }
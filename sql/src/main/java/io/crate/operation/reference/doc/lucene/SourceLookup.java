@@ -0,0 +1,105 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.reference.doc.lucene;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
+import org.elasticsearch.index.fieldvisitor.FieldsVisitor;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Provides access to the {@code _source} of the current document, shared by all expressions of a collector.
+ * <p>
+ * The source is loaded and parsed at most once per document. Unless {@link #requireFullSource()} has been called,
+ * only the columns registered using {@link #register(String)} are parsed, see {@link SourceParser}.
+ */
+public final class SourceLookup {
+
+    private final FieldsVisitor fieldsVisitor = new FieldsVisitor(true);
+    private final SourceParser sourceParser = new SourceParser();
+    private boolean fullSourceRequired = false;
+
+    private LeafReaderContext context;
+    private int doc = -1;
+    private Map<String, Object> source;
+
+    /**
+     * Register a column which will be extracted using {@link #extractValue(String)}.
+     * Must be called before the first document is set.
+     *
+     * @param fqn the dotted path of the column
+     */
+    public void register(String fqn) {
+        sourceParser.register(fqn.split("\\."));
+    }
+
+    public void requireFullSource() {
+        fullSourceRequired = true;
+    }
+
+    public void setSegmentAndDocument(LeafReaderContext context, int doc) {
+        if (this.context == context && this.doc == doc) {
+            return;
+        }
+        this.context = context;
+        this.doc = doc;
+        source = null;
+    }
+
+    /**
+     * @return the source of the current document; contains only the registered columns
+     *         unless the full source is required
+     */
+    public Map<String, Object> sourceAsMap() {
+        if (source == null) {
+            BytesReference bytes = loadSource();
+            if (bytes == null) {
+                source = Collections.emptyMap();
+            } else if (fullSourceRequired) {
+                source = XContentHelper.convertToMap(bytes, false).v2();
+            } else {
+                source = sourceParser.parse(bytes);
+            }
+        }
+        return source;
+    }
+
+    public Object extractValue(String fqn) {
+        return XContentMapValues.extractValue(fqn, sourceAsMap());
+    }
+
+    private BytesReference loadSource() {
+        fieldsVisitor.reset();
+        try {
+            context.reader().document(doc, fieldsVisitor);
+        } catch (IOException e) {
+            throw new ElasticsearchParseException("failed to load source of document [" + doc + "]", e);
+        }
+        return fieldsVisitor.source();
+    }
+}
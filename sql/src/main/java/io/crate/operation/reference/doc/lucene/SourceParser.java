@@ -0,0 +1,131 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.reference.doc.lucene;
+
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentParser;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parses only the registered columns out of a raw {@code _source}.
+ * <p>
+ * The values of all other columns are skipped by the parser without being materialized.
+ * The result has the same structure as the full source map, so values can be extracted from it
+ * using {@link org.elasticsearch.common.xcontent.support.XContentMapValues#extractValue(String, Map)}.
+ */
+public final class SourceParser {
+
+    /**
+     * Tree of the required columns; a null value means the column is required including all its children
+     */
+    private final Map<String, Object> requiredColumns = new HashMap<>();
+
+    /**
+     * @param path the path of a column, e.g. {@code ["obj", "a", "b"]} for {@code obj['a']['b']}
+     */
+    @SuppressWarnings("unchecked")
+    public void register(String[] path) {
+        Map<String, Object> columns = requiredColumns;
+        for (int i = 0; i < path.length; i++) {
+            String name = path[i];
+            if (i == path.length - 1) {
+                columns.put(name, null);
+                return;
+            }
+            if (columns.containsKey(name)) {
+                Map<String, Object> children = (Map<String, Object>) columns.get(name);
+                if (children == null) {
+                    // parent is already required as a whole
+                    return;
+                }
+                columns = children;
+            } else {
+                Map<String, Object> children = new HashMap<>();
+                columns.put(name, children);
+                columns = children;
+            }
+        }
+    }
+
+    public Map<String, Object> parse(BytesReference source) {
+        try (XContentParser parser = XContentFactory.xContent(source).createParser(source)) {
+            if (parser.nextToken() != XContentParser.Token.START_OBJECT) {
+                throw new ElasticsearchParseException("Source must be an object");
+            }
+            return parseObject(parser, requiredColumns, true);
+        } catch (IOException e) {
+            throw new ElasticsearchParseException("Failed to parse source", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> parseObject(XContentParser parser,
+                                                   Map<String, Object> requiredColumns,
+                                                   boolean topLevel) throws IOException {
+        Map<String, Object> values = new HashMap<>();
+        while (parser.nextToken() == XContentParser.Token.FIELD_NAME) {
+            String name = parser.currentName();
+            XContentParser.Token token = parser.nextToken();
+            if (!requiredColumns.containsKey(name)) {
+                parser.skipChildren();
+                continue;
+            }
+            Map<String, Object> children = (Map<String, Object>) requiredColumns.get(name);
+            if (children != null && token == XContentParser.Token.START_OBJECT) {
+                values.put(name, parseObject(parser, children, false));
+            } else {
+                // arrays are read as a whole, the children are extracted from their elements later on
+                values.put(name, readValue(parser, token));
+            }
+            if (topLevel && values.size() == requiredColumns.size()) {
+                // the rest of the source doesn't need to be tokenized at all
+                break;
+            }
+        }
+        return values;
+    }
+
+    private static Object readValue(XContentParser parser, XContentParser.Token token) throws IOException {
+        switch (token) {
+            case START_OBJECT:
+                return parser.map();
+            case START_ARRAY:
+                return parser.list();
+            case VALUE_STRING:
+                return parser.text();
+            case VALUE_NUMBER:
+                return parser.numberValue();
+            case VALUE_BOOLEAN:
+                return parser.booleanValue();
+            case VALUE_EMBEDDED_OBJECT:
+                return parser.binaryValue();
+            case VALUE_NULL:
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.operation.reference.file;
+
+import io.crate.metadata.ColumnIdent;
+import io.crate.operation.collect.files.LineCollectorExpression;
+import io.crate.types.CollectionType;
+import io.crate.types.DataType;
+import io.crate.types.GeoPointType;
+import io.crate.types.GeoShapeType;
+import io.crate.types.ObjectType;
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+
+import java.io.IOException;
+
+/**
+ * Converts the field of a CSV record which belongs to the column directly into the type of the column.
+ * Object, array and geo values may be given as JSON.
+ */
+public class CsvColumnExpression extends LineCollectorExpression<Object> {
+
+    private final ColumnIdent columnIdent;
+    private final DataType type;
+    private final boolean acceptsJson;
+    private LineContext context;
+
+    public CsvColumnExpression(ColumnIdent columnIdent, DataType type) {
+        this.columnIdent = columnIdent;
+        this.type = type;
+        this.acceptsJson = type instanceof ObjectType ||
+                           type instanceof CollectionType ||
+                           type instanceof GeoPointType ||
+                           type instanceof GeoShapeType;
+    }
+
+    @Override
+    public Object value() {
+        String value = context.csvValue(columnIdent.fqn());
+        if (value == null) {
+            return null;
+        }
+        try {
+            if (acceptsJson && (value.startsWith("{") || value.startsWith("["))) {
+                return type.value(parseJson(value));
+            }
+            return type.value(value);
+        } catch (IllegalArgumentException | ClassCastException e) {
+            throw new ElasticsearchParseException(
+                "Cannot convert value \"{}\" of column \"{}\" to {}", e, value, columnIdent.fqn(), type.getName());
+        }
+    }
+
+    private static Object parseJson(String value) {
+        try (XContentParser parser = JsonXContent.jsonXContent.createParser(value)) {
+            if (parser.nextToken() == XContentParser.Token.START_OBJECT) {
+                return parser.mapOrdered();
+            }
+            return parser.list();
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void startCollect(LineContext context) {
+        this.context = context;
+    }
+}
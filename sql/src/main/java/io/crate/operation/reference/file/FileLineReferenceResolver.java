@@ -49,4 +49,11 @@ public final class FileLineReferenceResolver {
         }
         return supplier.get();
     }
+
+    /**
+     * Returns an expression which reads the value of the column from a CSV record.
+     */
+    public static LineCollectorExpression<?> getCsvImplementation(Reference refInfo) {
+        return new CsvColumnExpression(refInfo.ident().columnIdent(), refInfo.valueType());
+    }
 }
@@ -27,7 +27,9 @@ import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.xcontent.XContentHelper;
 
 import javax.annotation.Nullable;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 
 public class LineContext {
@@ -35,6 +37,9 @@ public class LineContext {
     private byte[] rawSource;
     private Map<String, Object> parsedSource;
 
+    private Map<String, Integer> csvColumnPositions;
+    private List<String> csvRecord;
+
     @Nullable
     public BytesRef sourceAsBytesRef() {
         if (rawSource != null) {
@@ -90,4 +95,38 @@ public class LineContext {
         this.rawSource = bytes;
         this.parsedSource = null;
     }
+
+    /**
+     * Sets the column names of the header of a CSV file. The fields of all following records are mapped by their
+     * position to these names.
+     */
+    public void csvHeader(List<String> columnNames) {
+        csvColumnPositions = new HashMap<>(columnNames.size());
+        for (int i = 0; i < columnNames.size(); i++) {
+            String name = columnNames.get(i);
+            if (name != null) {
+                csvColumnPositions.put(name.trim(), i);
+            }
+        }
+    }
+
+    public void csvRecord(List<String> fields) {
+        this.csvRecord = fields;
+    }
+
+    /**
+     * @return the raw value of the given column of the current CSV record or null if the column is not part
+     *         of the header or the record has less fields than the header.
+     */
+    @Nullable
+    public String csvValue(String columnName) {
+        if (csvRecord == null || csvColumnPositions == null) {
+            return null;
+        }
+        Integer position = csvColumnPositions.get(columnName);
+        if (position == null || position >= csvRecord.size()) {
+            return null;
+        }
+        return csvRecord.get(position);
+    }
 }
@@ -30,6 +30,8 @@ import io.crate.metadata.Functions;
 import io.crate.planner.*;
 import io.crate.planner.projection.builder.ProjectionBuilder;
 import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
@@ -39,9 +41,19 @@ import java.util.Map;
 
 public class ConsumingPlanner {
 
+    /**
+     * Minimum number of documents both sides of a hash join must have to re-distribute them by the join key.
+     * Below that, collecting both sides on the handler node is cheaper than shuffling the rows between all nodes.
+     */
+    public static final Setting<Long> JOIN_REPARTITION_MIN_NUM_DOCS_SETTING = Setting.longSetting(
+        "node.sql.join.repartition_min_num_docs",
+        100_000L,
+        0L,
+        Setting.Property.NodeScope);
+
     private final List<Consumer> consumers = new ArrayList<>();
 
-    public ConsumingPlanner(ClusterService clusterService, Functions functions, TableStats tableStats) {
+    public ConsumingPlanner(Settings settings, ClusterService clusterService, Functions functions, TableStats tableStats) {
         ProjectionBuilder projectionBuilder = new ProjectionBuilder(functions);
         consumers.add(new NonDistributedGroupByConsumer(projectionBuilder));
         consumers.add(new ReduceOnCollectorGroupByConsumer(projectionBuilder));
@@ -52,7 +64,7 @@ public class ConsumingPlanner {
         consumers.add(new MultiSourceAggregationConsumer(projectionBuilder));
         consumers.add(new MultiSourceGroupByConsumer(projectionBuilder));
         consumers.add(new ManyTableConsumer());
-        consumers.add(new NestedLoopConsumer(clusterService, functions, tableStats));
+        consumers.add(new NestedLoopConsumer(settings, clusterService, functions, tableStats));
         consumers.add(new GroupingSubselectConsumer(projectionBuilder));
     }
 
@@ -21,6 +21,8 @@
 
 package io.crate.planner.consumer;
 
+import com.carrotsearch.hppc.IntArrayList;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import io.crate.analyze.*;
@@ -32,9 +34,12 @@ import io.crate.analyze.symbol.*;
 import io.crate.collections.Lists2;
 import io.crate.metadata.Functions;
 import io.crate.metadata.TableIdent;
+import io.crate.operation.operator.AndOperator;
+import io.crate.operation.operator.EqOperator;
 import io.crate.operation.projectors.TopN;
 import io.crate.planner.*;
 import io.crate.planner.distribution.DistributionInfo;
+import io.crate.planner.distribution.DistributionType;
 import io.crate.planner.node.dql.MergePhase;
 import io.crate.planner.node.dql.join.JoinType;
 import io.crate.planner.node.dql.join.NestedLoop;
@@ -42,19 +47,25 @@ import io.crate.planner.node.dql.join.NestedLoopPhase;
 import io.crate.planner.projection.Projection;
 import io.crate.planner.projection.builder.InputColumns;
 import io.crate.planner.projection.builder.ProjectionBuilder;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
 import org.apache.logging.log4j.Logger;
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.settings.Settings;
 
 import java.util.*;
 
 class NestedLoopConsumer implements Consumer {
 
     private final static Logger LOGGER = Loggers.getLogger(NestedLoopConsumer.class);
+
     private final Visitor visitor;
 
-    NestedLoopConsumer(ClusterService clusterService, Functions functions, TableStats tableStats) {
-        visitor = new Visitor(clusterService, functions, tableStats);
+    NestedLoopConsumer(Settings settings, ClusterService clusterService, Functions functions, TableStats tableStats) {
+        visitor = new Visitor(clusterService, functions, tableStats,
+            ConsumingPlanner.JOIN_REPARTITION_MIN_NUM_DOCS_SETTING.get(settings));
     }
 
     @Override
@@ -67,11 +78,16 @@ class NestedLoopConsumer implements Consumer {
         private final ClusterService clusterService;
         private final Functions functions;
         private final TableStats tableStats;
+        private final long repartitionMinNumDocs;
 
-        public Visitor(ClusterService clusterService, Functions functions, TableStats tableStats) {
+        public Visitor(ClusterService clusterService,
+                       Functions functions,
+                       TableStats tableStats,
+                       long repartitionMinNumDocs) {
             this.clusterService = clusterService;
             this.functions = functions;
             this.tableStats = tableStats;
+            this.repartitionMinNumDocs = repartitionMinNumDocs;
         }
 
         @Override
@@ -84,6 +100,7 @@ class NestedLoopConsumer implements Consumer {
                 throw new UnsupportedOperationException("JOIN with sub queries is not supported");
             }
             List<Symbol> nlOutputs = Lists2.concat(left.fields(), right.fields());
+            int numLeftFields = left.fields().size();
 
             // for nested loops we are fine to remove pushed down orders
             OrderBy orderByBeforeSplit = querySpec.orderBy().orElse(null);
@@ -123,6 +140,20 @@ class NestedLoopConsumer implements Consumer {
                 context.requiredPageSize(limits.limitAndOffset());
             }
 
+            IntArrayList leftJoinKeys = new IntArrayList();
+            IntArrayList rightJoinKeys = new IntArrayList();
+            if (joinCondition != null) {
+                joinCondition = InputColumns.create(joinCondition, nlOutputs);
+                assert joinCondition instanceof Function : "Only function symbols are valid join conditions";
+                assert !SymbolVisitors.any(Symbols.IS_COLUMN, joinCondition)
+                    : "Processed joinCondition must not contain column symbols.\njoinCondition="
+                      + joinCondition + " nlOutputs=" + nlOutputs;
+                if (joinType != JoinType.CROSS) {
+                    extractEquiJoinKeys(joinCondition, numLeftFields, leftJoinKeys, rightJoinKeys);
+                }
+            }
+            boolean isHashJoin = !leftJoinKeys.isEmpty();
+
             context.setFetchMode(FetchMode.NEVER);
             Plan leftPlan = context.plannerContext().planSubRelation(left, context);
             Plan rightPlan = context.plannerContext().planSubRelation(right, context);
@@ -148,11 +179,49 @@ class NestedLoopConsumer implements Consumer {
                     rightResultDesc = rightPlan.resultDescription();
                 }
             }
+            boolean isRepartitioned = !isDistributed && isHashJoin &&
+                                      hasDeterministicHash(nlOutputs.get(leftJoinKeys.get(0)).valueType()) &&
+                                      left instanceof QueriedDocTable && right instanceof QueriedDocTable &&
+                                      !leftResultDesc.nodeIds().isEmpty() && !rightResultDesc.nodeIds().isEmpty() &&
+                                      isLargeJoin(left, right);
             Collection<String> nlExecutionNodes = ImmutableSet.of(clusterService.localNode().getId());
 
             MergePhase leftMerge = null;
             MergePhase rightMerge = null;
-            if (isDistributed) {
+            if (isRepartitioned) {
+                /*
+                 * Both sides are re-distributed by the (first) join key, so that all rows with the same key end up on
+                 * the same node. Each node then joins its partition only.
+                 * The execution nodes need to have the same order for both sides so that the modulo buckets of the
+                 * left and right side are sent to the same node.
+                 */
+                nlExecutionNodes = executionNodesForRepartitionedJoin(
+                    leftResultDesc.nodeIds(), rightResultDesc.nodeIds());
+                leftPlan.setDistributionInfo(new DistributionInfo(DistributionType.MODULO, leftJoinKeys.get(0)));
+                rightPlan.setDistributionInfo(new DistributionInfo(DistributionType.MODULO, rightJoinKeys.get(0)));
+                leftMerge = new MergePhase(
+                    context.plannerContext().jobId(),
+                    context.plannerContext().nextExecutionPhaseId(),
+                    "hash-join-merge",
+                    leftResultDesc.nodeIds().size(),
+                    nlExecutionNodes,
+                    leftResultDesc.streamOutputs(),
+                    Collections.emptyList(),
+                    DistributionInfo.DEFAULT_SAME_NODE,
+                    PositionalOrderBy.of(left.querySpec().orderBy().orElse(null), left.querySpec().outputs())
+                );
+                rightMerge = new MergePhase(
+                    context.plannerContext().jobId(),
+                    context.plannerContext().nextExecutionPhaseId(),
+                    "hash-join-merge",
+                    rightResultDesc.nodeIds().size(),
+                    nlExecutionNodes,
+                    rightResultDesc.streamOutputs(),
+                    Collections.emptyList(),
+                    DistributionInfo.DEFAULT_SAME_NODE,
+                    PositionalOrderBy.of(right.querySpec().orderBy().orElse(null), right.querySpec().outputs())
+                );
+            } else if (isDistributed) {
                 leftPlan.setDistributionInfo(DistributionInfo.DEFAULT_SAME_NODE);
                 nlExecutionNodes = leftResultDesc.nodeIds();
             } else {
@@ -170,27 +239,29 @@ class NestedLoopConsumer implements Consumer {
                     );
                 }
             }
-            if (nlExecutionNodes.size() == 1
-                && nlExecutionNodes.equals(rightResultDesc.nodeIds())) {
-                // if the left and the right plan are executed on the same single node the mergePhase
-                // should be omitted. This is the case if the left and right table have only one shards which
-                // are on the same node
-                rightPlan.setDistributionInfo(DistributionInfo.DEFAULT_SAME_NODE);
-            } else {
-                if (isMergePhaseNeeded(nlExecutionNodes, rightResultDesc.nodeIds(), isDistributed)) {
-                    rightMerge = new MergePhase(
-                        context.plannerContext().jobId(),
-                        context.plannerContext().nextExecutionPhaseId(),
-                        "nl-merge",
-                        rightResultDesc.nodeIds().size(),
-                        nlExecutionNodes,
-                        rightResultDesc.streamOutputs(),
-                        Collections.emptyList(),
-                        DistributionInfo.DEFAULT_SAME_NODE,
-                        PositionalOrderBy.of(right.querySpec().orderBy().orElse(null), right.querySpec().outputs())
-                    );
+            if (isRepartitioned == false) {
+                if (nlExecutionNodes.size() == 1
+                    && nlExecutionNodes.equals(rightResultDesc.nodeIds())) {
+                    // if the left and the right plan are executed on the same single node the mergePhase
+                    // should be omitted. This is the case if the left and right table have only one shards which
+                    // are on the same node
+                    rightPlan.setDistributionInfo(DistributionInfo.DEFAULT_SAME_NODE);
+                } else {
+                    if (isMergePhaseNeeded(nlExecutionNodes, rightResultDesc.nodeIds(), isDistributed)) {
+                        rightMerge = new MergePhase(
+                            context.plannerContext().jobId(),
+                            context.plannerContext().nextExecutionPhaseId(),
+                            "nl-merge",
+                            rightResultDesc.nodeIds().size(),
+                            nlExecutionNodes,
+                            rightResultDesc.streamOutputs(),
+                            Collections.emptyList(),
+                            DistributionInfo.DEFAULT_SAME_NODE,
+                            PositionalOrderBy.of(right.querySpec().orderBy().orElse(null), right.querySpec().outputs())
+                        );
+                    }
+                    rightPlan.setDistributionInfo(DistributionInfo.DEFAULT_BROADCAST);
                 }
-                rightPlan.setDistributionInfo(DistributionInfo.DEFAULT_BROADCAST);
             }
 
 
@@ -208,14 +279,8 @@ class NestedLoopConsumer implements Consumer {
             if (filterNeeded) {
                 projections.add(ProjectionBuilder.filterProjection(nlOutputs, where));
             }
-            if (joinCondition != null) {
-                joinCondition = InputColumns.create(joinCondition, nlOutputs);
-                assert joinCondition instanceof Function : "Only function symbols are valid join conditions";
-                assert !SymbolVisitors.any(Symbols.IS_COLUMN, joinCondition)
-                    : "Processed joinCondition must not contain column symbols.\njoinCondition="
-                      + joinCondition + " nlOutputs=" + nlOutputs;
-            }
 
+            isDistributed = isDistributed || isRepartitioned;
             List<Symbol> postNLOutputs = Lists.newArrayList(querySpec.outputs());
             if (orderByBeforeSplit != null && isDistributed) {
                 for (Symbol symbol : orderByBeforeSplit.orderBySymbols()) {
@@ -243,7 +308,7 @@ class NestedLoopConsumer implements Consumer {
             NestedLoopPhase nl = new NestedLoopPhase(
                 context.plannerContext().jobId(),
                 context.plannerContext().nextExecutionPhaseId(),
-                isDistributed ? "distributed-nested-loop" : "nested-loop",
+                phaseName(isDistributed, isHashJoin),
                 projections,
                 leftMerge,
                 rightMerge,
@@ -251,7 +316,10 @@ class NestedLoopConsumer implements Consumer {
                 joinType,
                 joinCondition,
                 left.querySpec().outputs().size(),
-                right.querySpec().outputs().size()
+                right.querySpec().outputs().size(),
+                leftJoinKeys.toArray(),
+                rightJoinKeys.toArray(),
+                Symbols.extractTypes(nlOutputs.subList(numLeftFields, nlOutputs.size()))
             );
 
              // postNLOutputs includes orderBy only symbols, these need to be stripped in the handlerMerge
@@ -272,6 +340,81 @@ class NestedLoopConsumer implements Consumer {
             }
         }
 
+        /**
+         * A join is considered large if both sides contain at least
+         * {@link ConsumingPlanner#JOIN_REPARTITION_MIN_NUM_DOCS_SETTING} documents.
+         * In that case it is cheaper to re-distribute both sides by the join key than to funnel all rows
+         * into a single node or to broadcast one side to all nodes.
+         */
+        private boolean isLargeJoin(QueriedRelation left, QueriedRelation right) {
+            long leftNumDocs = tableStats.numDocs(((QueriedDocTable) left).tableRelation().tableInfo().ident());
+            long rightNumDocs = tableStats.numDocs(((QueriedDocTable) right).tableRelation().tableInfo().ident());
+            return leftNumDocs >= repartitionMinNumDocs && rightNumDocs >= repartitionMinNumDocs;
+        }
+
+        /**
+         * The modulo distribution hashes the values of the join key on every node. Only the hashes of primitive
+         * values are the same on all nodes; Arrays use their identity and objects contain {@link BytesRef}s
+         * which are hashed with a per-JVM seed, so equal keys would end up on different nodes.
+         */
+        private static boolean hasDeterministicHash(DataType type) {
+            return DataTypes.PRIMITIVE_TYPES.contains(type);
+        }
+
+        private static Collection<String> executionNodesForRepartitionedJoin(Collection<String> leftNodeIds,
+                                                                             Collection<String> rightNodeIds) {
+            TreeSet<String> nodeIds = new TreeSet<>(leftNodeIds);
+            nodeIds.addAll(rightNodeIds);
+            return ImmutableList.copyOf(nodeIds);
+        }
+
+        private static String phaseName(boolean isDistributed, boolean isHashJoin) {
+            String name = isHashJoin ? "hash-join" : "nested-loop";
+            return isDistributed ? "distributed-" + name : name;
+        }
+
+        /**
+         * Collects the positions of the columns which are compared using equality within the conjunctions
+         * of the join condition (e.g. {@code t1.a = t2.a AND t1.b = t2.b}).
+         *
+         * Only comparisons between a column of the left and a column of the right side with the same type are
+         * considered; Any other parts of the joinCondition are still evaluated by the join iterator.
+         *
+         * @param joinCondition the joinCondition, already converted to {@link InputColumn}s
+         * @param numLeftOutputs number of outputs of the left side, used to map the InputColumns to a side.
+         */
+        private static void extractEquiJoinKeys(Symbol joinCondition,
+                                                int numLeftOutputs,
+                                                IntArrayList leftJoinKeys,
+                                                IntArrayList rightJoinKeys) {
+            if (!(joinCondition instanceof Function)) {
+                return;
+            }
+            Function function = (Function) joinCondition;
+            String functionName = function.info().ident().name();
+            if (functionName.equals(AndOperator.NAME)) {
+                for (Symbol argument : function.arguments()) {
+                    extractEquiJoinKeys(argument, numLeftOutputs, leftJoinKeys, rightJoinKeys);
+                }
+            } else if (functionName.equals(EqOperator.NAME)) {
+                Symbol first = function.arguments().get(0);
+                Symbol second = function.arguments().get(1);
+                if (!(first instanceof InputColumn) || !(second instanceof InputColumn)
+                    || !first.valueType().equals(second.valueType())) {
+                    return;
+                }
+                int firstIdx = ((InputColumn) first).index();
+                int secondIdx = ((InputColumn) second).index();
+                if (firstIdx < numLeftOutputs && secondIdx >= numLeftOutputs) {
+                    leftJoinKeys.add(firstIdx);
+                    rightJoinKeys.add(secondIdx - numLeftOutputs);
+                } else if (secondIdx < numLeftOutputs && firstIdx >= numLeftOutputs) {
+                    leftJoinKeys.add(secondIdx);
+                    rightJoinKeys.add(firstIdx - numLeftOutputs);
+                }
+            }
+        }
+
         private boolean isLeftSmallerThanRight(QueriedRelation qrLeft, QueriedRelation qrRight) {
             if (qrLeft instanceof QueriedTableRelation && qrRight instanceof QueriedTableRelation) {
                 return isLeftSmallerThanRight(
@@ -39,11 +39,19 @@ import java.util.UUID;
 
 public class FileUriCollectPhase extends AbstractProjectionsPhase implements CollectPhase {
 
+    public enum InputFormat {
+        JSON,
+        CSV
+    }
+
     private final Collection<String> executionNodes;
     private final Symbol targetUri;
     private final List<Symbol> toCollect;
     private final String compression;
     private final Boolean sharedStorage;
+    private final InputFormat inputFormat;
+    private final char csvDelimiter;
+    private final char csvQuote;
     private DistributionInfo distributionInfo = DistributionInfo.DEFAULT_BROADCAST;
 
     public FileUriCollectPhase(UUID jobId,
@@ -55,12 +63,31 @@ public class FileUriCollectPhase extends AbstractProjectionsPhase implements Col
                                List<Projection> projections,
                                String compression,
                                Boolean sharedStorage) {
+        this(jobId, phaseId, name, executionNodes, targetUri, toCollect, projections, compression, sharedStorage,
+            InputFormat.JSON, ',', '"');
+    }
+
+    public FileUriCollectPhase(UUID jobId,
+                               int phaseId,
+                               String name,
+                               Collection<String> executionNodes,
+                               Symbol targetUri,
+                               List<Symbol> toCollect,
+                               List<Projection> projections,
+                               String compression,
+                               Boolean sharedStorage,
+                               InputFormat inputFormat,
+                               char csvDelimiter,
+                               char csvQuote) {
         super(jobId, phaseId, name, projections);
         this.executionNodes = executionNodes;
         this.targetUri = targetUri;
         this.toCollect = toCollect;
         this.compression = compression;
         this.sharedStorage = sharedStorage;
+        this.inputFormat = inputFormat;
+        this.csvDelimiter = csvDelimiter;
+        this.csvQuote = csvQuote;
         outputTypes = extractOutputTypes(toCollect, projections);
     }
 
@@ -92,10 +119,25 @@ public class FileUriCollectPhase extends AbstractProjectionsPhase implements Col
         return compression;
     }
 
+    public InputFormat inputFormat() {
+        return inputFormat;
+    }
+
+    public char csvDelimiter() {
+        return csvDelimiter;
+    }
+
+    public char csvQuote() {
+        return csvQuote;
+    }
+
     public FileUriCollectPhase(StreamInput in) throws IOException {
         super(in);
         compression = in.readOptionalString();
         sharedStorage = in.readOptionalBoolean();
+        inputFormat = InputFormat.values()[in.readVInt()];
+        csvDelimiter = (char) in.readVInt();
+        csvQuote = (char) in.readVInt();
         targetUri = Symbols.fromStream(in);
 
         int numNodes = in.readVInt();
@@ -112,6 +154,9 @@ public class FileUriCollectPhase extends AbstractProjectionsPhase implements Col
         super.writeTo(out);
         out.writeOptionalString(compression);
         out.writeOptionalBoolean(sharedStorage);
+        out.writeVInt(inputFormat.ordinal());
+        out.writeVInt(csvDelimiter);
+        out.writeVInt(csvQuote);
         Symbols.toStream(targetUri, out);
         out.writeVInt(executionNodes.size());
         for (String node : executionNodes) {
@@ -129,6 +174,7 @@ public class FileUriCollectPhase extends AbstractProjectionsPhase implements Col
             .add("outputTypes", outputTypes)
             .add("compression", compression)
             .add("sharedStorageDefault", sharedStorage)
+            .add("inputFormat", inputFormat)
             .toString();
     }
 
@@ -32,12 +32,17 @@ import io.crate.planner.node.ExecutionPhaseVisitor;
 import io.crate.planner.node.dql.AbstractProjectionsPhase;
 import io.crate.planner.node.dql.MergePhase;
 import io.crate.planner.projection.Projection;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.UUID;
@@ -54,6 +59,14 @@ public class NestedLoopPhase extends AbstractProjectionsPhase implements Upstrea
     private final int numLeftOutputs;
     private final int numRightOutputs;
 
+    /**
+     * Positions of the equi-join keys within the left/right outputs.
+     * If present the join is executed as hash join instead of a nested loop.
+     */
+    private final int[] leftJoinKeys;
+    private final int[] rightJoinKeys;
+    private final List<DataType> rightOutputTypes;
+
     private DistributionInfo distributionInfo = DistributionInfo.DEFAULT_BROADCAST;
 
     public NestedLoopPhase(UUID jobId,
@@ -67,7 +80,32 @@ public class NestedLoopPhase extends AbstractProjectionsPhase implements Upstrea
                            @Nullable Symbol joinCondition,
                            int numLeftOutputs,
                            int numRightOutputs) {
+        this(jobId, executionNodeId, name, projections, leftMergePhase, rightMergePhase, executionNodes, joinType,
+            joinCondition, numLeftOutputs, numRightOutputs, new int[0], new int[0], Collections.emptyList());
+    }
+
+    /**
+     * @param leftJoinKeys positions of the equi-join keys within the outputs of the left side.
+     *                     If not empty the join will be executed as hash join.
+     * @param rightJoinKeys positions of the equi-join keys within the outputs of the right side.
+     * @param rightOutputTypes types of the outputs of the right side, used to account the memory of the hash table.
+     */
+    public NestedLoopPhase(UUID jobId,
+                           int executionNodeId,
+                           String name,
+                           List<Projection> projections,
+                           @Nullable MergePhase leftMergePhase,
+                           @Nullable MergePhase rightMergePhase,
+                           Collection<String> executionNodes,
+                           JoinType joinType,
+                           @Nullable Symbol joinCondition,
+                           int numLeftOutputs,
+                           int numRightOutputs,
+                           int[] leftJoinKeys,
+                           int[] rightJoinKeys,
+                           List<DataType> rightOutputTypes) {
         super(jobId, executionNodeId, name, projections);
+        assert leftJoinKeys.length == rightJoinKeys.length : "leftJoinKeys and rightJoinKeys must have the same size";
         Projection lastProjection = Iterables.getLast(projections, null);
         assert lastProjection != null : "lastProjection must not be null";
         outputTypes = Symbols.extractTypes(lastProjection.outputs());
@@ -78,6 +116,9 @@ public class NestedLoopPhase extends AbstractProjectionsPhase implements Upstrea
         this.joinCondition = joinCondition;
         this.numLeftOutputs = numLeftOutputs;
         this.numRightOutputs = numRightOutputs;
+        this.leftJoinKeys = leftJoinKeys;
+        this.rightJoinKeys = rightJoinKeys;
+        this.rightOutputTypes = rightOutputTypes;
     }
 
     @Override
@@ -121,6 +162,22 @@ public class NestedLoopPhase extends AbstractProjectionsPhase implements Upstrea
         return numRightOutputs;
     }
 
+    public boolean isHashJoin() {
+        return leftJoinKeys.length > 0;
+    }
+
+    public int[] leftJoinKeys() {
+        return leftJoinKeys;
+    }
+
+    public int[] rightJoinKeys() {
+        return rightJoinKeys;
+    }
+
+    public List<DataType> rightOutputTypes() {
+        return rightOutputTypes;
+    }
+
     @Override
     public <C, R> R accept(ExecutionPhaseVisitor<C, R> visitor, C context) {
         return visitor.visitNestedLoopPhase(this, context);
@@ -151,6 +208,19 @@ public class NestedLoopPhase extends AbstractProjectionsPhase implements Upstrea
         joinType = JoinType.values()[in.readVInt()];
         numLeftOutputs = in.readVInt();
         numRightOutputs = in.readVInt();
+
+        int numJoinKeys = in.readVInt();
+        leftJoinKeys = new int[numJoinKeys];
+        rightJoinKeys = new int[numJoinKeys];
+        for (int i = 0; i < numJoinKeys; i++) {
+            leftJoinKeys[i] = in.readVInt();
+            rightJoinKeys[i] = in.readVInt();
+        }
+        int numRightOutputTypes = in.readVInt();
+        rightOutputTypes = new ArrayList<>(numRightOutputTypes);
+        for (int i = 0; i < numRightOutputTypes; i++) {
+            rightOutputTypes.add(DataTypes.fromStream(in));
+        }
     }
 
     @Override
@@ -181,6 +251,16 @@ public class NestedLoopPhase extends AbstractProjectionsPhase implements Upstrea
         out.writeVInt(joinType.ordinal());
         out.writeVInt(numLeftOutputs);
         out.writeVInt(numRightOutputs);
+
+        out.writeVInt(leftJoinKeys.length);
+        for (int i = 0; i < leftJoinKeys.length; i++) {
+            out.writeVInt(leftJoinKeys[i]);
+            out.writeVInt(rightJoinKeys[i]);
+        }
+        out.writeVInt(rightOutputTypes.size());
+        for (DataType rightOutputType : rightOutputTypes) {
+            DataTypes.toStream(rightOutputType, out);
+        }
     }
 
     @Override
@@ -190,6 +270,8 @@ public class NestedLoopPhase extends AbstractProjectionsPhase implements Upstrea
             .add("name", name())
             .add("joinType", joinType)
             .add("joinCondition", joinCondition)
+            .add("leftJoinKeys", Arrays.toString(leftJoinKeys))
+            .add("rightJoinKeys", Arrays.toString(rightJoinKeys))
             .add("outputTypes", outputTypes)
             .add("jobId", jobId())
             .add("executionNodes", executionNodes);
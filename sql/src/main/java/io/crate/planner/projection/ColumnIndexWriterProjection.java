@@ -69,15 +69,14 @@ public class ColumnIndexWriterProjection extends AbstractIndexWriterProjection {
         this.idSymbols = primaryKeySymbols;
         this.partitionedBySymbols = partitionedBySymbols;
         this.onDuplicateKeyAssignments = onDuplicateKeyAssignments;
-        this.columnReferences = new ArrayList<>(columns);
-        this.columnSymbols = new ArrayList<>(columns.size() - partitionedBySymbols.size());
+        this.columnReferences = new ArrayList<>(columns.size());
+        this.columnSymbols = new ArrayList<>(columns.size());
         this.clusteredBySymbol = clusteredBySymbol;
 
         for (int i = 0; i < columns.size(); i++) {
             Reference ref = columns.get(i);
-            if (partitionedByColumns.contains(ref.ident().columnIdent())) {
-                columnReferences.remove(i);
-            } else {
+            if (!partitionedByColumns.contains(ref.ident().columnIdent())) {
+                this.columnReferences.add(ref);
                 this.columnSymbols.add(new InputColumn(i, ref.valueType()));
             }
         }
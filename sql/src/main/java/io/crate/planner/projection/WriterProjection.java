@@ -57,9 +57,21 @@ public class WriterProjection extends Projection {
         Arrays.<Symbol>asList(Literal.of("%s_%s_%s.json"), TABLE_NAME_REF, SHARD_ID_REF, PARTITION_IDENT_REF)
     );
 
+    /**
+     * Value of {@link #maxFileSize()} if the size of the files isn't limited
+     */
+    public static final long NO_MAX_FILE_SIZE = -1L;
+
     private Symbol uri;
     private List<Symbol> inputs;
 
+    /**
+     * evaluates to the value by which the rows are partitioned into different files, null to write a single file
+     */
+    @Nullable
+    private Symbol partitionBy;
+    private long maxFileSize = NO_MAX_FILE_SIZE;
+
     @Nullable
     private List<String> outputNames;
 
@@ -98,6 +110,19 @@ public class WriterProjection extends Projection {
         this.compressionType = compressionType;
     }
 
+    public WriterProjection(List<Symbol> inputs,
+                            Symbol uri,
+                            @Nullable CompressionType compressionType,
+                            Map<ColumnIdent, Symbol> overwrites,
+                            @Nullable List<String> outputNames,
+                            OutputFormat outputFormat,
+                            @Nullable Symbol partitionBy,
+                            long maxFileSize) {
+        this(inputs, uri, compressionType, overwrites, outputNames, outputFormat);
+        this.partitionBy = partitionBy;
+        this.maxFileSize = maxFileSize;
+    }
+
     public WriterProjection(StreamInput in) throws IOException {
         uri = Symbols.fromStream(in);
         int size = in.readVInt();
@@ -116,6 +141,10 @@ public class WriterProjection extends Projection {
         int compressionTypeOrdinal = in.readInt();
         compressionType = compressionTypeOrdinal >= 0 ? CompressionType.values()[compressionTypeOrdinal] : null;
         outputFormat = OutputFormat.values()[in.readInt()];
+        if (in.readBoolean()) {
+            partitionBy = Symbols.fromStream(in);
+        }
+        maxFileSize = in.readLong();
     }
 
     @Override
@@ -139,6 +168,9 @@ public class WriterProjection extends Projection {
     @Override
     public void replaceSymbols(java.util.function.Function<Symbol, Symbol> replaceFunction) {
         Lists2.replaceItems(inputs, replaceFunction);
+        if (partitionBy != null) {
+            partitionBy = replaceFunction.apply(partitionBy);
+        }
         for (Map.Entry<ColumnIdent, Symbol> entry : overwrites.entrySet()) {
             entry.setValue(replaceFunction.apply(entry.getValue()));
         }
@@ -165,6 +197,18 @@ public class WriterProjection extends Projection {
         return compressionType;
     }
 
+    @Nullable
+    public Symbol partitionBy() {
+        return partitionBy;
+    }
+
+    /**
+     * @return the max number of uncompressed bytes written to a single file or {@link #NO_MAX_FILE_SIZE}
+     */
+    public long maxFileSize() {
+        return maxFileSize;
+    }
+
     @Override
     public <C, R> R accept(ProjectionVisitor<C, R> visitor, C context) {
         return visitor.visitWriterProjection(this, context);
@@ -191,6 +235,13 @@ public class WriterProjection extends Projection {
         }
         out.writeInt(compressionType != null ? compressionType.ordinal() : -1);
         out.writeInt(outputFormat.ordinal());
+        if (partitionBy == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            Symbols.toStream(partitionBy, out);
+        }
+        out.writeLong(maxFileSize);
     }
 
     @Override
@@ -207,6 +258,8 @@ public class WriterProjection extends Projection {
         if (compressionType != null ? !compressionType.equals(that.compressionType) : that.compressionType != null)
             return false;
         if (!outputFormat.equals(that.outputFormat)) return false;
+        if (partitionBy != null ? !partitionBy.equals(that.partitionBy) : that.partitionBy != null) return false;
+        if (maxFileSize != that.maxFileSize) return false;
 
         return true;
     }
@@ -219,6 +272,8 @@ public class WriterProjection extends Projection {
         result = 31 * result + overwrites.hashCode();
         result = 31 * result + (compressionType != null ? compressionType.hashCode() : 0);
         result = 31 * result + outputFormat.hashCode();
+        result = 31 * result + (partitionBy != null ? partitionBy.hashCode() : 0);
+        result = 31 * result + Long.hashCode(maxFileSize);
         return result;
     }
 
@@ -229,6 +284,8 @@ public class WriterProjection extends Projection {
                ", outputNames=" + outputNames +
                ", compressionType=" + compressionType +
                ", outputFormat=" + outputFormat +
+               ", partitionBy=" + partitionBy +
+               ", maxFileSize=" + maxFileSize +
                '}';
     }
 
@@ -241,7 +298,9 @@ public class WriterProjection extends Projection {
                 compressionType,
                 overwrites,
                 outputNames,
-                outputFormat
+                outputFormat,
+                partitionBy,
+                maxFileSize
             );
         }
         return this;
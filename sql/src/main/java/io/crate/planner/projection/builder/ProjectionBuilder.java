@@ -193,4 +193,24 @@ public class ProjectionBuilder {
         return new WriterProjection(
             InputColumn.fromSymbols(inputs), uri, compressionType, overwrites, outputNames, outputFormat);
     }
+
+    /**
+     * @param partitionBy the symbol whose value determines the file a row is written to.
+     *                    It must be the last output of the source, following the {@code inputs}.
+     */
+    public static WriterProjection writerProjection(Collection<? extends Symbol> inputs,
+                                                    Symbol uri,
+                                                    @Nullable WriterProjection.CompressionType compressionType,
+                                                    Map<ColumnIdent, Symbol> overwrites,
+                                                    @Nullable List<String> outputNames,
+                                                    WriterProjection.OutputFormat outputFormat,
+                                                    @Nullable Symbol partitionBy,
+                                                    long maxFileSize) {
+        Symbol partitionByInput = null;
+        if (partitionBy != null) {
+            partitionByInput = new InputColumn(inputs.size(), partitionBy.valueType());
+        }
+        return new WriterProjection(InputColumn.fromSymbols(inputs), uri, compressionType, overwrites, outputNames,
+            outputFormat, partitionByInput, maxFileSize);
+    }
 }
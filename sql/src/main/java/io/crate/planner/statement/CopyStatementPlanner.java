@@ -27,6 +27,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import io.crate.analyze.CopyFromAnalyzedStatement;
 import io.crate.analyze.CopyToAnalyzedStatement;
+import io.crate.analyze.symbol.Literal;
 import io.crate.analyze.symbol.Symbol;
 import io.crate.metadata.ColumnIdent;
 import io.crate.metadata.GeneratedReference;
@@ -42,6 +43,7 @@ import io.crate.planner.consumer.ConsumerContext;
 import io.crate.planner.consumer.FetchMode;
 import io.crate.planner.node.dql.Collect;
 import io.crate.planner.node.dql.FileUriCollectPhase;
+import io.crate.planner.projection.ColumnIndexWriterProjection;
 import io.crate.planner.projection.MergeCountProjection;
 import io.crate.planner.projection.Projection;
 import io.crate.planner.projection.SourceIndexWriterProjection;
@@ -55,8 +57,10 @@ import org.elasticsearch.cluster.service.ClusterService;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Predicate;
 
@@ -81,6 +85,9 @@ public class CopyStatementPlanner {
          *    -> insert into es index (partition determined by partition by value)
          */
 
+        if (analysis.inputFormat() == FileUriCollectPhase.InputFormat.CSV) {
+            return planCopyFromCsv(analysis, context);
+        }
         DocTableInfo table = analysis.table();
         int clusteredByPrimaryKeyIdx = table.primaryKey().indexOf(analysis.table().clusteredBy());
         List<String> partitionedByNames;
@@ -186,6 +193,68 @@ public class CopyStatementPlanner {
         return Merge.ensureOnHandler(collect, context, Collections.singletonList(MergeCountProjection.INSTANCE));
     }
 
+    /**
+     * CSV records are parsed into typed column values which are written using the column based index writer,
+     * no _raw source or _doc map is built in between.
+     */
+    private Plan planCopyFromCsv(CopyFromAnalyzedStatement analysis, Planner.Context context) {
+        DocTableInfo table = analysis.table();
+        List<Reference> targetColumns = analysis.targetColumns();
+
+        Map<ColumnIdent, Object> partitionValues = Collections.emptyMap();
+        if (analysis.partitionIdent() != null) {
+            partitionValues = new HashMap<>(table.partitionedBy().size());
+            List<BytesRef> values = PartitionName.decodeIdent(analysis.partitionIdent());
+            for (int i = 0; i < table.partitionedBy().size(); i++) {
+                partitionValues.put(table.partitionedBy().get(i), values.get(i));
+            }
+        }
+        List<Symbol> toCollect = new ArrayList<>(targetColumns.size());
+        for (Reference reference : targetColumns) {
+            ColumnIdent column = reference.ident().columnIdent();
+            if (partitionValues.containsKey(column)) {
+                // values of the given partition must not be read from the file
+                toCollect.add(Literal.of(reference.valueType(), reference.valueType().value(partitionValues.get(column))));
+            } else {
+                toCollect.add(reference);
+            }
+        }
+
+        ColumnIndexWriterProjection indexWriterProjection = new ColumnIndexWriterProjection(
+            table.ident(),
+            analysis.partitionIdent(),
+            table.primaryKey(),
+            targetColumns,
+            null,
+            analysis.primaryKeySymbols(),
+            table.partitionedBy(),
+            analysis.partitionedBySymbols(),
+            table.clusteredBy(),
+            analysis.clusteredBySymbol(),
+            analysis.settings(),
+            table.isPartitioned() // autoCreateIndices
+        );
+
+        DiscoveryNodes allNodes = clusterService.state().nodes();
+        FileUriCollectPhase collectPhase = new FileUriCollectPhase(
+            context.jobId(),
+            context.nextExecutionPhaseId(),
+            "copyFrom",
+            getExecutionNodes(allNodes, analysis.settings().getAsInt("num_readers", allNodes.getSize()), analysis.nodePredicate()),
+            analysis.uri(),
+            toCollect,
+            Collections.singletonList(indexWriterProjection),
+            analysis.settings().get("compression", null),
+            analysis.settings().getAsBoolean("shared", null),
+            FileUriCollectPhase.InputFormat.CSV,
+            analysis.csvDelimiter(),
+            analysis.csvQuote()
+        );
+
+        Collect collect = new Collect(collectPhase, TopN.NO_LIMIT, 0, 1, 1, null);
+        return Merge.ensureOnHandler(collect, context, Collections.singletonList(MergeCountProjection.INSTANCE));
+    }
+
     public Plan planCopyTo(CopyToAnalyzedStatement statement, Planner.Context context) {
         WriterProjection.OutputFormat outputFormat = statement.outputFormat();
         if (outputFormat == null) {
@@ -193,13 +262,20 @@ public class CopyStatementPlanner {
                 WriterProjection.OutputFormat.JSON_ARRAY : WriterProjection.OutputFormat.JSON_OBJECT;
         }
 
+        List<Symbol> outputs = statement.subQueryRelation().querySpec().outputs();
+        if (statement.partitionBy() != null) {
+            // the partition value is the last output but isn't written
+            outputs = outputs.subList(0, outputs.size() - 1);
+        }
         WriterProjection projection = ProjectionBuilder.writerProjection(
-            statement.subQueryRelation().querySpec().outputs(),
+            outputs,
             statement.uri(),
             statement.compressionType(),
             statement.overwrites(),
             statement.outputNames(),
-            outputFormat);
+            outputFormat,
+            statement.partitionBy(),
+            statement.maxFileSize());
 
         ConsumerContext consumerContext = new ConsumerContext(context);
         consumerContext.setFetchMode(FetchMode.NEVER);
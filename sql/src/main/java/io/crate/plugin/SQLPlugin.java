@@ -44,15 +44,20 @@ import io.crate.monitor.MonitorModule;
 import io.crate.operation.aggregation.impl.AggregationImplModule;
 import io.crate.operation.auth.AuthenticationProvider;
 import io.crate.operation.collect.CollectOperationModule;
+import io.crate.operation.collect.LuceneShardCollectorProvider;
 import io.crate.operation.collect.files.FileCollectModule;
 import io.crate.operation.operator.OperatorModule;
 import io.crate.operation.predicate.PredicateModule;
+import io.crate.operation.projectors.DistributingDownstreamFactory;
+import io.crate.operation.projectors.GroupingProjector;
+import io.crate.operation.projectors.ProjectionToProjectorVisitor;
 import io.crate.operation.reference.sys.check.SysChecksModule;
 import io.crate.operation.reference.sys.check.node.SysNodeChecksModule;
 import io.crate.operation.reference.sys.cluster.SysClusterExpressionModule;
 import io.crate.operation.reference.sys.node.local.SysNodeExpressionModule;
 import io.crate.operation.scalar.ScalarFunctionModule;
 import io.crate.operation.tablefunctions.TableFunctionModule;
+import io.crate.planner.consumer.ConsumingPlanner;
 import io.crate.protocols.postgres.PostgresNetty;
 import io.crate.rest.action.RestSQLAction;
 import io.crate.settings.CrateSetting;
@@ -64,6 +69,7 @@ import org.elasticsearch.common.inject.Module;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.env.Environment;
 import org.elasticsearch.index.mapper.ArrayMapper;
 import org.elasticsearch.index.mapper.ArrayTypeParser;
 import org.elasticsearch.index.mapper.Mapper;
@@ -94,6 +100,12 @@ public class SQLPlugin extends Plugin implements ActionPlugin, MapperPlugin, Clu
         // partitions explicitly
         settingsBuilder.put("action.auto_create_index", false);
 
+        if (Environment.PATH_HOME_SETTING.exists(settings)
+            && !ProjectionToProjectorVisitor.SPILL_PATH_SETTING.exists(settings)) {
+            settingsBuilder.put(ProjectionToProjectorVisitor.SPILL_PATH_SETTING.getKey(),
+                ProjectionToProjectorVisitor.defaultSpillDirectory(new Environment(settings)).toString());
+        }
+
         return settingsBuilder.build();
     }
 
@@ -102,7 +114,14 @@ public class SQLPlugin extends Plugin implements ActionPlugin, MapperPlugin, Clu
         List<Setting<?>> settings = new ArrayList<>();
         settings.add(AnalyzerSettings.CUSTOM_ANALYSIS_SETTING_GROUP);
         settings.add(SQLOperations.NODE_READ_ONLY_SETTING);
+        settings.add(SQLOperations.STATEMENT_CACHE_SIZE_SETTING);
         settings.add(MonitorModule.NODE_INFO_EXTENDED_TYPE_SETTING);
+        settings.add(GroupingProjector.SPILL_THRESHOLD_SETTING);
+        settings.add(ProjectionToProjectorVisitor.SORT_SPILL_THRESHOLD_SETTING);
+        settings.add(ProjectionToProjectorVisitor.SPILL_PATH_SETTING);
+        settings.add(ConsumingPlanner.JOIN_REPARTITION_MIN_NUM_DOCS_SETTING);
+        settings.add(LuceneShardCollectorProvider.SEGMENT_SLICES_SETTING);
+        settings.add(DistributingDownstreamFactory.ENCODE_PAGES_SETTING);
 
         // Postgres settings are node settings
         settings.add(PostgresNetty.PSQL_ENABLED_SETTING.setting());
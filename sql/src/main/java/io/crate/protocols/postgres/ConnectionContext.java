@@ -396,6 +396,7 @@ class ConnectionContext {
         Messages.sendParameterStatus(channel, "server_encoding", "UTF8");
         Messages.sendParameterStatus(channel, "client_encoding", "UTF8");
         Messages.sendParameterStatus(channel, "datestyle", "ISO");
+        Messages.sendParameterStatus(channel, "integer_datetimes", "on");
         Messages.sendReadyForQuery(channel);
     }
 
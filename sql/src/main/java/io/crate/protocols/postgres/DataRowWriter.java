@@ -0,0 +1,84 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.protocols.postgres;
+
+import io.crate.data.Row;
+import io.crate.protocols.postgres.types.PGType;
+import io.crate.protocols.postgres.types.PGTypes;
+import io.crate.types.DataType;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * Writes the DataRow messages of a result set.
+ *
+ * The {@link PGType}s and format codes of the columns are resolved once and many rows are encoded into the same buffer.
+ * The buffer is written to the channel once it exceeds {@link #FLUSH_THRESHOLD_BYTES} or if {@link #flush()} is called,
+ * which must happen before any other message is sent to the channel.
+ */
+class DataRowWriter {
+
+    static final int FLUSH_THRESHOLD_BYTES = 32 * 1024;
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    private final Channel channel;
+    private final PGType[] pgTypes;
+    private final FormatCodes.FormatCode[] formatCodes;
+
+    private ChannelBuffer buffer;
+    private int nextBufferSize = INITIAL_BUFFER_SIZE;
+
+    DataRowWriter(Channel channel,
+                  List<? extends DataType> columnTypes,
+                  @Nullable FormatCodes.FormatCode[] formatCodes) {
+        this.channel = channel;
+        this.pgTypes = PGTypes.get(columnTypes);
+        this.formatCodes = FormatCodes.forColumns(formatCodes, columnTypes.size());
+    }
+
+    void write(Row row) {
+        if (buffer == null) {
+            buffer = ChannelBuffers.dynamicBuffer(nextBufferSize);
+        }
+        Messages.writeDataRow(buffer, row, pgTypes, formatCodes);
+        if (buffer.readableBytes() >= FLUSH_THRESHOLD_BYTES) {
+            // rows of a result set usually have a similar size, so size the next buffer to fit the same number of rows
+            nextBufferSize = buffer.readableBytes();
+            flush();
+        }
+    }
+
+    /**
+     * Write all buffered rows to the channel
+     */
+    void flush() {
+        if (buffer != null) {
+            channel.write(buffer);
+            buffer = null;
+        }
+    }
+}
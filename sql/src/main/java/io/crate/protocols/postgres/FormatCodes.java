@@ -72,4 +72,15 @@ public class FormatCodes {
         }
         return formatCodes.length == 1 ? formatCodes[0] : formatCodes[idx];
     }
+
+    /**
+     * Resolve the format code of each column.
+     */
+    static FormatCode[] forColumns(@Nullable FormatCode[] formatCodes, int numColumns) {
+        FormatCode[] columnFormatCodes = new FormatCode[numColumns];
+        for (int i = 0; i < numColumns; i++) {
+            columnFormatCodes[i] = getFormatCode(formatCodes, i);
+        }
+        return columnFormatCodes;
+    }
 }
@@ -38,6 +38,7 @@ import org.jboss.netty.channel.ChannelFutureListener;
 
 import javax.annotation.Nullable;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
@@ -301,40 +302,61 @@ public class Messages {
      * The value of the column, in the format indicated by the associated format code. n is the above length.
      */
     static void sendDataRow(Channel channel, Row row, List<? extends DataType> columnTypes, @Nullable FormatCodes.FormatCode[] formatCodes) {
-        int length = 4 + 2;
         assert columnTypes.size() == row.numColumns()
             : "Number of columns in the row must match number of columnTypes. Row: " + row + " types: " + columnTypes;
 
         ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+        writeDataRow(buffer, row, PGTypes.get(columnTypes), FormatCodes.forColumns(formatCodes, columnTypes.size()));
+        channel.write(buffer);
+    }
+
+    /**
+     * Like {@link #sendDataRow(Channel, Row, List, FormatCodes.FormatCode[])} but writes the DataRow message
+     * into {@code buffer} instead of sending it.
+     * If a value can't be encoded nothing of the message remains in the buffer.
+     *
+     * @param pgTypes the PGType of each column
+     * @param formatCodes the format code of each column
+     */
+    static void writeDataRow(ChannelBuffer buffer, Row row, PGType[] pgTypes, FormatCodes.FormatCode[] formatCodes) {
+        assert pgTypes.length == row.numColumns()
+            : "Number of columns in the row must match number of pgTypes. Row: " + row + " types: " + Arrays.toString(pgTypes);
+
+        int length = 4 + 2;
+        int startIdx = buffer.writerIndex();
         buffer.writeByte('D');
         buffer.writeInt(0); // will be set at the end
         buffer.writeShort(row.numColumns());
 
-        for (int i = 0; i < row.numColumns(); i++) {
-            DataType dataType = columnTypes.get(i);
-            PGType pgType = PGTypes.get(dataType);
-            Object value = row.get(i);
-            if (value == null) {
-                buffer.writeInt(-1);
-                length += 4;
-            } else {
-                FormatCodes.FormatCode formatCode = FormatCodes.getFormatCode(formatCodes, i);
-                switch (formatCode) {
-                    case TEXT:
-                        length += pgType.writeAsText(buffer, value);
-                        break;
-                    case BINARY:
-                        length += pgType.writeAsBinary(buffer, value);
-                        break;
-
-                    default:
-                        throw new AssertionError("Unrecognized formatCode: " + formatCode);
+        try {
+            for (int i = 0; i < pgTypes.length; i++) {
+                Object value = row.get(i);
+                if (value == null) {
+                    buffer.writeInt(-1);
+                    length += 4;
+                } else {
+                    PGType pgType = pgTypes[i];
+                    FormatCodes.FormatCode formatCode = formatCodes[i];
+                    switch (formatCode) {
+                        case TEXT:
+                            length += pgType.writeAsText(buffer, value);
+                            break;
+                        case BINARY:
+                            length += pgType.writeAsBinary(buffer, value);
+                            break;
+
+                        default:
+                            throw new AssertionError("Unrecognized formatCode: " + formatCode);
+                    }
                 }
             }
+        } catch (Throwable t) {
+            // a partially written message would corrupt the protocol stream
+            buffer.writerIndex(startIdx);
+            throw t;
         }
 
-        buffer.setInt(1, length);
-        channel.write(buffer);
+        buffer.setInt(startIdx + 1, length);
     }
 
     static void writeCString(ChannelBuffer buffer, byte[] valBytes) {
@@ -36,10 +36,7 @@ class ResultSetReceiver extends BaseResultReceiver {
 
     private final String query;
     private final Channel channel;
-    private final List<? extends DataType> columnTypes;
-
-    @Nullable
-    private final FormatCodes.FormatCode[] formatCodes;
+    private final DataRowWriter dataRowWriter;
 
     private long rowCount = 0;
 
@@ -49,24 +46,25 @@ class ResultSetReceiver extends BaseResultReceiver {
                       @Nullable FormatCodes.FormatCode[] formatCodes) {
         this.query = query;
         this.channel = channel;
-        this.columnTypes = columnTypes;
-        this.formatCodes = formatCodes;
+        this.dataRowWriter = new DataRowWriter(channel, columnTypes, formatCodes);
     }
 
     @Override
     public void setNextRow(Row row) {
         rowCount++;
-        Messages.sendDataRow(channel, row, columnTypes, formatCodes);
+        dataRowWriter.write(row);
     }
 
     @Override
     public void batchFinished() {
+        dataRowWriter.flush();
         Messages.sendPortalSuspended(channel);
         Messages.sendReadyForQuery(channel);
     }
 
     @Override
     public void allFinished(boolean interrupted) {
+        dataRowWriter.flush();
         if (!interrupted) {
             Messages.sendCommandComplete(channel, query, rowCount);
         }
@@ -75,6 +73,7 @@ class ResultSetReceiver extends BaseResultReceiver {
 
     @Override
     public void fail(@Nonnull Throwable throwable) {
+        dataRowWriter.flush();
         Messages.sendErrorResponse(channel, SQLExceptions.createSQLActionException(throwable));
         super.fail(throwable);
     }
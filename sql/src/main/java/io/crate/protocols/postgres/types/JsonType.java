@@ -28,9 +28,13 @@ import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.json.JsonXContent;
 import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBufferInputStream;
+import org.jboss.netty.buffer.ChannelBufferOutputStream;
 
 import javax.annotation.Nonnull;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Map;
 
 class JsonType extends PGType {
@@ -45,28 +49,32 @@ class JsonType extends PGType {
         super(OID, TYPE_LEN, TYPE_MOD, "json");
     }
 
+    /**
+     * The JSON is generated directly into the buffer, without creating an intermediate byte array.
+     */
     @Override
     public int writeAsBinary(ChannelBuffer buffer, @Nonnull Object value) {
-        byte[] bytes = encodeAsUTF8Text(value);
-        buffer.writeInt(bytes.length);
-        buffer.writeBytes(bytes);
-        return INT32_BYTE_SIZE + bytes.length;
+        int lenIndex = buffer.writerIndex();
+        buffer.writeInt(0);
+        try {
+            writeJson(new ChannelBufferOutputStream(buffer), value).close();
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+        int length = buffer.writerIndex() - lenIndex - INT32_BYTE_SIZE;
+        buffer.setInt(lenIndex, length);
+        return INT32_BYTE_SIZE + length;
+    }
+
+    @Override
+    public int writeAsText(ChannelBuffer buffer, @Nonnull Object value) {
+        return writeAsBinary(buffer, value);
     }
 
     @Override
     protected byte[] encodeAsUTF8Text(@Nonnull Object value) {
         try {
-            XContentBuilder builder = JsonXContent.contentBuilder();
-            if (value.getClass().isArray()) {
-                Object[] values = ((Object[]) value);
-                builder.startArray();
-                for (Object o : values) {
-                    builder.value(o);
-                }
-                builder.endArray();
-            } else {
-                builder.map((Map) value);
-            }
+            XContentBuilder builder = writeJson(null, value);
             builder.close();
             return BytesReference.toBytes(builder.bytes());
         } catch (IOException e) {
@@ -74,11 +82,49 @@ class JsonType extends PGType {
         }
     }
 
+    /**
+     * @param out the stream to write to, if null the JSON is written into the builders own buffer
+     */
+    private static XContentBuilder writeJson(OutputStream out, @Nonnull Object value) throws IOException {
+        XContentBuilder builder = out == null ? JsonXContent.contentBuilder() : new XContentBuilder(JsonXContent.jsonXContent, out);
+        if (value.getClass().isArray()) {
+            Object[] values = ((Object[]) value);
+            builder.startArray();
+            for (Object o : values) {
+                builder.value(o);
+            }
+            builder.endArray();
+        } else {
+            builder.map((Map) value);
+        }
+        return builder;
+    }
+
+    /**
+     * The JSON is parsed directly from the buffer, without copying it into a byte array.
+     */
     @Override
     public Object readBinaryValue(ChannelBuffer buffer, int valueLength) {
-        byte[] bytes = new byte[valueLength];
-        buffer.readBytes(bytes);
-        return decodeUTF8Text(bytes);
+        int startIdx = buffer.readerIndex();
+        boolean isArray = valueLength > 1 && buffer.getByte(startIdx) == '[';
+        try (InputStream in = new ChannelBufferInputStream(buffer, valueLength)) {
+            XContentParser parser = JsonXContent.jsonXContent.createParser(in);
+            if (isArray) {
+                parser.nextToken();
+                return parser.list();
+            }
+            return parser.map();
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        } finally {
+            // the parser might not consume trailing whitespace
+            buffer.readerIndex(startIdx + valueLength);
+        }
+    }
+
+    @Override
+    public Object readTextValue(ChannelBuffer buffer, int valueLength) {
+        return readBinaryValue(buffer, valueLength);
     }
 
     @Override
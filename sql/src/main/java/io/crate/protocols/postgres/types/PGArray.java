@@ -22,10 +22,10 @@
 
 package io.crate.protocols.postgres.types;
 
-import com.google.common.primitives.Bytes;
 import org.jboss.netty.buffer.ChannelBuffer;
 
 import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -125,51 +125,50 @@ class PGArray extends PGType {
     byte[] encodeAsUTF8Text(@Nonnull Object array) {
         boolean isJson = JsonType.OID == innerType.oid();
         Object[] values = (Object[]) array;
-        List<Byte> encodedValues = new ArrayList<>();
-        encodedValues.add((byte) '{');
+        ByteArrayOutputStream encodedValues = new ByteArrayOutputStream();
+        encodeAsUTF8Text(values, isJson, encodedValues);
+        return encodedValues.toByteArray();
+    }
+
+    /**
+     * Writes the text representation of the array into {@code out}.
+     * Nested arrays are written into the same stream to avoid intermediate copies.
+     */
+    private void encodeAsUTF8Text(Object[] values, boolean isJson, ByteArrayOutputStream out) {
+        out.write('{');
         for (int i = 0; i < values.length; i++) {
             Object o = values[i];
             if (o instanceof Object[]) { // Nested Array -> recursive call
-                byte[] bytes = encodeAsUTF8Text(o);
-                for (byte b : bytes) {
-                    encodedValues.add(b);
-                }
+                encodeAsUTF8Text((Object[]) o, isJson, out);
                 if (i == 0) {
-                    encodedValues.add((byte) ',');
+                    out.write(',');
                 }
             } else {
                 if (i > 0) {
-                    encodedValues.add((byte) ',');
+                    out.write(',');
                 }
-                byte[] bytes;
                 if (o == null) {
-                    bytes = NULL_BYTES;
-                    for (byte aByte : bytes) {
-                        encodedValues.add(aByte);
-                    }
+                    out.write(NULL_BYTES, 0, NULL_BYTES.length);
                 } else {
-                    bytes = innerType.encodeAsUTF8Text(o);
+                    byte[] bytes = innerType.encodeAsUTF8Text(o);
 
-                    encodedValues.add((byte) '"');
+                    out.write('"');
                     if (isJson) {
                         for (byte aByte : bytes) {
                             // Escape double quotes with backslash for json
                             if ((char) aByte == '"') {
-                                encodedValues.add((byte) '\\');
+                                out.write('\\');
                             }
-                            encodedValues.add(aByte);
+                            out.write(aByte);
                         }
                     } else {
-                        for (byte aByte : bytes) {
-                            encodedValues.add(aByte);
-                        }
+                        out.write(bytes, 0, bytes.length);
                     }
-                    encodedValues.add((byte) '"');
+                    out.write('"');
                 }
             }
         }
-        encodedValues.add((byte) '}');
-        return Bytes.toArray(encodedValues);
+        out.write('}');
     }
 
     @Override
@@ -247,15 +246,15 @@ class PGArray extends PGType {
         if (endIdx > startIdx) {
             byte firstValueByte = bytes[startIdx];
             if (firstValueByte == '"') {
-                List<Byte> innerBytes = new ArrayList<>(endIdx - (startIdx + 1));
+                ByteArrayOutputStream innerBytes = new ByteArrayOutputStream(endIdx - (startIdx + 1));
                 for (int i = startIdx + 1; i < endIdx; i++) {
                     if (i < (endIdx - 1) && (char) bytes[i] == '\\' &&
                         ((char) bytes[i + 1] == '\\' || (char) bytes[i + 1] == '\"')) {
                         i++;
                     }
-                    innerBytes.add(bytes[i]);
+                    innerBytes.write(bytes[i]);
                 }
-                objects.add(innerType.decodeUTF8Text(Bytes.toArray(innerBytes)));
+                objects.add(innerType.decodeUTF8Text(innerBytes.toByteArray()));
             } else if (firstValueByte == 'N') {
                 objects.add(null);
             }
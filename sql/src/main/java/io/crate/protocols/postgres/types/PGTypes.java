@@ -28,6 +28,7 @@ import com.google.common.collect.ImmutableMap;
 import io.crate.types.*;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
@@ -116,4 +117,12 @@ public class PGTypes {
         }
         return pgType;
     }
+
+    public static PGType[] get(List<? extends DataType> types) {
+        PGType[] pgTypes = new PGType[types.size()];
+        for (int i = 0; i < pgTypes.length; i++) {
+            pgTypes[i] = get(types.get(i));
+        }
+        return pgTypes;
+    }
 }
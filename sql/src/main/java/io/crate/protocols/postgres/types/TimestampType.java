@@ -44,8 +44,8 @@ class TimestampType extends PGType {
     private static final int TYPE_LEN = 8;
     private static final int TYPE_MOD = -1;
 
-    // amount of seconds between 1970-01-01 and 2000-01-01
-    private static final int EPOCH_DIFF = 946684800;
+    // amount of milliseconds between 1970-01-01 and 2000-01-01
+    private static final long EPOCH_DIFF_IN_MS = 946684800000L;
 
 
     // ISO is the default - postgres allows changing the format but that's currently not supported
@@ -59,30 +59,31 @@ class TimestampType extends PGType {
     @Override
     public int writeAsBinary(ChannelBuffer buffer, @Nonnull Object value) {
         buffer.writeInt(TYPE_LEN);
-        buffer.writeDouble(toPgTimestamp((long) value));
+        buffer.writeLong(toPgTimestamp(((Number) value).longValue()));
         return INT32_BYTE_SIZE + TYPE_LEN;
     }
 
     /**
-     * Convert a crate timestamp (unix timestamp in ms) into a postgres timestamp (double seconds since 2000-01-01)
+     * Convert a crate timestamp (unix timestamp in ms) into a postgres timestamp (microseconds since 2000-01-01)
+     * <p>
+     * This is the integer_datetimes representation, which is announced to the client on startup.
      */
-    private static double toPgTimestamp(long value) {
-        double seconds = value / 1000.0;
-        return seconds - EPOCH_DIFF;
+    private static long toPgTimestamp(long value) {
+        return (value - EPOCH_DIFF_IN_MS) * 1000L;
     }
 
     /**
-     * Convert a postgres timestamp (seconds since 2000-01-01) into a crate timestamp (unix timestamp in ms)
+     * Convert a postgres timestamp (microseconds since 2000-01-01) into a crate timestamp (unix timestamp in ms)
      */
-    private static long toCrateTimestamp(double v) {
-        return (long) ((v + EPOCH_DIFF) * 1000.0);
+    private static long toCrateTimestamp(long v) {
+        return Math.floorDiv(v, 1000L) + EPOCH_DIFF_IN_MS;
     }
 
     @Override
     public Object readBinaryValue(ChannelBuffer buffer, int valueLength) {
         assert valueLength == TYPE_LEN : "valueLength must be " + TYPE_LEN +
-                                         " because timestamp is a 64 bit double. Actual length: " + valueLength;
-        return toCrateTimestamp(buffer.readDouble());
+                                         " because timestamp is a 64 bit integer. Actual length: " + valueLength;
+        return toCrateTimestamp(buffer.readLong());
     }
 
     @Override
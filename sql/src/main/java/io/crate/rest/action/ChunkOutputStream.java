@@ -0,0 +1,58 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.rest.action;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+import java.io.OutputStream;
+
+/**
+ * OutputStream writing into a buffer which can be taken to be sent as a chunk
+ */
+class ChunkOutputStream extends OutputStream {
+
+    private static final int INITIAL_CAPACITY = 32 * 1024;
+
+    private ChannelBuffer buffer = ChannelBuffers.dynamicBuffer(INITIAL_CAPACITY);
+
+    @Override
+    public void write(int b) {
+        buffer.writeByte(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        buffer.writeBytes(b, off, len);
+    }
+
+    int size() {
+        return buffer.readableBytes();
+    }
+
+    ChannelBuffer takeBuffer() {
+        ChannelBuffer chunk = buffer;
+        buffer = ChannelBuffers.dynamicBuffer(INITIAL_CAPACITY);
+        return chunk;
+    }
+}
@@ -0,0 +1,360 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.rest.action;
+
+import io.crate.analyze.symbol.Field;
+import io.crate.data.Row;
+import io.crate.types.BooleanType;
+import io.crate.types.ByteType;
+import io.crate.types.CollectionType;
+import io.crate.types.DataType;
+import io.crate.types.DoubleType;
+import io.crate.types.FloatType;
+import io.crate.types.IntegerType;
+import io.crate.types.IpType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.StringType;
+import io.crate.types.TimestampType;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes the result set in a binary columnar format, so that clients can load the values of a column
+ * without parsing each cell. The layout follows the one of Arrow record batches; all numbers are little endian:
+ *
+ * <pre>
+ * result     := magic schema batch* end
+ * magic      := "CRTCOL01"
+ * schema     := int32 numColumns, column*
+ * column     := int32 nameLength, utf8 name, int32 numTypeIds, int32 typeId*
+ *               (the type ids are nested like col_types, e.g. [100, 9] for an integer array)
+ * batch      := int32 numRows (> 0), columnData*
+ * columnData := validity, values
+ * validity   := ceil(numRows / 8) bytes; bit (i % 8) of byte (i / 8) is set if the value of row i is not null
+ * values     := fixed width types: numRows values, nulls are written as 0
+ *                 byte: int8, short: int16, integer: int32, long and timestamp: int64,
+ *                 float: float32, double: float64, boolean: int8
+ *               other types: int32 offsets[numRows + 1], bytes
+ *                 string and ip values are utf8 encoded, all other values are JSON encoded
+ * end        := int32 0, int64 rowCount, float32 duration
+ * </pre>
+ * Each batch is written to the output stream once it is complete, so at most one batch is buffered.
+ */
+class ColumnarResultWriter implements ResultWriter {
+
+    static final String CONTENT_TYPE = "application/vnd.crate.columnar";
+
+    private static final byte[] MAGIC = "CRTCOL01".getBytes(StandardCharsets.US_ASCII);
+    static final int BATCH_SIZE = 4096;
+
+    private final OutputStream out;
+    private final Column[] columns;
+    private final ChannelBuffer buffer = ChannelBuffers.dynamicBuffer(ByteOrder.LITTLE_ENDIAN, 64 * 1024);
+    private int numRows = 0;
+
+    ColumnarResultWriter(OutputStream out, List<Field> outputFields) {
+        this.out = out;
+        columns = new Column[outputFields.size()];
+        buffer.writeBytes(MAGIC);
+        buffer.writeInt(outputFields.size());
+        for (int i = 0; i < columns.length; i++) {
+            Field field = outputFields.get(i);
+            byte[] name = field.path().outputName().getBytes(StandardCharsets.UTF_8);
+            buffer.writeInt(name.length);
+            buffer.writeBytes(name);
+            List<Integer> typeIds = new ArrayList<>(2);
+            addTypeIds(field.valueType(), typeIds);
+            buffer.writeInt(typeIds.size());
+            for (Integer typeId : typeIds) {
+                buffer.writeInt(typeId);
+            }
+            columns[i] = newColumn(field.valueType());
+        }
+    }
+
+    private static void addTypeIds(DataType dataType, List<Integer> typeIds) {
+        typeIds.add(dataType.id());
+        if (dataType instanceof CollectionType) {
+            addTypeIds(((CollectionType) dataType).innerType(), typeIds);
+        }
+    }
+
+    private static Column newColumn(DataType dataType) {
+        switch (dataType.id()) {
+            case ByteType.ID:
+            case BooleanType.ID:
+                return new IntegralColumn(1);
+            case ShortType.ID:
+                return new IntegralColumn(2);
+            case IntegerType.ID:
+                return new IntegralColumn(4);
+            case LongType.ID:
+            case TimestampType.ID:
+                return new IntegralColumn(8);
+            case FloatType.ID:
+                return new FloatColumn();
+            case DoubleType.ID:
+                return new DoubleColumn();
+            case StringType.ID:
+            case IpType.ID:
+                return new VariableWidthColumn(false);
+            default:
+                return new VariableWidthColumn(true);
+        }
+    }
+
+    @Override
+    public String contentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public void addRow(Row row) throws IOException {
+        for (int i = 0; i < columns.length; i++) {
+            Object value = row.get(i);
+            Column column = columns[i];
+            if (value == null) {
+                column.addNull(numRows);
+            } else {
+                column.validity[numRows >> 3] |= 1 << (numRows & 7);
+                column.add(numRows, value);
+            }
+        }
+        numRows++;
+        if (numRows == BATCH_SIZE) {
+            writeBatch();
+        }
+    }
+
+    private void writeBatch() throws IOException {
+        if (numRows == 0) {
+            return;
+        }
+        buffer.writeInt(numRows);
+        int validityLength = (numRows + 7) >> 3;
+        for (Column column : columns) {
+            buffer.writeBytes(column.validity, 0, validityLength);
+            column.writeValues(buffer, numRows);
+            column.reset();
+        }
+        numRows = 0;
+        writeBuffer();
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.readBytes(out, buffer.readableBytes());
+        buffer.clear();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writeBatch();
+        writeBuffer();
+    }
+
+    @Override
+    public void finish(long rowCount, long startTime) throws IOException {
+        writeBatch();
+        buffer.writeInt(0);
+        buffer.writeLong(rowCount);
+        // in milliseconds, like the duration of the JSON response
+        buffer.writeFloat((float) ((System.nanoTime() - startTime) / 1_000_000.0));
+        writeBuffer();
+    }
+
+    private abstract static class Column {
+
+        final byte[] validity = new byte[BATCH_SIZE >> 3];
+
+        abstract void add(int idx, Object value) throws IOException;
+
+        abstract void addNull(int idx);
+
+        abstract void writeValues(ChannelBuffer buffer, int numRows);
+
+        void reset() {
+            Arrays.fill(validity, (byte) 0);
+        }
+    }
+
+    private static class IntegralColumn extends Column {
+
+        private final int width;
+        private final long[] values = new long[BATCH_SIZE];
+
+        IntegralColumn(int width) {
+            this.width = width;
+        }
+
+        @Override
+        void add(int idx, Object value) {
+            if (value instanceof Boolean) {
+                values[idx] = (Boolean) value ? 1 : 0;
+            } else {
+                values[idx] = ((Number) value).longValue();
+            }
+        }
+
+        @Override
+        void addNull(int idx) {
+            values[idx] = 0;
+        }
+
+        @Override
+        void writeValues(ChannelBuffer buffer, int numRows) {
+            for (int i = 0; i < numRows; i++) {
+                long value = values[i];
+                switch (width) {
+                    case 1:
+                        buffer.writeByte((int) value);
+                        break;
+                    case 2:
+                        buffer.writeShort((int) value);
+                        break;
+                    case 4:
+                        buffer.writeInt((int) value);
+                        break;
+                    default:
+                        buffer.writeLong(value);
+                }
+            }
+        }
+    }
+
+    private static class FloatColumn extends Column {
+
+        private final float[] values = new float[BATCH_SIZE];
+
+        @Override
+        void add(int idx, Object value) {
+            values[idx] = ((Number) value).floatValue();
+        }
+
+        @Override
+        void addNull(int idx) {
+            values[idx] = 0;
+        }
+
+        @Override
+        void writeValues(ChannelBuffer buffer, int numRows) {
+            for (int i = 0; i < numRows; i++) {
+                buffer.writeFloat(values[i]);
+            }
+        }
+    }
+
+    private static class DoubleColumn extends Column {
+
+        private final double[] values = new double[BATCH_SIZE];
+
+        @Override
+        void add(int idx, Object value) {
+            values[idx] = ((Number) value).doubleValue();
+        }
+
+        @Override
+        void addNull(int idx) {
+            values[idx] = 0;
+        }
+
+        @Override
+        void writeValues(ChannelBuffer buffer, int numRows) {
+            for (int i = 0; i < numRows; i++) {
+                buffer.writeDouble(values[i]);
+            }
+        }
+    }
+
+    private static class VariableWidthColumn extends Column {
+
+        private final boolean json;
+        private final int[] offsets = new int[BATCH_SIZE + 1];
+        private final ChannelBuffer data = ChannelBuffers.dynamicBuffer(ByteOrder.LITTLE_ENDIAN, 8 * 1024);
+        private final BytesStreamOutput jsonOut = new BytesStreamOutput();
+        private XContentBuilder jsonBuilder;
+
+        VariableWidthColumn(boolean json) {
+            this.json = json;
+        }
+
+        @Override
+        void add(int idx, Object value) throws IOException {
+            if (json) {
+                if (jsonBuilder == null) {
+                    jsonBuilder = XContentFactory.jsonBuilder(jsonOut);
+                }
+                // all values of the column are written by the same generator as consecutive root values
+                jsonBuilder.value(value);
+                jsonBuilder.flush();
+                BytesRef bytesRef = jsonOut.bytes().toBytesRef();
+                int offset = bytesRef.offset;
+                int length = bytesRef.length;
+                if (length > 0 && bytesRef.bytes[offset] == ' ') {
+                    // skip the separator which the generator writes between root values
+                    offset++;
+                    length--;
+                }
+                data.writeBytes(bytesRef.bytes, offset, length);
+                jsonOut.reset();
+            } else if (value instanceof BytesRef) {
+                BytesRef bytesRef = (BytesRef) value;
+                data.writeBytes(bytesRef.bytes, bytesRef.offset, bytesRef.length);
+            } else {
+                data.writeBytes(value.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            offsets[idx + 1] = data.writerIndex();
+        }
+
+        @Override
+        void addNull(int idx) {
+            offsets[idx + 1] = data.writerIndex();
+        }
+
+        @Override
+        void writeValues(ChannelBuffer buffer, int numRows) {
+            for (int i = 0; i <= numRows; i++) {
+                buffer.writeInt(offsets[i]);
+            }
+            buffer.writeBytes(data);
+        }
+
+        @Override
+        void reset() {
+            super.reset();
+            data.clear();
+        }
+    }
+}
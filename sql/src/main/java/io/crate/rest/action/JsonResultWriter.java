@@ -0,0 +1,77 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.rest.action;
+
+import io.crate.analyze.symbol.Field;
+import io.crate.data.Row;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Writes the result set as JSON, using the same format as {@link RestResultSetReceiver}
+ */
+class JsonResultWriter implements ResultWriter {
+
+    static final String CONTENT_TYPE = "application/json; charset=UTF-8";
+
+    private final ResultToXContentBuilder builder;
+    private final int numCols;
+
+    JsonResultWriter(OutputStream out, List<Field> outputFields, boolean includeTypes) throws IOException {
+        numCols = outputFields.size();
+        builder = ResultToXContentBuilder.builder(new XContentBuilder(JsonXContent.jsonXContent, out));
+        builder.cols(outputFields);
+        if (includeTypes) {
+            builder.colTypes(outputFields);
+        }
+        builder.startRows();
+    }
+
+    @Override
+    public String contentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public void addRow(Row row) throws IOException {
+        builder.addRow(row, numCols);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        builder.flush();
+    }
+
+    @Override
+    public void finish(long rowCount, long startTime) throws IOException {
+        builder.finishRows()
+            .rowCount(rowCount)
+            .duration(startTime)
+            .build();
+        builder.flush();
+    }
+}
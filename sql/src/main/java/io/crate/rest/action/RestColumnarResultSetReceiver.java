@@ -0,0 +1,100 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.rest.action;
+
+import io.crate.action.sql.BaseResultReceiver;
+import io.crate.analyze.symbol.Field;
+import io.crate.data.Row;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestStatus;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static io.crate.exceptions.SQLExceptions.createSQLActionException;
+
+/**
+ * ResultReceiver which responds with the result set encoded by {@link ColumnarResultWriter}.
+ * The writer encodes the rows batch-wise into the response bytes, so the result is only buffered once.
+ */
+class RestColumnarResultSetReceiver extends BaseResultReceiver {
+
+    private static final Logger LOGGER = Loggers.getLogger(RestColumnarResultSetReceiver.class);
+
+    private final RestChannel channel;
+    private final long startTime;
+    private final BytesStreamOutput out = new BytesStreamOutput();
+    private final ColumnarResultWriter writer;
+    private final AtomicBoolean responded = new AtomicBoolean(false);
+    private long rowCount;
+
+    RestColumnarResultSetReceiver(RestChannel channel, List<Field> outputFields, long startTime) {
+        this.channel = channel;
+        this.startTime = startTime;
+        this.writer = new ColumnarResultWriter(out, outputFields);
+    }
+
+    @Override
+    public void setNextRow(Row row) {
+        try {
+            writer.addRow(row);
+            rowCount++;
+        } catch (IOException e) {
+            // stops the consumer, which fails this receiver
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void allFinished(boolean interrupted) {
+        try {
+            writer.finish(rowCount, startTime);
+            if (responded.compareAndSet(false, true)) {
+                channel.sendResponse(new BytesRestResponse(RestStatus.OK, writer.contentType(), out.bytes()));
+            }
+            super.allFinished(interrupted);
+        } catch (Throwable e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void fail(@Nonnull Throwable t) {
+        try {
+            if (responded.compareAndSet(false, true)) {
+                channel.sendResponse(new CrateThrowableRestResponse(channel, createSQLActionException(t)));
+            }
+        } catch (Throwable e) {
+            LOGGER.error("failed to send failure response", e);
+        } finally {
+            super.fail(t);
+        }
+    }
+}
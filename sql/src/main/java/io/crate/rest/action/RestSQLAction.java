@@ -23,22 +23,30 @@
 package io.crate.rest.action;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import io.crate.action.sql.*;
 import io.crate.action.sql.parser.SQLXContentSourceContext;
 import io.crate.action.sql.parser.SQLXContentSourceParser;
 import io.crate.analyze.symbol.Field;
 import io.crate.exceptions.SQLParseException;
+import io.crate.http.netty.OrderedRequestsHandler;
 import io.crate.operation.auth.AuthenticationProvider;
 import io.crate.operation.user.User;
 import io.crate.operation.user.UserManager;
 import io.crate.operation.user.UserManagerProvider;
 import org.elasticsearch.client.node.NodeClient;
+import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.http.HttpTransportSettings;
+import org.elasticsearch.http.netty3.Netty3HttpRequest;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import org.elasticsearch.rest.*;
+import org.jboss.netty.handler.codec.http.HttpVersion;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
@@ -51,15 +59,25 @@ public class RestSQLAction extends BaseRestHandler {
     private static final String REQUEST_HEADER_USER = "User";
     private static final String REQUEST_HEADER_SCHEMA = "Default-Schema";
     private static final int DEFAULT_SOFT_LIMIT = 10_000;
+    private static final String STREAM_PORTAL = "stream";
+    private static final int STREAM_BATCH_SIZE = 1_000;
+    // ordered by specificity
+    private static final List<String> JSON_MEDIA_RANGES = ImmutableList.of("*/*", "application/*", "application/json");
 
     private final SQLOperations sqlOperations;
     private final UserManager userManager;
+    private final CircuitBreakerService circuitBreakerService;
 
     @Inject
-    public RestSQLAction(Settings settings, RestController controller, SQLOperations sqlOperations, UserManagerProvider userManagerProvider) {
+    public RestSQLAction(Settings settings,
+                         RestController controller,
+                         SQLOperations sqlOperations,
+                         UserManagerProvider userManagerProvider,
+                         CircuitBreakerService circuitBreakerService) {
         super(settings);
         this.sqlOperations = sqlOperations;
         this.userManager = userManagerProvider.get();
+        this.circuitBreakerService = circuitBreakerService;
 
         controller.registerHandler(RestRequest.Method.POST, "/_sql", this);
     }
@@ -105,7 +123,7 @@ public class RestSQLAction extends BaseRestHandler {
 
     @Override
     protected Set<String> responseParams() {
-        return ImmutableSet.of("types");
+        return ImmutableSet.of("types", "stream", "columnar");
     }
 
     private static Set<Option> toOptions(RestRequest request) {
@@ -125,34 +143,102 @@ public class RestSQLAction extends BaseRestHandler {
         return userManager.findUser(user);
     }
 
+    private static boolean isColumnarRequest(RestRequest request) {
+        return request.paramAsBoolean("columnar", false) || acceptsColumnar(request.header("Accept"));
+    }
+
+    /**
+     * The columnar format is used if the Accept header lists its media type explicitly and with a quality which
+     * is not lower than the quality of JSON, e.g. {@code application/vnd.crate.columnar, application/json;q=0.5}
+     */
+    @VisibleForTesting
+    static boolean acceptsColumnar(@Nullable String accept) {
+        if (accept == null) {
+            return false;
+        }
+        float columnarQuality = 0f;
+        float jsonQuality = 0f;
+        int jsonSpecificity = -1;
+        for (String mediaRange : accept.split(",")) {
+            String[] parts = mediaRange.split(";");
+            String mediaType = parts[0].trim().toLowerCase(Locale.ENGLISH);
+            float quality = quality(parts);
+            if (mediaType.equals(ColumnarResultWriter.CONTENT_TYPE)) {
+                columnarQuality = quality;
+                continue;
+            }
+            // the quality of JSON is defined by the most specific range that matches it
+            int specificity = JSON_MEDIA_RANGES.indexOf(mediaType);
+            if (specificity > jsonSpecificity) {
+                jsonSpecificity = specificity;
+                jsonQuality = quality;
+            }
+        }
+        return columnarQuality > 0f && columnarQuality >= jsonQuality;
+    }
+
+    private static float quality(String[] mediaRangeParts) {
+        for (int i = 1; i < mediaRangeParts.length; i++) {
+            String param = mediaRangeParts[i].trim();
+            if (param.startsWith("q=") || param.startsWith("Q=")) {
+                try {
+                    return Float.parseFloat(param.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0f;
+                }
+            }
+        }
+        return 1f;
+    }
+
+    /**
+     * Streaming requires direct access to the netty channel to write chunks and a client which understands them.
+     * The chunked response doesn't go through the {@link RestChannel}, which adds the CORS headers, so streaming
+     * isn't used if CORS is enabled.
+     */
+    private boolean isStreamingRequest(RestRequest request) {
+        return request.paramAsBoolean("stream", false) &&
+               !HttpTransportSettings.SETTING_CORS_ENABLED.get(settings) &&
+               request instanceof Netty3HttpRequest &&
+               HttpVersion.HTTP_1_1.equals(((Netty3HttpRequest) request).request().getProtocolVersion());
+    }
+
     private RestChannelConsumer executeSimpleRequest(SQLXContentSourceContext context, final RestRequest request) {
+        boolean stream = isStreamingRequest(request);
         SQLOperations.Session session = sqlOperations.createSession(
             request.header(REQUEST_HEADER_SCHEMA),
             userFromRequest(request),
             toOptions(request),
-            DEFAULT_SOFT_LIMIT);
+            stream ? 0 : DEFAULT_SOFT_LIMIT);
         try {
             final long startTime = System.nanoTime();
+            // the named portal survives sync(), which is required to resume a suspended execution
+            String portalName = stream ? STREAM_PORTAL : UNNAMED;
             session.parse(UNNAMED, context.stmt(), Collections.emptyList());
             List<Object> args = context.args() == null ? Collections.emptyList() : Arrays.asList(context.args());
-            session.bind(UNNAMED, UNNAMED, args, null);
-            List<Field> outputFields = session.describe('P', UNNAMED);
+            session.bind(portalName, UNNAMED, args, null);
+            List<Field> outputFields = session.describe('P', portalName);
             if (outputFields == null) {
                 return channel -> {
                     try {
                         ResultReceiver resultReceiver
                             = new RestRowCountReceiver(channel, startTime, request.paramAsBoolean("types", false));
-                        session.execute(UNNAMED, 0, resultReceiver);
+                        session.execute(portalName, 0, resultReceiver);
                         session.sync();
                     } catch (Throwable t) {
                         errorResponse(channel, t);
                     }
                 };
             }
+            if (stream) {
+                return channel -> executeStreaming(session, (Netty3HttpRequest) request, channel, outputFields, startTime);
+            }
+            boolean columnar = isColumnarRequest(request);
             return channel -> {
                 try {
-                    ResultReceiver resultReceiver =
-                        new RestResultSetReceiver(channel, outputFields, startTime, request.paramAsBoolean("types", false));
+                    ResultReceiver resultReceiver = columnar
+                        ? new RestColumnarResultSetReceiver(channel, outputFields, startTime)
+                        : new RestResultSetReceiver(channel, outputFields, startTime, request.paramAsBoolean("types", false));
                     session.execute(UNNAMED, 0, resultReceiver);
                     session.sync();
                 } catch (Throwable t) {
@@ -164,6 +250,41 @@ public class RestSQLAction extends BaseRestHandler {
         }
     }
 
+    private void executeStreaming(SQLOperations.Session session,
+                                  Netty3HttpRequest request,
+                                  RestChannel channel,
+                                  List<Field> outputFields,
+                                  long startTime) {
+        try {
+            ChunkOutputStream out = new ChunkOutputStream();
+            ResultWriter writer = isColumnarRequest(request)
+                ? new ColumnarResultWriter(out, outputFields)
+                : new JsonResultWriter(out, outputFields, request.paramAsBoolean("types", false));
+            // the in-flight request accounting is usually released once the RestChannel sends the response
+            CircuitBreaker inFlightRequests = circuitBreakerService.getBreaker(CircuitBreaker.IN_FLIGHT_REQUESTS);
+            int contentLength = request.hasContent() ? request.content().length() : 0;
+            ResultReceiver resultReceiver = new RestStreamingResultSetReceiver(
+                channel,
+                request.getChannel(),
+                request.request(),
+                OrderedRequestsHandler.orderedEvent(request.getChannel(), request.request()),
+                out,
+                writer,
+                startTime,
+                () -> inFlightRequests.addWithoutBreaking(-contentLength),
+                receiver -> {
+                    session.execute(STREAM_PORTAL, STREAM_BATCH_SIZE, receiver);
+                    session.sync();
+                });
+            // closing the portal kills the execution if it is still suspended, e.g. if the client disconnected
+            resultReceiver.completionFuture().whenComplete((r, t) -> session.close((byte) 'P', STREAM_PORTAL));
+            session.execute(STREAM_PORTAL, STREAM_BATCH_SIZE, resultReceiver);
+            session.sync();
+        } catch (Throwable t) {
+            errorResponse(channel, t);
+        }
+    }
+
     private RestChannelConsumer executeBulkRequest(SQLXContentSourceContext context, final RestRequest request) {
         SQLOperations.Session session = sqlOperations.createSession(
             request.header(REQUEST_HEADER_SCHEMA),
@@ -0,0 +1,244 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.rest.action;
+
+import io.crate.action.sql.BaseResultReceiver;
+import io.crate.action.sql.ResultReceiver;
+import io.crate.data.Row;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.http.netty3.pipelining.OrderedDownstreamChannelEvent;
+import org.elasticsearch.http.netty3.pipelining.OrderedUpstreamMessageEvent;
+import org.elasticsearch.rest.RestChannel;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.handler.codec.http.DefaultHttpChunk;
+import org.jboss.netty.handler.codec.http.DefaultHttpResponse;
+import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import org.jboss.netty.handler.codec.http.HttpResponseStatus;
+import org.jboss.netty.handler.codec.http.HttpVersion;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static io.crate.exceptions.SQLExceptions.createSQLActionException;
+
+/**
+ * ResultReceiver which writes the result set as chunks of a HTTP response with chunked transfer encoding.
+ * <p>
+ * The rows are received in batches. After each batch the consumption is suspended until the
+ * written chunks have been flushed to the socket and is then continued using {@code resume}.
+ * This limits the amount of memory used for a response to roughly one batch, independent of the result size.
+ * <p>
+ * The response is written to the netty channel directly, bypassing the {@link RestChannel}. If HTTP pipelining
+ * is enabled, the chunks are written as ordered events of the request, so that the responses of subsequent
+ * requests on the same connection follow once the last chunk has been written. The connection is kept alive
+ * unless the client requested otherwise. As the {@link RestChannel} doesn't receive a response, the
+ * accounting of the request is released using {@code releaseRequest}.
+ */
+class RestStreamingResultSetReceiver extends BaseResultReceiver {
+
+    private static final Logger LOGGER = Loggers.getLogger(RestStreamingResultSetReceiver.class);
+    private static final int CHUNK_SIZE = 32 * 1024;
+    private static final String OPAQUE_ID = "X-Opaque-Id";
+
+    private final RestChannel restChannel;
+    private final Channel channel;
+    private final HttpRequest request;
+    @Nullable
+    private final OrderedUpstreamMessageEvent orderedEvent;
+    private final ChunkOutputStream out;
+    private final ResultWriter writer;
+    private final long startTime;
+    private final Runnable releaseRequest;
+    private final Consumer<ResultReceiver> resume;
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    private long rowCount;
+    private int subsequence = 0;
+    private boolean headSent = false;
+    private boolean finished = false;
+
+    /**
+     * @param orderedEvent the event the request has been received with if pipelining is enabled
+     * @param writer writer which writes into {@code out}
+     * @param releaseRequest releases the accounting of the request, called once the response is done.
+     * @param resume called with this receiver to continue receiving rows after a batch has been written.
+     */
+    RestStreamingResultSetReceiver(RestChannel restChannel,
+                                   Channel channel,
+                                   HttpRequest request,
+                                   @Nullable OrderedUpstreamMessageEvent orderedEvent,
+                                   ChunkOutputStream out,
+                                   ResultWriter writer,
+                                   long startTime,
+                                   Runnable releaseRequest,
+                                   Consumer<ResultReceiver> resume) {
+        this.restChannel = restChannel;
+        this.channel = channel;
+        this.request = request;
+        this.orderedEvent = orderedEvent;
+        this.out = out;
+        this.writer = writer;
+        this.startTime = startTime;
+        this.releaseRequest = releaseRequest;
+        this.resume = resume;
+    }
+
+    @Override
+    public void setNextRow(Row row) {
+        try {
+            writer.addRow(row);
+            rowCount++;
+            if (out.size() >= CHUNK_SIZE) {
+                writeChunk();
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void batchFinished() {
+        ChannelFuture lastWrite;
+        try {
+            lastWrite = writeChunk();
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        if (lastWrite == null) {
+            resume();
+        } else {
+            lastWrite.addListener(future -> {
+                if (future.isSuccess()) {
+                    resume();
+                } else {
+                    fail(future.getCause());
+                }
+            });
+        }
+    }
+
+    private void resume() {
+        try {
+            resume.accept(this);
+        } catch (Throwable t) {
+            fail(t);
+        }
+    }
+
+    @Override
+    public void allFinished(boolean interrupted) {
+        if (finished) {
+            return;
+        }
+        try {
+            writer.finish(rowCount, startTime);
+            writeChunk();
+            boolean keepAlive = HttpHeaders.isKeepAlive(request);
+            write(HttpChunk.LAST_CHUNK, true).addListener(future -> {
+                release();
+                if (!keepAlive || !future.isSuccess()) {
+                    channel.close();
+                }
+            });
+        } catch (Throwable t) {
+            fail(t);
+            return;
+        }
+        finished = true;
+        super.allFinished(interrupted);
+    }
+
+    @Override
+    public void fail(@Nonnull Throwable t) {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        try {
+            if (headSent) {
+                // the status has already been sent, all that can be done is to abort the response
+                LOGGER.warn("failure after the response has been partially sent, closing the connection", t);
+                release();
+                channel.close();
+            } else {
+                restChannel.sendResponse(new CrateThrowableRestResponse(restChannel, createSQLActionException(t)));
+            }
+        } catch (Throwable e) {
+            LOGGER.error("failed to send failure response", e);
+        } finally {
+            super.fail(t);
+        }
+    }
+
+    @Nullable
+    private ChannelFuture writeChunk() throws IOException {
+        writer.flush();
+        if (out.size() == 0) {
+            return null;
+        }
+        if (!headSent) {
+            write(responseHead(writer.contentType()), false);
+            headSent = true;
+        }
+        return write(new DefaultHttpChunk(out.takeBuffer()), false);
+    }
+
+    private ChannelFuture write(Object message, boolean last) {
+        if (orderedEvent == null) {
+            return channel.write(message);
+        }
+        OrderedDownstreamChannelEvent event = new OrderedDownstreamChannelEvent(orderedEvent, subsequence++, last, message);
+        channel.getPipeline().sendDownstream(event);
+        return event.getFuture();
+    }
+
+    private HttpResponse responseHead(String contentType) {
+        HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        response.setChunked(true);
+        response.headers().set(HttpHeaders.Names.TRANSFER_ENCODING, HttpHeaders.Values.CHUNKED);
+        response.headers().set(HttpHeaders.Names.CONTENT_TYPE, contentType);
+        if (!HttpHeaders.isKeepAlive(request)) {
+            response.headers().set(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.CLOSE);
+        }
+        String opaqueId = request.headers().get(OPAQUE_ID);
+        if (opaqueId != null) {
+            response.headers().set(OPAQUE_ID, opaqueId);
+        }
+        return response;
+    }
+
+    private void release() {
+        if (released.compareAndSet(false, true)) {
+            releaseRequest.run();
+        }
+    }
+}
@@ -47,13 +47,17 @@ class ResultToXContentBuilder {
 
     private final XContentBuilder builder;
 
-    private ResultToXContentBuilder(RestChannel channel) throws IOException {
-        builder = channel.newBuilder();
+    private ResultToXContentBuilder(XContentBuilder builder) throws IOException {
+        this.builder = builder;
         builder.startObject();
     }
 
     static ResultToXContentBuilder builder(RestChannel channel) throws IOException {
-        return new ResultToXContentBuilder(channel);
+        return new ResultToXContentBuilder(channel.newBuilder());
+    }
+
+    static ResultToXContentBuilder builder(XContentBuilder builder) throws IOException {
+        return new ResultToXContentBuilder(builder);
     }
 
     ResultToXContentBuilder cols(List<Field> fields) throws IOException {
@@ -144,6 +148,13 @@ class ResultToXContentBuilder {
         return this;
     }
 
+    /**
+     * flush() writes the buffered content to the underlying stream of the builder
+     */
+    void flush() throws IOException {
+        builder.flush();
+    }
+
     XContentBuilder build() throws IOException {
         builder.endObject();
         return builder;
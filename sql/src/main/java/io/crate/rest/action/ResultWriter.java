@@ -0,0 +1,47 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.rest.action;
+
+import io.crate.data.Row;
+
+import java.io.IOException;
+
+/**
+ * Encodes a result set into an {@link java.io.OutputStream} in a format that can be sent as HTTP response.
+ */
+interface ResultWriter {
+
+    String contentType();
+
+    void addRow(Row row) throws IOException;
+
+    /**
+     * flush() writes all rows added so far to the underlying stream
+     */
+    void flush() throws IOException;
+
+    /**
+     * finish() writes the end of the result set and flushes; must be called after the last row
+     */
+    void finish(long rowCount, long startTime) throws IOException;
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.action.sql;
+
+import io.crate.sql.parser.ParsingException;
+import io.crate.sql.tree.Statement;
+import io.crate.test.integration.CrateUnitTest;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class StatementCacheTest extends CrateUnitTest {
+
+    @Test
+    public void testStatementIsParsedOnlyOnce() throws Exception {
+        StatementCache cache = new StatementCache(10);
+        Statement first = cache.getOrParse("select * from t where x = ?");
+        Statement second = cache.getOrParse("select * from t where x = ?");
+
+        assertThat(second, sameInstance(first));
+        assertThat(cache.missCount(), is(1L));
+        assertThat(cache.hitCount(), is(1L));
+        assertThat(cache.size(), is(1L));
+    }
+
+    @Test
+    public void testInvalidStatementIsNotCached() throws Exception {
+        StatementCache cache = new StatementCache(10);
+        try {
+            cache.getOrParse("select * frm t");
+            fail("statement must not be parsable");
+        } catch (ParsingException ignored) {
+        }
+        assertThat(cache.size(), is(0L));
+    }
+
+    @Test
+    public void testLongStatementIsNotCached() throws Exception {
+        StringBuilder query = new StringBuilder("insert into t (x) values (1)");
+        while (query.length() <= StatementCache.MAX_STATEMENT_LENGTH) {
+            query.append(", (1)");
+        }
+        StatementCache cache = new StatementCache(10);
+        cache.getOrParse(query.toString());
+        assertThat(cache.size(), is(0L));
+    }
+
+    @Test
+    public void testCacheCanBeDisabled() throws Exception {
+        StatementCache cache = new StatementCache(0);
+        Statement first = cache.getOrParse("select 1");
+        Statement second = cache.getOrParse("select 1");
+
+        assertThat(second, is(first));
+        assertThat(cache.size(), is(0L));
+    }
+}
@@ -29,6 +29,7 @@ import io.crate.exceptions.TableUnknownException;
 import io.crate.exceptions.UnsupportedFeatureException;
 import io.crate.metadata.PartitionName;
 import io.crate.metadata.table.TableInfo;
+import io.crate.planner.node.dql.FileUriCollectPhase;
 import io.crate.planner.projection.WriterProjection;
 import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
 import io.crate.testing.SQLExecutor;
@@ -301,4 +302,59 @@ public class CopyAnalyzerTest extends CrateDummyClusterServiceUnitTest {
         expectedException.expectMessage("node_filters argument 'name' must be a String, not 20 (Long)");
         e.analyze("copy users from '/' with (node_filters={name=20})");
     }
+
+    @Test
+    public void testCopyFromCsvFormat() throws Exception {
+        CopyFromAnalyzedStatement analysis = e.analyze(
+            "copy users from '/blah.csv' with (format='csv', delimiter=';', quote='''')");
+        assertThat(analysis.inputFormat(), is(FileUriCollectPhase.InputFormat.CSV));
+        assertThat(analysis.csvDelimiter(), is(';'));
+        assertThat(analysis.csvQuote(), is('\''));
+        assertThat(analysis.targetColumns().size(), is(analysis.table().columns().size()));
+        assertThat(analysis.primaryKeySymbols(), contains(isInputColumn(0)));
+    }
+
+    @Test
+    public void testCopyFromDefaultsToJsonFormat() throws Exception {
+        CopyFromAnalyzedStatement analysis = e.analyze("copy users from '/blah.json'");
+        assertThat(analysis.inputFormat(), is(FileUriCollectPhase.InputFormat.JSON));
+        assertThat(analysis.targetColumns(), empty());
+    }
+
+    @Test
+    public void testCopyFromWithUnknownFormat() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("'xml' is not an allowed value. Allowed values are: json, csv");
+        e.analyze("copy users from '/blah.xml' with (format='xml')");
+    }
+
+    @Test
+    public void testCopyFromCsvWithMultiCharDelimiter() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("Setting \"delimiter\" must be a single character. Got ';;'");
+        e.analyze("copy users from '/blah.csv' with (format='csv', delimiter=';;')");
+    }
+
+    @Test
+    public void testCopyFromCsvWithOverwriteDuplicates() throws Exception {
+        expectedException.expect(UnsupportedFeatureException.class);
+        expectedException.expectMessage("\"overwrite_duplicates\" is not supported for the CSV format");
+        e.analyze("copy users from '/blah.csv' with (format='csv', overwrite_duplicates=true)");
+    }
+
+    @Test
+    public void testCopyToWithPartitionByAndMaxFileSize() throws Exception {
+        CopyToAnalyzedStatement analysis = e.analyze(
+            "copy users (id, name) to directory '/tmp' with (partition_by='name', max_file_size='1mb')");
+        assertThat(analysis.partitionBy(), isReference("_doc['name']"));
+        assertThat(analysis.subQueryRelation().querySpec().outputs().size(), is(3));
+        assertThat(analysis.maxFileSize(), is(1024L * 1024L));
+    }
+
+    @Test
+    public void testCopyToWithInvalidMaxFileSize() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("max_file_size must be greater than 0");
+        e.analyze("copy users to directory '/tmp' with (max_file_size=0)");
+    }
 }
@@ -43,6 +43,7 @@ import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.UUIDs;
 import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexService;
@@ -425,6 +426,44 @@ public class TransportShardUpsertActionTest extends CrateDummyClusterServiceUnit
         TransportShardUpsertAction.updateSourceByPaths(source, changes);
     }
 
+    @Test
+    public void testUpdateSourceBytesByPaths() throws Exception {
+        BytesReference source = XContentFactory.jsonBuilder().startObject()
+            .field("x", 1)
+            .startObject("o")
+                .field("a", "foo")
+                .field("b", 2)
+            .endObject()
+            .array("arr", 1, 2)
+            .endObject()
+            .bytes();
+
+        Map<String, Object> changes = new LinkedHashMap<>();
+        changes.put("o.b", 3);
+        changes.put("x", 10);
+        changes.put("n.m", "bar");
+        changes.put("y", 20);
+
+        BytesReference updatedSource = TransportShardUpsertAction.updateSourceByPaths(source, changes);
+        assertThat(updatedSource.utf8ToString(),
+            is("{\"x\":10,\"o\":{\"a\":\"foo\",\"b\":3},\"arr\":[1,2],\"n\":{\"m\":\"bar\"},\"y\":20}"));
+    }
+
+    @Test
+    public void testUpdateSourceBytesByPathsUpdateNullObject() throws Exception {
+        BytesReference source = XContentFactory.jsonBuilder().startObject()
+            .nullField("o")
+            .endObject()
+            .bytes();
+
+        Map<String, Object> changes = new HashMap<>();
+        changes.put("o.x", 5);
+
+        expectedException.expect(NullPointerException.class);
+        expectedException.expectMessage("Object o is null, cannot write {x=5} onto it");
+        TransportShardUpsertAction.updateSourceByPaths(source, changes);
+    }
+
     @Test
     public void testKilledSetWhileProcessingItemsDoesNotThrowException() throws Exception {
         ShardId shardId = new ShardId(TABLE_IDENT.indexName(), charactersIndexUUID, 0);
@@ -23,6 +23,8 @@ package io.crate.executor.transport.merge;
 
 import io.crate.Streamer;
 import io.crate.data.ArrayBucket;
+import io.crate.data.RowN;
+import io.crate.executor.transport.StreamBucket;
 import io.crate.executor.transport.distributed.DistributedResultRequest;
 import io.crate.test.integration.CrateUnitTest;
 import io.crate.types.DataTypes;
@@ -66,6 +68,30 @@ public class DistributedResultRequestTest extends CrateUnitTest {
         assertThat(r2.rows(), contains(isRow("ab"), isNullRow(), isRow("cd")));
     }
 
+    @Test
+    public void testStreamingOfEncodedBucket() throws Exception {
+        Streamer<?>[] streamers = new Streamer[]{DataTypes.STRING.streamer(), DataTypes.INTEGER.streamer()};
+        StreamBucket.Builder builder = new StreamBucket.Builder(streamers, true);
+        builder.add(new RowN(new Object[]{new BytesRef("ab"), 1}));
+        builder.add(new RowN(new Object[]{null, 2}));
+        builder.add(new RowN(new Object[]{new BytesRef("ab"), null}));
+        builder.add(new RowN(new Object[]{new BytesRef("cd"), 4}));
+        StreamBucket bucket = builder.build();
+        assertThat(bucket.isEncoded(), is(true));
+
+        DistributedResultRequest r1 = new DistributedResultRequest(
+            UUID.randomUUID(), 1, (byte) 3, 1, streamers, bucket, true);
+        BytesStreamOutput out = new BytesStreamOutput();
+        r1.writeTo(out);
+        DistributedResultRequest r2 = new DistributedResultRequest();
+        r2.readFrom(out.bytes().streamInput());
+        r2.streamers(streamers);
+
+        assertThat(r2.rows(), contains(isRow("ab", 1), isRow(null, 2), isRow("ab", null), isRow("cd", 4)));
+        // the page is decompressed once and can be iterated again
+        assertThat(r2.rows(), contains(isRow("ab", 1), isRow(null, 2), isRow("ab", null), isRow("cd", 4)));
+    }
+
     @Test
     public void testStreamingOfFailure() throws Exception {
         UUID uuid = UUID.randomUUID();
@@ -31,9 +31,11 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
@@ -42,9 +44,12 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
 
 import static com.carrotsearch.randomizedtesting.RandomizedTest.newTempDir;
 import static org.hamcrest.Matchers.*;
@@ -97,6 +102,28 @@ public class CopyIntegrationTest extends SQLHttpIntegrationTest {
         assertThat(response.rowCount(), is(1L));
     }
 
+    @Test
+    public void testCopyFromCsvFile() throws Exception {
+        execute("create table t (id int primary key, name string, tags array(string), o object as (x int)) " +
+                "clustered into 1 shards with (number_of_replicas = 0)");
+        File file = folder.newFile("data.csv");
+        List<String> lines = Arrays.asList(
+            "name;id;tags;o;unknown",
+            "Arthur;1;[\"a\", \"b\"];{\"x\": 10};foo",
+            "'Trillian; ''Tricia'' McMillan';2;;;");
+        Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+
+        execute("copy t from ? with (format='csv', delimiter=';', quote='''')",
+            new Object[]{Paths.get(file.toURI()).toUri().toString()});
+        assertThat(response.rowCount(), is(2L));
+        refresh();
+
+        execute("select id, name, tags, o['x'] from t order by id");
+        assertThat(TestingHelpers.printedTable(response.rows()), is(
+            "1| Arthur| [a, b]| 10\n" +
+            "2| Trillian; 'Tricia' McMillan| NULL| NULL\n"));
+    }
+
     @Test
     public void testCopyFromWithOverwriteDuplicates() throws Exception {
         execute("create table t (id int primary key) with (number_of_replicas = 0)");
@@ -399,6 +426,29 @@ public class CopyIntegrationTest extends SQLHttpIntegrationTest {
         assertTrue(foundName);
     }
 
+    @Test
+    public void testCopyToDirectoryPartitionedByColumnWithCompression() throws Exception {
+        execute("create table t (id int, category string) clustered into 1 shards with (number_of_replicas = 0)");
+        ensureYellow();
+        execute("insert into t (id, category) values (1, 'a'), (2, 'b'), (3, 'a')");
+        execute("refresh table t");
+
+        String uriTemplate = Paths.get(folder.getRoot().toURI()).toUri().toString();
+        execute("copy t (id) to DIRECTORY ? with (partition_by = 'category', compression = 'gzip')",
+            new Object[]{uriTemplate});
+        assertThat(response.rowCount(), is(3L));
+
+        assertThat(readGzipLines(folder.getRoot().toPath().resolve("t_0__a.json.gz")), containsInAnyOrder("[1]", "[3]"));
+        assertThat(readGzipLines(folder.getRoot().toPath().resolve("t_0__b.json.gz")), contains("[2]"));
+    }
+
+    private static List<String> readGzipLines(Path path) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+            new GZIPInputStream(Files.newInputStream(path)), StandardCharsets.UTF_8))) {
+            return reader.lines().collect(Collectors.toList());
+        }
+    }
+
     @Test
     public void testCopyToFileColumnsJsonObjectOutput() throws Exception {
         execute("create table singleshard (name string, test object as (foo string)) clustered into 1 shards with (number_of_replicas = 0)");
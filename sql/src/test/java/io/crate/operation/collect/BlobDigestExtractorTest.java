@@ -0,0 +1,94 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.operation.collect;
+
+import io.crate.analyze.symbol.Function;
+import io.crate.analyze.symbol.Literal;
+import io.crate.analyze.symbol.Symbol;
+import io.crate.metadata.Reference;
+import io.crate.operation.operator.AndOperator;
+import io.crate.operation.operator.EqOperator;
+import io.crate.operation.operator.OrOperator;
+import io.crate.operation.operator.any.AnyEqOperator;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.ArrayType;
+import io.crate.types.DataTypes;
+import org.apache.lucene.util.BytesRef;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static io.crate.testing.TestingHelpers.createReference;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+
+public class BlobDigestExtractorTest extends CrateUnitTest {
+
+    private static final String A = "0000000000000000000000000000000000000001";
+    private static final String B = "ff00000000000000000000000000000000000002";
+    private static final String C = "aa00000000000000000000000000000000000003";
+
+    private final Reference digest = createReference("digest", DataTypes.STRING);
+    private final Reference lastModified = createReference("last_modified", DataTypes.TIMESTAMP);
+
+    private Function anyEq(String... digests) {
+        BytesRef[] values = new BytesRef[digests.length];
+        for (int i = 0; i < digests.length; i++) {
+            values[i] = digests[i] == null ? null : new BytesRef(digests[i]);
+        }
+        return new Function(AnyEqOperator.createInfo(DataTypes.STRING),
+            Arrays.asList(digest, Literal.of(values, new ArrayType(DataTypes.STRING))));
+    }
+
+    private Function or(Symbol first, Symbol second) {
+        return new Function(OrOperator.INFO, Arrays.asList(first, second));
+    }
+
+    @Test
+    public void testEqualityOnDigest() throws Exception {
+        assertThat(BlobDigestExtractor.extract(EqOperator.createFunction(digest, Literal.of(A))), contains(A));
+        assertThat(BlobDigestExtractor.extract(EqOperator.createFunction(Literal.of(A), digest)), contains(A));
+    }
+
+    @Test
+    public void testAnyOnDigestIsSorted() throws Exception {
+        assertThat(BlobDigestExtractor.extract(anyEq(B, A, null, C)), contains(A, C, B));
+    }
+
+    @Test
+    public void testOrIsUnionAndAndIsIntersection() throws Exception {
+        Symbol query = or(EqOperator.createFunction(digest, Literal.of(B)), anyEq(A, C));
+        assertThat(BlobDigestExtractor.extract(query), contains(A, C, B));
+
+        query = AndOperator.of(anyEq(A, B), EqOperator.createFunction(digest, Literal.of(C)));
+        assertThat(BlobDigestExtractor.extract(query), empty());
+    }
+
+    @Test
+    public void testOtherColumnsOnlyRestrictWithinAnd() throws Exception {
+        Symbol otherColumn = EqOperator.createFunction(lastModified, Literal.of(DataTypes.TIMESTAMP, 10L));
+        assertNull(BlobDigestExtractor.extract(otherColumn));
+        assertNull(BlobDigestExtractor.extract(or(anyEq(A), otherColumn)));
+        assertThat(BlobDigestExtractor.extract(AndOperator.of(anyEq(A), otherColumn)), contains(A));
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.operation.collect.collectors;
+
+import io.crate.analyze.symbol.AggregateMode;
+import io.crate.analyze.symbol.Aggregation;
+import io.crate.analyze.symbol.InputColumn;
+import io.crate.analyze.symbol.Symbol;
+import io.crate.breaker.RamAccountingContext;
+import io.crate.lucene.FieldTypeLookup;
+import io.crate.metadata.FunctionIdent;
+import io.crate.metadata.FunctionInfo;
+import io.crate.metadata.Functions;
+import io.crate.metadata.RowGranularity;
+import io.crate.operation.aggregation.impl.AverageAggregation;
+import io.crate.operation.aggregation.impl.CountAggregation;
+import io.crate.operation.aggregation.impl.MaximumAggregation;
+import io.crate.operation.aggregation.impl.MinimumAggregation;
+import io.crate.operation.aggregation.impl.SumAggregation;
+import io.crate.planner.projection.AggregationProjection;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.testing.TestingBatchConsumer;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static io.crate.testing.TestingHelpers.createReference;
+import static io.crate.testing.TestingHelpers.getFunctions;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
+
+public class DocValuesAggregatesTest extends CrateUnitTest {
+
+    private static final RamAccountingContext RAM_ACCOUNTING_CONTEXT =
+        new RamAccountingContext("dummy", new NoopCircuitBreaker(CircuitBreaker.FIELDDATA));
+
+    private final FieldTypeLookup fieldTypeLookup = name -> mock(MappedFieldType.class);
+    private Functions functions;
+    private IndexSearcher indexSearcher;
+
+    @Before
+    public void prepareSearcher() throws Exception {
+        functions = getFunctions();
+        IndexWriter iw = new IndexWriter(new RAMDirectory(), new IndexWriterConfig(new StandardAnalyzer()));
+        for (long i = 0; i < 20; i++) {
+            Document doc = new Document();
+            doc.add(new NumericDocValuesField("x", i));
+            iw.addDocument(doc);
+        }
+        // document without a value for x
+        iw.addDocument(new Document());
+        iw.commit();
+        indexSearcher = new IndexSearcher(DirectoryReader.open(iw));
+    }
+
+    private static Aggregation aggregation(String name, DataType returnType, List<Symbol> inputs) {
+        FunctionInfo info = new FunctionInfo(
+            new FunctionIdent(name, inputs.isEmpty() ? Collections.emptyList() : Collections.singletonList(DataTypes.LONG)),
+            returnType);
+        return new Aggregation(info, returnType, inputs);
+    }
+
+    @Test
+    public void testPartialStatesAreComputedFromDocValues() throws Exception {
+        List<Symbol> x = Collections.singletonList(new InputColumn(0));
+        AggregationProjection projection = new AggregationProjection(Arrays.asList(
+            aggregation(CountAggregation.NAME, DataTypes.LONG, Collections.emptyList()),
+            aggregation(CountAggregation.NAME, DataTypes.LONG, x),
+            aggregation(SumAggregation.NAME, DataTypes.DOUBLE, x),
+            aggregation(AverageAggregation.NAME, DataTypes.DOUBLE, x),
+            aggregation(MinimumAggregation.NAME, DataTypes.LONG, x),
+            aggregation(MaximumAggregation.NAME, DataTypes.LONG, x)
+        ), RowGranularity.SHARD, AggregateMode.ITER_PARTIAL);
+
+        DocValuesAggregates aggregates = DocValuesAggregates.forProjection(
+            functions, projection, Collections.singletonList(createReference("x", DataTypes.LONG)), fieldTypeLookup);
+        assertThat(aggregates == null, is(false));
+
+        TestingBatchConsumer consumer = new TestingBatchConsumer();
+        aggregates.builder(indexSearcher, new MatchAllDocsQuery(), null, RAM_ACCOUNTING_CONTEXT)
+            .build(consumer)
+            .doCollect();
+        List<Object[]> result = consumer.getResult();
+        assertThat(result.size(), is(1));
+        Object[] states = result.get(0);
+        assertThat(states[0].toString(), is("21"));
+        assertThat(states[1].toString(), is("20"));
+        assertThat(states[2], is(190.0));
+        assertThat(((AverageAggregation.AverageState) states[3]).value(), is(9.5));
+        assertThat(states[4], is(0L));
+        assertThat(states[5], is(19L));
+    }
+
+    @Test
+    public void testMinMaxAndCountOfUnfilteredSegmentsAreTakenFromPoints() throws Exception {
+        IndexWriter iw = new IndexWriter(new RAMDirectory(),
+            new IndexWriterConfig(new StandardAnalyzer()).setMergePolicy(NoMergePolicy.INSTANCE));
+        for (long i = 0; i < 20; i++) {
+            Document doc = new Document();
+            doc.add(new StringField("id", Long.toString(i), Field.Store.NO));
+            doc.add(new LongPoint("x", i));
+            doc.add(new NumericDocValuesField("x", i));
+            iw.addDocument(doc);
+            if (i == 9) {
+                iw.commit();
+            }
+        }
+        iw.addDocument(new Document());
+        // the second segment has a deletion and must be read from the doc values
+        iw.deleteDocuments(new Term("id", "19"));
+        iw.commit();
+        IndexSearcher searcher = new IndexSearcher(DirectoryReader.open(iw));
+
+        List<Symbol> x = Collections.singletonList(new InputColumn(0));
+        AggregationProjection projection = new AggregationProjection(Arrays.asList(
+            aggregation(CountAggregation.NAME, DataTypes.LONG, Collections.emptyList()),
+            aggregation(CountAggregation.NAME, DataTypes.LONG, x),
+            aggregation(MinimumAggregation.NAME, DataTypes.LONG, x),
+            aggregation(MaximumAggregation.NAME, DataTypes.LONG, x)
+        ), RowGranularity.SHARD, AggregateMode.ITER_PARTIAL);
+        DocValuesAggregates aggregates = DocValuesAggregates.forProjection(
+            functions, projection, Collections.singletonList(createReference("x", DataTypes.LONG)), fieldTypeLookup);
+
+        TestingBatchConsumer consumer = new TestingBatchConsumer();
+        aggregates.builder(searcher, new MatchAllDocsQuery(), null, RAM_ACCOUNTING_CONTEXT)
+            .build(consumer)
+            .doCollect();
+        Object[] states = consumer.getResult().get(0);
+        assertThat(states[0].toString(), is("20"));
+        assertThat(states[1].toString(), is("19"));
+        assertThat(states[2], is(0L));
+        assertThat(states[3], is(18L));
+    }
+
+    @Test
+    public void testUnsupportedColumnTypeIsNotHandled() throws Exception {
+        AggregationProjection projection = new AggregationProjection(Collections.singletonList(
+            new Aggregation(
+                new FunctionInfo(new FunctionIdent(CountAggregation.NAME, Collections.singletonList(DataTypes.STRING)),
+                    DataTypes.LONG),
+                DataTypes.LONG,
+                Collections.singletonList(new InputColumn(0)))
+        ), RowGranularity.SHARD, AggregateMode.ITER_PARTIAL);
+
+        DocValuesAggregates aggregates = DocValuesAggregates.forProjection(
+            functions, projection, Collections.singletonList(createReference("s", DataTypes.STRING)), fieldTypeLookup);
+        assertThat(aggregates, nullValue());
+    }
+}
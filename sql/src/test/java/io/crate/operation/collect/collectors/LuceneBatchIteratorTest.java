@@ -33,6 +33,8 @@ import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.store.RAMDirectory;
@@ -45,6 +47,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
 import static org.mockito.Mockito.mock;
 
 public class LuceneBatchIteratorTest extends CrateUnitTest {
@@ -91,4 +95,57 @@ public class LuceneBatchIteratorTest extends CrateUnitTest {
         );
         tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
     }
+
+    @Test
+    public void testSlicesOfLeavesContainAllDocuments() throws Exception {
+        IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
+        config.setMergePolicy(NoMergePolicy.INSTANCE);
+        IndexWriter iw = new IndexWriter(new RAMDirectory(), config);
+        List<Long> expected = new ArrayList<>();
+        for (long i = 0; i < 20; i++) {
+            Document doc = new Document();
+            doc.add(new NumericDocValuesField("x", i));
+            iw.addDocument(doc);
+            expected.add(i);
+            if (i % 4 == 0) {
+                // create multiple segments
+                iw.commit();
+            }
+        }
+        iw.commit();
+        IndexSearcher searcher = new IndexSearcher(DirectoryReader.open(iw));
+        List<LeafReaderContext> leaves = searcher.getTopReaderContext().leaves();
+
+        List<List<LeafReaderContext>> slices = CrateDocCollectorBuilder.sliceLeaves(leaves, 3);
+        assertThat(slices.size(), is(3));
+
+        List<Long> values = new ArrayList<>();
+        for (List<LeafReaderContext> slice : slices) {
+            LongColumnReference columnReference = new LongColumnReference("x");
+            List<LongColumnReference> refs = Collections.singletonList(columnReference);
+            LuceneBatchIterator it = new LuceneBatchIterator(
+                searcher,
+                slice,
+                new MatchAllDocsQuery(),
+                null,
+                false,
+                new CollectorContext(mock(IndexFieldDataService.class), new CollectorFieldsVisitor(0)),
+                new RamAccountingContext("dummy", new NoopCircuitBreaker("dummy")),
+                refs,
+                refs
+            );
+            while (it.moveNext()) {
+                values.add((Long) it.rowData().get(0).value());
+            }
+            it.close();
+        }
+        assertThat(values, containsInAnyOrder(expected.toArray()));
+    }
+
+    @Test
+    public void testSliceLeavesWithLessLeavesThanSlices() throws Exception {
+        List<LeafReaderContext> leaves = indexSearcher.getTopReaderContext().leaves();
+        List<List<LeafReaderContext>> slices = CrateDocCollectorBuilder.sliceLeaves(leaves, leaves.size() + 2);
+        assertThat(slices.size(), is(leaves.size()));
+    }
 }
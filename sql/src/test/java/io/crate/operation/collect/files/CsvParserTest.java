@@ -0,0 +1,77 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+package io.crate.operation.collect.files;
+
+import io.crate.test.integration.CrateUnitTest;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.nullValue;
+
+public class CsvParserTest extends CrateUnitTest {
+
+    private final CsvParser parser = new CsvParser(',', '"');
+
+    @Test
+    public void testSplitsFieldsAtDelimiter() throws Exception {
+        assertThat(parser.parse("a,b,c"), contains("a", "b", "c"));
+    }
+
+    @Test
+    public void testUnquotedEmptyFieldsAreNullQuotedOnesEmpty() throws Exception {
+        assertThat(parser.parse(",\"\","), contains(null, "", null));
+    }
+
+    @Test
+    public void testQuotedFieldsContainDelimitersAndEscapedQuotes() throws Exception {
+        assertThat(parser.parse("\"a,b\",\"say \"\"hi\"\"\",c"), contains("a,b", "say \"hi\"", "c"));
+    }
+
+    @Test
+    public void testQuoteWithinUnquotedFieldIsPartOfTheValue() throws Exception {
+        assertThat(parser.parse("5\" disk,b"), contains("5\" disk", "b"));
+    }
+
+    @Test
+    public void testTrailingCarriageReturnIsIgnored() throws Exception {
+        assertThat(parser.parse("a,b\r"), contains("a", "b"));
+    }
+
+    @Test
+    public void testUnterminatedQuotedFieldReturnsNull() throws Exception {
+        assertThat(parser.parse("a,\"b"), nullValue());
+        assertThat(parser.parse("a,\"b\nc\""), contains("a", "b\nc"));
+    }
+
+    @Test
+    public void testCustomDelimiterAndQuote() throws Exception {
+        CsvParser parser = new CsvParser('\t', '\'');
+        assertThat(parser.parse("'a\tb'\t'it''s'"), contains("a\tb", "it's"));
+    }
+
+    @Test
+    public void testSameDelimiterAndQuoteIsRejected() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("CSV delimiter and quote character must be different");
+        new CsvParser(',', ',');
+    }
+}
@@ -25,6 +25,7 @@ package io.crate.operation.collect.files;
 import com.google.common.collect.ImmutableMap;
 import io.crate.data.BatchIterator;
 import io.crate.data.Input;
+import io.crate.data.RowAccounting;
 import io.crate.metadata.*;
 import io.crate.operation.InputFactory;
 import io.crate.operation.reference.file.FileLineReferenceResolver;
@@ -40,10 +41,15 @@ import java.io.FileOutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 import static io.crate.testing.TestingHelpers.createReference;
@@ -86,6 +92,95 @@ public class FileReadingIteratorTest extends CrateUnitTest {
         tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
     }
 
+    @Test
+    public void testConcurrentIteratorContract() throws Exception {
+        Path secondFilePath = createTempFile();
+        try (OutputStreamWriter writer = new OutputStreamWriter(
+            new FileOutputStream(secondFilePath.toFile()), StandardCharsets.UTF_8)) {
+            writer.write("{\"id\": 6, \"name\": \"Ford\"}\n");
+            writer.write("{\"id\": 7, \"name\": \"Zaphod\"}\n");
+        }
+        List<String> fileUris = Arrays.asList(tempFilePath.toUri().toString(), secondFilePath.toUri().toString());
+
+        // each file is read by another iterator, their batches of one row are consumed alternately
+        List<Object[]> expectedResult = Arrays.asList(
+            new Object[]{new BytesRef("{\"name\": \"Arthur\", \"id\": 4, \"details\": {\"age\": 38}}")},
+            new Object[]{new BytesRef("{\"id\": 6, \"name\": \"Ford\"}")},
+            new Object[]{new BytesRef("{\"id\": 5, \"name\": \"Trillian\", \"details\": {\"age\": 33}}")},
+            new Object[]{new BytesRef("{\"id\": 7, \"name\": \"Zaphod\"}")});
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            BatchIteratorTester tester = new BatchIteratorTester(() -> createConcurrentBatchIterator(fileUris, 3, executor));
+            tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testCsvIteratorContract() throws Exception {
+        Path csvFilePath = createTempFile();
+        try (OutputStreamWriter writer = new OutputStreamWriter(
+            new FileOutputStream(csvFilePath.toFile()), StandardCharsets.UTF_8)) {
+            writer.write("name;id;ignored\n");
+            writer.write("Arthur;4;x\n");
+            writer.write("'Trillian\n''Tricia'' McMillan';5;\n");
+            writer.write(";6\n");
+        }
+        String fileUri = csvFilePath.toUri().toString();
+
+        List<Object[]> expectedResult = Arrays.asList(
+            new Object[]{4L, new BytesRef("Arthur")},
+            new Object[]{5L, new BytesRef("Trillian\n'Tricia' McMillan")},
+            new Object[]{6L, null});
+        BatchIteratorTester tester = new BatchIteratorTester(() -> {
+            InputFactory.Context<LineCollectorExpression<?>> ctx =
+                inputFactory.ctxForRefs(FileLineReferenceResolver::getCsvImplementation);
+            List<Input<?>> inputs = Arrays.asList(
+                ctx.add(createReference("id", DataTypes.LONG)),
+                ctx.add(createReference("name", DataTypes.STRING)));
+            return FileReadingIterator.newInstance(
+                Collections.singletonList(fileUri),
+                inputs,
+                ctx.expressions(),
+                null,
+                ImmutableMap.of(LocalFsFileInputFactory.NAME, new LocalFsFileInputFactory()),
+                false,
+                1,
+                0,
+                new CsvParser(';', '\''));
+        });
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+
+    private BatchIterator createConcurrentBatchIterator(Collection<String> fileUris, int numIterators, Executor executor) {
+        Reference raw = createReference("_raw", DataTypes.STRING);
+        List<List<Input<?>>> inputs = new ArrayList<>(numIterators);
+        List<Iterable<LineCollectorExpression<?>>> expressions = new ArrayList<>(numIterators);
+        for (int i = 0; i < numIterators; i++) {
+            InputFactory.Context<LineCollectorExpression<?>> ctx =
+                inputFactory.ctxForRefs(FileLineReferenceResolver::getImplementation);
+            inputs.add(Collections.singletonList(ctx.add(raw)));
+            expressions.add(ctx.expressions());
+        }
+        return FileReadingIterator.newConcurrentInstance(
+            fileUris,
+            inputs,
+            expressions,
+            null,
+            ImmutableMap.of(
+                LocalFsFileInputFactory.NAME, new LocalFsFileInputFactory()),
+            false,
+            1,
+            0,
+            null,
+            executor,
+            1,
+            () -> RowAccounting.NO_OP
+        );
+    }
+
     private BatchIterator createBatchIterator(Collection<String> fileUris, String compression) {
         Reference raw = createReference("_raw", DataTypes.STRING);
         InputFactory.Context<LineCollectorExpression<?>> ctx =
@@ -0,0 +1,89 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.operation.collect.files;
+
+import io.crate.test.integration.CrateUnitTest;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+public class LineRangeInputStreamTest extends CrateUnitTest {
+
+    private static final byte[] CONTENT = "foo\nbarbaz\n\nqux\nquux".getBytes(StandardCharsets.UTF_8);
+
+    private static List<String> readLines(long start, long end) throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream(CONTENT);
+        assertThat(in.skip(Math.max(start - 1, 0)), is(Math.max(start - 1, 0)));
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+            new LineRangeInputStream(in, start, end), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    @Test
+    public void testRangeStartingAtALineIncludesThatLine() throws Exception {
+        assertThat(readLines(4, 6), contains("barbaz"));
+    }
+
+    @Test
+    public void testRangeSkipsThePartialLineItStartsIn() throws Exception {
+        assertThat(readLines(5, 13), contains("", "qux"));
+    }
+
+    @Test
+    public void testRangeWithinALineIsEmpty() throws Exception {
+        assertThat(readLines(5, 8), empty());
+    }
+
+    @Test
+    public void testRangeEndingAfterANewlineStopsThere() throws Exception {
+        assertThat(readLines(0, 4), contains("foo"));
+    }
+
+    @Test
+    public void testEveryLineIsReadExactlyOnce() throws Exception {
+        for (int rangeSize = 1; rangeSize <= CONTENT.length; rangeSize++) {
+            List<String> lines = new ArrayList<>();
+            for (int start = 0; start < CONTENT.length; start += rangeSize) {
+                lines.addAll(readLines(start, Math.min(start + rangeSize, CONTENT.length)));
+            }
+            assertThat(lines, is(Arrays.asList("foo", "barbaz", "", "qux", "quux")));
+        }
+    }
+}
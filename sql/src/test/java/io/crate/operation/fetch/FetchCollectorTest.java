@@ -0,0 +1,139 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+
+package io.crate.operation.fetch;
+
+import com.carrotsearch.hppc.IntArrayList;
+import io.crate.Streamer;
+import io.crate.data.Row;
+import io.crate.executor.transport.StreamBucket;
+import io.crate.operation.reference.doc.lucene.LongColumnReference;
+import io.crate.operation.reference.doc.lucene.LuceneCollectorExpression;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataTypes;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.fielddata.IndexFieldDataService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.mockito.Mockito.mock;
+
+public class FetchCollectorTest extends CrateUnitTest {
+
+    private static final int DOCS_PER_SEGMENT = 10;
+    private static final int NUM_SEGMENTS = 3;
+
+    private DirectoryReader reader;
+    private Engine.Searcher searcher;
+
+    @Before
+    public void prepareSearcher() throws Exception {
+        IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer())
+            .setMergePolicy(NoMergePolicy.INSTANCE);
+        IndexWriter iw = new IndexWriter(new RAMDirectory(), config);
+        for (long i = 0; i < DOCS_PER_SEGMENT * NUM_SEGMENTS; i++) {
+            Document doc = new Document();
+            doc.add(new SortedNumericDocValuesField("x", i));
+            iw.addDocument(doc);
+            if ((i + 1) % DOCS_PER_SEGMENT == 0) {
+                iw.commit();
+            }
+        }
+        reader = DirectoryReader.open(iw);
+        iw.close();
+        searcher = new Engine.Searcher("dummy", new IndexSearcher(reader));
+    }
+
+    @After
+    public void closeReader() throws Exception {
+        reader.close();
+    }
+
+    private FetchCollector createCollector(Streamer<?>[] streamers) {
+        List<LuceneCollectorExpression<?>> expressions = Collections.singletonList(new LongColumnReference("x"));
+        return new FetchCollector(expressions, streamers, searcher, mock(IndexFieldDataService.class), 0);
+    }
+
+    @Test
+    public void testRowsAreReturnedInRequestedOrder() throws Exception {
+        Streamer<?>[] streamers = new Streamer[]{DataTypes.LONG.streamer()};
+        FetchCollector collector = createCollector(streamers);
+        assertThat(reader.leaves().size(), is(NUM_SEGMENTS));
+
+        IntArrayList docIds = IntArrayList.from(25, 3, 17, 0, 29, 3, 11, 10);
+        StreamBucket bucket = collector.collect(docIds);
+
+        List<Object> values = new ArrayList<>();
+        for (Row row : bucket) {
+            values.add(row.get(0));
+        }
+        assertThat(values.toString(), is("[25, 3, 17, 0, 29, 3, 11, 10]"));
+    }
+
+    @Test
+    public void testSplitOnlyAtSegmentBoundaries() throws Exception {
+        FetchCollector collector = createCollector(new Streamer[]{DataTypes.LONG.streamer()});
+        IntArrayList docIds = new IntArrayList();
+        for (int i = DOCS_PER_SEGMENT * NUM_SEGMENTS - 1; i >= 0; i--) {
+            docIds.add(i);
+        }
+        long[] sortedDocs = FetchCollector.sortedDocs(docIds);
+        for (int i = 0; i < sortedDocs.length; i++) {
+            assertThat(FetchCollector.docId(sortedDocs[i]), is(i));
+            assertThat(FetchCollector.position(sortedDocs[i]), is(sortedDocs.length - 1 - i));
+        }
+
+        int[] bounds = collector.split(sortedDocs, 2);
+        assertThat(bounds.length - 1, lessThanOrEqualTo(2));
+        for (int bound : bounds) {
+            assertThat(bound % DOCS_PER_SEGMENT, is(0));
+        }
+        assertThat(bounds[0], is(0));
+        assertThat(bounds[bounds.length - 1], is(sortedDocs.length));
+
+        Object[][] rows = new Object[sortedDocs.length][];
+        for (int i = 0; i < bounds.length - 1; i++) {
+            createCollector(new Streamer[]{DataTypes.LONG.streamer()})
+                .collect(sortedDocs, bounds[i], bounds[i + 1], rows);
+        }
+        for (int i = 0; i < rows.length; i++) {
+            assertThat(rows[i][0], is((long) (rows.length - 1 - i)));
+        }
+    }
+}
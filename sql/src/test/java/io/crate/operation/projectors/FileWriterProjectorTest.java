@@ -24,9 +24,11 @@ package io.crate.operation.projectors;
 
 import com.google.common.collect.ImmutableSet;
 import io.crate.data.BatchIterator;
+import io.crate.data.Input;
 import io.crate.data.RowsBatchIterator;
 import io.crate.exceptions.UnhandledServerException;
 import io.crate.metadata.ColumnIdent;
+import io.crate.operation.collect.InputCollectExpression;
 import io.crate.planner.projection.WriterProjection;
 import io.crate.test.integration.CrateUnitTest;
 import io.crate.testing.RowGenerator;
@@ -37,6 +39,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.net.URI;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
@@ -118,4 +121,76 @@ public class FileWriterProjectorTest extends CrateUnitTest {
 
         new TestingBatchConsumer().accept(fileWriterProjector.apply(sourceSupplier.get()), null);
     }
+
+    @Test
+    public void testWriteRawToFilePerPartitionAndRollFiles() throws Exception {
+        Path directory = createTempDir();
+        String uri = directory.resolve("out.json").toUri().toString();
+        InputCollectExpression line = new InputCollectExpression(0);
+        Input<?> partitionBy = () -> {
+            String value = ((BytesRef) line.value()).utf8ToString();
+            return value.endsWith("1") || value.endsWith("3") ? "a/b" : "c";
+        };
+
+        FileWriterProjector fileWriterProjector = new FileWriterProjector(executorService, uri,
+            null, null, ImmutableSet.of(line), new HashMap<>(),
+            null, WriterProjection.OutputFormat.JSON_OBJECT, partitionBy, 20);
+
+        TestingBatchConsumer consumer = new TestingBatchConsumer();
+        consumer.accept(fileWriterProjector.apply(sourceSupplier.get()), null);
+        assertThat(consumer.getResult().get(0)[0], is(5L));
+
+        // every file exceeds the max file size after 2 rows of 14 bytes
+        assertThat(TestingHelpers.readFile(directory.resolve("out_c.json").toString()),
+            is("input line 00\ninput line 02\n"));
+        assertThat(TestingHelpers.readFile(directory.resolve("out_c_1.json").toString()),
+            is("input line 04\n"));
+        assertThat(TestingHelpers.readFile(directory.resolve("out_a_b.json").toString()),
+            is("input line 01\ninput line 03\n"));
+    }
+
+    @Test
+    public void testFileUriWithPartitionAndFileNumber() throws Exception {
+        URI uri = URI.create("file:///tmp/users_0_.json.gz");
+        assertThat(FileWriterCountCollector.fileUri(uri, null, 0), is(uri));
+        assertThat(FileWriterCountCollector.fileUri(uri, "p1", 0).toString(), is("file:///tmp/users_0__p1.json.gz"));
+        assertThat(FileWriterCountCollector.fileUri(uri, null, 2).toString(), is("file:///tmp/users_0__2.json.gz"));
+        assertThat(FileWriterCountCollector.fileUri(uri, "p1", 2).toString(), is("file:///tmp/users_0__p1_2.json.gz"));
+    }
+
+    @Test
+    public void testPartitionNameReplacesUnsafeCharacters() throws Exception {
+        assertThat(FileWriterCountCollector.partitionName(new BytesRef("../a b")), is(".._a_b"));
+        assertThat(FileWriterCountCollector.partitionName(10L), is("10"));
+        assertThat(FileWriterCountCollector.partitionName(null), is(FileWriterCountCollector.NULL_PARTITION_NAME));
+        assertThat(FileWriterCountCollector.partitionName(new BytesRef("null")), is("null"));
+        assertThat(FileWriterCountCollector.partitionName(new BytesRef("~null")), is("_null"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedPartitionIsContinuedInNextFile() throws Exception {
+        Path directory = createTempDir();
+        String uri = directory.resolve("out.json").toUri().toString();
+        int numPartitions = FileWriterCountCollector.MAX_OPEN_OUTPUTS + 1;
+        InputCollectExpression line = new InputCollectExpression(0);
+        Input<?> partitionBy = () -> Integer.parseInt(((BytesRef) line.value()).utf8ToString()) % numPartitions;
+        Supplier<BatchIterator> source = () -> RowsBatchIterator.newInstance(RowGenerator.fromSingleColValues(
+            IntStream.rangeClosed(0, numPartitions)
+                .mapToObj(i -> new BytesRef(Integer.toString(i)))
+                .collect(Collectors.toList())), 1);
+
+        FileWriterProjector fileWriterProjector = new FileWriterProjector(executorService, uri,
+            null, null, ImmutableSet.of(line), new HashMap<>(),
+            null, WriterProjection.OutputFormat.JSON_OBJECT, partitionBy, WriterProjection.NO_MAX_FILE_SIZE);
+
+        TestingBatchConsumer consumer = new TestingBatchConsumer();
+        consumer.accept(fileWriterProjector.apply(source.get()), null);
+        assertThat(consumer.getResult().get(0)[0], is((long) numPartitions + 1));
+
+        // partition 0 had to be closed to open the last partition, its next row starts a new file
+        assertThat(TestingHelpers.readFile(directory.resolve("out_0.json").toString()), is("0\n"));
+        assertThat(TestingHelpers.readFile(directory.resolve("out_0_1.json").toString()),
+            is(numPartitions + "\n"));
+        assertThat(TestingHelpers.readFile(directory.resolve("out_1.json").toString()), is("1\n"));
+    }
 }
@@ -33,6 +33,7 @@ import io.crate.operation.aggregation.impl.AverageAggregation;
 import io.crate.operation.aggregation.impl.CountAggregation;
 import io.crate.operation.operator.EqOperator;
 import io.crate.planner.projection.*;
+import io.crate.plugin.SQLPlugin;
 import io.crate.test.integration.CrateUnitTest;
 import io.crate.testing.TestingBatchConsumer;
 import io.crate.testing.TestingBatchIterators;
@@ -44,6 +45,7 @@ import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.env.Environment;
 import org.elasticsearch.threadpool.TestThreadPool;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.junit.After;
@@ -52,16 +54,21 @@ import org.junit.Test;
 import org.mockito.Answers;
 import org.mockito.MockitoAnnotations;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static com.carrotsearch.randomizedtesting.RandomizedTest.$;
 import static io.crate.testing.TestingHelpers.getFunctions;
 import static io.crate.testing.TestingHelpers.isRow;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.core.Is.is;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class ProjectionToProjectorVisitorTest extends CrateUnitTest {
 
@@ -233,6 +240,273 @@ public class ProjectionToProjectorVisitorTest extends CrateUnitTest {
         ));
     }
 
+    @Test
+    public void testGroupProjectorWithSingleLongKey() throws Exception {
+        // select  x, count(x) ... group by x
+        List<Symbol> keys = Collections.singletonList(new InputColumn(0, DataTypes.LONG));
+        List<Aggregation> aggregations = Collections.singletonList(
+            new Aggregation(
+                countInfo,
+                countInfo.returnType(),
+                Collections.singletonList(new InputColumn(0)))
+        );
+        GroupProjection projection = new GroupProjection(
+            keys, aggregations, AggregateMode.ITER_FINAL, RowGranularity.CLUSTER);
+        Projector projector = visitor.create(projection, RAM_ACCOUNTING_CONTEXT, UUID.randomUUID());
+
+        List<Object[]> rows = new ArrayList<>();
+        rows.add($(1L));
+        rows.add($(2L));
+        rows.add(new Object[]{null});
+        rows.add($(1L));
+
+        BatchIterator batchIterator = projector.apply(
+            RowsBatchIterator.newInstance(new CollectionBucket(rows), 1));
+        TestingBatchConsumer consumer = new TestingBatchConsumer();
+        consumer.accept(batchIterator, null);
+
+        assertThat(consumer.getBucket(), containsInAnyOrder(
+            isRow(1L, 2L),
+            isRow(2L, 1L),
+            isRow(null, 0L)
+        ));
+    }
+
+    @Test
+    public void testGroupProjectorWithSingleIntegerKey() throws Exception {
+        // select  x, count(x) ... group by x
+        List<Symbol> keys = Collections.singletonList(new InputColumn(0, DataTypes.INTEGER));
+        List<Aggregation> aggregations = Collections.singletonList(
+            new Aggregation(
+                countInfo,
+                countInfo.returnType(),
+                Collections.singletonList(new InputColumn(0)))
+        );
+        GroupProjection projection = new GroupProjection(
+            keys, aggregations, AggregateMode.ITER_FINAL, RowGranularity.CLUSTER);
+        Projector projector = visitor.create(projection, RAM_ACCOUNTING_CONTEXT, UUID.randomUUID());
+
+        List<Object[]> rows = new ArrayList<>();
+        rows.add($(1));
+        rows.add($(-1));
+        rows.add(new Object[]{null});
+        rows.add($(1));
+        rows.add($(Integer.MAX_VALUE));
+
+        BatchIterator batchIterator = projector.apply(
+            RowsBatchIterator.newInstance(new CollectionBucket(rows), 1));
+        TestingBatchConsumer consumer = new TestingBatchConsumer();
+        consumer.accept(batchIterator, null);
+
+        assertThat(consumer.getBucket(), containsInAnyOrder(
+            isRow(1, 2L),
+            isRow(-1, 1L),
+            isRow(Integer.MAX_VALUE, 1L),
+            isRow(null, 0L)
+        ));
+    }
+
+    @Test
+    public void testGroupProjectorWithSingleDoubleKey() throws Exception {
+        // select  x, count(x) ... group by x
+        List<Symbol> keys = Collections.singletonList(new InputColumn(0, DataTypes.DOUBLE));
+        List<Aggregation> aggregations = Collections.singletonList(
+            new Aggregation(
+                countInfo,
+                countInfo.returnType(),
+                Collections.singletonList(new InputColumn(0)))
+        );
+        GroupProjection projection = new GroupProjection(
+            keys, aggregations, AggregateMode.ITER_FINAL, RowGranularity.CLUSTER);
+        Projector projector = visitor.create(projection, RAM_ACCOUNTING_CONTEXT, UUID.randomUUID());
+
+        List<Object[]> rows = new ArrayList<>();
+        rows.add($(1.5d));
+        rows.add($(Double.NaN));
+        rows.add(new Object[]{null});
+        rows.add($(1.5d));
+        rows.add($(Double.NaN));
+        rows.add(new Object[]{null});
+        rows.add($(2.0d));
+
+        BatchIterator batchIterator = projector.apply(
+            RowsBatchIterator.newInstance(new CollectionBucket(rows), 1));
+        TestingBatchConsumer consumer = new TestingBatchConsumer();
+        consumer.accept(batchIterator, null);
+
+        assertThat(consumer.getBucket(), containsInAnyOrder(
+            isRow(1.5d, 2L),
+            isRow(2.0d, 1L),
+            isRow(Double.NaN, 2L),
+            isRow(null, 0L)
+        ));
+    }
+
+    @Test
+    public void testGroupProjectorWithIntegerAndStringKeys() throws Exception {
+        // select  x, y, count(z) ... group by x, y
+        List<Symbol> keys = Arrays.asList(new InputColumn(0, DataTypes.INTEGER), new InputColumn(1, DataTypes.STRING));
+        List<Aggregation> aggregations = Collections.singletonList(
+            new Aggregation(
+                countInfo,
+                countInfo.returnType(),
+                Collections.singletonList(new InputColumn(2)))
+        );
+        GroupProjection projection = new GroupProjection(
+            keys, aggregations, AggregateMode.ITER_FINAL, RowGranularity.CLUSTER);
+        Projector projector = visitor.create(projection, RAM_ACCOUNTING_CONTEXT, UUID.randomUUID());
+
+        BytesRef a = new BytesRef("a");
+        BytesRef b = new BytesRef("b");
+        List<Object[]> rows = new ArrayList<>();
+        rows.add($(1, a, 1L));
+        rows.add($(1, b, 1L));
+        rows.add($(null, a, 1L));
+        rows.add($(1, a, 1L));
+        rows.add($(2, null, 1L));
+        rows.add($(null, a, 1L));
+        rows.add($(null, null, 1L));
+
+        BatchIterator batchIterator = projector.apply(
+            RowsBatchIterator.newInstance(new CollectionBucket(rows), 2));
+        TestingBatchConsumer consumer = new TestingBatchConsumer();
+        consumer.accept(batchIterator, null);
+
+        assertThat(consumer.getBucket(), containsInAnyOrder(
+            isRow(1, a, 2L),
+            isRow(1, b, 1L),
+            isRow(null, a, 2L),
+            isRow(2, null, 1L),
+            isRow(null, null, 1L)
+        ));
+    }
+
+    @Test
+    public void testGroupProjectorSpillsGroupsAboveThreshold() throws Exception {
+        // the merged partitions exceed the threshold as well, so they are split further
+        Path spillDirectory = createTempDir();
+        ProjectionToProjectorVisitor spillingVisitor = new ProjectionToProjectorVisitor(
+            mock(ClusterService.class),
+            functions,
+            new IndexNameExpressionResolver(Settings.EMPTY),
+            threadPool,
+            Settings.builder()
+                .put(GroupingProjector.SPILL_THRESHOLD_SETTING.getKey(), "1b")
+                .put(ProjectionToProjectorVisitor.SPILL_PATH_SETTING.getKey(), spillDirectory.toString())
+                .build(),
+            mock(TransportActionProvider.class, Answers.RETURNS_DEEP_STUBS.get()),
+            mock(BulkRetryCoordinatorPool.class),
+            new InputFactory(functions),
+            EvaluatingNormalizer.functionOnlyNormalizer(functions, ReplaceMode.COPY),
+            null
+        );
+        // select  race, gender, avg(age), count(race) ... group by race, gender
+        List<Symbol> keys = Arrays.asList(new InputColumn(0, DataTypes.STRING), new InputColumn(2, DataTypes.STRING));
+        List<Aggregation> aggregations = Arrays.asList(
+            new Aggregation(
+                avgInfo,
+                avgInfo.returnType(),
+                Collections.singletonList(new InputColumn(1))),
+            new Aggregation(
+                countInfo,
+                countInfo.returnType(),
+                Collections.singletonList(new InputColumn(0)))
+        );
+        GroupProjection projection = new GroupProjection(
+            keys, aggregations, AggregateMode.ITER_FINAL, RowGranularity.CLUSTER);
+        Projector projector = spillingVisitor.create(projection, RAM_ACCOUNTING_CONTEXT, UUID.randomUUID());
+
+        BytesRef human = new BytesRef("human");
+        BytesRef vogon = new BytesRef("vogon");
+        BytesRef male = new BytesRef("male");
+        BytesRef female = new BytesRef("female");
+
+        List<Object[]> rows = new ArrayList<>();
+        rows.add($(human, 34, male));
+        rows.add($(human, 22, female));
+        rows.add($(vogon, 40, male));
+        rows.add($(vogon, 48, male));
+        rows.add($(human, 34, male));
+
+        BatchIterator batchIterator = projector.apply(
+            RowsBatchIterator.newInstance(new CollectionBucket(rows), 2));
+        TestingBatchConsumer consumer = new TestingBatchConsumer();
+        consumer.accept(batchIterator, null);
+
+        assertThat(consumer.getBucket(), containsInAnyOrder(
+            isRow(human, female, 22.0, 1L),
+            isRow(human, male, 34.0, 2L),
+            isRow(vogon, male, 44.0, 2L)
+        ));
+        try (Stream<Path> spillFiles = Files.list(spillDirectory)) {
+            assertThat(spillFiles.count(), is(0L));
+        }
+    }
+
+    @Test
+    public void testGroupProjectorSpillsGroupsBeforeBreakerTrips() throws Exception {
+        Path spillDirectory = createTempDir().resolve("spill");
+        ProjectionToProjectorVisitor spillingVisitor = new ProjectionToProjectorVisitor(
+            mock(ClusterService.class),
+            functions,
+            new IndexNameExpressionResolver(Settings.EMPTY),
+            threadPool,
+            Settings.builder()
+                .put(ProjectionToProjectorVisitor.SPILL_PATH_SETTING.getKey(), spillDirectory.toString())
+                .build(),
+            mock(TransportActionProvider.class, Answers.RETURNS_DEEP_STUBS.get()),
+            mock(BulkRetryCoordinatorPool.class),
+            new InputFactory(functions),
+            EvaluatingNormalizer.functionOnlyNormalizer(functions, ReplaceMode.COPY),
+            null
+        );
+        // a breaker which is already at its limit, the spill threshold isn't reached
+        CircuitBreaker breaker = mock(CircuitBreaker.class);
+        when(breaker.getLimit()).thenReturn(1024L);
+        when(breaker.getUsed()).thenReturn(1024L);
+        RamAccountingContext ramAccountingContext = new RamAccountingContext("breaking", breaker);
+
+        // select x, count(name) ... group by x
+        GroupProjection projection = new GroupProjection(
+            Collections.singletonList(new InputColumn(0, DataTypes.LONG)),
+            Collections.singletonList(new Aggregation(
+                countInfo,
+                countInfo.returnType(),
+                Collections.singletonList(new InputColumn(1)))),
+            AggregateMode.ITER_FINAL,
+            RowGranularity.CLUSTER);
+        Projector projector = spillingVisitor.create(projection, ramAccountingContext, UUID.randomUUID());
+
+        int numGroups = 20_000;
+        List<Object[]> rows = new ArrayList<>(numGroups);
+        for (long i = 0; i < numGroups; i++) {
+            rows.add($(i, new BytesRef("foo")));
+        }
+        BatchIterator batchIterator = projector.apply(
+            RowsBatchIterator.newInstance(new CollectionBucket(rows), 2));
+        TestingBatchConsumer consumer = new TestingBatchConsumer();
+        consumer.accept(batchIterator, null);
+
+        List<Object[]> result = consumer.getResult();
+        assertThat(result.size(), is(numGroups));
+        for (Object[] row : result) {
+            assertThat(row[1], is(1L));
+        }
+        // the spill directory is only created once groups are spilled
+        assertThat(Files.isDirectory(spillDirectory), is(true));
+    }
+
+    @Test
+    public void testSpillDirectoryDefaultsToDataPath() throws Exception {
+        Path home = createTempDir();
+        Settings settings = Settings.builder()
+            .put(Environment.PATH_HOME_SETTING.getKey(), home.toString())
+            .build();
+        Settings pluginSettings = new SQLPlugin(settings).additionalSettings();
+        assertThat(pluginSettings.get(ProjectionToProjectorVisitor.SPILL_PATH_SETTING.getKey()),
+            is(new Environment(settings).dataFiles()[0].resolve("spill").toString()));
+    }
+
     @Test
     public void testFilterProjection() throws Exception {
         EqOperator op =
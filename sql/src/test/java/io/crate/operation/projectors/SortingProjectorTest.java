@@ -24,6 +24,7 @@ package io.crate.operation.projectors;
 
 import com.google.common.collect.ImmutableList;
 import io.crate.analyze.symbol.Literal;
+import io.crate.breaker.RowSizeEstimator;
 import io.crate.data.BatchIterator;
 import io.crate.data.Bucket;
 import io.crate.data.Row;
@@ -33,23 +34,47 @@ import io.crate.operation.projectors.sorting.OrderingByPosition;
 import io.crate.test.integration.CrateUnitTest;
 import io.crate.testing.TestingBatchConsumer;
 import io.crate.testing.TestingBatchIterators;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
 import org.junit.Test;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
 import static io.crate.testing.TestingHelpers.isRow;
 import static org.hamcrest.core.Is.is;
 
 public class SortingProjectorTest extends CrateUnitTest {
 
     private TestingBatchConsumer consumer = new TestingBatchConsumer();
+    private Path spillDirectory;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        spillDirectory = createTempDir();
+    }
 
     private SortingProjector createProjector(int numOutputs, int offset) {
+        return createProjector(numOutputs, offset, Long.MAX_VALUE);
+    }
+
+    private SortingProjector createProjector(int numOutputs, int offset, long spillThresholdBytes) {
         InputCollectExpression input = new InputCollectExpression(0);
+        List<DataType> types = Arrays.asList(DataTypes.INTEGER, DataTypes.BOOLEAN);
         return new SortingProjector(
             ImmutableList.of(input, Literal.of(true)),
             ImmutableList.<CollectExpression<Row, ?>>of(input),
             numOutputs,
             OrderingByPosition.arrayOrdering(0, false, null),
-            offset
+            offset,
+            DataTypes.getStreamers(types),
+            new RowSizeEstimator(types),
+            spillThresholdBytes,
+            spillDirectory
         );
     }
 
@@ -82,11 +107,31 @@ public class SortingProjectorTest extends CrateUnitTest {
         }
     }
 
+    @Test
+    public void testOrderByWithSpilledRuns() throws Exception {
+        // the threshold is exceeded every few rows, so the rows are written to multiple sorted runs
+        SortingProjector projector = createProjector(2, 2, 100L);
+
+        BatchIterator batchIterator = projector.apply(TestingBatchIterators.range(1, 11));
+        consumer.accept(batchIterator, null);
+        Bucket rows = consumer.getBucket();
+
+        assertThat(rows.size(), is(8));
+        int iterateLength = 3;
+        for (Row row : rows) {
+            assertThat(row, isRow(iterateLength++, true));
+        }
+        // the runs are deleted once the projector is done
+        try (Stream<Path> runFiles = Files.list(spillDirectory)) {
+            assertThat(runFiles.count(), is(0L));
+        }
+    }
+
     @Test
     public void testInvalidOffset() throws Exception {
         expectedException.expect(IllegalArgumentException.class);
         expectedException.expectMessage("invalid offset -1");
 
-        new SortingProjector(null, null, 2, null, -1);
+        new SortingProjector(null, null, 2, null, -1, null, null, Long.MAX_VALUE, null);
     }
 }
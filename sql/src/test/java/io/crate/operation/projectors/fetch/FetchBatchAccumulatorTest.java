@@ -82,6 +82,32 @@ public class FetchBatchAccumulatorTest {
         assertThat(result.next().get(0), is(4));
     }
 
+    @Test
+    public void testNextBatchCanBeProcessedBeforePreviousBatchIsConsumed() throws Exception {
+        FetchBatchAccumulator fetchBatchAccumulator = new FetchBatchAccumulator(
+            fetchOperation,
+            getFunctions(),
+            buildOutputSymbols(),
+            buildFetchProjectorContext(),
+            2
+        );
+        fetchBatchAccumulator.onItem(new Row1(1L));
+        fetchBatchAccumulator.onItem(new Row1(2L));
+        CompletableFuture<Iterator<? extends Row>> firstBatch = fetchBatchAccumulator.processBatch(false);
+
+        fetchBatchAccumulator.onItem(new Row1(3L));
+        CompletableFuture<Iterator<? extends Row>> secondBatch = fetchBatchAccumulator.processBatch(true);
+
+        Iterator<? extends Row> result = firstBatch.get(10, TimeUnit.SECONDS);
+        assertThat(result.next().get(0), is(1));
+        assertThat(result.next().get(0), is(2));
+        assertThat(result.hasNext(), is(false));
+
+        result = secondBatch.get(10, TimeUnit.SECONDS);
+        assertThat(result.next().get(0), is(3));
+        assertThat(result.hasNext(), is(false));
+    }
+
     private static List<Symbol> buildOutputSymbols() {
         return Collections.singletonList(new FetchReference(
             new InputColumn(0),
@@ -0,0 +1,107 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.operation.projectors.writer;
+
+import io.crate.test.integration.CrateUnitTest;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.Matchers.is;
+
+public class PipelinedGzipOutputStreamTest extends CrateUnitTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @After
+    public void shutdownExecutor() throws Exception {
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testWrittenBytesAreCompressedInOrder() throws Exception {
+        byte[] data = new byte[PipelinedGzipOutputStream.CHUNK_SIZE * 10 + 17];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i % 251);
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = new PipelinedGzipOutputStream(compressed, executor)) {
+            int pos = 0;
+            while (pos < data.length) {
+                // mix single bytes and arrays of different sizes
+                out.write(data[pos++]);
+                int len = Math.min(randomIntBetween(0, PipelinedGzipOutputStream.CHUNK_SIZE * 2), data.length - pos);
+                out.write(data, pos, len);
+                pos += len;
+            }
+        }
+        assertThat(Arrays.equals(decompress(compressed.toByteArray()), data), is(true));
+    }
+
+    @Test
+    public void testCompressionFailureIsRethrown() throws Exception {
+        OutputStream failing = new OutputStream() {
+
+            private int written = 0;
+
+            @Override
+            public void write(int b) throws IOException {
+                // accept the gzip header
+                if (++written > 10) {
+                    throw new IOException("disk full");
+                }
+            }
+        };
+        byte[] incompressible = new byte[PipelinedGzipOutputStream.CHUNK_SIZE * 3];
+        random().nextBytes(incompressible);
+
+        // depending on the progress of the compression the failure is thrown by write or close
+        expectedException.expect(IOException.class);
+        expectedException.expectMessage("disk full");
+        try (OutputStream out = new PipelinedGzipOutputStream(failing, executor)) {
+            out.write(incompressible);
+        }
+    }
+
+    private static byte[] decompress(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+}
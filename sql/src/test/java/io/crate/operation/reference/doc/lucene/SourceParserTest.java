@@ -0,0 +1,80 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.operation.reference.doc.lucene;
+
+import io.crate.test.integration.CrateUnitTest;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class SourceParserTest extends CrateUnitTest {
+
+    private static final BytesArray SOURCE = new BytesArray(
+        "{" +
+        "  \"x\": 10," +
+        "  \"obj\": {\"a\": {\"b\": \"foo\", \"c\": 1}, \"d\": [1, 2]}," +
+        "  \"objects\": [{\"a\": 1, \"b\": true}, {\"a\": 2}]," +
+        "  \"s\": \"bar\"" +
+        "}");
+
+    @Test
+    public void testOnlyRegisteredColumnsAreParsed() throws Exception {
+        SourceParser parser = new SourceParser();
+        parser.register(new String[]{"obj", "a", "b"});
+        parser.register(new String[]{"x"});
+
+        Map<String, Object> source = parser.parse(SOURCE);
+        assertThat(source.size(), is(2));
+        assertThat(source.get("x"), is(10));
+        assertThat(XContentMapValues.extractValue("obj.a.b", source), is("foo"));
+        assertThat(XContentMapValues.extractValue("obj.a.c", source), nullValue());
+        assertThat(XContentMapValues.extractValue("s", source), nullValue());
+    }
+
+    @Test
+    public void testChildrenOfArraysAreExtractedFromAllElements() throws Exception {
+        SourceParser parser = new SourceParser();
+        parser.register(new String[]{"objects", "a"});
+
+        Map<String, Object> source = parser.parse(SOURCE);
+        assertThat(XContentMapValues.extractValue("objects.a", source), is(Arrays.asList(1, 2)));
+    }
+
+    @Test
+    public void testRegisteringParentIncludesAllChildren() throws Exception {
+        SourceParser parser = new SourceParser();
+        parser.register(new String[]{"obj", "a", "b"});
+        parser.register(new String[]{"obj"});
+        parser.register(new String[]{"obj", "d"});
+
+        Map<String, Object> source = parser.parse(SOURCE);
+        assertThat(XContentMapValues.extractValue("obj.a.c", source), is(1));
+        assertThat(XContentMapValues.extractValue("obj.d", source), is(Arrays.asList(1, 2)));
+    }
+}
@@ -43,6 +43,7 @@ import io.crate.planner.projection.*;
 import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
 import io.crate.testing.SQLExecutor;
 import io.crate.types.DataTypes;
+import org.elasticsearch.common.settings.Settings;
 import org.hamcrest.Matchers;
 import org.junit.Before;
 import org.junit.Test;
@@ -67,13 +68,17 @@ public class NestedLoopConsumerTest extends CrateDummyClusterServiceUnitTest {
         .add("nope", DataTypes.BOOLEAN)
         .build();
 
+    private static final long REPARTITION_MIN_NUM_DOCS =
+        ConsumingPlanner.JOIN_REPARTITION_MIN_NUM_DOCS_SETTING.getDefault(Settings.EMPTY);
+
     private NestedLoopConsumer consumer;
     private Planner.Context plannerContext;
     private SQLExecutor e;
+    private TableStats tableStats;
 
     @Before
     public void prepare() throws Exception {
-        TableStats tableStats = getTableStats();
+        tableStats = getTableStats();
         e = SQLExecutor.builder(clusterService)
             .enableDefaultTables()
             .setTableStats(tableStats)
@@ -85,12 +90,12 @@ public class NestedLoopConsumerTest extends CrateDummyClusterServiceUnitTest {
             e.planner,
             clusterService,
             UUID.randomUUID(),
-            new ConsumingPlanner(clusterService, functions, tableStats),
+            new ConsumingPlanner(Settings.EMPTY, clusterService, functions, tableStats),
             normalizer,
             new TransactionContext(SessionContext.SYSTEM_SESSION),
             0,
             0);
-        consumer = new NestedLoopConsumer(clusterService, functions, tableStats);
+        consumer = new NestedLoopConsumer(Settings.EMPTY, clusterService, functions, tableStats);
     }
 
     private TableStats getTableStats() {
@@ -365,4 +370,82 @@ public class NestedLoopConsumerTest extends CrateDummyClusterServiceUnitTest {
         OrderedTopNProjection projection = (OrderedTopNProjection) nestedLoop.nestedLoopPhase().projections().get(1);
         assertThat(projection.outputs().size(), is(2));
     }
+
+    @Test
+    public void testEquiJoinConditionResultsInHashJoin() throws Exception {
+        QueryThenFetch plan = plan("select u1.name, u2.name from users u1 " +
+                                   "inner join users u2 on u1.id = u2.id and u1.name = u2.name");
+        NestedLoopPhase nl = ((NestedLoop) plan.subPlan()).nestedLoopPhase();
+        assertThat(nl.isHashJoin(), is(true));
+        assertThat(nl.name(), is("hash-join"));
+        assertThat(nl.leftJoinKeys().length, is(2));
+        assertThat(nl.rightJoinKeys().length, is(2));
+        assertThat(nl.rightOutputTypes().size(), is(nl.numRightOutputs()));
+    }
+
+    @Test
+    public void testOuterJoinWithEquiJoinConditionResultsInHashJoin() throws Exception {
+        QueryThenFetch plan = plan("select u1.name, u2.name from users u1 left join users u2 on u1.id = u2.id");
+        NestedLoopPhase nl = ((NestedLoop) plan.subPlan()).nestedLoopPhase();
+        assertThat(nl.isHashJoin(), is(true));
+        assertThat(nl.joinCondition(), isFunction("op_="));
+    }
+
+    @Test
+    public void testNonEquiJoinConditionResultsInNestedLoop() throws Exception {
+        QueryThenFetch plan = plan("select u1.name, u2.name from users u1 inner join users u2 on u1.id > u2.id");
+        NestedLoopPhase nl = ((NestedLoop) plan.subPlan()).nestedLoopPhase();
+        assertThat(nl.isHashJoin(), is(false));
+        assertThat(nl.name(), is("nested-loop"));
+    }
+
+    @Test
+    public void testHashJoinOnLargeTablesIsRepartitionedByJoinKey() throws Exception {
+        ObjectLongMap<TableIdent> stats = new ObjectLongHashMap<>(2);
+        stats.put(TableDefinitions.USER_TABLE_IDENT, REPARTITION_MIN_NUM_DOCS);
+        stats.put(TableDefinitions.USER_TABLE_IDENT_MULTI_PK, REPARTITION_MIN_NUM_DOCS * 2);
+        tableStats.updateTableStats(stats);
+
+        QueryThenFetch qtf = plan("select u1.name, u2.name from users u1 " +
+                                  "inner join users_multi_pk u2 on u1.id = u2.id");
+        Merge merge = (Merge) qtf.subPlan();
+        NestedLoop nl = (NestedLoop) merge.subPlan();
+        NestedLoopPhase nlPhase = nl.nestedLoopPhase();
+        assertThat(nlPhase.name(), is("distributed-hash-join"));
+        assertThat(nlPhase.leftMergePhase(), notNullValue());
+        assertThat(nlPhase.rightMergePhase(), notNullValue());
+
+        CollectPhase left = ((Collect) nl.left()).collectPhase();
+        CollectPhase right = ((Collect) nl.right()).collectPhase();
+        assertThat(left.distributionInfo().distributionType(), is(DistributionType.MODULO));
+        assertThat(left.distributionInfo().distributeByColumn(), is(nlPhase.leftJoinKeys()[0]));
+        assertThat(right.distributionInfo().distributionType(), is(DistributionType.MODULO));
+        assertThat(right.distributionInfo().distributeByColumn(), is(nlPhase.rightJoinKeys()[0]));
+    }
+
+    @Test
+    public void testHashJoinOnObjectKeyIsNotRepartitioned() throws Exception {
+        ObjectLongMap<TableIdent> stats = new ObjectLongHashMap<>(2);
+        stats.put(TableDefinitions.USER_TABLE_IDENT, REPARTITION_MIN_NUM_DOCS);
+        stats.put(TableDefinitions.USER_TABLE_IDENT_MULTI_PK, REPARTITION_MIN_NUM_DOCS * 2);
+        tableStats.updateTableStats(stats);
+
+        // the hash of objects and arrays differs between nodes, so equal keys could end up on different nodes
+        QueryThenFetch qtf = plan("select u1.name, u2.name from users u1 " +
+                                  "inner join users_multi_pk u2 on u1.details = u2.details");
+        NestedLoop nl = (NestedLoop) qtf.subPlan();
+        assertThat(nl.nestedLoopPhase().name(), is("hash-join"));
+        CollectPhase right = ((Collect) nl.right()).collectPhase();
+        assertThat(right.distributionInfo().distributionType(), is(DistributionType.BROADCAST));
+    }
+
+    @Test
+    public void testHashJoinOnSmallTablesIsNotRepartitioned() throws Exception {
+        QueryThenFetch qtf = plan("select u1.name, u2.name from users u1 " +
+                                  "inner join users_multi_pk u2 on u1.id = u2.id");
+        NestedLoop nl = (NestedLoop) qtf.subPlan();
+        assertThat(nl.nestedLoopPhase().name(), is("hash-join"));
+        CollectPhase right = ((Collect) nl.right()).collectPhase();
+        assertThat(right.distributionInfo().distributionType(), is(DistributionType.BROADCAST));
+    }
 }
@@ -98,5 +98,40 @@ public class NestedLoopPhaseTest extends CrateUnitTest {
         assertThat(node.joinType(), is(node2.joinType()));
         assertThat(node.numLeftOutputs(), is(node2.numLeftOutputs()));
         assertThat(node.numRightOutputs(), is(node2.numRightOutputs()));
+        assertThat(node2.isHashJoin(), is(false));
+    }
+
+    @Test
+    public void testSerializationOfHashJoinKeys() throws Exception {
+        TopNProjection topNProjection = new TopNProjection(10, 0, Collections.emptyList());
+        SqlExpressions sqlExpressions = new SqlExpressions(T3.SOURCES, T3.TR_1);
+        Symbol joinCondition = sqlExpressions.normalize(sqlExpressions.asSymbol("t1.x = t1.i"));
+        NestedLoopPhase node = new NestedLoopPhase(
+            UUID.randomUUID(),
+            1,
+            "hash-join",
+            ImmutableList.of(topNProjection),
+            null,
+            null,
+            Sets.newHashSet("node1"),
+            JoinType.LEFT,
+            joinCondition,
+            2,
+            2,
+            new int[] { 0, 1 },
+            new int[] { 1, 0 },
+            ImmutableList.of(DataTypes.INTEGER, DataTypes.STRING)
+        );
+
+        BytesStreamOutput output = new BytesStreamOutput();
+        node.writeTo(output);
+
+        StreamInput input = output.bytes().streamInput();
+        NestedLoopPhase node2 = new NestedLoopPhase(input);
+
+        assertThat(node2.isHashJoin(), is(true));
+        assertThat(node2.leftJoinKeys(), is(node.leftJoinKeys()));
+        assertThat(node2.rightJoinKeys(), is(node.rightJoinKeys()));
+        assertThat(node2.rightOutputTypes(), is(node.rightOutputTypes()));
     }
 }
@@ -22,16 +22,20 @@
 package io.crate.planner.projection;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import io.crate.analyze.symbol.InputColumn;
 import io.crate.analyze.symbol.Literal;
 import io.crate.analyze.symbol.Symbol;
 import io.crate.metadata.ColumnIdent;
 import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataTypes;
 import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.junit.Test;
 
+import static org.hamcrest.Matchers.is;
+
 public class WriterProjectionTest extends CrateUnitTest {
 
     @Test
@@ -54,4 +58,27 @@ public class WriterProjectionTest extends CrateUnitTest {
 
         assertEquals(p, p2);
     }
+
+    @Test
+    public void testStreamingWithPartitionByAndMaxFileSize() throws Exception {
+        WriterProjection p = new WriterProjection(
+            ImmutableList.<Symbol>of(new InputColumn(0)),
+            Literal.of("/foo.json"),
+            null,
+            ImmutableMap.of(),
+            null,
+            WriterProjection.OutputFormat.JSON_OBJECT,
+            new InputColumn(1, DataTypes.STRING),
+            1024L
+        );
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        Projection.toStream(p, out);
+
+        StreamInput in = out.bytes().streamInput();
+        WriterProjection p2 = (WriterProjection) Projection.fromStream(in);
+
+        assertEquals(p, p2);
+        assertThat(p2.maxFileSize(), is(1024L));
+    }
 }
@@ -35,7 +35,11 @@ import java.util.Arrays;
 import static com.carrotsearch.randomizedtesting.RandomizedTest.$;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 public class MessagesTest {
@@ -59,4 +63,46 @@ public class MessagesTest {
         assertThat(buffer.readInt(), is(16));
         assertThat(buffer.readableBytes(), is(12)); // 16 - INT4 because the size was already read
     }
+
+    @Test
+    public void testDataRowWriterWritesBufferedRowsOnFlush() throws Exception {
+        Channel channel = mock(Channel.class, Answers.RETURNS_MOCKS.get());
+        DataRowWriter writer = new DataRowWriter(channel, Arrays.asList(DataTypes.INTEGER, DataTypes.STRING), null);
+        writer.write(new RowN($(10, null)));
+        writer.write(new RowN($(20, null)));
+        verify(channel, never()).write(any());
+
+        writer.flush();
+        ArgumentCaptor<Object> writeCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(channel, times(1)).write(writeCaptor.capture());
+        ChannelBuffer buffer = (ChannelBuffer) writeCaptor.getValue();
+
+        for (int i = 0; i < 2; i++) {
+            assertThat((char) buffer.readByte(), is('D'));
+            assertThat(buffer.readInt(), is(16));
+            buffer.skipBytes(12);
+        }
+        assertThat(buffer.readable(), is(false));
+    }
+
+    @Test
+    public void testDataRowWriterDiscardsRowWhichFailsToEncode() throws Exception {
+        Channel channel = mock(Channel.class, Answers.RETURNS_MOCKS.get());
+        DataRowWriter writer = new DataRowWriter(channel, Arrays.asList(DataTypes.INTEGER, DataTypes.STRING), null);
+        writer.write(new RowN($(10, null)));
+        try {
+            writer.write(new RowN($("not an integer", null)));
+            fail("encoding a string as integer must fail");
+        } catch (ClassCastException ignored) {
+        }
+
+        writer.flush();
+        ArgumentCaptor<Object> writeCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(channel, times(1)).write(writeCaptor.capture());
+        ChannelBuffer buffer = (ChannelBuffer) writeCaptor.getValue();
+        assertThat((char) buffer.readByte(), is('D'));
+        assertThat(buffer.readInt(), is(16));
+        buffer.skipBytes(12);
+        assertThat(buffer.readable(), is(false));
+    }
 }
@@ -0,0 +1,140 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.rest.action;
+
+import com.google.common.collect.ImmutableList;
+import io.crate.analyze.symbol.Field;
+import io.crate.data.RowN;
+import io.crate.metadata.ColumnIdent;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.testing.DummyRelation;
+import io.crate.types.ArrayType;
+import io.crate.types.DataTypes;
+import org.apache.lucene.util.BytesRef;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+
+public class ColumnarResultWriterTest extends CrateUnitTest {
+
+    private final List<Field> fields = ImmutableList.of(
+        new Field(new DummyRelation(), ColumnIdent.fromPath("name"), DataTypes.STRING),
+        new Field(new DummyRelation(), ColumnIdent.fromPath("x"), DataTypes.LONG),
+        new Field(new DummyRelation(), ColumnIdent.fromPath("tags"), new ArrayType(DataTypes.INTEGER))
+    );
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testWriteResult() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ColumnarResultWriter writer = new ColumnarResultWriter(out, fields);
+        writer.addRow(new RowN(new Object[]{new BytesRef("foo"), 10L, new Object[]{1, 2}}));
+        writer.addRow(new RowN(new Object[]{null, 20L, null}));
+        writer.addRow(new RowN(new Object[]{new BytesRef("bar"), null, new Object[0]}));
+        long startTime = System.nanoTime();
+        writer.finish(3L, startTime);
+
+        ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] magic = new byte[8];
+        buffer.get(magic);
+        assertThat(new String(magic, StandardCharsets.US_ASCII), is("CRTCOL01"));
+
+        // schema
+        assertThat(buffer.getInt(), is(3));
+        assertThat(readString(buffer), is("name"));
+        assertThat(buffer.getInt(), is(1));
+        assertThat(buffer.getInt(), is(DataTypes.STRING.id()));
+        assertThat(readString(buffer), is("x"));
+        assertThat(buffer.getInt(), is(1));
+        assertThat(buffer.getInt(), is(DataTypes.LONG.id()));
+        assertThat(readString(buffer), is("tags"));
+        assertThat(buffer.getInt(), is(2));
+        assertThat(buffer.getInt(), is(ArrayType.ID));
+        assertThat(buffer.getInt(), is(DataTypes.INTEGER.id()));
+
+        // batch
+        assertThat(buffer.getInt(), is(3));
+
+        assertThat(buffer.get(), is((byte) 0b101));
+        assertThat(buffer.getInt(), is(0));
+        assertThat(buffer.getInt(), is(3));
+        assertThat(buffer.getInt(), is(3));
+        assertThat(buffer.getInt(), is(6));
+        byte[] names = new byte[6];
+        buffer.get(names);
+        assertThat(new String(names, StandardCharsets.UTF_8), is("foobar"));
+
+        assertThat(buffer.get(), is((byte) 0b011));
+        assertThat(buffer.getLong(), is(10L));
+        assertThat(buffer.getLong(), is(20L));
+        assertThat(buffer.getLong(), is(0L));
+
+        assertThat(buffer.get(), is((byte) 0b101));
+        assertThat(buffer.getInt(), is(0));
+        assertThat(buffer.getInt(), is(5));
+        assertThat(buffer.getInt(), is(5));
+        assertThat(buffer.getInt(), is(7));
+        byte[] tags = new byte[7];
+        buffer.get(tags);
+        assertThat(new String(tags, StandardCharsets.UTF_8), is("[1,2][]"));
+
+        // end
+        assertThat(buffer.getInt(), is(0));
+        assertThat(buffer.getLong(), is(3L));
+        assertThat(buffer.getFloat() >= 0f, is(true));
+        assertThat(buffer.hasRemaining(), is(false));
+    }
+
+    @Test
+    public void testFullBatchIsWrittenToOutputRightAway() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ColumnarResultWriter writer = new ColumnarResultWriter(out, fields);
+        RowN row = new RowN(new Object[]{new BytesRef("foo"), 10L, null});
+        for (int i = 0; i < ColumnarResultWriter.BATCH_SIZE - 1; i++) {
+            writer.addRow(row);
+        }
+        assertThat(out.size(), is(0));
+        writer.addRow(row);
+        int batchEnd = out.size();
+        assertThat(batchEnd > 0, is(true));
+
+        writer.finish(ColumnarResultWriter.BATCH_SIZE, System.nanoTime());
+        ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray(), batchEnd, out.size() - batchEnd)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        assertThat(buffer.getInt(), is(0));
+        assertThat(buffer.getLong(), is((long) ColumnarResultWriter.BATCH_SIZE));
+        assertThat(buffer.getFloat() >= 0f, is(true));
+        assertThat(buffer.hasRemaining(), is(false));
+    }
+}
@@ -34,12 +34,29 @@ import io.crate.types.DataTypes;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.json.JsonXContent;
 import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.RestResponse;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.handler.codec.http.DefaultHttpRequest;
+import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import org.jboss.netty.handler.codec.http.HttpVersion;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.*;
 
 public class RestActionReceiversTest extends CrateUnitTest {
@@ -112,6 +129,81 @@ public class RestActionReceiversTest extends CrateUnitTest {
         assertXContentBuilder(actualBuilder, builder.build());
     }
 
+    @Test
+    public void testRestColumnarResultSetReceiverRespondsOnlyOnce() throws Exception {
+        RestChannel channel = newChannel();
+        RestRequest request = mock(RestRequest.class);
+        when(request.method()).thenReturn(RestRequest.Method.POST);
+        when(channel.request()).thenReturn(request);
+        RestColumnarResultSetReceiver receiver = new RestColumnarResultSetReceiver(channel, fields, System.nanoTime());
+
+        // the consumer fails the receiver if a row can't be written and may still finish it afterwards
+        receiver.setNextRow(rows.get(0));
+        expectThrows(ClassCastException.class, () -> receiver.setNextRow(new RowN(new Object[]{"foo", "bar", true})));
+        receiver.fail(new IllegalStateException("failed to write row"));
+        receiver.allFinished(false);
+
+        verify(channel, times(1)).sendResponse(any(RestResponse.class));
+        assertThat(receiver.completionFuture().isCompletedExceptionally(), is(true));
+    }
+
+    @Test
+    public void testRestStreamingResultSetReceiver() throws Exception {
+        List<Object> written = new ArrayList<>();
+        Channel nettyChannel = mock(Channel.class);
+        when(nettyChannel.write(any())).thenAnswer(invocation -> {
+            written.add(invocation.getArguments()[0]);
+            return Channels.succeededFuture(nettyChannel);
+        });
+        when(nettyChannel.close()).thenReturn(Channels.succeededFuture(nettyChannel));
+        RestChannel restChannel = newChannel();
+        AtomicInteger resumed = new AtomicInteger(0);
+        AtomicInteger released = new AtomicInteger(0);
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/_sql?stream");
+
+        ChunkOutputStream out = new ChunkOutputStream();
+        RestStreamingResultSetReceiver receiver = new RestStreamingResultSetReceiver(
+            restChannel,
+            nettyChannel,
+            request,
+            null,
+            out,
+            new JsonResultWriter(out, fields, true),
+            0L,
+            released::incrementAndGet,
+            r -> resumed.incrementAndGet());
+        receiver.setNextRow(rows.get(0));
+        receiver.batchFinished();
+        receiver.setNextRow(rows.get(1));
+        receiver.setNextRow(rows.get(2));
+        receiver.allFinished(false);
+
+        assertThat(resumed.get(), is(1));
+        assertThat(written.get(0), instanceOf(HttpResponse.class));
+        assertThat(((HttpResponse) written.get(0)).headers().contains(HttpHeaders.Names.CONNECTION), is(false));
+        assertThat(written.get(written.size() - 1), is(HttpChunk.LAST_CHUNK));
+        StringBuilder body = new StringBuilder();
+        for (Object o : written.subList(1, written.size() - 1)) {
+            body.append(((HttpChunk) o).getContent().toString(StandardCharsets.UTF_8));
+        }
+
+        ResultToXContentBuilder builder = ResultToXContentBuilder.builder(newChannel());
+        builder.cols(fields);
+        builder.colTypes(fields);
+        builder.startRows();
+        for (Row row : rows) {
+            builder.addRow(row, 3);
+        }
+        builder.finishRows();
+        builder.rowCount(rows.size());
+        assertEquals(stripDuration(builder.build().string()), stripDuration(body.toString()));
+        assertThat(receiver.completionFuture().isDone(), is(true));
+        // the response is written to the netty channel only and the connection is kept alive
+        verify(restChannel, never()).sendResponse(any(RestResponse.class));
+        verify(nettyChannel, never()).close();
+        assertThat(released.get(), is(1));
+    }
+
     @Test
     public void testRestBulkRowCountReceiver() throws Exception {
         RestBulkRowCountReceiver.Result[] results = new RestBulkRowCountReceiver.Result[] {
@@ -31,6 +31,7 @@ import io.crate.operation.user.UserManager;
 import io.crate.operation.user.UserManagerProvider;
 import io.crate.test.integration.CrateUnitTest;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
 import org.elasticsearch.rest.RestController;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.test.rest.FakeRestRequest;
@@ -77,7 +78,7 @@ public class RestSQLActionTest extends CrateUnitTest {
 
     @Test
     public void testDefaultUserIfHttpHeaderNotPresent() throws Exception {
-        RestSQLAction restSQLAction = new RestSQLAction(Settings.EMPTY, restController, sqlOperations, userManagerProvider);
+        RestSQLAction restSQLAction = new RestSQLAction(Settings.EMPTY, restController, sqlOperations, userManagerProvider, new NoneCircuitBreakerService());
         RestRequest request = new FakeRestRequest.Builder()
             .withHeaders(Collections.emptyMap())
             .build();
@@ -89,7 +90,7 @@ public class RestSQLActionTest extends CrateUnitTest {
         Settings settings = Settings.builder()
             .put(AuthenticationProvider.AUTH_TRUST_HTTP_DEFAULT_HEADER.getKey(), "trillian")
             .build();
-        RestSQLAction restSQLAction = new RestSQLAction(settings, restController, sqlOperations, userManagerProvider);
+        RestSQLAction restSQLAction = new RestSQLAction(settings, restController, sqlOperations, userManagerProvider, new NoneCircuitBreakerService());
         RestRequest request = new FakeRestRequest.Builder()
             .withHeaders(Collections.emptyMap())
             .build();
@@ -98,11 +99,24 @@ public class RestSQLActionTest extends CrateUnitTest {
 
     @Test
     public void testUserIfHttpHeaderIsPresent() throws Exception {
-        RestSQLAction restSQLAction = new RestSQLAction(Settings.EMPTY, restController, sqlOperations, userManagerProvider);
+        RestSQLAction restSQLAction = new RestSQLAction(Settings.EMPTY, restController, sqlOperations, userManagerProvider, new NoneCircuitBreakerService());
         RestRequest request = new FakeRestRequest.Builder()
             .withHeaders(Collections.singletonMap("X-User", "other"))
             .build();
         assertThat(restSQLAction.userFromRequest(request).name(), is("other"));
 
     }
+
+    @Test
+    public void testAcceptsColumnar() throws Exception {
+        assertThat(RestSQLAction.acceptsColumnar(null), is(false));
+        assertThat(RestSQLAction.acceptsColumnar("*/*"), is(false));
+        assertThat(RestSQLAction.acceptsColumnar("application/json"), is(false));
+        assertThat(RestSQLAction.acceptsColumnar("application/vnd.crate.columnar"), is(true));
+        assertThat(RestSQLAction.acceptsColumnar("application/json;q=0.5, application/vnd.crate.columnar"), is(true));
+        assertThat(RestSQLAction.acceptsColumnar("application/vnd.crate.columnar;q=0.8, */*;q=0.1"), is(true));
+        assertThat(RestSQLAction.acceptsColumnar("application/vnd.crate.columnar;q=0.5, application/json"), is(false));
+        assertThat(RestSQLAction.acceptsColumnar("application/vnd.crate.columnar;q=0"), is(false));
+        assertThat(RestSQLAction.acceptsColumnar("application/vnd.crate.columnar;q=0.5, application/*;q=0.8, application/json;q=0.1"), is(true));
+    }
 }
@@ -175,6 +175,7 @@ public class SQLExecutor {
                         null)
                 ),
                 new Planner(
+                    Settings.EMPTY,
                     clusterService,
                     functions,
                     tableStats